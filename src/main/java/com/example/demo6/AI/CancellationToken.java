@@ -0,0 +1,33 @@
+package com.example.demo6.AI;
+
+/**
+ * Signals a running search that its result is no longer needed.
+ * The search checks the token between iterations and returns the best result found so far
+ * as soon as the token is cancelled, so an abandoned search frees its thread within milliseconds.
+ */
+public class CancellationToken {
+    private volatile boolean cancelled;
+
+    /**
+     * Constructs a token that is not cancelled.
+     */
+    public CancellationToken() {
+        this.cancelled = false;
+    }
+
+    /**
+     * Cancels the search that checks this token. Cancelling twice has no further effect.
+     */
+    public void cancel() {
+        cancelled = true;
+    }
+
+    /**
+     * Checks if the search should stop.
+     *
+     * @return true if the token was cancelled, false otherwise.
+     */
+    public boolean isCancelled() {
+        return cancelled;
+    }
+}
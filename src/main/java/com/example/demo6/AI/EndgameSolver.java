@@ -0,0 +1,195 @@
+package com.example.demo6.AI;
+
+import com.example.demo6.Model.Deck;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * Solves every endgame in which both players hold exactly one card.
+ * In such a position the outcome only depends on the coins of both players, the two card types and the side to move;
+ * the deck holds every other card, because lost and exchanged cards are returned to it.
+ * Positions are stored from the point of view of the player to move, so the side to move is implied by the index.
+ * The solver assumes both hands are known, which is how the simulated games of the search see them: a responder
+ * challenges or blocks exactly when it pays off, and a claim that is challenged costs the loser their last card.
+ * Values are found by expectimax value iteration, with chance nodes for the two cards drawn by a swap.
+ * Coins are capped at {@link #COIN_CAP}: with 7 coins a player coups immediately, and a steal of two coins from
+ * 9 or more still leaves 7, so every larger coin count behaves the same.
+ */
+public class EndgameSolver {
+    public static final int COIN_CAP = 9;
+    public static final int COIN_VALUES = COIN_CAP + 1;
+    public static final int CARD_TYPES = Deck.CardType.values().length;
+    public static final int POSITION_COUNT = COIN_VALUES * COIN_VALUES * CARD_TYPES * CARD_TYPES;
+    private static final int DUKE = Deck.CardType.DUKE.ordinal();
+    private static final int ASSASSIN = Deck.CardType.ASSASSIN.ordinal();
+    private static final int CAPTAIN = Deck.CardType.CAPTAIN.ordinal();
+    private static final int AMBASSADOR = Deck.CardType.AMBASSADOR.ordinal();
+    private static final int CONTESSA = Deck.CardType.CONTESSA.ordinal();
+    private static final double WIN = 1;
+    private static final double LOSS = -1;
+    private static final double CONVERGENCE_THRESHOLD = 1e-12;
+    private static final int MAX_ITERATIONS = 10_000;
+    private final double[] values;
+
+    /**
+     * Constructs a solver with every position valued as a draw.
+     */
+    public EndgameSolver() {
+        this.values = new double[POSITION_COUNT];
+    }
+
+    /**
+     * Calculates the index of a position in the tablebase.
+     *
+     * @param moverCoins The coins of the player to move, capped at {@link #COIN_CAP}.
+     * @param otherCoins The coins of the other player, capped at {@link #COIN_CAP}.
+     * @param moverCard The ordinal of the card type held by the player to move.
+     * @param otherCard The ordinal of the card type held by the other player.
+     * @return The index of the position.
+     */
+    public static int positionIndex(int moverCoins, int otherCoins, int moverCard, int otherCard) {
+        return ((Math.min(moverCoins, COIN_CAP) * COIN_VALUES + Math.min(otherCoins, COIN_CAP)) * CARD_TYPES + moverCard)
+                * CARD_TYPES + otherCard;
+    }
+
+    /**
+     * Runs value iteration until the values of all positions stop changing.
+     *
+     * @return The values of all positions from the point of view of the player to move, between -1 and 1.
+     */
+    public double[] solve() {
+        int iteration = 0;
+        double delta;
+        do {
+            delta = 0;
+            for (int moverCoins = 0; moverCoins < COIN_VALUES; moverCoins++) {
+                for (int otherCoins = 0; otherCoins < COIN_VALUES; otherCoins++) {
+                    for (int moverCard = 0; moverCard < CARD_TYPES; moverCard++) {
+                        for (int otherCard = 0; otherCard < CARD_TYPES; otherCard++) {
+                            int index = positionIndex(moverCoins, otherCoins, moverCard, otherCard);
+                            double value = evaluate(moverCoins, otherCoins, moverCard, otherCard);
+                            delta = Math.max(delta, Math.abs(value - values[index]));
+                            values[index] = value;
+                        }
+                    }
+                }
+            }
+            iteration++;
+        } while (delta > CONVERGENCE_THRESHOLD && iteration < MAX_ITERATIONS);
+        System.out.println("Endgame tablebase solved in " + iteration + " iterations, last change " + delta);
+        return values.clone();
+    }
+
+    /**
+     * Calculates the value of a position by letting the player to move pick the best action,
+     * given the best responses of the other player.
+     */
+    private double evaluate(int moverCoins, int otherCoins, int moverCard, int otherCard) {
+        if (moverCoins >= 7) {
+            // Coup cannot be challenged or blocked and removes the last card of the opponent.
+            return WIN;
+        }
+        double best = afterTurn(otherCoins, moverCoins + 1, otherCard, moverCard); // Income
+
+        // Foreign aid can be blocked by a Duke claim, which the mover may challenge.
+        double blockedForeignAid = Math.max(pass(moverCoins, otherCoins, moverCard, otherCard),
+                otherCard == DUKE ? LOSS : WIN);
+        best = Math.max(best, Math.min(afterTurn(otherCoins, moverCoins + 2, otherCard, moverCard), blockedForeignAid));
+
+        // Tax claims a Duke.
+        best = Math.max(best, Math.min(afterTurn(otherCoins, moverCoins + 3, otherCard, moverCard),
+                challenged(moverCard == DUKE)));
+
+        if (moverCoins >= 3) {
+            // Assassinate claims an Assassin and can be blocked by a Contessa claim; a blocked attempt costs nothing.
+            double blockedAssassination = Math.max(pass(moverCoins, otherCoins, moverCard, otherCard),
+                    otherCard == CONTESSA ? LOSS : WIN);
+            best = Math.max(best, Math.min(Math.min(WIN, challenged(moverCard == ASSASSIN)), blockedAssassination));
+        }
+
+        if (otherCoins > 0) {
+            // Steal claims a Captain and can be blocked by a Captain or Ambassador claim.
+            int stolen = Math.min(2, otherCoins);
+            double blockedSteal = Math.max(pass(moverCoins, otherCoins, moverCard, otherCard),
+                    otherCard == CAPTAIN || otherCard == AMBASSADOR ? LOSS : WIN);
+            best = Math.max(best, Math.min(Math.min(afterTurn(otherCoins - stolen, moverCoins + stolen, otherCard, moverCard),
+                    challenged(moverCard == CAPTAIN)), blockedSteal));
+        }
+
+        // Swap claims an Ambassador.
+        best = Math.max(best, Math.min(swap(moverCoins, otherCoins, moverCard, otherCard),
+                challenged(moverCard == AMBASSADOR)));
+        return best;
+    }
+
+    /**
+     * Calculates the expected value of a swap, where the player to move draws two cards from the deck
+     * and keeps the best of the three.
+     */
+    private double swap(int moverCoins, int otherCoins, int moverCard, int otherCard) {
+        int[] deckCounts = new int[CARD_TYPES];
+        int deckSize = 0;
+        for (int cardType = 0; cardType < CARD_TYPES; cardType++) {
+            deckCounts[cardType] = Deck.NUMBER_OF_COPIES - (cardType == moverCard ? 1 : 0) - (cardType == otherCard ? 1 : 0);
+            deckSize += deckCounts[cardType];
+        }
+        if (deckSize < 2) {
+            return afterTurn(otherCoins, moverCoins, otherCard, moverCard);
+        }
+        double expected = 0;
+        for (int first = 0; first < CARD_TYPES; first++) {
+            if (deckCounts[first] == 0) {
+                continue;
+            }
+            double firstProbability = (double) deckCounts[first] / deckSize;
+            for (int second = 0; second < CARD_TYPES; second++) {
+                int secondCount = deckCounts[second] - (first == second ? 1 : 0);
+                if (secondCount <= 0) {
+                    continue;
+                }
+                double probability = firstProbability * secondCount / (deckSize - 1);
+                double kept = afterTurn(otherCoins, moverCoins, otherCard, moverCard);
+                kept = Math.max(kept, afterTurn(otherCoins, moverCoins, otherCard, first));
+                kept = Math.max(kept, afterTurn(otherCoins, moverCoins, otherCard, second));
+                expected += probability * kept;
+            }
+        }
+        return expected;
+    }
+
+    /**
+     * Returns the value for the player to move when a claim is challenged.
+     * A truthful claim costs the challenger their last card, a bluff costs the claimant theirs.
+     */
+    private static double challenged(boolean claimIsTrue) {
+        return claimIsTrue ? WIN : LOSS;
+    }
+
+    /**
+     * Returns the value for the player to move when the action fails without changing the position.
+     */
+    private double pass(int moverCoins, int otherCoins, int moverCard, int otherCard) {
+        return afterTurn(otherCoins, moverCoins, otherCard, moverCard);
+    }
+
+    /**
+     * Returns the value for the player who just moved of the position where the other player is to move.
+     */
+    private double afterTurn(int nextMoverCoins, int nextOtherCoins, int nextMoverCard, int nextOtherCard) {
+        return -values[positionIndex(nextMoverCoins, nextOtherCoins, nextMoverCard, nextOtherCard)];
+    }
+
+    /**
+     * Solves all one-influence endgames offline and writes the tablebase file, to build it ahead of time, for example
+     * when an application is deployed, instead of on the first start.
+     *
+     * @param args The path of the tablebase file, defaults to {@link EndgameTablebase#defaultPath()}.
+     * @throws IOException if the file cannot be written.
+     */
+    public static void main(String[] args) throws IOException {
+        Path path = args.length > 0 ? Path.of(args[0]) : EndgameTablebase.defaultPath();
+        EndgameTablebase.write(path, new EndgameSolver().solve());
+        System.out.println("Endgame tablebase written to " + path);
+    }
+}
@@ -0,0 +1,215 @@
+package com.example.demo6.AI;
+
+import com.example.demo6.Model.Game;
+import com.example.demo6.Model.Player;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32C;
+
+/**
+ * A memory-mapped table of the exact values of all endgames in which both players hold a single card,
+ * as computed by {@link EndgameSolver}.
+ * The file starts with a small header followed by one float per position, from the point of view of the player to move.
+ * The header ends with a CRC32C checksum of the values, so a truncated, stale or corrupted file is solved again
+ * instead of being trusted.
+ *
+ * <p>The shared tablebase lives in the cache directory of the user and is loaded on a background thread, see
+ * {@link #loadDefaultInBackground()}, so no search waits for it. It can be built ahead of time with
+ * {@link EndgameSolver#main(String[])}.
+ */
+public class EndgameTablebase {
+    public static final String PATH_PROPERTY = "demo6.tablebase";
+    private static final int MAGIC = 0x43505442;
+    private static final int VERSION = 2;
+    private static final int HEADER_SIZE = 5 * Integer.BYTES;
+    private static final int CHECKSUM_OFFSET = 4 * Integer.BYTES;
+    private static volatile EndgameTablebase defaultTablebase;
+    private static boolean defaultRequested;
+    private final MappedByteBuffer buffer;
+
+    /**
+     * Constructs a tablebase around a mapped tablebase file.
+     *
+     * @param buffer The mapped contents of the file.
+     */
+    private EndgameTablebase(MappedByteBuffer buffer) {
+        this.buffer = buffer;
+    }
+
+    /**
+     * Returns the location of the shared tablebase file, which can be set with the {@value #PATH_PROPERTY} system
+     * property. By default it is in {@code .cache/demo6} below the home directory of the user, where other users
+     * cannot replace it.
+     *
+     * @return The path of the default tablebase file.
+     */
+    public static Path defaultPath() {
+        String path = System.getProperty(PATH_PROPERTY);
+        if (path != null) {
+            return Path.of(path);
+        }
+        return Path.of(System.getProperty("user.home"), ".cache", "demo6", "coup-endgame-v" + VERSION + ".tb");
+    }
+
+    /**
+     * Returns the shared tablebase if it has been loaded. The first call starts loading it in the background,
+     * so a search that starts before the tablebase is ready runs without it instead of waiting for the solver.
+     *
+     * @return The shared tablebase, or null if it is not loaded yet or could not be loaded.
+     */
+    public static EndgameTablebase getDefault() {
+        EndgameTablebase tablebase = defaultTablebase;
+        if (tablebase == null) {
+            loadDefaultInBackground();
+        }
+        return tablebase;
+    }
+
+    /**
+     * Starts loading the shared tablebase on a daemon thread, solving and writing it first if the file is missing
+     * or invalid. Applications call this at startup, so the tablebase is ready by the first search. Only the first
+     * call has an effect.
+     */
+    public static void loadDefaultInBackground() {
+        synchronized (EndgameTablebase.class) {
+            if (defaultRequested) {
+                return;
+            }
+            defaultRequested = true;
+        }
+        Thread loader = new Thread(EndgameTablebase::loadDefault, "endgame-tablebase");
+        loader.setDaemon(true);
+        loader.start();
+    }
+
+    /**
+     * Opens the shared tablebase file, solving and writing it again if it is missing or fails its checks.
+     */
+    private static void loadDefault() {
+        Path path = defaultPath();
+        try {
+            EndgameTablebase tablebase = null;
+            if (Files.exists(path)) {
+                try {
+                    tablebase = open(path);
+                } catch (IllegalStateException e) {
+                    System.out.println(e.getMessage() + ", solving it again");
+                }
+            }
+            if (tablebase == null) {
+                write(path, new EndgameSolver().solve());
+                tablebase = open(path);
+            }
+            defaultTablebase = tablebase;
+        } catch (IOException | IllegalStateException e) {
+            System.out.println("Endgame tablebase is not available: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Maps an existing tablebase file.
+     *
+     * @param path The path of the tablebase file.
+     * @return The tablebase backed by the file.
+     * @throws IOException if the file cannot be read.
+     * @throws IllegalStateException if the file is not a tablebase of this version or its checksum does not match.
+     */
+    public static EndgameTablebase open(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() != HEADER_SIZE + (long) EndgameSolver.POSITION_COUNT * Float.BYTES) {
+                throw new IllegalStateException("Invalid endgame tablebase file: " + path);
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION
+                    || buffer.getInt(8) != EndgameSolver.COIN_CAP || buffer.getInt(12) != EndgameSolver.CARD_TYPES
+                    || buffer.getInt(CHECKSUM_OFFSET) != checksum(buffer.slice(HEADER_SIZE, buffer.limit() - HEADER_SIZE))) {
+                throw new IllegalStateException("Invalid endgame tablebase file: " + path);
+            }
+            return new EndgameTablebase(buffer);
+        }
+    }
+
+    /**
+     * Computes the CRC32C checksum of the values of a tablebase.
+     */
+    private static int checksum(ByteBuffer values) {
+        CRC32C crc = new CRC32C();
+        crc.update(values);
+        return (int) crc.getValue();
+    }
+
+    /**
+     * Writes a solved tablebase to a file, creating its directory if needed. The file is written under a temporary
+     * name and then moved into place, so readers never map a partly written file.
+     *
+     * @param path The path of the tablebase file.
+     * @param values The values of all positions, as returned by {@link EndgameSolver#solve()}.
+     * @throws IOException if the file cannot be written.
+     */
+    public static void write(Path path, double[] values) throws IOException {
+        ByteBuffer contents = ByteBuffer.allocate(HEADER_SIZE + values.length * Float.BYTES);
+        contents.putInt(MAGIC).putInt(VERSION).putInt(EndgameSolver.COIN_CAP).putInt(EndgameSolver.CARD_TYPES).putInt(0);
+        for (double value : values) {
+            contents.putFloat((float) value);
+        }
+        contents.flip();
+        contents.putInt(CHECKSUM_OFFSET, checksum(contents.slice(HEADER_SIZE, values.length * Float.BYTES)));
+        Path directory = path.toAbsolutePath().getParent();
+        Files.createDirectories(directory);
+        // A unique temporary name, so processes that solve the tablebase at the same time do not write into one file
+        Path temporary = Files.createTempFile(directory, path.getFileName().toString(), ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.WRITE)) {
+                while (contents.hasRemaining()) {
+                    channel.write(contents);
+                }
+            }
+            Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+    }
+
+    /**
+     * Checks if a game state is covered by the tablebase.
+     *
+     * @param game The game state to check.
+     * @return true if the game is not over and both players hold exactly one card, false otherwise.
+     */
+    public boolean covers(Game game) {
+        if (game.isGameOver()) {
+            return false;
+        }
+        for (Player player : game.getPlayers()) {
+            if (player.getCards().size() != 1) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns the exact value of a game state for the AI player.
+     *
+     * @param game The game state to look up.
+     * @return The value between -1 (AI loses) and 1 (AI wins), or NaN if the position is not covered.
+     */
+    public double valueForAI(Game game) {
+        if (!covers(game)) {
+            return Double.NaN;
+        }
+        Player mover = game.getCurrentPlayer();
+        Player other = game.getOpponent(mover);
+        int index = EndgameSolver.positionIndex(mover.getCoins(), other.getCoins(),
+                mover.getCards().get(0).getType().ordinal(), other.getCards().get(0).getType().ordinal());
+        double value = buffer.getFloat(HEADER_SIZE + index * Float.BYTES);
+        return mover == game.getAIPlayer() ? value : -value;
+    }
+}
@@ -0,0 +1,440 @@
+package com.example.demo6.AI;
+
+import com.example.demo6.Model.Actions.Action;
+import com.example.demo6.Model.Actions.ActionCode;
+import com.example.demo6.Model.Actions.BlockAction;
+import com.example.demo6.Model.Card;
+import com.example.demo6.Model.Deck;
+import com.example.demo6.Model.Game;
+import com.example.demo6.Model.Player;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static com.example.demo6.AI.Heuristic.*;
+
+/**
+ * An engine that searches the game exhaustively with iterative-deepening expectiminimax.
+ * The AI player maximizes and the human player minimizes the value of the position. Every action is followed
+ * by a chance node over the responses of the opponent (challenge, block and the challenge of a block), each taken with
+ * the 50% probability the simulations use for an unknown player, and over the two cards drawn by a swap.
+ * Chance nodes are pruned with Star1 bounds, moves are ordered by the transposition table and {@link Heuristic},
+ * and the search deepens one ply at a time until the time limit of the budget runs out.
+ * Without a time limit the search stops after 100 nodes per simulation of the budget.
+ */
+public class ExpectiminimaxEngine implements SearchEngine {
+    public static final String NAME = "expectiminimax";
+    private static final double WIN = 1;
+    private static final double LOSS = -1;
+    private static final double MAX_EVALUATION = 0.99;
+    private static final double EVALUATION_SCALE = 50;
+    private static final double RESPONSE_PROBABILITY = 0.5;
+    private static final int NODES_PER_SIMULATION = 100;
+    private static final int MAX_SEARCH_DEPTH = 64;
+    private static final int ORDERING_ONLY_DEPTH = -1;
+    private final Map<Long, SearchEntry> transpositionTable;
+    private long deadlineNanos;
+    private long nodeLimit;
+    private CancellationToken token;
+    private SearchStats stats;
+
+    /**
+     * Constructs an expectiminimax engine with an empty transposition table.
+     */
+    public ExpectiminimaxEngine() {
+        this.transpositionTable = new HashMap<>();
+    }
+
+    /**
+     * Searches the game one ply deeper at a time and returns the best action of the last completed iteration.
+     *
+     * @param state The game state, with the AI player to move.
+     * @param budget The time limit of the search, or its node budget if there is no time limit.
+     * @param token The token that stops the search with the result of the last completed iteration.
+     * @return The best action with its expectiminimax value.
+     */
+    @Override
+    public SearchResult bestMove(Game state, SearchBudget budget, CancellationToken token) {
+        if (state.isGameOver()) {
+            return new SearchResult(null, 0, null);
+        }
+        long startNanos = System.nanoTime();
+        deadlineNanos = budget.deadlineNanos(startNanos);
+        this.token = token;
+        nodeLimit = budget.hasTimeLimit() ? Long.MAX_VALUE : (long) budget.getSimulations() * NODES_PER_SIMULATION;
+        stats = new SearchStats(budget.getSimulations());
+        transpositionTable.clear();
+
+        List<Action> availableActions = state.getAvailableActions(state.getAIPlayer());
+        if (availableActions.isEmpty()) {
+            return new SearchResult(null, 0, stats);
+        }
+        ActionCode bestCode = null;
+        double bestValue = 0;
+        try {
+            for (int depth = 1; depth <= MAX_SEARCH_DEPTH; depth++) {
+                ActionCode iterationBestCode = null;
+                double alpha = LOSS;
+                for (ActionCode code : orderActions(state, availableActions, bestCode)) {
+                    double value = chanceValue(state, code, depth, alpha, WIN);
+                    if (iterationBestCode == null || value > alpha) {
+                        iterationBestCode = code;
+                        alpha = Math.max(alpha, value);
+                    }
+                }
+                bestCode = iterationBestCode;
+                bestValue = alpha;
+                stats.setCompletedDepth(depth);
+                if (Math.abs(bestValue) >= WIN) {
+                    break;
+                }
+            }
+        } catch (SearchTimeout timeout) {
+            // The unfinished iteration is discarded, the previous iteration holds the best move.
+            if (token.isCancelled()) {
+                stats.markCancelled();
+            }
+        }
+        if (bestCode == null) {
+            bestCode = orderActions(state, availableActions, null).get(0);
+        }
+        System.out.println("Expectiminimax searched " + stats.getSimulationsRun() + " nodes to depth "
+                + stats.getCompletedDepth() + ", value = " + bestValue);
+        for (Action action : availableActions) {
+            if (action.getActionCode() == bestCode) {
+                return new SearchResult(action, bestValue, stats);
+            }
+        }
+        return new SearchResult(availableActions.get(0), bestValue, stats);
+    }
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    /**
+     * Calculates the value of a position where a player is about to choose an action.
+     *
+     * @param game The game state.
+     * @param depth The number of plies left to search.
+     * @param alpha The value the maximizing player is already guaranteed.
+     * @param beta The value the minimizing player is already guaranteed.
+     * @return The value of the position for the AI player.
+     */
+    private double search(Game game, int depth, double alpha, double beta) {
+        stats.incrementSimulationsRun();
+        if (stats.getSimulationsRun() > nodeLimit || token.isCancelled()
+                || (deadlineNanos != Long.MAX_VALUE && System.nanoTime() - deadlineNanos >= 0)) {
+            throw SearchTimeout.INSTANCE;
+        }
+        if (game.isGameOver()) {
+            return game.getAIPlayer().getCards().isEmpty() ? LOSS : WIN;
+        }
+        if (depth == 0) {
+            return evaluate(game);
+        }
+        // The canonical key is exact, so a stored value belongs to this position and no other
+        long key = game.getCanonicalStateKey();
+        SearchEntry entry = key < 0 ? null : transpositionTable.get(key);
+        if (entry != null && entry.depth >= depth) {
+            return entry.value;
+        }
+        ActionCode hashMove = entry == null ? null : entry.bestMove;
+
+        Player mover = game.getCurrentPlayer();
+        boolean maximizing = mover == game.getAIPlayer();
+        double originalAlpha = alpha;
+        double originalBeta = beta;
+        double best = maximizing ? LOSS : WIN;
+        ActionCode bestMove = null;
+        List<Action> availableActions = game.getAvailableActions(mover);
+        for (ActionCode code : orderActions(game, availableActions, hashMove)) {
+            double value = chanceValue(game, code, depth, alpha, beta);
+            if (bestMove == null || (maximizing ? value > best : value < best)) {
+                best = value;
+                bestMove = code;
+            }
+            if (maximizing) {
+                alpha = Math.max(alpha, best);
+            } else {
+                beta = Math.min(beta, best);
+            }
+            if (alpha >= beta) {
+                break;
+            }
+        }
+        // Values outside the search window are only bounds, so they are kept for move ordering only
+        boolean exact = best > originalAlpha && best < originalBeta;
+        if (key < 0) {
+            return best;
+        }
+        if (entry == null) {
+            entry = new SearchEntry();
+            transpositionTable.put(key, entry);
+        }
+        entry.bestMove = bestMove;
+        entry.depth = exact ? depth : ORDERING_ONLY_DEPTH;
+        entry.value = best;
+        return best;
+    }
+
+    /**
+     * Calculates the expected value of an action over the responses of the opponent and the cards drawn,
+     * using Star1 pruning: the search stops as soon as the outcomes seen so far prove the value lies outside the window.
+     *
+     * @param game The game state before the action.
+     * @param code The code of the action taken by the player to move.
+     * @param depth The number of plies left to search, including this action.
+     * @param alpha The value the maximizing player is already guaranteed.
+     * @param beta The value the minimizing player is already guaranteed.
+     * @return The expected value of the action for the AI player, or a bound on it if the node was pruned.
+     */
+    private double chanceValue(Game game, ActionCode code, int depth, double alpha, double beta) {
+        List<Outcome> outcomes = new ArrayList<>();
+        addChallengeOutcomes(outcomes, game, code);
+        double expected = 0;
+        double remainingProbability = 1;
+        for (Outcome outcome : outcomes) {
+            double probability = outcome.probability;
+            double otherProbability = remainingProbability - probability;
+            double childAlpha = Math.max(LOSS, (alpha - expected - otherProbability * WIN) / probability);
+            double childBeta = Math.min(WIN, (beta - expected - otherProbability * LOSS) / probability);
+            expected += probability * search(outcome.game, depth - 1, childAlpha, childBeta);
+            remainingProbability = otherProbability;
+            if (expected + remainingProbability * WIN <= alpha) {
+                return expected + remainingProbability * WIN;
+            }
+            if (expected + remainingProbability * LOSS >= beta) {
+                return expected + remainingProbability * LOSS;
+            }
+        }
+        return expected;
+    }
+
+    /**
+     * Adds the outcomes of the challenge step: the opponent challenges the claim of the action or lets it pass.
+     */
+    private void addChallengeOutcomes(List<Outcome> outcomes, Game game, ActionCode code) {
+        Game unchallenged = game.deepCopy();
+        Action action = findAction(unchallenged.getAvailableActions(unchallenged.getCurrentPlayer()), code);
+        if (action == null || !action.canBeChallenged) {
+            addBlockOutcomes(outcomes, unchallenged, code, 1);
+            return;
+        }
+        Game challenged = game.deepCopy();
+        Player mover = challenged.getCurrentPlayer();
+        Action challengedAction = findAction(challenged.getAvailableActions(mover), code);
+        if (challengedAction.challenge()) {
+            loseCard(challenged, challenged.getOpponent(mover));
+            addBlockOutcomes(outcomes, challenged, code, RESPONSE_PROBABILITY);
+        } else {
+            loseCard(challenged, mover);
+            endTurn(challenged);
+            outcomes.add(new Outcome(RESPONSE_PROBABILITY, challenged));
+        }
+        addBlockOutcomes(outcomes, unchallenged, code, 1 - RESPONSE_PROBABILITY);
+    }
+
+    /**
+     * Adds the outcomes of the block step: the opponent blocks the action or lets it pass,
+     * and a block is challenged by the player to move or accepted.
+     */
+    private void addBlockOutcomes(List<Outcome> outcomes, Game game, ActionCode code, double probability) {
+        if (game.isGameOver()) {
+            outcomes.add(new Outcome(probability, game));
+            return;
+        }
+        Action action = findAction(game.getAvailableActions(game.getCurrentPlayer()), code);
+        if (action == null || !action.canBeBlocked) {
+            addActionOutcomes(outcomes, game, code, probability);
+            return;
+        }
+        double blockProbability = probability * RESPONSE_PROBABILITY;
+
+        Game acceptedBlock = game.deepCopy();
+        endTurn(acceptedBlock);
+        outcomes.add(new Outcome(blockProbability * (1 - RESPONSE_PROBABILITY), acceptedBlock));
+
+        Game challengedBlock = game.deepCopy();
+        Player mover = challengedBlock.getCurrentPlayer();
+        Player blocker = challengedBlock.getOpponent(mover);
+        Action blockedAction = findAction(challengedBlock.getAvailableActions(mover), code);
+        if (new BlockAction(blocker, mover, blockedAction).challenge()) {
+            loseCard(challengedBlock, mover);
+            endTurn(challengedBlock);
+            outcomes.add(new Outcome(blockProbability * RESPONSE_PROBABILITY, challengedBlock));
+        } else {
+            loseCard(challengedBlock, blocker);
+            addActionOutcomes(outcomes, challengedBlock, code, blockProbability * RESPONSE_PROBABILITY);
+        }
+
+        addActionOutcomes(outcomes, game, code, probability - blockProbability);
+    }
+
+    /**
+     * Adds the outcomes of carrying out the action, with a chance outcome for every pair of cards a swap can draw.
+     */
+    private void addActionOutcomes(List<Outcome> outcomes, Game game, ActionCode code, double probability) {
+        if (game.isGameOver()) {
+            outcomes.add(new Outcome(probability, game));
+            return;
+        }
+        Player mover = game.getCurrentPlayer();
+        Action action = findAction(game.getAvailableActions(mover), code);
+        if (action == null) {
+            endTurn(game);
+            outcomes.add(new Outcome(probability, game));
+            return;
+        }
+        if (code == ActionCode.SWAP) {
+            addSwapOutcomes(outcomes, game, probability);
+            return;
+        }
+        boolean success = action.execute(false, false);
+        if (success && (code == ActionCode.COUP || code == ActionCode.ASSASSINATE)) {
+            loseCard(game, game.getOpponent(mover));
+        }
+        endTurn(game);
+        outcomes.add(new Outcome(probability, game));
+    }
+
+    /**
+     * Adds an outcome for every pair of card types a swap can draw. The deck holds every card that is not in a hand,
+     * so its composition is derived from the hands, and the player keeps the two most valuable cards.
+     */
+    private void addSwapOutcomes(List<Outcome> outcomes, Game game, double probability) {
+        Deck.CardType[] cardTypes = Deck.CardType.values();
+        int[] deckCounts = new int[cardTypes.length];
+        int deckSize = 0;
+        for (Deck.CardType cardType : cardTypes) {
+            deckCounts[cardType.ordinal()] = Deck.NUMBER_OF_COPIES;
+            deckSize += Deck.NUMBER_OF_COPIES;
+        }
+        for (Player player : game.getPlayers()) {
+            for (Deck.CardType cardType : cardTypes) {
+                deckCounts[cardType.ordinal()] -= player.getCardCount(cardType);
+            }
+            deckSize -= player.getCards().size();
+        }
+        if (deckSize < 2) {
+            endTurn(game);
+            outcomes.add(new Outcome(probability, game));
+            return;
+        }
+        for (int first = 0; first < cardTypes.length; first++) {
+            for (int second = first; second < cardTypes.length; second++) {
+                double drawProbability = first == second
+                        ? (double) deckCounts[first] * (deckCounts[first] - 1) / (deckSize * (deckSize - 1))
+                        : 2.0 * deckCounts[first] * deckCounts[second] / (deckSize * (deckSize - 1));
+                if (drawProbability <= 0) {
+                    continue;
+                }
+                Game swapped = game.deepCopy();
+                Player mover = swapped.getCurrentPlayer();
+                List<Card> drawnCards = List.of(new Card(cardTypes[first]), new Card(cardTypes[second]));
+                mover.setCards(new ArrayList<>(selectCardsToKeep(swapped, mover, drawnCards)));
+                endTurn(swapped);
+                outcomes.add(new Outcome(probability * drawProbability, swapped));
+            }
+        }
+    }
+
+    /**
+     * Orders the actions to search: the move stored in the transposition table first, then the heuristic's choice,
+     * then the remaining actions in their usual order.
+     */
+    private List<ActionCode> orderActions(Game game, List<Action> availableActions, ActionCode hashMove) {
+        List<ActionCode> ordered = new ArrayList<>(availableActions.size());
+        if (hashMove != null && findAction(availableActions, hashMove) != null) {
+            ordered.add(hashMove);
+        }
+        ActionCode preferred = preferredActionCode(availableActions, game);
+        if (preferred != null && !ordered.contains(preferred)) {
+            ordered.add(preferred);
+        }
+        for (Action action : availableActions) {
+            if (!ordered.contains(action.getActionCode())) {
+                ordered.add(action.getActionCode());
+            }
+        }
+        return ordered;
+    }
+
+    /**
+     * Evaluates a position at the search horizon by comparing the positions of the players.
+     * The value is scaled below the value of a win, so a proven win is always preferred.
+     */
+    private static double evaluate(Game game) {
+        double difference = evaluatePosition(game.getAIPlayer()) - evaluatePosition(game.getHumanPlayer());
+        return Math.max(-MAX_EVALUATION, Math.min(MAX_EVALUATION, difference / EVALUATION_SCALE));
+    }
+
+    /**
+     * Makes a player give up their least valuable card.
+     */
+    private static void loseCard(Game game, Player player) {
+        Card card = selectCardToGiveUp(game, player);
+        if (card != null) {
+            player.returnCard(card);
+        }
+    }
+
+    /**
+     * Passes the turn to the other player unless the game is over.
+     */
+    private static void endTurn(Game game) {
+        if (!game.isGameOver()) {
+            game.switchTurns();
+        }
+    }
+
+    /**
+     * Finds the action with the given code in a list of actions.
+     */
+    private static Action findAction(List<Action> actions, ActionCode code) {
+        for (Action action : actions) {
+            if (action.getActionCode() == code) {
+                return action;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * A game state reached from a chance node, with the probability of reaching it.
+     */
+    private static class Outcome {
+        private final double probability;
+        private final Game game;
+
+        private Outcome(double probability, Game game) {
+            this.probability = probability;
+            this.game = game;
+        }
+    }
+
+    /**
+     * A transposition table entry of the search: the best move found in a position, the depth it was searched to
+     * and its value. An entry is updated in place when its position is searched again.
+     */
+    private static class SearchEntry {
+        private ActionCode bestMove;
+        private int depth;
+        private double value;
+    }
+
+    /**
+     * Unwinds the search when the time or node budget runs out or the search is cancelled.
+     */
+    private static class SearchTimeout extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+        private static final SearchTimeout INSTANCE = new SearchTimeout();
+
+        private SearchTimeout() {
+            super(null, null, false, false);
+        }
+    }
+}
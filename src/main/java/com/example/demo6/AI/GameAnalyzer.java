@@ -0,0 +1,188 @@
+package com.example.demo6.AI;
+
+import com.example.demo6.Model.Actions.ActionCode;
+import com.example.demo6.Model.Game;
+import com.example.demo6.Model.Player;
+import com.example.demo6.Persistence.RecordedGame;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+/**
+ * Reviews a recorded game by searching every position of it with a {@link SearchEngine}.
+ * The searches of all positions run at the same time on a pool of threads, each with its own engine, so a whole game
+ * takes about as long as a few single searches on a machine with enough cores.
+ *
+ * <p>Engines search for the AI player, so every position is searched from a copy in which the player to move is
+ * the AI player. The value of a ply is compared with the value of the position it reached, which is the value of the
+ * next search seen from the other side. A ply therefore costs one search, and it is reported as soon as the searches
+ * of its position and of the next position are done.
+ */
+public class GameAnalyzer {
+    private final String engineName;
+    private final SearchBudget budget;
+    private final ExecutorService executor;
+
+    /**
+     * Constructs an analyzer and starts its threads.
+     *
+     * @param engineName The name of the engine that searches the positions, see {@link SearchEngines#create(String, Game)}.
+     * @param budget The budget of every search.
+     * @param threads The number of positions searched at the same time.
+     */
+    public GameAnalyzer(String engineName, SearchBudget budget, int threads) {
+        this.engineName = engineName;
+        this.budget = budget;
+        AtomicInteger threadNumber = new AtomicInteger(1);
+        this.executor = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "analysis-" + threadNumber.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Analyzes a recorded game. The positions are only read, never changed.
+     *
+     * @param positions The positions of the game, the position before every ply followed by the final position.
+     * @param playedActions The action played in every ply.
+     * @param listener Receives the analysis of every ply as soon as it is ready, in no particular order and on the
+     *                 threads of the analyzer, possibly on several at the same time.
+     * @return The future analyses of all plies, in the order of the game.
+     * @throws IllegalArgumentException if there is not one position more than actions, or if the game is over before its last position.
+     */
+    public CompletableFuture<List<PlyAnalysis>> analyze(List<Game> positions, List<ActionCode> playedActions,
+                                                        Consumer<PlyAnalysis> listener) {
+        if (positions.size() != playedActions.size() + 1) {
+            throw new IllegalArgumentException("A game of " + playedActions.size() + " plies has "
+                    + (playedActions.size() + 1) + " positions, not " + positions.size());
+        }
+        for (int i = 0; i < playedActions.size(); i++) {
+            if (positions.get(i).isGameOver()) {
+                throw new IllegalArgumentException("The game is over before ply " + (i + 1));
+            }
+        }
+        List<CompletableFuture<SearchResult>> searches = new ArrayList<>();
+        for (Game position : positions) {
+            searches.add(position.isGameOver() ? CompletableFuture.completedFuture(null)
+                    : CompletableFuture.supplyAsync(() -> search(position), executor));
+        }
+        PlyAnalysis[] plies = new PlyAnalysis[playedActions.size()];
+        CompletableFuture<?>[] analyses = new CompletableFuture<?>[plies.length];
+        for (int i = 0; i < plies.length; i++) {
+            int ply = i;
+            analyses[i] = searches.get(i).thenAcceptBoth(searches.get(i + 1), (best, next) -> {
+                plies[ply] = analyzePly(ply, positions.get(ply), positions.get(ply + 1), playedActions.get(ply), best, next);
+                listener.accept(plies[ply]);
+            });
+        }
+        return CompletableFuture.allOf(analyses).thenApply(done -> Arrays.asList(plies));
+    }
+
+    /**
+     * Stops the threads of the analyzer. Analyses that are still running are abandoned.
+     */
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Selects the plies that lost the most value.
+     *
+     * @param plies The analyzed plies.
+     * @param count The maximum number of plies to select.
+     * @return The plies with a positive value drop, the largest drop first.
+     */
+    public static List<PlyAnalysis> largestDrops(List<PlyAnalysis> plies, int count) {
+        return plies.stream()
+                .filter(ply -> ply.getValueDrop() > 0)
+                .sorted(Comparator.comparingDouble(PlyAnalysis::getValueDrop).reversed())
+                .limit(count)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Copies a game so that the given player is the AI player, the second player of the game, and is to move.
+     *
+     * @param game The game to copy, which is not changed.
+     * @param mover The player to move, one of the players of the game.
+     * @return The copy of the game from the point of view of the player to move.
+     */
+    public static Game perspectiveCopy(Game game, Player mover) {
+        Game copy = game.deepCopy();
+        List<Player> players = copy.getPlayers();
+        if (game.getPlayers().indexOf(mover) == 0) {
+            copy.setPlayerList(new ArrayList<>(List.of(players.get(1), players.get(0))));
+        }
+        copy.setCurrentPlayerIndex(1);
+        return copy;
+    }
+
+    /**
+     * Searches a position from the point of view of the player to move, with a new engine.
+     */
+    private SearchResult search(Game position) {
+        Game state = perspectiveCopy(position, position.getCurrentPlayer());
+        return SearchEngines.create(engineName, state).bestMove(state, budget);
+    }
+
+    /**
+     * Builds the analysis of a ply from the searches of the positions before and after it.
+     */
+    private static PlyAnalysis analyzePly(int ply, Game before, Game after, ActionCode playedAction,
+                                          SearchResult best, SearchResult next) {
+        Player mover = before.getCurrentPlayer();
+        int moverIndex = before.getPlayers().indexOf(mover);
+        double valueAfter;
+        if (after.isGameOver()) {
+            valueAfter = after.getPlayers().get(moverIndex).getCards().isEmpty() ? -1 : 1;
+        } else {
+            int nextMoverIndex = after.getPlayers().indexOf(after.getCurrentPlayer());
+            valueAfter = nextMoverIndex == moverIndex ? next.getValue() : -next.getValue();
+        }
+        return new PlyAnalysis(ply, mover.getName(), playedAction, best.getActionCode(), best.getValue(), valueAfter);
+    }
+
+    /**
+     * Analyzes a game of the server journal and prints every ply as it completes, followed by the plies that lost
+     * the most value. The engine and its budget are configured like the engine of the game, see {@link SearchEngines}.
+     *
+     * @param args The journal directory and the identifier of the game.
+     * @throws IOException if the journal cannot be read.
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2) {
+            System.out.println("Usage: GameAnalyzer <journal directory> <game id>");
+            return;
+        }
+        RecordedGame recordedGame = RecordedGame.load(Path.of(args[0]), Integer.parseInt(args[1]));
+        if (recordedGame == null) {
+            System.out.println("Game " + args[1] + " is not in the journal");
+            return;
+        }
+        GameAnalyzer analyzer = new GameAnalyzer(System.getProperty(SearchEngines.ENGINE_PROPERTY, SearchEngines.MCTS),
+                SearchEngines.configuredBudget(), Runtime.getRuntime().availableProcessors());
+        long startMillis = System.currentTimeMillis();
+        List<PlyAnalysis> plies = analyzer.analyze(recordedGame.toGames(), recordedGame.getPlayedActions(),
+                ply -> System.out.println("Analyzed " + ply)).join();
+        analyzer.shutdown();
+        System.out.println("Analyzed " + plies.size() + " plies in " + (System.currentTimeMillis() - startMillis) + " ms");
+        for (PlyAnalysis ply : plies) {
+            System.out.println(ply);
+        }
+        System.out.println("Largest value drops:");
+        for (PlyAnalysis ply : largestDrops(plies, 5)) {
+            System.out.println(ply);
+        }
+    }
+}
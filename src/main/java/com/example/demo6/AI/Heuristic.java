@@ -11,10 +11,21 @@ import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.List;
 import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
 
 import static com.example.demo6.Model.Deck.CardType.*;
 
 public class Heuristic {
+    private static final int TABLE_COINS = 64;
+    private static final int[] POSITION_VALUES = buildPositionTable();
+    private static final ActionCode[] ACTION_CODES = ActionCode.values();
+    private static final int[] COIN_BUCKET_COINS = {0, 3, 4, 6, 7};
+    private static final int HAND_MASKS = 1 << Deck.CardType.values().length;
+    private static final int MAX_POLICY_CARD_COUNT = 2;
+    private static final int LEGAL_MASKS = 1 << ACTION_CODES.length;
+    static final byte NO_DECISION = -1;
+    static final byte RANDOM_DECISION = -2;
+    private static final byte[] ROLLOUT_POLICY = compileRolloutPolicy();
 
     /**
      * Selects an action for the AI to perform heuristically. The method uses a simplified
@@ -24,78 +35,186 @@ public class Heuristic {
      * and cards the AI and the human player have, to determine the most advantageous move.
      * The AI prioritizes actions that could lead to immediate victory, maximizes coin gain,
      * or sets up a stronger position for subsequent turns.
+     * The rules are compiled ahead of time into {@link #ROLLOUT_POLICY}, so a decision is a single table lookup
+     * followed by a scan of the available actions. The actions are expected in the order produced by
+     * {@link Game#getAvailableActions(Player)}.
      *
      * @param availableActions List of actions that the AI can currently take.
      * @param game The current state of the game, which includes both AI and human players' statuses.
      * @return The selected Action that the AI will perform.
      */
     static Action selectActionHeuristically(List<Action> availableActions, Game game) {
+        byte decision = lookUpRolloutDecision(availableActions, game);
+        if (decision == NO_DECISION) {
+            return null;
+        }
+        if (decision == RANDOM_DECISION) {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            if (random.nextDouble() < 0.8) {
+                return findAction(availableActions, ActionCode.INCOME);
+            }
+            return availableActions.get(random.nextInt(availableActions.size()));
+        }
+        return findAction(availableActions, ACTION_CODES[decision]);
+    }
+
+    /**
+     * Returns the action code the heuristic rules pick for the player to move when the choice does not involve chance.
+     * Search engines use it to order moves, trying the heuristic's favourite first.
+     *
+     * @param availableActions List of actions that the player to move can currently take.
+     * @param game The current state of the game.
+     * @return The action code chosen by the rules, or null if the rules fall back to a random choice.
+     */
+    static ActionCode preferredActionCode(List<Action> availableActions, Game game) {
+        byte decision = lookUpRolloutDecision(availableActions, game);
+        return decision >= 0 ? ACTION_CODES[decision] : null;
+    }
+
+    /**
+     * Looks up the decision of the compiled rollout policy for the player to move.
+     * Package-private for RolloutPolicyTest, which compares it with the original rule cascade.
+     *
+     * @param availableActions List of actions that the player to move can currently take.
+     * @param game The current state of the game.
+     * @return The ordinal of the chosen action code, {@link #NO_DECISION} or {@link #RANDOM_DECISION}.
+     */
+    static byte lookUpRolloutDecision(List<Action> availableActions, Game game) {
         Player aiPlayer = game.getCurrentPlayer();
         Player humanPlayer = game.getOpponent(aiPlayer);
-        int aiPlayerCoins = aiPlayer.getCoins();
-        int humanPlayerCoins = humanPlayer.getCoins();
-        int humanPlayerCardCount = humanPlayer.getCards().size();
+        int legalMask = 0;
+        for (int i = 0; i < availableActions.size(); i++) {
+            legalMask |= 1 << availableActions.get(i).getActionCode().ordinal();
+        }
+        return ROLLOUT_POLICY[policyIndex(coinBucket(aiPlayer.getCoins()), aiPlayer.getCardTypeMask(),
+                Math.min(humanPlayer.getCards().size(), MAX_POLICY_CARD_COUNT), humanPlayer.getCoins() > 0, legalMask)];
+    }
 
+    /**
+     * Applies the heuristic rule cascade to an abstract description of the position.
+     * This is the reference version of {@link #selectActionHeuristically}, it is only run while
+     * compiling {@link #ROLLOUT_POLICY}.
+     *
+     * @param aiPlayerCoins The coins of the AI, any representative of its coin bucket.
+     * @param handMask The card types in the AI's hand, see {@link Player#getCardTypeMask()}.
+     * @param humanPlayerCardCount The number of cards the human player holds.
+     * @param humanPlayerHasCoins Whether the human player has any coins.
+     * @param legalMask The action codes that are currently available, one bit per {@link ActionCode} ordinal.
+     * @return The ordinal of the chosen action code, {@link #NO_DECISION} or {@link #RANDOM_DECISION}.
+     */
+    private static byte compileRule(int aiPlayerCoins, int handMask, int humanPlayerCardCount,
+                                    boolean humanPlayerHasCoins, int legalMask) {
         // Immediate winning moves: If human player has 1 card, prioritize COUP or ASSASSINATE if possible.
         if (aiPlayerCoins >= 7) {
-            return availableActions.stream()
-                    .filter(action -> action.getActionCode() == ActionCode.COUP)
-                    .findFirst()
-                    .orElse(null);
+            return firstLegal(legalMask, ActionCode.COUP);
         }
-
-        if (aiPlayerCoins >= 3 && aiPlayer.hasCard(ASSASSIN)) { // Assassinate if possible.
-            return availableActions.stream()
-                    .filter(action -> action.getActionCode() == ActionCode.ASSASSINATE)
-                    .findFirst()
-                    .orElse(null);
+        if (aiPlayerCoins >= 3 && hasType(handMask, ASSASSIN)) { // Assassinate if possible.
+            return firstLegal(legalMask, ActionCode.ASSASSINATE);
         }
-
         // Use Duke to collect taxes if available to maximize coin gain safely.
-        if (aiPlayer.hasCard(DUKE)) {
-            return availableActions.stream()
-                    .filter(action -> action.getActionCode() == ActionCode.TAX)
-                    .findFirst()
-                    .orElse(null);
+        if (hasType(handMask, DUKE)) {
+            return firstLegal(legalMask, ActionCode.TAX);
         }
-
         // Use Captain to steal if the human player has coins and the AI has the Captain.
-        if (aiPlayer.hasCard(CAPTAIN) && humanPlayerCoins > 0) {
-            return availableActions.stream()
-                    .filter(action -> action.getActionCode() == ActionCode.STEAL)
-                    .findFirst()
-                    .orElse(null);
+        if (hasType(handMask, CAPTAIN) && humanPlayerHasCoins) {
+            return firstLegal(legalMask, ActionCode.STEAL);
+        }
+        // Foreign Aid or Income to get to 7 coins for a Coup next turn, Income comes first in the available actions.
+        if (aiPlayerCoins == 6) {
+            return firstLegal(legalMask, ActionCode.INCOME, ActionCode.FOREIGN_AID);
         }
+        if (humanPlayerCardCount == 1 && aiPlayerCoins > 3) {
+            return firstLegal(legalMask, ActionCode.ASSASSINATE);
+        }
+        return RANDOM_DECISION;
+    }
 
-        // If the AI has enough coins to coup on the next turn, consider gaining more coins or keeping a low profile.
-        if (aiPlayerCoins >= 5) {
-            if (aiPlayerCoins == 6) {
-                return availableActions.stream()
-                        .filter(action -> action.getActionCode() == ActionCode.FOREIGN_AID || action.getActionCode() == ActionCode.INCOME)
-                        .findFirst()
-                        .orElse(null); // Foreign Aid or Income to get to 7 coins for a Coup next turn.
+    /**
+     * Compiles the heuristic rule cascade into a flat decision table covering every combination of coin bucket,
+     * hand, human card count, human coins and available actions.
+     *
+     * @return The decision table, indexed by {@link #policyIndex}.
+     */
+    private static byte[] compileRolloutPolicy() {
+        byte[] policy = new byte[COIN_BUCKET_COINS.length * HAND_MASKS * (MAX_POLICY_CARD_COUNT + 1) * 2 * LEGAL_MASKS];
+        for (int bucket = 0; bucket < COIN_BUCKET_COINS.length; bucket++) {
+            for (int handMask = 0; handMask < HAND_MASKS; handMask++) {
+                for (int cardCount = 0; cardCount <= MAX_POLICY_CARD_COUNT; cardCount++) {
+                    for (int hasCoins = 0; hasCoins < 2; hasCoins++) {
+                        for (int legalMask = 0; legalMask < LEGAL_MASKS; legalMask++) {
+                            policy[policyIndex(bucket, handMask, cardCount, hasCoins == 1, legalMask)] =
+                                    compileRule(COIN_BUCKET_COINS[bucket], handMask, cardCount, hasCoins == 1, legalMask);
+                        }
+                    }
+                }
             }
-            // Consider swapping if having excess coins and possibly bad cards.
         }
+        return policy;
+    }
 
-        if(humanPlayerCardCount ==  1 && aiPlayer.getCoins() > 3)
-        {
-            return availableActions.stream()
-                    .filter(action -> action.getActionCode() == ActionCode.ASSASSINATE)
-                    .findFirst()
-                    .orElse(null);
+    /**
+     * Calculates the position of a decision in {@link #ROLLOUT_POLICY}.
+     */
+    private static int policyIndex(int coinBucket, int handMask, int humanPlayerCardCount,
+                                   boolean humanPlayerHasCoins, int legalMask) {
+        int index = coinBucket;
+        index = index * HAND_MASKS + handMask;
+        index = index * (MAX_POLICY_CARD_COUNT + 1) + humanPlayerCardCount;
+        index = index * 2 + (humanPlayerHasCoins ? 1 : 0);
+        return index * LEGAL_MASKS + legalMask;
+    }
+
+    /**
+     * Maps a coin count to the bucket of coin counts that the heuristic rules cannot tell apart.
+     * The buckets are 0-2, 3, 4-5, 6 and 7 or more coins.
+     */
+    private static int coinBucket(int coins) {
+        if (coins < 3) {
+            return 0;
         }
-        Random random = new Random();
-        double probability = random.nextDouble();
-        if(probability < 0.8) {
-            return availableActions.stream()
-                    .filter(action -> action.getActionCode() == ActionCode.INCOME)
-                    .findFirst()
-                    .orElse(null);
+        if (coins == 3) {
+            return 1;
         }
-        else {
-            return availableActions.get(random.nextInt(availableActions.size()));
+        if (coins < 6) {
+            return 2;
+        }
+        return coins == 6 ? 3 : 4;
+    }
+
+    /**
+     * Returns the ordinal of the first of the given action codes that is legal, or {@link #NO_DECISION}.
+     */
+    private static byte firstLegal(int legalMask, ActionCode... codes) {
+        for (ActionCode code : codes) {
+            if ((legalMask & (1 << code.ordinal())) != 0) {
+                return (byte) code.ordinal();
+            }
+        }
+        return NO_DECISION;
+    }
+
+    /**
+     * Checks if a card type mask contains the given card type.
+     */
+    private static boolean hasType(int handMask, Deck.CardType cardType) {
+        return (handMask & (1 << cardType.ordinal())) != 0;
+    }
+
+    /**
+     * Finds the first action with the given action code without allocating.
+     *
+     * @param actions The actions to search.
+     * @param code The action code to look for.
+     * @return The matching action, or null if there is none.
+     */
+    private static Action findAction(List<Action> actions, ActionCode code) {
+        for (int i = 0; i < actions.size(); i++) {
+            Action action = actions.get(i);
+            if (action.getActionCode() == code) {
+                return action;
+            }
         }
+        return null;
     }
 
     /**
@@ -243,8 +362,7 @@ public class Heuristic {
      * @return true if the blocking action seems suspicious, false otherwise
      */
     public static boolean isSuspiciousBlock(Deck.CardType requiredCard, Player aiPlayer) {
-        List<Card> aiPlayerCards = aiPlayer.getCards();
-        long countInAIHand = aiPlayerCards.stream().filter(card -> card.getType() == requiredCard).count();
+        long countInAIHand = aiPlayer.getCardCount(requiredCard);
         // Total copies of each card type in the game
         final long totalInGame = 2;
         long totalPossible = totalInGame - countInAIHand;
@@ -271,25 +389,49 @@ public class Heuristic {
     /**
      * Selects a card to give up during a swap action.
      * If the player has only one card, it returns that card directly.
-     * Otherwise, it uses a stream to find the card with the minimum value according to the {@link #getCardValue} method.
+     * Otherwise, it finds the first card with the minimum value according to the {@link #getCardValue} method.
      * @param game the current game state
      * @param player the player whose card is to be selected
      * @return the selected card to give up
      */
     public static Card selectCardToGiveUp(Game game, Player player) {
-        return player.getCards().stream()
-                .min(Comparator.comparingInt(Heuristic::getCardValue))
-                .orElse(null);
+        Card cardToGiveUp = null;
+        for (Card card : player.getCards()) {
+            if (cardToGiveUp == null || getCardValue(card) < getCardValue(cardToGiveUp)) {
+                cardToGiveUp = card;
+            }
+        }
+        return cardToGiveUp;
     }
 
 
     /**
      * Evaluates the current position of a player in the game.
      * The evaluation is based on the number of cards, coins, and the value of the cards held by the player.
+     * The value is read from a precomputed table indexed by the player's coins and packed hand key,
+     * coins beyond the table are added on top of the last coin row since each coin is worth exactly one point.
      * @param player the player whose position is to be evaluated
      * @return the score of the player's current position
      */
     static int evaluatePosition(Player player) {
+        int handKey = player.getHandKey();
+        if (handKey == Player.NO_HAND_KEY) {
+            return evaluatePositionByCards(player);
+        }
+        int coins = player.getCoins();
+        if (coins >= TABLE_COINS) {
+            return POSITION_VALUES[(TABLE_COINS - 1) * Player.HAND_KEY_COUNT + handKey] + coins - (TABLE_COINS - 1);
+        }
+        return POSITION_VALUES[coins * Player.HAND_KEY_COUNT + handKey];
+    }
+
+    /**
+     * Evaluates the position of a player by going over the cards in their hand.
+     * Used for hands that do not fit in the position table.
+     * @param player the player whose position is to be evaluated
+     * @return the score of the player's current position
+     */
+    private static int evaluatePositionByCards(Player player) {
         int score = 0;
         // Add points for each card held by the player
         score += player.getCards().size() * 5;
@@ -302,6 +444,32 @@ public class Heuristic {
         return score;
     }
 
+    /**
+     * Builds the table of position values for every coin count below {@link #TABLE_COINS} and every packed hand.
+     * @return the flat table, indexed by {@code coins * Player.HAND_KEY_COUNT + handKey}
+     */
+    private static int[] buildPositionTable() {
+        Deck.CardType[] cardTypes = Deck.CardType.values();
+        int slotCount = cardTypes.length + 1;
+        int[] handValues = new int[Player.HAND_KEY_COUNT];
+        for (int handKey = 0; handKey < Player.HAND_KEY_COUNT; handKey++) {
+            int value = 0;
+            for (int slot : new int[]{handKey / slotCount, handKey % slotCount}) {
+                if (slot > 0) {
+                    value += 5 + getCardTypeValue(cardTypes[slot - 1]);
+                }
+            }
+            handValues[handKey] = value;
+        }
+        int[] table = new int[TABLE_COINS * Player.HAND_KEY_COUNT];
+        for (int coins = 0; coins < TABLE_COINS; coins++) {
+            for (int handKey = 0; handKey < Player.HAND_KEY_COUNT; handKey++) {
+                table[coins * Player.HAND_KEY_COUNT + handKey] = handValues[handKey] + coins;
+            }
+        }
+        return table;
+    }
+
     /**
      * Assigns values to each card based on the game strategy.
      * Higher values indicate more valuable cards.
@@ -310,7 +478,17 @@ public class Heuristic {
      * @return the value of the card
      */
     private static int getCardValue(Card card) {
-        return switch (card.getType()) {
+        return getCardTypeValue(card.getType());
+    }
+
+    /**
+     * Assigns values to each card type based on the game strategy.
+     *
+     * @param cardType the card type to evaluate
+     * @return the value of the card type
+     */
+    private static int getCardTypeValue(Deck.CardType cardType) {
+        return switch (cardType) {
             case DUKE -> 5;
             case ASSASSIN -> 4;
             case CAPTAIN -> 3;
@@ -0,0 +1,36 @@
+package com.example.demo6.AI;
+
+import com.example.demo6.Model.Actions.Action;
+import com.example.demo6.Model.Game;
+
+import java.util.List;
+
+/**
+ * An engine that plays the heuristic rollout policy directly, without searching.
+ * It answers instantly and serves as the baseline the searching engines are compared against.
+ */
+public class HeuristicEngine implements SearchEngine {
+    public static final String NAME = "heuristic";
+
+    /**
+     * Chooses an action with {@link Heuristic#selectActionHeuristically(List, Game)}.
+     *
+     * @param state The game state, with the AI player to move.
+     * @param budget Ignored, the heuristic does not search.
+     * @param token Ignored, the heuristic answers instantly.
+     * @return The chosen action, with the value of an even position.
+     */
+    @Override
+    public SearchResult bestMove(Game state, SearchBudget budget, CancellationToken token) {
+        if (state.isGameOver()) {
+            return new SearchResult(null, 0, null);
+        }
+        List<Action> availableActions = state.getAvailableActions(state.getCurrentPlayer());
+        return new SearchResult(Heuristic.selectActionHeuristically(availableActions, state), 0, null);
+    }
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+}
@@ -0,0 +1,347 @@
+package com.example.demo6.AI;
+
+import com.example.demo6.Model.Actions.Action;
+import com.example.demo6.Model.Actions.ActionCode;
+import com.example.demo6.Model.Deck;
+import com.example.demo6.Model.Game;
+import com.example.demo6.Model.Player;
+
+import java.util.EnumSet;
+import java.util.List;
+
+/**
+ * A simulation backend that plays many random games in lockstep, for bulk self-play and for estimating the value
+ * of a position from thousands of rollouts at once. The games of a {@link RolloutBatch} are played by a kernel that
+ * keeps 8 or 16 of them in the lanes of SIMD vectors with the {@code jdk.incubator.vector} module, and by a scalar
+ * kernel with the same rules when the module is not available.
+ *
+ * <p>The rollouts follow a simplified model of the game that fits into a few integers per game: the player to move
+ * picks uniformly at random among the actions {@link Game#getAvailableActions(Player)} would offer, in the same
+ * order, and every action succeeds without challenges or blocks. A coup or an assassination takes one card from the
+ * opponent, and a swap changes no coins and no card counts, so it passes the turn. A game ends when a player has
+ * no cards left, or after a number of turns without a winner. Each game draws its random numbers from its own
+ * xorshift generator, so a game plays the same moves in every kernel, which {@link #runOnGames(Game, RolloutBatch, int)}
+ * checks against the real game classes.
+ *
+ * <p>The vector kernel is not part of the default build, because compiling against an incubating module makes
+ * every compile print a warning. It is built with the {@code vector} Maven profile, {@code mvn -Pvector compile},
+ * and only used when the module is in the boot layer, which needs {@code --add-modules jdk.incubator.vector} on the
+ * command line. {@link #main(String[])} compares the kernels.
+ */
+public class LockstepRollouts {
+    public static final int DEFAULT_MAX_TURNS = 100;
+    public static final String VECTOR_PROPERTY = "demo6.rollouts.vector";
+    private static final String VECTOR_MODULE = "jdk.incubator.vector";
+    private static final String VECTOR_KERNEL_CLASS = "com.example.demo6.AI.VectorRolloutKernel";
+    private static final int BENCHMARK_GAMES = 1 << 18;
+    private static final int BENCHMARK_REPETITIONS = 5;
+    private static final RolloutKernel VECTOR_KERNEL = loadVectorKernel();
+
+    /**
+     * Loads the vector kernel if it was built with the {@code vector} profile, the vector module is present and
+     * the kernel was not turned off with the {@value #VECTOR_PROPERTY} system property.
+     * @return the kernel, or null to use the scalar kernel
+     */
+    private static RolloutKernel loadVectorKernel() {
+        if (!Boolean.parseBoolean(System.getProperty(VECTOR_PROPERTY, "true"))) {
+            return null;
+        }
+        Module vectorModule = ModuleLayer.boot().findModule(VECTOR_MODULE).orElse(null);
+        if (vectorModule == null) {
+            return null;
+        }
+        // The module descriptor does not require the vector module, so the reads edge is added before the
+        // kernel links against it
+        LockstepRollouts.class.getModule().addReads(vectorModule);
+        try {
+            return (RolloutKernel) Class.forName(VECTOR_KERNEL_CLASS).getDeclaredConstructor().newInstance();
+        } catch (ClassNotFoundException e) {
+            return null;
+        } catch (ReflectiveOperationException e) {
+            System.out.println("Could not load the vector kernel: " + e);
+            return null;
+        }
+    }
+
+    /**
+     * Checks if the vector kernel can be used, it was built, the vector module is present and it was not turned off
+     * with the {@value #VECTOR_PROPERTY} system property.
+     * @return true if {@link #run(RolloutBatch, int)} uses the vector kernel
+     */
+    public static boolean isVectorAvailable() {
+        return VECTOR_KERNEL != null;
+    }
+
+    /**
+     * Returns the number of games the vector kernel plays at once.
+     * @return the number of vector lanes, 1 if only the scalar kernel is available
+     */
+    public static int getLaneCount() {
+        return VECTOR_KERNEL != null ? VECTOR_KERNEL.laneCount() : 1;
+    }
+
+    /**
+     * Plays random rollouts from a position and returns the batch with their outcomes.
+     * @param game the two-player game to start from
+     * @param games the number of rollouts
+     * @param seed the base seed of the rollouts
+     * @param maxTurns the number of turns after which a rollout ends without a winner
+     * @return the played batch, see {@link RolloutBatch#countWins(int)}
+     */
+    public static RolloutBatch rollOut(Game game, int games, long seed, int maxTurns) {
+        RolloutBatch batch = new RolloutBatch(games);
+        batch.fill(game, seed);
+        run(batch, maxTurns);
+        return batch;
+    }
+
+    /**
+     * Plays all games of a batch from the states it was filled with, with the vector kernel if it is available.
+     * @param batch the batch to play
+     * @param maxTurns the number of turns after which a game ends without a winner
+     */
+    public static void run(RolloutBatch batch, int maxTurns) {
+        if (VECTOR_KERNEL != null) {
+            VECTOR_KERNEL.run(batch, maxTurns);
+        } else {
+            runScalar(batch, maxTurns);
+        }
+    }
+
+    /**
+     * Plays all games of a batch one after another with plain integer arithmetic. The scalar twin of the vector
+     * kernel: it plays every game with the same moves and leaves it in the same state.
+     * @param batch the batch to play
+     * @param maxTurns the number of turns after which a game ends without a winner
+     */
+    public static void runScalar(RolloutBatch batch, int maxTurns) {
+        batch.reset();
+        for (int i = 0; i < batch.size(); i++) {
+            int coins0 = batch.coins0[i];
+            int coins1 = batch.coins1[i];
+            int cards0 = batch.cards0[i];
+            int cards1 = batch.cards1[i];
+            int current = batch.currentPlayer[i];
+            int turns = batch.turns[i];
+            int random = batch.random[i];
+            while (cards0 > 0 && cards1 > 0 && turns < maxTurns) {
+                int coins = current == 0 ? coins0 : coins1;
+                int opponentCoins = current == 0 ? coins1 : coins0;
+                random = nextRandom(random);
+                ActionCode action = legalActionAt(choose(random, countLegalActions(coins, opponentCoins)),
+                        coins, opponentCoins);
+                int stolenCoins = Math.min(2, opponentCoins);
+                switch (action) {
+                    case INCOME -> coins += 1;
+                    case FOREIGN_AID -> coins += 2;
+                    case TAX -> coins += 3;
+                    case STEAL -> {
+                        coins += stolenCoins;
+                        opponentCoins -= stolenCoins;
+                    }
+                    case ASSASSINATE -> coins -= 3;
+                    case COUP -> coins -= 7;
+                    default -> {
+                    }
+                }
+                if (action == ActionCode.COUP || action == ActionCode.ASSASSINATE) {
+                    if (current == 0) {
+                        cards1--;
+                    } else {
+                        cards0--;
+                    }
+                }
+                coins0 = current == 0 ? coins : opponentCoins;
+                coins1 = current == 0 ? opponentCoins : coins;
+                turns++;
+                if (cards0 > 0 && cards1 > 0) {
+                    current ^= 1;
+                }
+            }
+            batch.coins0[i] = coins0;
+            batch.coins1[i] = coins1;
+            batch.cards0[i] = cards0;
+            batch.cards1[i] = cards1;
+            batch.currentPlayer[i] = current;
+            batch.turns[i] = turns;
+            batch.random[i] = random;
+        }
+    }
+
+    /**
+     * Plays the games of a batch on copies of a real game with the action classes, drawing the same random numbers
+     * as the kernels. This is the slow reference the kernels are checked against: the legal actions come from
+     * {@link Game#getAvailableActions(Player)} and their effects from {@link Action#execute(boolean, boolean)}.
+     * @param start the game the batch was filled with
+     * @param batch the batch to play, it receives the final states of the games
+     * @param maxTurns the number of turns after which a game ends without a winner
+     */
+    public static void runOnGames(Game start, RolloutBatch batch, int maxTurns) {
+        batch.reset();
+        Game game = new Game(new Deck(EnumSet.noneOf(Deck.CardType.class), 0));
+        for (int i = 0; i < batch.size(); i++) {
+            start.copyInto(game);
+            int turns = 0;
+            int random = batch.random[i];
+            int current = batch.currentPlayer[i];
+            while (!game.isGameOver() && turns < maxTurns) {
+                Player player = game.getCurrentPlayer();
+                current = game.getPlayers().indexOf(player);
+                List<Action> actions = game.getAvailableActions(player);
+                random = nextRandom(random);
+                Action action = actions.get(choose(random, actions.size()));
+                ActionCode actionCode = action.getActionCode();
+                if (action.execute(false, false)
+                        && (actionCode == ActionCode.COUP || actionCode == ActionCode.ASSASSINATE)) {
+                    Player opponent = game.getOpponent(player);
+                    opponent.returnCard(opponent.getCards().get(0));
+                }
+                turns++;
+                if (!game.isGameOver()) {
+                    game.switchTurns();
+                }
+            }
+            List<Player> players = game.getPlayers();
+            batch.coins0[i] = players.get(0).getCoins();
+            batch.coins1[i] = players.get(1).getCoins();
+            batch.cards0[i] = players.get(0).getCards().size();
+            batch.cards1[i] = players.get(1).getCards().size();
+            batch.currentPlayer[i] = game.isGameOver() ? current : players.indexOf(game.getCurrentPlayer());
+            batch.turns[i] = turns;
+            batch.random[i] = random;
+        }
+    }
+
+    /**
+     * Advances a xorshift random number generator by one step.
+     * @param random the current state, not zero
+     * @return the next state, which is also the next random number
+     */
+    static int nextRandom(int random) {
+        random ^= random << 13;
+        random ^= random >>> 17;
+        random ^= random << 5;
+        return random;
+    }
+
+    /**
+     * Maps a random number to an index below a count, from its high 16 bits with a multiplication instead of
+     * a division, the way the vector kernel does it.
+     * @param random a random number
+     * @param count the number of choices, at most 65536
+     * @return an index in [0, count)
+     */
+    static int choose(int random, int count) {
+        return ((random >>> 16) * count) >>> 16;
+    }
+
+    /**
+     * Counts the actions a player can take: income, foreign aid, tax and swap always, a coup with 7 coins,
+     * an assassination with 3 coins and a steal when the opponent has coins.
+     */
+    private static int countLegalActions(int coins, int opponentCoins) {
+        return 4 + (coins >= 7 ? 1 : 0) + (coins >= 3 ? 1 : 0) + (opponentCoins > 0 ? 1 : 0);
+    }
+
+    /**
+     * Returns the legal action at a position of the list of legal actions, which is ordered as in
+     * {@link Game#getAvailableActions(Player)}: income, foreign aid, coup, tax, assassinate, steal and swap.
+     */
+    private static ActionCode legalActionAt(int index, int coins, int opponentCoins) {
+        int taxIndex = coins >= 7 ? 3 : 2;
+        int assassinateIndex = taxIndex + 1;
+        int stealIndex = assassinateIndex + (coins >= 3 ? 1 : 0);
+        int swapIndex = stealIndex + (opponentCoins > 0 ? 1 : 0);
+        if (index == 0) {
+            return ActionCode.INCOME;
+        } else if (index == 1) {
+            return ActionCode.FOREIGN_AID;
+        } else if (index < taxIndex) {
+            return ActionCode.COUP;
+        } else if (index == taxIndex) {
+            return ActionCode.TAX;
+        } else if (index < stealIndex) {
+            return ActionCode.ASSASSINATE;
+        } else if (index < swapIndex) {
+            return ActionCode.STEAL;
+        }
+        return ActionCode.SWAP;
+    }
+
+    /**
+     * Benchmarks the kernels on the same seeds from the start of a new game and checks that they agree.
+     * The arguments are the number of games, default 262144, and the base seed, default 1. The real game classes
+     * play a sixteenth of the games.
+     * @param args the optional number of games and seed
+     */
+    public static void main(String[] args) {
+        int games = args.length > 0 ? Integer.parseInt(args[0]) : BENCHMARK_GAMES;
+        long seed = args.length > 1 ? Long.parseLong(args[1]) : 1;
+        Game start = new Game(new Deck(EnumSet.allOf(Deck.CardType.class), Deck.NUMBER_OF_COPIES));
+        start.addPlayer(new Player("Player"));
+        start.addPlayer(new Player("AI"));
+
+        RolloutBatch scalar = new RolloutBatch(games);
+        scalar.fill(start, seed);
+        RolloutBatch vector = new RolloutBatch(games);
+        vector.fill(start, seed);
+        RolloutBatch reference = new RolloutBatch(Math.max(1, games / 16));
+        reference.fill(start, seed);
+
+        long gameNanos = time(() -> runOnGames(start, reference, DEFAULT_MAX_TURNS));
+        long scalarNanos = time(() -> runScalar(scalar, DEFAULT_MAX_TURNS));
+        System.out.println("Games " + reference.size() + " game classes " + nanosPerGame(gameNanos, reference) + " ns/game");
+        System.out.println("Games " + games + " scalar kernel " + nanosPerGame(scalarNanos, scalar) + " ns/game"
+                + ", wins " + scalar.countWins(0) + "/" + scalar.countWins(1)
+                + ", average turns " + String.format("%.2f", scalar.getAverageTurns()));
+        boolean same = report("game classes", reference, scalar);
+        if (VECTOR_KERNEL != null) {
+            long vectorNanos = time(() -> VECTOR_KERNEL.run(vector, DEFAULT_MAX_TURNS));
+            System.out.println("Games " + games + " vector kernel " + nanosPerGame(vectorNanos, vector) + " ns/game, "
+                    + VECTOR_KERNEL.laneCount() + " lanes, " + String.format("%.1f", (double) scalarNanos / vectorNanos)
+                    + "x the scalar kernel");
+            same &= report("vector kernel", vector, scalar);
+        } else {
+            System.out.println("The vector kernel is off, it needs a build with -Pvector, --add-modules "
+                    + VECTOR_MODULE + " and " + VECTOR_PROPERTY + " not set to false");
+        }
+        if (!same) {
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Runs a kernel a few times and returns the fastest run.
+     */
+    private static long time(Runnable kernel) {
+        long best = Long.MAX_VALUE;
+        for (int i = 0; i < BENCHMARK_REPETITIONS; i++) {
+            long start = System.nanoTime();
+            kernel.run();
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        return best;
+    }
+
+    /**
+     * Returns the time per game of a run, in nanoseconds.
+     */
+    private static long nanosPerGame(long nanos, RolloutBatch batch) {
+        return nanos / Math.max(1, batch.size());
+    }
+
+    /**
+     * Prints the first game a batch played differently from the scalar kernel, if any.
+     * @return true if the batch agrees with the scalar kernel
+     */
+    private static boolean report(String name, RolloutBatch batch, RolloutBatch scalar) {
+        int difference = batch.firstDifference(scalar);
+        if (difference < 0) {
+            System.out.println("Same final states as the scalar kernel with the " + name + " on all " + batch.size() + " games");
+            return true;
+        }
+        System.out.println("Different final states with the " + name + " at game " + difference + ": "
+                + batch.describe(difference) + " instead of " + scalar.describe(difference));
+        return false;
+    }
+}
@@ -1,80 +1,304 @@
 package com.example.demo6.AI;
 
+import com.example.demo6.Metrics.Counter;
+import com.example.demo6.Metrics.LogHistogram;
+import com.example.demo6.Metrics.MetricsRegistry;
 import com.example.demo6.Model.Actions.*;
 import com.example.demo6.Model.Card;
+import com.example.demo6.Model.Deck;
 import com.example.demo6.Model.Game;
 import com.example.demo6.Model.Player;
+import com.example.demo6.Model.UndoLog;
 
 import java.util.*;
 import java.util.stream.Collectors;
 
 import static com.example.demo6.AI.Heuristic.*;
 
-public class MCTS {
+public class MCTS implements SearchEngine {
     private static final int PRUNING_THRESHOLD = 300;
     private static final double PRUNING_FACTOR = 0.75;
+    private static final int SETTLED_CHECK_INTERVAL = 100;
+    private static final int MIN_SIMULATIONS_BEFORE_STOP = 500;
+    private static final double REWARD_RANGE = 40;
+    private static final double CONFIDENCE_DELTA = 0.05;
+    private static final int DEFAULT_MAX_NODES = 200_000;
+    private static final double EVICTION_TARGET = 0.75;
+    private static final int WIN_REWARD = 20;
+    private static final int EVALUATION_REWARD = 10;
+    public static final String NAME = SearchEngines.MCTS;
+    private static final Counter SIMULATIONS = MetricsRegistry.getShared().counter("mcts_simulations_total",
+            "Simulations run by MCTS searches.");
+    private static final Counter TRANSPOSITION_LOOKUPS = MetricsRegistry.getShared().counter(
+            "mcts_transposition_lookups_total", "Lookups in the transposition tables of MCTS searches.");
+    private static final Counter TRANSPOSITION_HITS = MetricsRegistry.getShared().counter(
+            "mcts_transposition_hits_total", "Lookups in the transposition tables of MCTS searches that were used.");
+    private static final LogHistogram TREE_SIZE = MetricsRegistry.getShared().histogram("mcts_tree_nodes",
+            "Size of the MCTS search tree when a search finishes.", 24, 1);
     private Game rootGame;
+    private final UndoLog descentLog;
+    private final Game rolloutGame;
     private Node root;
     private final int numOfSimulations;
+    private final SimulationBudget simulationBudget;
     private final int maxDepth;
+    private final int maxNodes;
+    private int nodeCount;
     private TranspositionTable transpositionTable;
+    private EndgameTablebase tablebase;
     private int countTransposition = 0;
     private int countPruning = 0;
+    private SearchStats lastSearchStats;
+    private List<Action> searchActions;
+    private Action forcedSearchAction;
+    private int plannedSimulations;
+    private int searchDepth;
+    private long searchDeadlineNanos;
+    private boolean searchFinished;
+    private boolean quiet;
 
     /**
      * Constructs a new instance of the Monte Carlo Tree Search (MCTS) class.
      *
      * @param game The initial game state used to initialize the MCTS tree.
-     * @param numOfSimulations The number of simulations to be performed during the MCTS process.
+     * @param numOfSimulations The base number of simulations to be performed during the MCTS process,
+     *                         scaled per move by the {@link SimulationBudget}.
      * @param maxDepth The maximum depth of the MCTS tree.
      */
     public MCTS(Game game, int numOfSimulations, int maxDepth) {
+        this(game, numOfSimulations, maxDepth, DEFAULT_MAX_NODES);
+    }
+
+    /**
+     * Constructs a new instance of the Monte Carlo Tree Search (MCTS) class with a bound on the size of the tree.
+     *
+     * @param game The initial game state used to initialize the MCTS tree.
+     * @param numOfSimulations The base number of simulations to be performed during the MCTS process.
+     * @param maxDepth The maximum depth of the MCTS tree.
+     * @param maxNodes The maximum number of nodes kept in the tree, cold subtrees are evicted beyond it.
+     */
+    public MCTS(Game game, int numOfSimulations, int maxDepth, int maxNodes) {
         // Creates a deep copy of the initial game state.
         this.rootGame = game.deepCopy();
+        this.descentLog = new UndoLog();
+        this.rolloutGame = new Game(new Deck(EnumSet.noneOf(Deck.CardType.class), 0));
         // Initializes the root node of the MCTS tree.
         this.root = new Node(null);
+        this.nodeCount = 1;
         // Sets the number of simulations to be performed during the MCTS process.
         this.numOfSimulations = numOfSimulations;
+        this.simulationBudget = new SimulationBudget(numOfSimulations);
         // Sets the maximum depth of the MCTS tree.
         this.maxDepth = maxDepth;
         this.transpositionTable = new TranspositionTable();
+        // Sets the node budget of the tree.
+        this.maxNodes = maxNodes;
+        // Exact values of the endgames where both players hold a single card, null until the background load is done.
+        this.tablebase = EndgameTablebase.getDefault();
+        // No search has been prepared yet.
+        this.searchActions = List.of();
+        this.searchFinished = true;
     }
 
     /**
      * This method returns the best action for the AI to take in the game.
      * It uses a Monte Carlo Tree Search (MCTS) algorithm with the UCB1 selection policy
      * to simulate and evaluate the game tree.
-     * The best action is determined by selecting the action with the highest UCB1 value,
-     * which balances the average reward and the exploration factor.
+     * UCB1 only steers the descent. The best action is the most visited legal root child, with ties broken by the
+     * higher average reward, as ranked by {@link #getRankedRootChildren()}.
      * If no valid moves are available, the method returns null.
+     * If the move is forced, the search is skipped entirely and the forced action is returned.
+     * @param game the current game state, with the AI player to move
      * @return the best action for the AI to take in the game, or null if no valid actions are available.
      */
     public Action bestMove(Game game) {
-        this.rootGame =  game.deepCopy();
-        if (rootGame.isGameOver()) {
-            return null;
-        }
+        return bestMove(game, SearchBudget.adaptive(numOfSimulations, SearchBudget.NO_TIME_LIMIT)).getAction();
+    }
+
+    /**
+     * Searches the game with the given budget and returns the best action for the AI, see {@link #bestMove(Game)}.
+     * The simulations of an adaptive budget are the base that the {@link SimulationBudget} scales for the position,
+     * any other budget is run as it is, and the search stops when the time limit of the budget runs out.
+     * @param game the current game state, with the AI player to move
+     * @param budget the simulation and time budget of the search
+     * @param token the token that stops the search early, the best action found so far is returned
+     * @return the best action with its average reward scaled to [-1, 1], the action is null if no valid actions are available
+     */
+    @Override
+    public SearchResult bestMove(Game game, SearchBudget budget, CancellationToken token) {
+        int simulations = prepareSearch(game, budget);
+        runSimulations(simulations, token);
+        return collectResult();
+    }
+
+    /**
+     * Prepares an incremental search of the given game, which is then driven by {@link #runSimulations(int, CancellationToken)}
+     * and finished by {@link #collectResult()}. {@link #bestMove(Game, SearchBudget, CancellationToken)} is exactly these
+     * three steps, callers that need to report progress or interleave searches call them one by one.
+     * @param game the current game state, with the AI player to move
+     * @param budget the simulation and time budget of the search, the time limit starts counting now
+     * @return the number of simulations planned for the move, 0 if the game is over or the move is forced
+     */
+    public int prepareSearch(Game game, SearchBudget budget) {
+        long startNanos = System.nanoTime();
+        this.rootGame = game.deepCopy();
         countTransposition = 0;
         countPruning = 0;
-        search(numOfSimulations, maxDepth);
+        searchFinished = true;
+        forcedSearchAction = null;
+        plannedSimulations = 0;
+        if (rootGame.isGameOver()) {
+            searchActions = List.of();
+            return 0;
+        }
+        searchActions = game.getAvailableActions(game.getAIPlayer());
+        forcedSearchAction = SimulationBudget.forcedAction(searchActions, game.getAIPlayer());
+        if (forcedSearchAction != null) {
+            lastSearchStats = new SearchStats(0);
+            if (!quiet) {
+                System.out.println("Forced move, skipping the search: " + forcedSearchAction.actionCodeToString());
+            }
+            return 0;
+        }
+        // Only a default budget is scaled, a budget the caller asked for is a hard limit
+        plannedSimulations = budget.isAdaptive()
+                ? simulationBudget.simulationsFor(rootGame, searchActions, budget.getSimulations())
+                : budget.getSimulations();
+        startSearch(plannedSimulations, maxDepth, budget.deadlineNanos(startNanos));
+        return plannedSimulations;
+    }
+
+    /**
+     * Runs up to the given number of simulations of the prepared search. The search stops for good once its simulations
+     * run out, the decision is settled, the deadline passes or the token is cancelled, see {@link #isSearchFinished()}.
+     * @param count the maximum number of simulations to run in this call
+     * @param token the token that cancels the search, checked before every simulation
+     * @return the number of simulations that were run
+     */
+    public int runSimulations(int count, CancellationToken token) {
+        SearchStats stats = lastSearchStats;
+        int run = 0;
+        while (run < count && !searchFinished) {
+            if (token.isCancelled()) {
+                stats.markCancelled();
+                searchFinished = true;
+                break;
+            }
+            if (searchDeadlineNanos != Long.MAX_VALUE && System.nanoTime() - searchDeadlineNanos >= 0) {
+                searchFinished = true;
+                break;
+            }
+            int reward;
+            Node node;
+            try {
+                NodeGamePair nodeGamePair = selectNode(searchDepth);
+                node = nodeGamePair.node;
+                reward = rollOut(nodeGamePair.game, searchDepth, stats);
+            } finally {
+                // The descent played its moves on the root game, take them back for the next simulation
+                while (!descentLog.isEmpty()) {
+                    rootGame.undo(descentLog);
+                }
+            }
+            backPropagate(node, reward);
+            stats.incrementSimulationsRun();
+            if (nodeCount > maxNodes) {
+                evictColdSubtrees(stats);
+            }
+            run++;
+
+            int completed = stats.getSimulationsRun();
+            if (completed >= plannedSimulations) {
+                searchFinished = true;
+            } else if (completed >= MIN_SIMULATIONS_BEFORE_STOP && completed % SETTLED_CHECK_INTERVAL == 0
+                    && isDecisionSettled(plannedSimulations - completed)) {
+                stats.markStoppedEarly();
+                searchFinished = true;
+            }
+        }
+        stats.setTreeSize(nodeCount);
+        SIMULATIONS.add(run);
+        return run;
+    }
 
-        List<Action> aiAvailableActions = game.getAvailableActions(game.getAIPlayer());
-        //this filter the nodes so only the legal action will be presented, and sort the nodes by their UCB1 value
-        List<Node> maxNodes = root.getChildren().values().stream()
-                .filter(child -> aiAvailableActions.stream()
+    /**
+     * Checks if the prepared search has stopped, so further calls to {@link #runSimulations(int, CancellationToken)} do nothing.
+     * @return true if the search is finished, false if it can run more simulations
+     */
+    public boolean isSearchFinished() {
+        return searchFinished;
+    }
+
+    /**
+     * Returns the legal root actions the search has tried so far, best first. The ranking is the one
+     * {@link #collectResult()} chooses from, so the first node is the move the search would play right now.
+     * Children are ranked by their visit count, the statistic the early stop of the search watches, and children
+     * with equal visits by their average reward. The UCB1 value is not used here, its exploration bonus only
+     * steers the descent.
+     * @return the searched root children, most visited first
+     */
+    public List<Node> getRankedRootChildren() {
+        List<Node> rankedNodes = getLegalRootChildren();
+        rankedNodes.sort(Comparator.comparingInt(Node::getVisitCount).reversed()
+                .thenComparing(Comparator.comparingDouble(MCTS::getValue).reversed()));
+        return rankedNodes;
+    }
+
+    /**
+     * Returns the root children whose action is one of the search actions and can still be performed by the AI.
+     * @return the legal root children, in no particular order
+     */
+    private List<Node> getLegalRootChildren() {
+        //this filter the nodes so only the legal action will be presented
+        List<Node> legalNodes = root.getChildren().values().stream()
+                .filter(child -> searchActions.stream()
                         .anyMatch(action -> action.getActionCode() == child.getAction().getActionCode()))
-                .sorted(Comparator.comparingDouble(Node::getUCB1Value).reversed())
                 .collect(Collectors.toList());
 
         //This double check the actions and remove the illegal actions
-        maxNodes.removeIf(child -> {
-            child.getAction().setPlayer(game.getAIPlayer());
+        legalNodes.removeIf(child -> {
+            child.getAction().setPlayer(rootGame.getAIPlayer());
             return !child.getAction().canPlayerPerform();
         });
+        return legalNodes;
+    }
+
+    /**
+     * Finishes the prepared search and returns the best action for the AI.
+     * @return the best action with its average reward scaled to [-1, 1], the action is null if no valid actions are available
+     */
+    public SearchResult collectResult() {
+        searchFinished = true;
+        if (rootGame.isGameOver()) {
+            return new SearchResult(null, 0, null);
+        }
+        if (forcedSearchAction != null) {
+            return new SearchResult(forcedSearchAction, 0, lastSearchStats);
+        }
+        List<Node> maxNodes = getRankedRootChildren();
+        TREE_SIZE.record(nodeCount);
 
+        if (!quiet) {
+            printResult(maxNodes);
+        }
+        if (maxNodes.isEmpty()) {
+            return new SearchResult(selectActionHeuristically(searchActions, rootGame), 0, lastSearchStats);
+        } else {
+            Node bestNode = maxNodes.get(0);
+            if (bestNode.getVisitCount() > 0) {
+                simulationBudget.recordMoveValue(bestNode.getReward() / bestNode.getVisitCount());
+            }
+            return new SearchResult(bestNode.getAction(), getValue(bestNode), lastSearchStats);
+        }
+    }
+
+    /**
+     * Prints the ranked root children and the statistics of the search, for a user watching the console.
+     */
+    private void printResult(List<Node> rankedNodes) {
         System.out.println("Search Result:");
         int i = 1;
-        for (Node child : maxNodes) {
+        for (Node child : rankedNodes) {
             double ucb1 = child.getUCB1Value();
             System.out.println(i +". "+child.getAction().actionCodeToString() + ": Visit Count = " + child.getVisitCount()
                     + ", Reward = " + child.getReward() + ", UCB1 = " + ucb1);
@@ -82,48 +306,248 @@ public class MCTS {
         }
         System.out.println("Transposition table have been used for : " + countTransposition + " times");
         System.out.println("Pruning have been used for : " + countPruning + " times");
-        if (maxNodes.isEmpty()) {
+        System.out.println(lastSearchStats);
+        if (rankedNodes.isEmpty()) {
             System.out.println("No valid moves available.");
-            return selectActionHeuristically(aiAvailableActions, rootGame);
-        } else {
-            Node bestNode = maxNodes.get(0);
-            return bestNode.getAction();
         }
     }
 
+    /**
+     * Returns the average reward of a node scaled to [-1, 1], the value reported in a {@link SearchResult}.
+     * @param node the node of the search tree
+     * @return the value of the node for the AI, 0 if it was never visited
+     */
+    public static double getValue(Node node) {
+        if (node.getVisitCount() == 0) {
+            return 0;
+        }
+        return node.getReward() / node.getVisitCount() / WIN_REWARD;
+    }
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    /**
+     * Turns the console report of every search on or off. Callers without a user watching the console, such as
+     * the {@link SearchScheduler} that runs the searches of the game server, turn it off.
+     * @param quiet true to search without printing anything
+     */
+    public void setQuiet(boolean quiet) {
+        this.quiet = quiet;
+    }
+
+    /**
+     * Returns the statistics of the most recent search performed by {@link #bestMove(Game, SearchBudget)}.
+     *
+     * @return the statistics of the last search, or null if no search has been performed yet.
+     */
+    public SearchStats getLastSearchStats() {
+        return lastSearchStats;
+    }
+
     /**
      * This method performs a Monte Carlo Tree Search (MCTS) algorithm to simulate and evaluate the game tree.
      * The algorithm starts at the root node and traverses the game tree to a leaf node.
      * It then selects the action with the highest visit count and reward value.
      * If there are multiple actions with the same highest value, the algorithm selects one of them randomly.
+     * The search stops before the budget is exhausted once the decision at the root is settled,
+     * see {@link #isDecisionSettled(int)}.
      * @param numSimulations the number of simulations to run
      * @param maxDepth the maximum depth of the game tree to search
+     * @return the statistics of the search, including the part of the budget that was not used
      **/
-    public void search(int numSimulations, int maxDepth) {
-        for (int i = 0; i < numSimulations; i++) {
-            NodeGamePair nodeGamePair = selectNode(maxDepth);
-            Node node = nodeGamePair.node;
-            Game game = nodeGamePair.game;
+    public SearchStats search(int numSimulations, int maxDepth) {
+        return search(numSimulations, maxDepth, Long.MAX_VALUE);
+    }
+
+    /**
+     * Performs the Monte Carlo Tree Search until the simulations run out, the decision is settled or the deadline passes.
+     * @param numSimulations the number of simulations to run
+     * @param maxDepth the maximum depth of the game tree to search
+     * @param deadlineNanos the moment the search has to stop, in {@link System#nanoTime()} units
+     * @return the statistics of the search, including the part of the budget that was not used
+     */
+    public SearchStats search(int numSimulations, int maxDepth, long deadlineNanos) {
+        return search(numSimulations, maxDepth, deadlineNanos, new CancellationToken());
+    }
+
+    /**
+     * Performs the Monte Carlo Tree Search until the simulations run out, the decision is settled, the deadline passes
+     * or the token is cancelled. The token is checked before every simulation.
+     * @param numSimulations the number of simulations to run
+     * @param maxDepth the maximum depth of the game tree to search
+     * @param deadlineNanos the moment the search has to stop, in {@link System#nanoTime()} units
+     * @param token the token that cancels the search
+     * @return the statistics of the search, including the part of the budget that was not used
+     */
+    public SearchStats search(int numSimulations, int maxDepth, long deadlineNanos, CancellationToken token) {
+        startSearch(numSimulations, maxDepth, deadlineNanos);
+        runSimulations(numSimulations, token);
+        return lastSearchStats;
+    }
+
+    /**
+     * Resets the progress of the search before its first simulation.
+     */
+    private void startSearch(int numSimulations, int depth, long deadlineNanos) {
+        plannedSimulations = numSimulations;
+        searchDepth = depth;
+        searchDeadlineNanos = deadlineNanos;
+        // Picks up the tablebase once it has been loaded in the background, the search never waits for it
+        tablebase = EndgameTablebase.getDefault();
+        lastSearchStats = new SearchStats(numSimulations);
+        searchFinished = numSimulations <= 0;
+    }
+
+    /**
+     * Brings the tree back under its node budget by evicting the least visited subtrees first.
+     * Each evicted subtree is collapsed into its own root node, whose visit count and reward already
+     * summarize the evicted statistics, so the parent keeps all of the information it selects on.
+     * The transposition table is cleared afterwards because it may point into the evicted subtrees.
+     * @param stats the statistics of the running search, where the evictions are recorded
+     */
+    private void evictColdSubtrees(SearchStats stats) {
+        nodeCount = root.subtreeSize();
+        int targetNodeCount = (int) (maxNodes * EVICTION_TARGET);
+        if (nodeCount <= targetNodeCount) {
+            return;
+        }
+        List<Node> candidates = new ArrayList<>();
+        Deque<Node> pending = new ArrayDeque<>(root.getChildren().values());
+        while (!pending.isEmpty()) {
+            Node node = pending.pop();
+            if (!node.isLeaf()) {
+                candidates.add(node);
+                pending.addAll(node.getChildren().values());
+            }
+        }
+        candidates.sort(Comparator.comparingInt(Node::getVisitCount));
+        for (Node node : candidates) {
+            if (nodeCount <= targetNodeCount) {
+                break;
+            }
+            //skip nodes whose ancestor has already been collapsed
+            if (node.isLeaf() || !isAttachedToRoot(node)) {
+                continue;
+            }
+            int removed = node.collapse();
+            nodeCount -= removed;
+            stats.recordEviction(removed);
+        }
+        transpositionTable.clear();
+    }
 
-            Player winner = rollOut(game, maxDepth);
-            backPropagate(node, game.getCurrentPlayer(), winner, game);
+    /**
+     * Checks if a node can still be reached from the root of the tree.
+     * @param node the node to check
+     * @return true if every ancestor of the node still holds it as a child, false otherwise
+     */
+    private boolean isAttachedToRoot(Node node) {
+        while (node != root) {
+            Node parent = node.getParent();
+            if (parent == null || parent.getChildren().get(node.getAction()) != node) {
+                return false;
+            }
+            node = parent;
+        }
+        return true;
+    }
+
+    /**
+     * Checks if the decision at the root can no longer change within the remaining budget. Only the legal root
+     * children are compared, the ones {@link #getRankedRootChildren()} ranks, and the chosen move is the most
+     * visited of them. The decision is settled when the most visited child leads the runner-up by more visits than
+     * there are simulations left, so the runner-up cannot overtake it. It is also settled, with high probability,
+     * when the most visited child has the best average reward and its Hoeffding confidence interval lies entirely
+     * above the intervals of all the other children.
+     * @param remainingSimulations the number of simulations that are still left in the budget
+     * @return true if the remaining simulations cannot change the chosen move, false otherwise
+     */
+    private boolean isDecisionSettled(int remainingSimulations) {
+        List<Node> legalChildren = getLegalRootChildren();
+        if (legalChildren.size() < 2) {
+            return true;
+        }
+        int mostVisits = 0;
+        int secondVisits = 0;
+        Node mostVisited = null;
+        Node bestByReward = null;
+        double bestAverage = -Double.MAX_VALUE;
+        for (Node child : legalChildren) {
+            int visits = child.getVisitCount();
+            if (visits > mostVisits) {
+                secondVisits = mostVisits;
+                mostVisits = visits;
+                mostVisited = child;
+            } else if (visits > secondVisits) {
+                secondVisits = visits;
+            }
+            if (visits > 0 && child.getReward() / visits > bestAverage) {
+                bestAverage = child.getReward() / visits;
+                bestByReward = child;
+            }
+        }
+        //the runner-up cannot catch up even if it receives every remaining simulation
+        if (mostVisits - secondVisits > remainingSimulations) {
+            return true;
         }
+        //a separated best average only settles the move the ranking picks, the most visited child
+        if (bestByReward == null || bestByReward != mostVisited) {
+            return false;
+        }
+        double bestLowerBound = bestAverage - confidenceRadius(bestByReward.getVisitCount());
+        for (Node child : legalChildren) {
+            if (child == bestByReward) {
+                continue;
+            }
+            int visits = child.getVisitCount();
+            if (visits == 0) {
+                return false;
+            }
+            double upperBound = child.getReward() / visits + confidenceRadius(visits);
+            if (upperBound >= bestLowerBound) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Calculates the Hoeffding confidence radius of an average reward after a given number of visits.
+     * @param visits the number of visits the average is based on
+     * @return the distance from the average within which the true value lies with high probability
+     */
+    private static double confidenceRadius(int visits) {
+        return REWARD_RANGE * Math.sqrt(Math.log(2 / CONFIDENCE_DELTA) / (2.0 * visits));
     }
 
     /**
      * Selects a node and game state from the MCTS tree.
+     * The descent plays the actions of the selected nodes on the root game itself, recording every move in the
+     * descent log, so the returned game is the root game in the state of the selected node. The caller undoes the
+     * moves once the simulation from the node is done.
      * @param maxDepth the maximum depth to search in the MCTS tree
      * @return a pair containing the selected node and the corresponding game state
      */
     private NodeGamePair selectNode(int maxDepth) {
         Node node = root;
-        Game game = rootGame.deepCopy();
+        Game game = rootGame;
         int depth = 0;
         int expandedNodeCount = 0;
         final int minExpandedNodesForTranspositionTable = 10;
 
         // Loop through the MCTS tree up to the specified maximum depth
         while (depth < maxDepth) {
+            // Endgames in the tablebase have an exact value, so there is no need to grow the tree below them
+            if (tablebase != null && tablebase.covers(game)) {
+                return new NodeGamePair(node, game);
+            }
+            // A node reached by another sequence of chance outcomes may be the end of this game
+            if (game.isGameOver()) {
+                return new NodeGamePair(node, game);
+            }
             // If the current node is a leaf node, expand it by simulating rollouts
             if (node.isLeaf()) {
                 expand(node, game);
@@ -139,18 +563,29 @@ public class MCTS {
                 long stateHash = game.getStateHash();
                 //check if the current game state is existed in the transposition table
                 TranspositionEntry entry = transpositionTable.lookup(stateHash);
+                TRANSPOSITION_LOOKUPS.increment();
                 if (entry != null && entry.getDepth() >= maxDepth - depth) {
                     countTransposition++;
+                    TRANSPOSITION_HITS.increment();
                     return new NodeGamePair(entry.getNode(), game);
                 }
             }
 
-            node = node.selectChild();
-            boolean isChallenged = simulateChallenge(game, node.getAction());
-            boolean isBlocked = simulateBlock(game, node.getAction());
-            Game simulationGame = game.deepCopy();
-            executeAction(simulationGame, node.getAction(), isChallenged, isBlocked);
-            game.switchTurns();
+            Node child = node.selectChild();
+            Action action = child.getAction();
+            Player currentPlayer = game.getCurrentPlayer();
+            // The action may have been created for the players of an earlier root game
+            action.setPlayer(currentPlayer);
+            action.setOpponent(game.getOpponent(currentPlayer));
+            if (!action.canPlayerPerform()) {
+                // The chance outcomes of this descent made the action illegal, simulate from the parent
+                return new NodeGamePair(node, game);
+            }
+            node = child;
+            boolean isChallenged = simulateChallenge(game, action);
+            boolean isBlocked = simulateBlock(game, action);
+            game.recordUndo(descentLog);
+            playTreeAction(game, action, isChallenged, isBlocked);
             depth++;
         }
         long stateHash = game.getStateHash();
@@ -181,23 +616,32 @@ public class MCTS {
             childNodes.add(child);
         }
         parent.addChildren(childNodes);
+        nodeCount += childNodes.size();
     }
 
 
     /**
      * This method performs a rollout of the game, simulating the actions of the players and updating the game state accordingly.
      * The rollout is performed by recursively selecting and executing actions for each player, based on the current game state.
-     * The rollout continues until the game is over or the maximum depth is reached.
-     * The method returns the winner of the game, if it reaches a terminal state, or null otherwise.
+     * The rollout continues until the game is over, the maximum depth is reached, or an endgame covered by the tablebase
+     * is reached, in which case the exact value of the endgame is used.
+     * The method returns the reward of the simulation for the AI player.
      *
      * @param nodeGame the current game state
      * @param maxDepth the maximum depth of the game tree to be explored during the rollout
-     * @return the winner of the game, if it reaches a terminal state, or null otherwise
+     * @param stats the statistics of the running search, where tablebase hits are recorded
+     * @return the reward of the rollout for the AI player
      */
-    private Player rollOut(Game nodeGame, int maxDepth) {
+    private int rollOut(Game nodeGame, int maxDepth, SearchStats stats) {
         int depth = 0;
-        Game game = nodeGame.deepCopy();
+        // Every rollout of this search plays on the same game buffer, overwritten from the node state
+        Game game = rolloutGame;
+        nodeGame.copyInto(game);
         while (!game.isGameOver() && depth < maxDepth) {
+            if (tablebase != null && tablebase.covers(game)) {
+                stats.incrementTablebaseHits();
+                return (int) Math.round(WIN_REWARD * tablebase.valueForAI(game));
+            }
             Player currentPlayer = game.getCurrentPlayer();
             if (currentPlayer != null) {
                 List<Action> availableActions = game.getAvailableActions(currentPlayer);
@@ -207,7 +651,7 @@ public class MCTS {
                     boolean isBlocked = simulateBlock(game, action);
                     if (handleChallenge(game, action, isChallenged, currentPlayer) && handleBlock(game, action, isBlocked, currentPlayer)) {
                         if(game.isGameOver()) {
-                            return determineWinner(game);
+                            return calculateReward(determineWinner(game), nodeGame);
                         }
                         executeAction(game, action, false, false);
                     }
@@ -215,10 +659,27 @@ public class MCTS {
             }
             depth++;
             if (shouldTerminateSearch(game)) {
-                return null;
+                return calculateReward(null, nodeGame);
             }
         }
-        return determineWinner(game);
+        return calculateReward(determineWinner(game), nodeGame);
+    }
+
+    /**
+     * Calculates the reward of a simulation for the AI player.
+     * A simulation with a winner is worth a full win or loss, otherwise the positions of the players in the
+     * simulated game state are compared.
+     * @param winner the winner of the simulation, or null if there is none
+     * @param game the game state the simulation started from
+     * @return the reward of the simulation for the AI player
+     */
+    private int calculateReward(Player winner, Game game) {
+        if (winner != null) {
+            return winner.getName().equals(game.getAIPlayer().getName()) ? WIN_REWARD : -WIN_REWARD;
+        }
+        int aiPlayerScore = evaluatePosition(game.getAIPlayer());
+        int humanPlayerScore = evaluatePosition(game.getHumanPlayer());
+        return aiPlayerScore > humanPlayerScore ? EVALUATION_REWARD : -EVALUATION_REWARD;
     }
 
     /**
@@ -370,27 +831,13 @@ public class MCTS {
      * This method updates the rewards and visit counts of the nodes in the tree based on the outcome of the game.
      * It also prunes the tree if a node's UCB1 value is significantly lower than its parent's UCB1 value.
      * @param node The node from which to start backpropagation.
-     * @param turn The player whose turn it is during the game.
-     * @param winner The winner of the game, or null if the game is not over.
-     * @param game The current state of the game, used to access the current players and game context.
+     * @param reward The reward of the simulation for the AI player.
      */
-    private void backPropagate(Node node, Player turn, Player winner, Game game) {
+    private void backPropagate(Node node, int reward) {
         boolean isPruned = false;
         while (node != null && !isPruned) {
             node.incrementVisitCount();
-
-            if (winner != null) {
-                if (winner.getName().equals(game.getAIPlayer().getName())) {
-                    node.incrementReward(20);
-                } else {
-                    node.incrementReward(-20);
-                }
-            } else {
-                int aiPlayerScore = evaluatePosition(game.getAIPlayer());
-                int humanPlayerScore = evaluatePosition(game.getHumanPlayer());
-                int reward = aiPlayerScore > humanPlayerScore ? 10 : -10;
-                node.incrementReward(reward);
-            }
+            node.incrementReward(reward);
             //check if the node has minimum visit count in order to purge
             if (node.getVisitCount() > PRUNING_THRESHOLD && node.getParent() != null) {
                 double ucb1Value = node.getUCB1Value();
@@ -402,6 +849,7 @@ public class MCTS {
                 if (ucb1Value < parentUCB1Value * PRUNING_FACTOR) {
                     countPruning++;
                     node.getParent().getChildren().remove(node.getAction());
+                    nodeCount -= node.subtreeSize();
                     isPruned = true;
                 }
             }
@@ -413,6 +861,7 @@ public class MCTS {
      * Updates the root of the MCTS tree based on the executed action.
      * - If the root has a child node for the action, it becomes the new root.
      * - If not, the tree is reset with a new root node.
+     * The new root is detached from its former ancestors so the discarded part of the tree can be reclaimed.
      * This adjustment aligns the MCTS tree with the current game state, ensuring the AI's decisions are based on the latest game dynamics.
      *
      * @param action The action executed in the game that determines the new root node.
@@ -420,9 +869,12 @@ public class MCTS {
     public void handleAction(Action action) {
         if (root.getChildren().containsKey(action)) {
             root = root.getChildren().get(action);
+            root.detachFromParent();
         } else {
             root = new Node(null);
         }
+        nodeCount = root.subtreeSize();
+        transpositionTable.clear();
     }
 
 
@@ -448,27 +900,35 @@ public class MCTS {
     }
 
     /**
-     * Executes the given action in the game, handling challenges and blocks.
-     * This method updates the game state based on the executed action,
-     * including the handling of challenges and blocks.
-     * It also updates the visit count of all the nodes in the tree.
-     * @param game The current state of the game, used to access the current players and game context.
-     * @param action The action executed in the game that determines the new root node.
+     * Plays an action of the tree descent: the challenge and the block are resolved, the action is carried out,
+     * and the turn passes to the opponent whether or not the action went through, as it does in the real game.
+     * @param game The game the action is played on, in place.
+     * @param action The action, whose players are players of the game.
      * @param isChallenged A boolean value indicating whether the action is being challenged.
      * @param isBlocked A boolean value indicating whether the action is being blocked.
      */
-    private void executeAction(Game game, Action action, boolean isChallenged, boolean isBlocked) {
+    private void playTreeAction(Game game, Action action, boolean isChallenged, boolean isBlocked) {
         Player currentPlayer = game.getCurrentPlayer();
         Player targetPlayer = game.getOpponent(currentPlayer);
-
-        if (!handleChallenge(game, action, isChallenged, currentPlayer)) {
-            return;
+        if (handleChallenge(game, action, isChallenged, currentPlayer) && handleBlock(game, action, isBlocked, currentPlayer)
+                && !game.isGameOver()) {
+            game.executeAction(action, chooseCards(game, action, currentPlayer, targetPlayer));
         }
-
-        if (!handleBlock(game, action, isBlocked, currentPlayer)) {
-            return;
+        if (!game.isGameOver()) {
+            game.switchTurns();
         }
+    }
 
+    /**
+     * Chooses the cards an action needs: the cards kept and drawn in a swap, or the card the target loses to a coup
+     * or an assassination. Drawing the cards of a swap takes them from the deck.
+     * @param game The current state of the game.
+     * @param action The action to be executed.
+     * @param currentPlayer The player who executes the action.
+     * @param targetPlayer The opponent of the player.
+     * @return The cards for {@link Game#executeAction(Action, List)}, or null if the action needs none.
+     */
+    private List<Card> chooseCards(Game game, Action action, Player currentPlayer, Player targetPlayer) {
         List<Card> cards = null;
         if (action.getActionCode() == ActionCode.SWAP) {
             List<Card> newCards = new ArrayList<>();
@@ -491,6 +951,32 @@ public class MCTS {
                 cards.add(cardToLose);
             }
         }
+        return cards;
+    }
+
+    /**
+     * Executes the given action in the game, handling challenges and blocks.
+     * This method updates the game state based on the executed action,
+     * including the handling of challenges and blocks.
+     * It also updates the visit count of all the nodes in the tree.
+     * @param game The current state of the game, used to access the current players and game context.
+     * @param action The action executed in the game that determines the new root node.
+     * @param isChallenged A boolean value indicating whether the action is being challenged.
+     * @param isBlocked A boolean value indicating whether the action is being blocked.
+     */
+    private void executeAction(Game game, Action action, boolean isChallenged, boolean isBlocked) {
+        Player currentPlayer = game.getCurrentPlayer();
+        Player targetPlayer = game.getOpponent(currentPlayer);
+
+        if (!handleChallenge(game, action, isChallenged, currentPlayer)) {
+            return;
+        }
+
+        if (!handleBlock(game, action, isBlocked, currentPlayer)) {
+            return;
+        }
+
+        List<Card> cards = chooseCards(game, action, currentPlayer, targetPlayer);
         game.executeAction(action, cards);
         if (!game.isGameOver()) {
             game.switchTurns();
@@ -2,7 +2,9 @@ package com.example.demo6.AI;
 
 import com.example.demo6.Model.Actions.Action;
 
+import java.util.ArrayDeque;
 import java.util.Comparator;
+import java.util.Deque;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -14,7 +16,7 @@ import java.util.Map;
 public class Node {
     private static final double EXPLORATION = 2;
     private final Action action;
-    private final Node parent;
+    private Node parent;
     private int visitCount;
     private int reward;
     private final Map<Action, Node> children;
@@ -91,6 +93,44 @@ public class Node {
         return parent;
     }
 
+    /**
+     * Detaches this node from its parent so it can serve as the root of a new tree.
+     * The former ancestors are no longer reachable from this node and can be garbage collected.
+     */
+    public void detachFromParent() {
+        this.parent = null;
+    }
+
+    /**
+     * Counts the nodes in the subtree rooted at this node, including this node.
+     * @return The number of nodes in the subtree.
+     */
+    public int subtreeSize() {
+        int size = 0;
+        Deque<Node> pending = new ArrayDeque<>();
+        pending.push(this);
+        while (!pending.isEmpty()) {
+            Node node = pending.pop();
+            size++;
+            for (Node child : node.children.values()) {
+                pending.push(child);
+            }
+        }
+        return size;
+    }
+
+    /**
+     * Collapses the subtree below this node by removing all of its descendants.
+     * The visit count and reward of this node already include the statistics of its descendants,
+     * so the node keeps summarizing the evicted subtree and is expanded again when it is next selected.
+     * @return The number of descendant nodes that were removed.
+     */
+    public int collapse() {
+        int removed = subtreeSize() - 1;
+        children.clear();
+        return removed;
+    }
+
     /**
      * Returns the visit count of this node.
      * @return The number of times this node has been visited.
@@ -0,0 +1,120 @@
+package com.example.demo6.AI;
+
+import com.example.demo6.Model.Actions.ActionCode;
+
+/**
+ * The analysis of one ply of a recorded game by the {@link GameAnalyzer}: the action that was played, the action the
+ * engine prefers, and the values of the position before and after the ply for the player who moved.
+ */
+public class PlyAnalysis {
+    private final int ply;
+    private final String playerName;
+    private final ActionCode playedAction;
+    private final ActionCode preferredAction;
+    private final double value;
+    private final double valueAfter;
+
+    /**
+     * Constructs the analysis of a ply.
+     *
+     * @param ply The index of the ply in the game, starting at 0.
+     * @param playerName The name of the player who moved.
+     * @param playedAction The action that was played.
+     * @param preferredAction The action preferred by the engine, or null if it had no preference.
+     * @param value The value of the preferred action for the player who moved, between -1 and 1.
+     * @param valueAfter The value of the position reached by the ply for the player who moved, between -1 and 1.
+     */
+    public PlyAnalysis(int ply, String playerName, ActionCode playedAction, ActionCode preferredAction,
+                       double value, double valueAfter) {
+        this.ply = ply;
+        this.playerName = playerName;
+        this.playedAction = playedAction;
+        this.preferredAction = preferredAction;
+        this.value = value;
+        this.valueAfter = valueAfter;
+    }
+
+    /**
+     * Returns the index of the ply in the game.
+     *
+     * @return The ply index, starting at 0.
+     */
+    public int getPly() {
+        return ply;
+    }
+
+    /**
+     * Returns the name of the player who moved.
+     *
+     * @return The player name.
+     */
+    public String getPlayerName() {
+        return playerName;
+    }
+
+    /**
+     * Returns the action that was played.
+     *
+     * @return The action code of the played action.
+     */
+    public ActionCode getPlayedAction() {
+        return playedAction;
+    }
+
+    /**
+     * Returns the action preferred by the engine.
+     *
+     * @return The action code of the preferred action, or null if the engine had no preference.
+     */
+    public ActionCode getPreferredAction() {
+        return preferredAction;
+    }
+
+    /**
+     * Checks if the played action is the action preferred by the engine.
+     *
+     * @return true if the engine would have played the same action.
+     */
+    public boolean isPreferredActionPlayed() {
+        return playedAction == preferredAction;
+    }
+
+    /**
+     * Returns the value of the preferred action for the player who moved.
+     *
+     * @return The value between -1 (certain loss) and 1 (certain win).
+     */
+    public double getValue() {
+        return value;
+    }
+
+    /**
+     * Returns the value of the position reached by the ply for the player who moved.
+     *
+     * @return The value between -1 (certain loss) and 1 (certain win).
+     */
+    public double getValueAfter() {
+        return valueAfter;
+    }
+
+    /**
+     * Returns how much value the player lost with the ply. The position after the ply includes the outcome of
+     * challenges and blocks, so a drop is either a mistake or bad luck.
+     *
+     * @return The value before the ply minus the value after it, positive for a loss of value.
+     */
+    public double getValueDrop() {
+        return value - valueAfter;
+    }
+
+    /**
+     * Provides a one-line description of the analysis.
+     *
+     * @return The ply, the player, the played and the preferred action and the values.
+     */
+    @Override
+    public String toString() {
+        return String.format("%3d %-12s played %-11s preferred %-11s value %+.3f after %+.3f drop %+.3f",
+                ply + 1, playerName, playedAction, preferredAction, value, valueAfter, getValueDrop());
+    }
+}
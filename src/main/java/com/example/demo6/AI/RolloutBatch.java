@@ -0,0 +1,207 @@
+package com.example.demo6.AI;
+
+import com.example.demo6.Model.Game;
+import com.example.demo6.Model.Player;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The packed states of a batch of two-player games for {@link LockstepRollouts}, one column per field:
+ * the coins and the number of cards of both players, the index of the player to move, the number of turns played
+ * and the random number generator state of every game. Games are stored side by side so that a kernel can load
+ * the same field of several games into the lanes of one vector.
+ *
+ * <p>A batch remembers the states and seeds it was filled with, every run starts again from them with
+ * {@link #reset()}, so the same batch can be run by several kernels and their results compared.
+ * The columns are padded to a multiple of {@link #MAX_LANES}, the padding games have no cards and never move.
+ */
+public class RolloutBatch {
+    public static final int MAX_LANES = 16;
+    private static final int NO_WINNER = -1;
+    private final int size;
+    private final int[] startCoins0;
+    private final int[] startCoins1;
+    private final int[] startCards0;
+    private final int[] startCards1;
+    private final int[] startCurrentPlayer;
+    private final int[] seeds;
+    final int[] coins0;
+    final int[] coins1;
+    final int[] cards0;
+    final int[] cards1;
+    final int[] currentPlayer;
+    final int[] turns;
+    final int[] random;
+
+    /**
+     * Constructs an empty batch for a number of games.
+     * @param size the number of games
+     */
+    public RolloutBatch(int size) {
+        if (size < 0) {
+            throw new IllegalArgumentException("A batch cannot hold " + size + " games");
+        }
+        this.size = size;
+        int capacity = (size + MAX_LANES - 1) / MAX_LANES * MAX_LANES;
+        this.startCoins0 = new int[capacity];
+        this.startCoins1 = new int[capacity];
+        this.startCards0 = new int[capacity];
+        this.startCards1 = new int[capacity];
+        this.startCurrentPlayer = new int[capacity];
+        this.seeds = new int[capacity];
+        this.coins0 = new int[capacity];
+        this.coins1 = new int[capacity];
+        this.cards0 = new int[capacity];
+        this.cards1 = new int[capacity];
+        this.currentPlayer = new int[capacity];
+        this.turns = new int[capacity];
+        this.random = new int[capacity];
+        Arrays.fill(seeds, 1);
+    }
+
+    /**
+     * Fills every game of the batch with the state of a game, each with its own seed derived from a base seed.
+     * @param game the two-player game to start from
+     * @param seed the base seed, the same base seed gives every game the same seed again
+     * @throws IllegalArgumentException if the game does not have two players
+     */
+    public void fill(Game game, long seed) {
+        List<Player> players = game.getPlayers();
+        if (players.size() != 2) {
+            throw new IllegalArgumentException("Lockstep rollouts need a game of two players, not " + players.size());
+        }
+        // A finished game never moves again, so whose turn it is does not matter there
+        int currentPlayerIndex = game.isGameOver() ? 0 : players.indexOf(game.getCurrentPlayer());
+        for (int i = 0; i < size; i++) {
+            startCoins0[i] = players.get(0).getCoins();
+            startCoins1[i] = players.get(1).getCoins();
+            startCards0[i] = players.get(0).getCards().size();
+            startCards1[i] = players.get(1).getCards().size();
+            startCurrentPlayer[i] = currentPlayerIndex;
+            seeds[i] = seedFor(seed, i);
+        }
+        reset();
+    }
+
+    /**
+     * Puts every game back into the state it was filled with, including its random number generator.
+     */
+    public void reset() {
+        System.arraycopy(startCoins0, 0, coins0, 0, coins0.length);
+        System.arraycopy(startCoins1, 0, coins1, 0, coins1.length);
+        System.arraycopy(startCards0, 0, cards0, 0, cards0.length);
+        System.arraycopy(startCards1, 0, cards1, 0, cards1.length);
+        System.arraycopy(startCurrentPlayer, 0, currentPlayer, 0, currentPlayer.length);
+        System.arraycopy(seeds, 0, random, 0, random.length);
+        Arrays.fill(turns, 0);
+    }
+
+    /**
+     * Returns the number of games of the batch.
+     * @return the number of games, without the padding
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns the seed a game of the batch starts its random number generator with.
+     * @param game the index of the game
+     * @return the seed, never zero
+     */
+    public int getSeed(int game) {
+        return seeds[game];
+    }
+
+    /**
+     * Returns the number of turns a game has played.
+     * @param game the index of the game
+     * @return the number of turns
+     */
+    public int getTurns(int game) {
+        return turns[game];
+    }
+
+    /**
+     * Returns the winner of a game, the player who still has cards when the other one has none.
+     * @param game the index of the game
+     * @return the index of the winning player, or -1 if the game is not over
+     */
+    public int getWinner(int game) {
+        if (cards0[game] > 0 && cards1[game] == 0) {
+            return 0;
+        }
+        if (cards1[game] > 0 && cards0[game] == 0) {
+            return 1;
+        }
+        return NO_WINNER;
+    }
+
+    /**
+     * Counts the games a player has won.
+     * @param player the index of the player
+     * @return the number of games won by the player
+     */
+    public int countWins(int player) {
+        int wins = 0;
+        for (int i = 0; i < size; i++) {
+            if (getWinner(i) == player) {
+                wins++;
+            }
+        }
+        return wins;
+    }
+
+    /**
+     * Returns the average number of turns played by the games of the batch.
+     * @return the average number of turns, 0 for an empty batch
+     */
+    public double getAverageTurns() {
+        long total = 0;
+        for (int i = 0; i < size; i++) {
+            total += turns[i];
+        }
+        return size == 0 ? 0 : (double) total / size;
+    }
+
+    /**
+     * Finds the first game whose state differs from the same game in another batch.
+     * @param other a batch of the same size
+     * @return the index of the first differing game, or -1 if all games are in the same state
+     */
+    public int firstDifference(RolloutBatch other) {
+        for (int i = 0; i < size; i++) {
+            if (coins0[i] != other.coins0[i] || coins1[i] != other.coins1[i]
+                    || cards0[i] != other.cards0[i] || cards1[i] != other.cards1[i]
+                    || currentPlayer[i] != other.currentPlayer[i] || turns[i] != other.turns[i]) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Describes the state of a game, for reports about differing games.
+     * @param game the index of the game
+     * @return the coins and cards of both players, the player to move and the turns played
+     */
+    public String describe(int game) {
+        return "coins " + coins0[game] + "/" + coins1[game] + ", cards " + cards0[game] + "/" + cards1[game]
+                + ", to move " + currentPlayer[game] + ", turns " + turns[game];
+    }
+
+    /**
+     * Derives the seed of one game from a base seed, spreading neighbouring games over unrelated seeds.
+     */
+    private static int seedFor(long seed, int game) {
+        int hash = (int) (seed ^ (seed >>> 32)) + game * 0x9E3779B9;
+        hash ^= hash >>> 16;
+        hash *= 0x85EBCA6B;
+        hash ^= hash >>> 13;
+        hash *= 0xC2B2AE35;
+        hash ^= hash >>> 16;
+        // A xorshift generator started at zero stays at zero
+        return hash == 0 ? 1 : hash;
+    }
+}
@@ -0,0 +1,23 @@
+package com.example.demo6.AI;
+
+/**
+ * A kernel that plays the games of a {@link RolloutBatch} for {@link LockstepRollouts}. The scalar kernel is built
+ * into {@link LockstepRollouts}, the vector kernel is only compiled by the {@code vector} Maven profile and is
+ * loaded through this interface when it is present, so the default build does not link against the incubating
+ * {@code jdk.incubator.vector} module.
+ */
+interface RolloutKernel {
+
+    /**
+     * Returns the number of games the kernel plays at once.
+     * @return the number of lanes, at most {@link RolloutBatch#MAX_LANES}
+     */
+    int laneCount();
+
+    /**
+     * Plays all games of a batch from the states it was filled with.
+     * @param batch the batch to play
+     * @param maxTurns the number of turns after which a game ends without a winner
+     */
+    void run(RolloutBatch batch, int maxTurns);
+}
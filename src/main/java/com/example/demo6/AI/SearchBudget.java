@@ -0,0 +1,116 @@
+package com.example.demo6.AI;
+
+/**
+ * Describes how much work a {@link SearchEngine} may spend on a single move.
+ * A budget limits the number of simulations (or nodes, for engines that do not simulate)
+ * and optionally the wall-clock time of the search.
+ * The simulations of a budget are a hard limit, except for an adaptive budget: that is a default whose
+ * simulations are only the base that {@link MCTS} scales for the position with its {@link SimulationBudget}.
+ */
+public class SearchBudget {
+    /**
+     * Marks a budget without a time limit.
+     */
+    public static final long NO_TIME_LIMIT = 0;
+    private final int simulations;
+    private final long timeLimitMillis;
+    private final boolean adaptive;
+
+    /**
+     * Constructs a budget whose simulations are a hard limit.
+     *
+     * @param simulations The number of simulations the engine may run.
+     * @param timeLimitMillis The wall-clock limit of the search in milliseconds, or {@link #NO_TIME_LIMIT}.
+     */
+    public SearchBudget(int simulations, long timeLimitMillis) {
+        this(simulations, timeLimitMillis, false);
+    }
+
+    private SearchBudget(int simulations, long timeLimitMillis, boolean adaptive) {
+        if (simulations < 0 || timeLimitMillis < 0) {
+            throw new IllegalArgumentException("Search budget cannot be negative.");
+        }
+        this.simulations = simulations;
+        this.timeLimitMillis = timeLimitMillis;
+        this.adaptive = adaptive;
+    }
+
+    /**
+     * Creates a default budget that the engine may scale to the position, see {@link SimulationBudget}.
+     * Budgets that a caller asked for explicitly are created with {@link #SearchBudget(int, long)} instead.
+     *
+     * @param baseSimulations The number of simulations for an average mid-game position.
+     * @param timeLimitMillis The wall-clock limit of the search in milliseconds, or {@link #NO_TIME_LIMIT}.
+     * @return The budget.
+     */
+    public static SearchBudget adaptive(int baseSimulations, long timeLimitMillis) {
+        return new SearchBudget(baseSimulations, timeLimitMillis, true);
+    }
+
+    /**
+     * Creates a budget that is only limited by the number of simulations.
+     *
+     * @param simulations The number of simulations the engine may run.
+     * @return The budget.
+     */
+    public static SearchBudget simulations(int simulations) {
+        return new SearchBudget(simulations, NO_TIME_LIMIT);
+    }
+
+    /**
+     * Returns the number of simulations the engine may run.
+     *
+     * @return The simulation budget.
+     */
+    public int getSimulations() {
+        return simulations;
+    }
+
+    /**
+     * Checks if the engine may scale the simulations of the budget to the position.
+     *
+     * @return true for a default budget, false if the simulations are a hard limit.
+     */
+    public boolean isAdaptive() {
+        return adaptive;
+    }
+
+    /**
+     * Returns the wall-clock limit of the search.
+     *
+     * @return The time limit in milliseconds, or {@link #NO_TIME_LIMIT}.
+     */
+    public long getTimeLimitMillis() {
+        return timeLimitMillis;
+    }
+
+    /**
+     * Checks if the budget has a wall-clock limit.
+     *
+     * @return true if the search is limited in time, false otherwise.
+     */
+    public boolean hasTimeLimit() {
+        return timeLimitMillis != NO_TIME_LIMIT;
+    }
+
+    /**
+     * Calculates the moment at which a search started now has to stop.
+     *
+     * @param startNanos The start of the search, as returned by {@link System#nanoTime()}.
+     * @return The deadline in {@link System#nanoTime()} units, or {@link Long#MAX_VALUE} without a time limit.
+     */
+    public long deadlineNanos(long startNanos) {
+        return hasTimeLimit() ? startNanos + timeLimitMillis * 1_000_000 : Long.MAX_VALUE;
+    }
+
+    /**
+     * Provides a short, human readable description of the budget.
+     *
+     * @return The description of the budget.
+     */
+    @Override
+    public String toString() {
+        return simulations + (adaptive ? " base simulations" : " simulations")
+                + (hasTimeLimit() ? ", " + timeLimitMillis + " ms" : "");
+    }
+}
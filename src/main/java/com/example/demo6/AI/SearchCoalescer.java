@@ -0,0 +1,286 @@
+package com.example.demo6.AI;
+
+import com.example.demo6.Model.Game;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Shares searches between games that reach the same state with the same budget.
+ * Concurrent requests for a state join the search that is already running for it (single flight), and a finished
+ * result answers repeated requests for a short time. States are identified by {@link Game#getCanonicalStateKey()}.
+ * The action of a shared result belongs to the game the search ran on, so callers have to look up the action
+ * with the same {@link SearchResult#getActionCode()} in their own game.
+ */
+public class SearchCoalescer {
+    public static final long DEFAULT_TTL_MILLIS = 2000;
+    private static final int MAX_CACHED_RESULTS = 10_000;
+    private final Map<SearchKey, Flight> inFlight;
+    private final Map<SearchKey, CachedResult> completed;
+    private final long ttlNanos;
+    private final LongAdder cacheHits;
+    private final LongAdder joinedSearches;
+    private final LongAdder startedSearches;
+
+    /**
+     * Constructs a coalescer whose results expire after the given time.
+     *
+     * @param ttlMillis How long a finished result answers repeated requests, in milliseconds.
+     */
+    public SearchCoalescer(long ttlMillis) {
+        this.inFlight = new ConcurrentHashMap<>();
+        this.completed = new ConcurrentHashMap<>();
+        this.ttlNanos = ttlMillis * 1_000_000;
+        this.cacheHits = new LongAdder();
+        this.joinedSearches = new LongAdder();
+        this.startedSearches = new LongAdder();
+    }
+
+    /**
+     * Returns the result of a search of the given state, sharing it with identical requests.
+     * Cancelling the returned future only withdraws this request; the shared search is cancelled
+     * once every request that waits for it has been withdrawn.
+     *
+     * @param engineName The name of the engine, searches of different engines are never shared.
+     * @param state The game state that is searched.
+     * @param budget The budget of the search, searches with different budgets are never shared.
+     * @param launcher Starts the search if no identical search is running.
+     * @return The future result of the search.
+     */
+    public CompletableFuture<SearchResult> search(String engineName, Game state, SearchBudget budget,
+                                                  Supplier<CompletableFuture<SearchResult>> launcher) {
+        long stateKey = state.getCanonicalStateKey();
+        if (stateKey < 0) {
+            startedSearches.increment();
+            return launcher.get();
+        }
+        SearchKey key = new SearchKey(stateKey, engineName, budget.getSimulations(), budget.getTimeLimitMillis(),
+                budget.isAdaptive());
+        CachedResult cached = completed.get(key);
+        if (cached != null) {
+            if (System.nanoTime() - cached.expiresNanos < 0) {
+                cacheHits.increment();
+                return CompletableFuture.completedFuture(cached.result);
+            }
+            completed.remove(key, cached);
+        }
+        while (true) {
+            // The search is launched after the flight is in the map, never inside a map operation: a search that is
+            // already done completes the flight on this thread, and that removes the flight from the map again.
+            Flight candidate = new Flight();
+            Flight flight = inFlight.putIfAbsent(key, candidate);
+            if (flight == null) {
+                CompletableFuture<SearchResult> request = candidate.join();
+                startFlight(key, candidate, launcher);
+                return request;
+            }
+            CompletableFuture<SearchResult> request = flight.join();
+            if (request != null) {
+                return request;
+            }
+            // The flight was abandoned by all of its requests in the meantime, start a new one.
+            inFlight.remove(key, flight);
+        }
+    }
+
+    /**
+     * Returns the number of requests answered from finished results.
+     *
+     * @return The number of cache hits.
+     */
+    public long getCacheHits() {
+        return cacheHits.sum();
+    }
+
+    /**
+     * Returns the number of requests that joined a search that was already running.
+     *
+     * @return The number of joined searches.
+     */
+    public long getJoinedSearches() {
+        return joinedSearches.sum();
+    }
+
+    /**
+     * Returns the number of searches that were actually started.
+     *
+     * @return The number of started searches.
+     */
+    public long getStartedSearches() {
+        return startedSearches.sum();
+    }
+
+    /**
+     * Starts the shared search of a flight that was just put into the in-flight map. When the flight completes,
+     * it leaves the map and its result is cached.
+     */
+    private void startFlight(SearchKey key, Flight flight, Supplier<CompletableFuture<SearchResult>> launcher) {
+        flight.result.whenComplete((result, error) -> {
+            inFlight.remove(key, flight);
+            if (error == null) {
+                cache(key, result);
+            }
+        });
+        startedSearches.increment();
+        CompletableFuture<SearchResult> search;
+        try {
+            search = launcher.get();
+        } catch (RuntimeException e) {
+            flight.result.completeExceptionally(e);
+            throw e;
+        }
+        flight.start(search);
+    }
+
+    /**
+     * Caches a finished result, dropping expired results first if the cache is full.
+     */
+    private void cache(SearchKey key, SearchResult result) {
+        if (completed.size() >= MAX_CACHED_RESULTS) {
+            long now = System.nanoTime();
+            Iterator<CachedResult> results = completed.values().iterator();
+            while (results.hasNext()) {
+                if (now - results.next().expiresNanos >= 0) {
+                    results.remove();
+                }
+            }
+            if (completed.size() >= MAX_CACHED_RESULTS) {
+                return;
+            }
+        }
+        completed.put(key, new CachedResult(result, System.nanoTime() + ttlNanos));
+    }
+
+    /**
+     * A shared search with the number of requests that still wait for it. A flight is put into the in-flight map
+     * before its search is launched, its result completes when the search does.
+     */
+    private class Flight {
+        private final CompletableFuture<SearchResult> result;
+        private CompletableFuture<SearchResult> search;
+        private int waitingRequests;
+        private boolean abandoned;
+
+        private Flight() {
+            this.result = new CompletableFuture<>();
+        }
+
+        /**
+         * Attaches the launched search to the flight, cancelling it right away if every request was withdrawn
+         * before it started.
+         *
+         * @param search The launched search.
+         */
+        private void start(CompletableFuture<SearchResult> search) {
+            synchronized (this) {
+                this.search = search;
+                if (abandoned) {
+                    search.cancel(false);
+                    return;
+                }
+            }
+            search.whenComplete((searchResult, error) -> {
+                if (error != null) {
+                    result.completeExceptionally(error);
+                } else {
+                    result.complete(searchResult);
+                }
+            });
+        }
+
+        /**
+         * Adds a request to the flight.
+         *
+         * @return The future of the request, or null if the flight was already abandoned.
+         */
+        private synchronized CompletableFuture<SearchResult> join() {
+            if (abandoned) {
+                return null;
+            }
+            if (waitingRequests > 0) {
+                joinedSearches.increment();
+            }
+            waitingRequests++;
+            CompletableFuture<SearchResult> request = new CompletableFuture<>();
+            result.whenComplete((searchResult, error) -> {
+                if (error != null) {
+                    request.completeExceptionally(error);
+                } else {
+                    request.complete(searchResult);
+                }
+            });
+            request.whenComplete((result, error) -> {
+                if (request.isCancelled()) {
+                    leave();
+                }
+            });
+            return request;
+        }
+
+        /**
+         * Withdraws a cancelled request, cancelling the search when nobody waits for it anymore.
+         */
+        private synchronized void leave() {
+            waitingRequests--;
+            if (waitingRequests == 0 && !result.isDone()) {
+                abandoned = true;
+                result.cancel(false);
+                if (search != null) {
+                    search.cancel(false);
+                }
+            }
+        }
+    }
+
+    /**
+     * A finished result with the moment it expires.
+     */
+    private static class CachedResult {
+        private final SearchResult result;
+        private final long expiresNanos;
+
+        private CachedResult(SearchResult result, long expiresNanos) {
+            this.result = result;
+            this.expiresNanos = expiresNanos;
+        }
+    }
+
+    /**
+     * Identifies the searches that can be shared: the same state, searched by the same engine with the same budget.
+     */
+    private static class SearchKey {
+        private final long stateKey;
+        private final String engineName;
+        private final int simulations;
+        private final long timeLimitMillis;
+        private final boolean adaptive;
+
+        private SearchKey(long stateKey, String engineName, int simulations, long timeLimitMillis, boolean adaptive) {
+            this.stateKey = stateKey;
+            this.engineName = engineName;
+            this.simulations = simulations;
+            this.timeLimitMillis = timeLimitMillis;
+            this.adaptive = adaptive;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            SearchKey other = (SearchKey) o;
+            return stateKey == other.stateKey && simulations == other.simulations
+                    && timeLimitMillis == other.timeLimitMillis && adaptive == other.adaptive
+                    && engineName.equals(other.engineName);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(stateKey, engineName, simulations, timeLimitMillis, adaptive);
+        }
+    }
+}
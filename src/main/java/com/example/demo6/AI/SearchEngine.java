@@ -0,0 +1,50 @@
+package com.example.demo6.AI;
+
+import com.example.demo6.Model.Actions.Action;
+import com.example.demo6.Model.Game;
+
+/**
+ * An algorithm that chooses the move of the AI player.
+ * Engines are interchangeable, the controller only talks to this interface and the engine in use
+ * is chosen by configuration, see {@link SearchEngines}.
+ */
+public interface SearchEngine {
+
+    /**
+     * Chooses the best action for the AI player in the given game state.
+     *
+     * @param state The game state, with the AI player to move. The engine may keep a reference to it.
+     * @param budget The amount of work the engine may spend on the move.
+     * @return The chosen action with its estimated value.
+     */
+    default SearchResult bestMove(Game state, SearchBudget budget) {
+        return bestMove(state, budget, new CancellationToken());
+    }
+
+    /**
+     * Chooses the best action for the AI player, stopping early with the best action found so far
+     * once the token is cancelled.
+     *
+     * @param state The game state, with the AI player to move. The engine may keep a reference to it.
+     * @param budget The amount of work the engine may spend on the move.
+     * @param token The token that cancels the search.
+     * @return The chosen action with its estimated value.
+     */
+    SearchResult bestMove(Game state, SearchBudget budget, CancellationToken token);
+
+    /**
+     * Notifies the engine of an action that was played in the real game, so engines that keep state
+     * between moves can follow the game.
+     *
+     * @param action The action that was played.
+     */
+    default void handleAction(Action action) {
+    }
+
+    /**
+     * Returns the name the engine is configured by.
+     *
+     * @return The name of the engine.
+     */
+    String getName();
+}
@@ -0,0 +1,63 @@
+package com.example.demo6.AI;
+
+import com.example.demo6.Model.Game;
+
+/**
+ * Creates the configured {@link SearchEngine}.
+ * The engine is chosen with the {@code demo6.engine} system property and its default budget with
+ * {@code demo6.simulations} and {@code demo6.timeLimitMillis}. Without {@code demo6.simulations} the budget is
+ * adaptive, a configured number of simulations is a hard limit. For example
+ * {@code -Ddemo6.engine=heuristic} or {@code -Ddemo6.engine=expectiminimax}.
+ */
+public final class SearchEngines {
+    public static final String ENGINE_PROPERTY = "demo6.engine";
+    public static final String SIMULATIONS_PROPERTY = "demo6.simulations";
+    public static final String TIME_LIMIT_PROPERTY = "demo6.timeLimitMillis";
+    public static final String MCTS = "mcts";
+    private static final int DEFAULT_SIMULATIONS = 2500;
+    private static final int DEFAULT_MAX_DEPTH = 100;
+
+    private SearchEngines() {
+    }
+
+    /**
+     * Creates the engine selected by the {@code demo6.engine} system property, MCTS by default.
+     *
+     * @param game The initial game state.
+     * @return The configured engine.
+     */
+    public static SearchEngine fromConfiguration(Game game) {
+        return create(System.getProperty(ENGINE_PROPERTY, MCTS), game);
+    }
+
+    /**
+     * Creates an engine by name.
+     *
+     * @param name The name of the engine.
+     * @param game The initial game state.
+     * @return The engine.
+     * @throws IllegalArgumentException if there is no engine with the given name.
+     */
+    public static SearchEngine create(String name, Game game) {
+        return switch (name) {
+            case MCTS -> new MCTS(game, DEFAULT_SIMULATIONS, DEFAULT_MAX_DEPTH);
+            case HeuristicEngine.NAME -> new HeuristicEngine();
+            case ExpectiminimaxEngine.NAME -> new ExpectiminimaxEngine();
+            default -> throw new IllegalArgumentException("Unknown search engine: " + name);
+        };
+    }
+
+    /**
+     * Returns the budget configured by the {@code demo6.simulations} and {@code demo6.timeLimitMillis} system properties.
+     *
+     * @return The configured budget, an adaptive budget of 2500 base simulations without a time limit by default.
+     */
+    public static SearchBudget configuredBudget() {
+        Integer simulations = Integer.getInteger(SIMULATIONS_PROPERTY);
+        long timeLimitMillis = Long.getLong(TIME_LIMIT_PROPERTY, SearchBudget.NO_TIME_LIMIT);
+        if (simulations == null) {
+            return SearchBudget.adaptive(DEFAULT_SIMULATIONS, timeLimitMillis);
+        }
+        return new SearchBudget(simulations, timeLimitMillis);
+    }
+}
@@ -0,0 +1,88 @@
+package com.example.demo6.AI;
+
+import com.example.demo6.Metrics.MetricsRegistry;
+import com.example.demo6.Model.Game;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs searches on a bounded pool of daemon threads and hands their results back as futures.
+ * Cancelling a returned future cancels the token of its search, so the search stops instead of running to the end.
+ * A single shared executor serves the whole application, see {@link #getShared()}.
+ */
+public class SearchExecutor {
+    private static final int QUEUE_CAPACITY = 64;
+    private static final long KEEP_ALIVE_SECONDS = 30;
+    private static SearchExecutor shared;
+    private final ExecutorService executor;
+
+    /**
+     * Constructs an executor with a fixed number of search threads.
+     *
+     * @param threads The maximum number of searches that run at the same time.
+     */
+    public SearchExecutor(int threads) {
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(threads, threads, KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(QUEUE_CAPACITY), new SearchThreadFactory());
+        pool.allowCoreThreadTimeOut(true);
+        this.executor = pool;
+    }
+
+    /**
+     * Returns the executor shared by the application, with one thread per available processor.
+     * Its queue length is published in the shared {@link MetricsRegistry}.
+     *
+     * @return The shared executor.
+     */
+    public static synchronized SearchExecutor getShared() {
+        if (shared == null) {
+            shared = new SearchExecutor(Runtime.getRuntime().availableProcessors());
+            ThreadPoolExecutor pool = (ThreadPoolExecutor) shared.executor;
+            MetricsRegistry.getShared().gauge("executor_queued_searches", "Searches waiting for a thread of the executor.",
+                    () -> pool.getQueue().size());
+        }
+        return shared;
+    }
+
+    /**
+     * Starts a search for the best move in the given game state.
+     *
+     * @param engine The engine that performs the search.
+     * @param state The game state, with the AI player to move. The search owns it until it completes.
+     * @param budget The budget of the search.
+     * @return The future result of the search. Cancelling it stops the search.
+     * @throws java.util.concurrent.RejectedExecutionException if too many searches are already waiting.
+     */
+    public CompletableFuture<SearchResult> submit(SearchEngine engine, Game state, SearchBudget budget) {
+        CancellationToken token = new CancellationToken();
+        CompletableFuture<SearchResult> future =
+                CompletableFuture.supplyAsync(() -> engine.bestMove(state, budget, token), executor);
+        future.whenComplete((result, error) -> {
+            if (error instanceof CancellationException) {
+                token.cancel();
+            }
+        });
+        return future;
+    }
+
+    /**
+     * Creates the daemon threads of the pool, so a running search never keeps the application alive.
+     */
+    private static class SearchThreadFactory implements ThreadFactory {
+        private final AtomicInteger threadNumber = new AtomicInteger(1);
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "search-" + threadNumber.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package com.example.demo6.AI;
+
+import com.example.demo6.Model.Actions.Action;
+import com.example.demo6.Model.Actions.ActionCode;
+
+/**
+ * The outcome of a {@link SearchEngine#bestMove(com.example.demo6.Model.Game, SearchBudget)} call.
+ */
+public class SearchResult {
+    private final Action action;
+    private final double value;
+    private final SearchStats stats;
+
+    /**
+     * Constructs a search result.
+     *
+     * @param action The action chosen by the engine, or null if no action is available.
+     * @param value The estimated value of the action for the AI player, between -1 and 1.
+     * @param stats The statistics of the search, or null if the engine does not search.
+     */
+    public SearchResult(Action action, double value, SearchStats stats) {
+        this.action = action;
+        this.value = value;
+        this.stats = stats;
+    }
+
+    /**
+     * Returns the action chosen by the engine.
+     *
+     * @return The chosen action, or null if no action is available.
+     */
+    public Action getAction() {
+        return action;
+    }
+
+    /**
+     * Returns the action code of the chosen action.
+     *
+     * @return The action code, or null if no action is available.
+     */
+    public ActionCode getActionCode() {
+        return action == null ? null : action.getActionCode();
+    }
+
+    /**
+     * Returns the estimated value of the chosen action for the AI player.
+     *
+     * @return The value between -1 (certain loss) and 1 (certain win).
+     */
+    public double getValue() {
+        return value;
+    }
+
+    /**
+     * Returns the statistics of the search.
+     *
+     * @return The search statistics, or null if the engine does not search.
+     */
+    public SearchStats getStats() {
+        return stats;
+    }
+}
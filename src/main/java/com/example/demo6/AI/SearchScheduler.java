@@ -0,0 +1,264 @@
+package com.example.demo6.AI;
+
+import com.example.demo6.Metrics.MetricsRegistry;
+import com.example.demo6.Model.Game;
+
+import java.util.PriorityQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CancellationException;
+
+/**
+ * Runs the searches of many games on a few worker threads, earliest deadline first.
+ * MCTS searches are anytime searches, so they run in short time slices through the incremental API of {@link MCTS}:
+ * after every slice the search goes back into the queue, and a search with an earlier deadline that arrived in the
+ * meantime runs first. A search that reaches its deadline is finished with the best move found so far.
+ * Other engines cannot be interrupted and run in a single slice, limited by the time left until their deadline.
+ *
+ * <p>Admission control keeps the latency bounded under overload: when more searches are pending than there are
+ * workers, a new search gets a proportionally smaller simulation budget. A shrunk budget is a hard limit: it is never
+ * adaptive, so MCTS runs at most its simulations instead of scaling them up again for the position.
+ */
+public class SearchScheduler {
+    private static final long SLICE_NANOS = 20_000_000;
+    private static final int MIN_ADMITTED_SIMULATIONS = 200;
+    private static SearchScheduler shared;
+    private final PriorityQueue<ScheduledSearch> queue;
+    private final int workers;
+    private long submissionCounter;
+    private int pendingSearches;
+    private long shrunkBudgets;
+    private long deadlineMisses;
+    private volatile boolean shutdown;
+
+    /**
+     * Constructs a scheduler and starts its worker threads.
+     *
+     * @param workers The number of searches that run at the same time.
+     */
+    public SearchScheduler(int workers) {
+        this.queue = new PriorityQueue<>();
+        this.workers = workers;
+        for (int i = 0; i < workers; i++) {
+            Thread worker = new Thread(this::work, "search-scheduler-" + (i + 1));
+            worker.setDaemon(true);
+            worker.start();
+        }
+    }
+
+    /**
+     * Returns the scheduler shared by the application, with one worker per available processor.
+     * Its load is published in the shared {@link MetricsRegistry}.
+     *
+     * @return The shared scheduler.
+     */
+    public static synchronized SearchScheduler getShared() {
+        if (shared == null) {
+            shared = new SearchScheduler(Runtime.getRuntime().availableProcessors());
+            SearchScheduler scheduler = shared;
+            MetricsRegistry metrics = MetricsRegistry.getShared();
+            metrics.gauge("scheduler_pending_searches", "Searches submitted to the scheduler that have not completed.",
+                    scheduler::getPendingSearches);
+            metrics.counter("scheduler_shrunk_budgets_total", "Searches whose budget was shrunk by admission control.",
+                    scheduler::getShrunkBudgets);
+            metrics.counter("scheduler_deadline_misses_total", "Searches that were finished by their deadline.",
+                    scheduler::getDeadlineMisses);
+        }
+        return shared;
+    }
+
+    /**
+     * Schedules a search. The budget is shrunk if the scheduler is overloaded.
+     *
+     * @param engine The engine that performs the search, used by this search only until it completes.
+     * @param state The game state, with the AI player to move. The search owns it until it completes.
+     * @param budget The budget of the search.
+     * @param deadlineMillis The time from now by which the search has to answer.
+     * @return The future result of the search. Cancelling it stops the search.
+     */
+    public CompletableFuture<SearchResult> submit(SearchEngine engine, Game state, SearchBudget budget, long deadlineMillis) {
+        long now = System.nanoTime();
+        ScheduledSearch search;
+        synchronized (queue) {
+            if (shutdown) {
+                throw new IllegalStateException("The search scheduler is shut down.");
+            }
+            SearchBudget admittedBudget = admit(budget);
+            search = new ScheduledSearch(engine, state, admittedBudget, now + deadlineMillis * 1_000_000,
+                    submissionCounter++);
+            pendingSearches++;
+            queue.add(search);
+            queue.notify();
+        }
+        search.future.whenComplete((result, error) -> {
+            if (error instanceof CancellationException) {
+                search.token.cancel();
+            }
+        });
+        return search.future;
+    }
+
+    /**
+     * Returns the number of searches that were submitted and have not completed yet.
+     *
+     * @return The number of pending searches.
+     */
+    public int getPendingSearches() {
+        synchronized (queue) {
+            return pendingSearches;
+        }
+    }
+
+    /**
+     * Returns the number of searches whose budget was shrunk by admission control.
+     *
+     * @return The number of shrunk budgets.
+     */
+    public long getShrunkBudgets() {
+        synchronized (queue) {
+            return shrunkBudgets;
+        }
+    }
+
+    /**
+     * Returns the number of searches that were finished by their deadline rather than by their budget.
+     *
+     * @return The number of deadline misses.
+     */
+    public long getDeadlineMisses() {
+        synchronized (queue) {
+            return deadlineMisses;
+        }
+    }
+
+    /**
+     * Stops the workers. Pending searches are cancelled.
+     */
+    public void shutdown() {
+        synchronized (queue) {
+            shutdown = true;
+            for (ScheduledSearch search : queue) {
+                search.future.cancel(false);
+            }
+            queue.clear();
+            queue.notifyAll();
+        }
+    }
+
+    /**
+     * Shrinks the simulation budget of a new search in proportion to the number of searches per worker.
+     * The shrunk budget is never above the simulations of the original budget and is not adaptive, so it caps the
+     * work of the search. Must be called while holding the queue lock.
+     */
+    private SearchBudget admit(SearchBudget budget) {
+        int load = pendingSearches + 1;
+        if (load <= workers) {
+            return budget;
+        }
+        shrunkBudgets++;
+        int simulations = (int) Math.max(MIN_ADMITTED_SIMULATIONS, (long) budget.getSimulations() * workers / load);
+        return new SearchBudget(Math.min(budget.getSimulations(), simulations), budget.getTimeLimitMillis());
+    }
+
+    /**
+     * Runs slices of the queued searches until the scheduler is shut down.
+     */
+    private void work() {
+        while (true) {
+            ScheduledSearch search;
+            synchronized (queue) {
+                while (queue.isEmpty() && !shutdown) {
+                    try {
+                        queue.wait();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+                if (shutdown) {
+                    return;
+                }
+                search = queue.poll();
+            }
+            boolean finished;
+            try {
+                finished = search.future.isDone() || runSlice(search);
+            } catch (RuntimeException e) {
+                search.future.completeExceptionally(e);
+                finished = true;
+            }
+            synchronized (queue) {
+                if (finished) {
+                    pendingSearches--;
+                } else {
+                    queue.add(search);
+                }
+            }
+        }
+    }
+
+    /**
+     * Runs one time slice of a search and completes it when its budget or its deadline is used up.
+     *
+     * @return true if the search completed, false if it needs more slices.
+     */
+    private boolean runSlice(ScheduledSearch search) {
+        long now = System.nanoTime();
+        if (!(search.engine instanceof MCTS engine)) {
+            long remainingMillis = Math.max(1, (search.deadlineNanos - now) / 1_000_000);
+            long timeLimitMillis = search.budget.hasTimeLimit()
+                    ? Math.min(search.budget.getTimeLimitMillis(), remainingMillis) : remainingMillis;
+            SearchBudget budget = new SearchBudget(search.budget.getSimulations(), timeLimitMillis);
+            search.future.complete(search.engine.bestMove(search.state, budget, search.token));
+            return true;
+        }
+        if (!search.prepared) {
+            // Many searches run at once without anyone watching, so their reports would only flood the log
+            engine.setQuiet(true);
+            engine.prepareSearch(search.state, search.budget);
+            search.prepared = true;
+        }
+        long sliceEnd = Math.min(now + SLICE_NANOS, search.deadlineNanos);
+        while (!engine.isSearchFinished() && System.nanoTime() - sliceEnd < 0) {
+            engine.runSimulations(1, search.token);
+        }
+        if (engine.isSearchFinished() || System.nanoTime() - search.deadlineNanos >= 0) {
+            if (!engine.isSearchFinished()) {
+                synchronized (queue) {
+                    deadlineMisses++;
+                }
+            }
+            search.future.complete(engine.collectResult());
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * A search waiting in the queue of the scheduler, ordered by deadline and then by submission.
+     */
+    private static class ScheduledSearch implements Comparable<ScheduledSearch> {
+        private final SearchEngine engine;
+        private final Game state;
+        private final SearchBudget budget;
+        private final long deadlineNanos;
+        private final long submission;
+        private final CancellationToken token;
+        private final CompletableFuture<SearchResult> future;
+        private boolean prepared;
+
+        private ScheduledSearch(SearchEngine engine, Game state, SearchBudget budget, long deadlineNanos, long submission) {
+            this.engine = engine;
+            this.state = state;
+            this.budget = budget;
+            this.deadlineNanos = deadlineNanos;
+            this.submission = submission;
+            this.token = new CancellationToken();
+            this.future = new CompletableFuture<>();
+        }
+
+        @Override
+        public int compareTo(ScheduledSearch other) {
+            int byDeadline = Long.compare(deadlineNanos - other.deadlineNanos, 0);
+            return byDeadline != 0 ? byDeadline : Long.compare(submission, other.submission);
+        }
+    }
+}
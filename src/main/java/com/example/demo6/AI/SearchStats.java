@@ -0,0 +1,191 @@
+package com.example.demo6.AI;
+
+/**
+ * Collects the statistics of a single Monte Carlo Tree Search run.
+ * An instance is created at the start of every search and filled in while the simulations run,
+ * so callers can see how much of the requested budget was actually used.
+ */
+public class SearchStats {
+    private final int simulationsRequested;
+    private int simulationsRun;
+    private boolean stoppedEarly;
+    private boolean cancelled;
+    private int evictedSubtrees;
+    private int evictedNodes;
+    private int treeSize;
+    private int tablebaseHits;
+    private int completedDepth;
+
+    /**
+     * Constructs the statistics for a search with the given simulation budget.
+     *
+     * @param simulationsRequested The number of simulations the search was allowed to run.
+     */
+    public SearchStats(int simulationsRequested) {
+        this.simulationsRequested = simulationsRequested;
+        this.simulationsRun = 0;
+        this.stoppedEarly = false;
+    }
+
+    /**
+     * Returns the number of simulations the search was allowed to run.
+     *
+     * @return The requested simulation budget.
+     */
+    public int getSimulationsRequested() {
+        return simulationsRequested;
+    }
+
+    /**
+     * Returns the number of simulations that were actually performed.
+     *
+     * @return The number of completed simulations.
+     */
+    public int getSimulationsRun() {
+        return simulationsRun;
+    }
+
+    /**
+     * Records one more completed simulation.
+     */
+    public void incrementSimulationsRun() {
+        simulationsRun++;
+    }
+
+    /**
+     * Returns the part of the budget that was not used because the search stopped early.
+     *
+     * @return The number of unused simulations.
+     */
+    public int getUnusedSimulations() {
+        return Math.max(0, simulationsRequested - simulationsRun);
+    }
+
+    /**
+     * Checks if the search stopped before its budget was exhausted because the decision was already settled.
+     *
+     * @return true if the search stopped early, false otherwise.
+     */
+    public boolean isStoppedEarly() {
+        return stoppedEarly;
+    }
+
+    /**
+     * Marks the search as stopped early.
+     */
+    public void markStoppedEarly() {
+        this.stoppedEarly = true;
+    }
+
+    /**
+     * Checks if the search was cancelled because its result was no longer needed.
+     *
+     * @return true if the search was cancelled, false otherwise.
+     */
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * Marks the search as cancelled.
+     */
+    public void markCancelled() {
+        this.cancelled = true;
+    }
+
+    /**
+     * Records the eviction of a cold subtree from the search tree.
+     *
+     * @param removedNodes The number of nodes that were removed with the subtree.
+     */
+    public void recordEviction(int removedNodes) {
+        evictedSubtrees++;
+        evictedNodes += removedNodes;
+    }
+
+    /**
+     * Returns the number of subtrees that were collapsed to keep the tree within its node budget.
+     *
+     * @return The number of evicted subtrees.
+     */
+    public int getEvictedSubtrees() {
+        return evictedSubtrees;
+    }
+
+    /**
+     * Returns the total number of nodes removed by evictions during the search.
+     *
+     * @return The number of evicted nodes.
+     */
+    public int getEvictedNodes() {
+        return evictedNodes;
+    }
+
+    /**
+     * Returns the number of nodes in the search tree when the search finished.
+     *
+     * @return The size of the search tree.
+     */
+    public int getTreeSize() {
+        return treeSize;
+    }
+
+    /**
+     * Sets the number of nodes in the search tree when the search finished.
+     *
+     * @param treeSize The size of the search tree.
+     */
+    public void setTreeSize(int treeSize) {
+        this.treeSize = treeSize;
+    }
+
+    /**
+     * Returns the number of rollouts that ended in an endgame covered by the tablebase.
+     *
+     * @return The number of tablebase hits.
+     */
+    public int getTablebaseHits() {
+        return tablebaseHits;
+    }
+
+    /**
+     * Records a rollout that ended in an endgame covered by the tablebase.
+     */
+    public void incrementTablebaseHits() {
+        tablebaseHits++;
+    }
+
+    /**
+     * Returns the depth of the last iteration a depth-first search completed.
+     *
+     * @return The completed search depth, or 0 if the search does not deepen iteratively.
+     */
+    public int getCompletedDepth() {
+        return completedDepth;
+    }
+
+    /**
+     * Sets the depth of the last iteration a depth-first search completed.
+     *
+     * @param completedDepth The completed search depth.
+     */
+    public void setCompletedDepth(int completedDepth) {
+        this.completedDepth = completedDepth;
+    }
+
+    /**
+     * Provides a short, human readable summary of the statistics.
+     *
+     * @return The summary of the search.
+     */
+    @Override
+    public String toString() {
+        return "Simulations run: " + simulationsRun + "/" + simulationsRequested
+                + (stoppedEarly ? " (stopped early, " + getUnusedSimulations() + " unused)" : "")
+                + (cancelled ? " (cancelled)" : "")
+                + ", tree size: " + treeSize
+                + ", tablebase hits: " + tablebaseHits
+                + (completedDepth > 0 ? ", completed depth: " + completedDepth : "")
+                + (evictedSubtrees > 0 ? ", evicted " + evictedNodes + " nodes in " + evictedSubtrees + " subtrees" : "");
+    }
+}
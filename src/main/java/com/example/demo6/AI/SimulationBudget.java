@@ -0,0 +1,134 @@
+package com.example.demo6.AI;
+
+import com.example.demo6.Model.Actions.Action;
+import com.example.demo6.Model.Actions.ActionCode;
+import com.example.demo6.Model.Game;
+import com.example.demo6.Model.Player;
+
+import java.util.List;
+
+/**
+ * Decides how many simulations the Monte Carlo Tree Search should spend on a move.
+ * The base budget is scaled by the branching factor of the position, by the phase of the game
+ * (the number of influences that are still in play) and by how much the value of the chosen move
+ * changed over the last few turns, so simple positions are searched quickly and tight ones get more time.
+ * Only adaptive budgets are scaled, see {@link SearchBudget#adaptive(int, long)}: a budget a caller asked for
+ * explicitly is never raised to the minimum or above its simulations.
+ */
+public class SimulationBudget {
+    private static final int MIN_SIMULATIONS = 200;
+    private static final double MAX_SCALE = 2.0;
+    private static final int MAX_ACTIONS = 7;
+    private static final int MAX_INFLUENCES = 4;
+    private static final double INFLUENCE_WEIGHT = 0.25;
+    private static final double VOLATILITY_NORMALIZER = 10;
+    private static final int VOLATILITY_WINDOW = 5;
+    private static final int FORCED_COUP_COINS = 10;
+    private final int baseSimulations;
+    private final double[] recentValues;
+    private int recordedValues;
+    private int nextValueIndex;
+
+    /**
+     * Constructs a budget manager around a base number of simulations.
+     *
+     * @param baseSimulations The number of simulations used for an average mid-game position.
+     */
+    public SimulationBudget(int baseSimulations) {
+        this.baseSimulations = baseSimulations;
+        this.recentValues = new double[VOLATILITY_WINDOW];
+        this.recordedValues = 0;
+        this.nextValueIndex = 0;
+    }
+
+    /**
+     * Returns the action the player is forced to take, if any.
+     * A move is forced when only one action is legal, or when the player holds 10 or more coins,
+     * in which case the rules require a coup.
+     *
+     * @param legalActions The actions the player can currently perform.
+     * @param player The player who is about to move.
+     * @return The forced action, or null if the player has a real choice.
+     */
+    public static Action forcedAction(List<Action> legalActions, Player player) {
+        if (legalActions.size() == 1) {
+            return legalActions.get(0);
+        }
+        if (player.getCoins() >= FORCED_COUP_COINS) {
+            for (Action action : legalActions) {
+                if (action.getActionCode() == ActionCode.COUP) {
+                    return action;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Calculates the number of simulations to run for the given position from the base budget of this manager.
+     *
+     * @param game The game state that is about to be searched.
+     * @param legalActions The actions the player to move can currently perform.
+     * @return The number of simulations to run, between the minimum budget and twice the base budget.
+     */
+    public int simulationsFor(Game game, List<Action> legalActions) {
+        return simulationsFor(game, legalActions, baseSimulations);
+    }
+
+    /**
+     * Calculates the number of simulations to run for the given position.
+     *
+     * @param game The game state that is about to be searched.
+     * @param legalActions The actions the player to move can currently perform.
+     * @param baseSimulations The number of simulations used for an average mid-game position.
+     * @return The number of simulations to run, between the minimum budget and twice the base budget.
+     */
+    public int simulationsFor(Game game, List<Action> legalActions, int baseSimulations) {
+        double branchingFactor = (double) Math.min(legalActions.size(), MAX_ACTIONS) / MAX_ACTIONS;
+
+        int influences = 0;
+        for (Player player : game.getPlayers()) {
+            influences += player.getCards().size();
+        }
+        //fewer influences means every decision is closer to deciding the game
+        double phaseFactor = 1 + INFLUENCE_WEIGHT * Math.max(0, MAX_INFLUENCES - influences);
+
+        double volatilityFactor = 1 + Math.min(1, getVolatility() / VOLATILITY_NORMALIZER);
+
+        long simulations = Math.round(baseSimulations * branchingFactor * phaseFactor * volatilityFactor);
+        long maxSimulations = Math.round(baseSimulations * MAX_SCALE);
+        return (int) Math.max(MIN_SIMULATIONS, Math.min(maxSimulations, simulations));
+    }
+
+    /**
+     * Records the average reward of the move chosen by the last search.
+     *
+     * @param value The average reward of the chosen root child.
+     */
+    public void recordMoveValue(double value) {
+        recentValues[nextValueIndex] = value;
+        nextValueIndex = (nextValueIndex + 1) % VOLATILITY_WINDOW;
+        recordedValues = Math.min(recordedValues + 1, VOLATILITY_WINDOW);
+    }
+
+    /**
+     * Calculates the standard deviation of the recently recorded move values.
+     *
+     * @return The volatility of the recent move values, or 0 if fewer than two values were recorded.
+     */
+    public double getVolatility() {
+        if (recordedValues < 2) {
+            return 0;
+        }
+        double sum = 0;
+        for (int i = 0; i < recordedValues; i++) {
+            sum += recentValues[i];
+        }
+        double mean = sum / recordedValues;
+        double squaredDifferences = 0;
+        for (int i = 0; i < recordedValues; i++) {
+            squaredDifferences += (recentValues[i] - mean) * (recentValues[i] - mean);
+        }
+        return Math.sqrt(squaredDifferences / recordedValues);
+    }
+}
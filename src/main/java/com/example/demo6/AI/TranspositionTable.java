@@ -17,5 +17,9 @@ class TranspositionTable {
     public TranspositionEntry lookup(long hash) {
         return table.get(hash);
     }
+
+    public void clear() {
+        table.clear();
+    }
 }
 
@@ -0,0 +1,111 @@
+package com.example.demo6.Analytics;
+
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A column of a {@link ColumnTable}: a file of fixed-width primitive values, one per row, mapped into memory.
+ * Reading a value is a single absolute read from the mapping, so any number of threads can scan a column at once.
+ */
+public class Column {
+    /**
+     * The width of the values of a column, which is also the extension of its file.
+     */
+    public enum Type {
+        INT8(1, "i8"),
+        INT32(4, "i32");
+
+        private final int width;
+        private final String extension;
+
+        Type(int width, String extension) {
+            this.width = width;
+            this.extension = extension;
+        }
+
+        /**
+         * Returns the number of bytes of a value.
+         *
+         * @return The width of a value.
+         */
+        public int getWidth() {
+            return width;
+        }
+
+        /**
+         * Returns the extension of the files of columns of this type.
+         *
+         * @return The file extension, without the dot.
+         */
+        public String getExtension() {
+            return extension;
+        }
+    }
+
+    private final String name;
+    private final Type type;
+    private final MappedByteBuffer values;
+    private final int rowCount;
+
+    /**
+     * Maps a column file.
+     *
+     * @param name The name of the column.
+     * @param type The type of the values.
+     * @param path The column file.
+     * @throws IOException if the file cannot be mapped or is larger than a mapping can be.
+     */
+    public Column(String name, Type type, Path path) throws IOException {
+        this.name = name;
+        this.type = type;
+        try (FileChannel file = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (file.size() > Integer.MAX_VALUE || file.size() % type.getWidth() != 0) {
+                throw new IOException(path + " is not a column file of at most 2 GB");
+            }
+            this.values = file.map(FileChannel.MapMode.READ_ONLY, 0, file.size());
+            this.values.order(ByteOrder.nativeOrder());
+            this.rowCount = (int) (file.size() / type.getWidth());
+        }
+    }
+
+    /**
+     * Returns the value of a row.
+     *
+     * @param row The row, between 0 and {@link #getRowCount()} - 1.
+     * @return The value, sign-extended to an int for 8-bit columns.
+     */
+    public int get(int row) {
+        return type == Type.INT8 ? values.get(row) : values.getInt(row << 2);
+    }
+
+    /**
+     * Returns the name of the column.
+     *
+     * @return The column name.
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Returns the type of the values of the column.
+     *
+     * @return The column type.
+     */
+    public Type getType() {
+        return type;
+    }
+
+    /**
+     * Returns the number of values in the column.
+     *
+     * @return The row count.
+     */
+    public int getRowCount() {
+        return rowCount;
+    }
+}
@@ -0,0 +1,94 @@
+package com.example.demo6.Analytics;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A table of a {@link GameStore}, made of columns of the same length stored in files named
+ * {@code <table>.<column>.<type>} in the directory of the store.
+ */
+public class ColumnTable {
+    private final String name;
+    private final Map<String, Column> columns;
+    private final int rowCount;
+
+    /**
+     * Maps the columns of a table.
+     *
+     * @param directory The directory of the store.
+     * @param name The name of the table.
+     * @param columnTypes The types of the columns, by name.
+     * @throws IOException if a column cannot be mapped or the columns differ in length.
+     */
+    public ColumnTable(Path directory, String name, Map<String, Column.Type> columnTypes) throws IOException {
+        this.name = name;
+        this.columns = new LinkedHashMap<>();
+        int rows = -1;
+        for (Map.Entry<String, Column.Type> entry : columnTypes.entrySet()) {
+            Column column = new Column(entry.getKey(), entry.getValue(), columnPath(directory, name, entry.getKey(), entry.getValue()));
+            if (rows != -1 && column.getRowCount() != rows) {
+                throw new IOException("The columns of table " + name + " differ in length");
+            }
+            rows = column.getRowCount();
+            columns.put(entry.getKey(), column);
+        }
+        this.rowCount = Math.max(rows, 0);
+    }
+
+    /**
+     * Returns the file of a column.
+     *
+     * @param directory The directory of the store.
+     * @param table The name of the table.
+     * @param column The name of the column.
+     * @param type The type of the column.
+     * @return The path of the column file.
+     */
+    static Path columnPath(Path directory, String table, String column, Column.Type type) {
+        return directory.resolve(table + "." + column + "." + type.getExtension());
+    }
+
+    /**
+     * Returns a column of the table.
+     *
+     * @param columnName The name of the column.
+     * @return The column.
+     * @throws IllegalArgumentException if the table has no column with the name.
+     */
+    public Column column(String columnName) {
+        Column column = columns.get(columnName);
+        if (column == null) {
+            throw new IllegalArgumentException("Table " + name + " has no column " + columnName);
+        }
+        return column;
+    }
+
+    /**
+     * Starts a scan of all rows of the table.
+     *
+     * @return A scan without filters.
+     */
+    public TableScan scan() {
+        return new TableScan(rowCount, null);
+    }
+
+    /**
+     * Returns the name of the table.
+     *
+     * @return The table name.
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Returns the number of rows of the table.
+     *
+     * @return The row count.
+     */
+    public int getRowCount() {
+        return rowCount;
+    }
+}
@@ -0,0 +1,74 @@
+package com.example.demo6.Analytics;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Appends the values of a column to its file through a buffer, in the layout read by {@link Column}.
+ */
+class ColumnWriter implements AutoCloseable {
+    private static final int BUFFER_SIZE = 1 << 16;
+    private final Column.Type type;
+    private final FileChannel file;
+    private final ByteBuffer buffer;
+
+    /**
+     * Creates or truncates a column file.
+     *
+     * @param type The type of the values.
+     * @param path The column file.
+     * @throws IOException if the file cannot be created.
+     */
+    ColumnWriter(Column.Type type, Path path) throws IOException {
+        this.type = type;
+        this.file = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+        this.buffer = ByteBuffer.allocateDirect(BUFFER_SIZE).order(ByteOrder.nativeOrder());
+    }
+
+    /**
+     * Appends a value.
+     *
+     * @param value The value, truncated to 8 bits for 8-bit columns.
+     * @throws IOException if the buffer cannot be written to the file.
+     */
+    void add(int value) throws IOException {
+        if (buffer.remaining() < type.getWidth()) {
+            flush();
+        }
+        if (type == Column.Type.INT8) {
+            buffer.put((byte) value);
+        } else {
+            buffer.putInt(value);
+        }
+    }
+
+    /**
+     * Writes the buffered values to the file.
+     */
+    private void flush() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            file.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    /**
+     * Writes the buffered values and closes the file.
+     *
+     * @throws IOException if the file cannot be written.
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            flush();
+        } finally {
+            file.close();
+        }
+    }
+}
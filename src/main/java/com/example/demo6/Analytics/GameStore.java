@@ -0,0 +1,363 @@
+package com.example.demo6.Analytics;
+
+import com.example.demo6.Model.Actions.ActionCode;
+import com.example.demo6.Model.Deck;
+import com.example.demo6.Model.Player;
+import com.example.demo6.Persistence.GameJournal;
+import com.example.demo6.Persistence.GameSnapshot;
+import com.example.demo6.Persistence.JournalRecord;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A columnar store of the games of the server journal, for aggregate questions over millions of games such as
+ * the success of bluffs, the accuracy of challenges and the win rate of opening hands. The store is built offline
+ * from the journal by {@link #build(Path, Path)} and has two tables:
+ * <ul>
+ *     <li>{@value #MOVES}, one row per turn: the game, the turn, the side and the action, the outcome flags of
+ *     {@link JournalRecord}, the card the action claims and whether the claim was a bluff;</li>
+ *     <li>{@value #GAMES}, one row per game: the game, the opening hands as {@link Player#packHandKey hand keys},
+ *     the winner and the number of turns.</li>
+ * </ul>
+ * Every column is a file of primitive values that is mapped into memory when the store is opened,
+ * and queried with parallel {@link TableScan scans}.
+ */
+public class GameStore {
+    public static final String MOVES = "moves";
+    public static final String GAMES = "games";
+    public static final String SESSION = "session";
+    public static final String TURN = "turn";
+    public static final String BY_AI = "by_ai";
+    public static final String ACTION = "action";
+    public static final String OUTCOME = "outcome";
+    public static final String CLAIM = "claim";
+    public static final String BLUFF = "bluff";
+    public static final String HUMAN_OPENING = "human_opening";
+    public static final String AI_OPENING = "ai_opening";
+    public static final String WINNER = "winner";
+    public static final String TURNS = "turns";
+    /**
+     * The value of {@value #CLAIM}, {@value #BLUFF}, the opening hands and {@value #WINNER} when there is none or it is unknown.
+     */
+    public static final int NONE = -1;
+    public static final int HUMAN_WON = 0;
+    public static final int AI_WON = 1;
+    private static final Map<String, Column.Type> MOVE_COLUMNS = columnTypes(
+            SESSION, Column.Type.INT32, TURN, Column.Type.INT32, BY_AI, Column.Type.INT8, ACTION, Column.Type.INT8,
+            OUTCOME, Column.Type.INT8, CLAIM, Column.Type.INT8, BLUFF, Column.Type.INT8);
+    private static final Map<String, Column.Type> GAME_COLUMNS = columnTypes(
+            SESSION, Column.Type.INT32, HUMAN_OPENING, Column.Type.INT8, AI_OPENING, Column.Type.INT8,
+            WINNER, Column.Type.INT8, TURNS, Column.Type.INT32);
+    private final ColumnTable moves;
+    private final ColumnTable games;
+
+    /**
+     * Opens a store built by {@link #build(Path, Path)}.
+     *
+     * @param directory The directory of the store.
+     * @throws IOException if a column cannot be mapped.
+     */
+    public GameStore(Path directory) throws IOException {
+        this.moves = new ColumnTable(directory, MOVES, MOVE_COLUMNS);
+        this.games = new ColumnTable(directory, GAMES, GAME_COLUMNS);
+    }
+
+    /**
+     * Returns the table with one row per turn.
+     *
+     * @return The moves table.
+     */
+    public ColumnTable getMoves() {
+        return moves;
+    }
+
+    /**
+     * Returns the table with one row per game.
+     *
+     * @return The games table.
+     */
+    public ColumnTable getGames() {
+        return games;
+    }
+
+    /**
+     * Builds a store from the segments of a journal, replacing the store in the directory.
+     * A game enters the games table when it ends or is closed, or at the end of the journal if it is still live.
+     * A game that started before the oldest segment has no known opening hands and its first moves have no known bluffs.
+     *
+     * @param journalDirectory The journal directory.
+     * @param directory The directory of the store, created if needed.
+     * @return The number of moves in the store.
+     * @throws IOException if the journal cannot be read or the store cannot be written.
+     */
+    public static long build(Path journalDirectory, Path directory) throws IOException {
+        Files.createDirectories(directory);
+        try (TableWriter moveWriter = new TableWriter(directory, MOVES, MOVE_COLUMNS);
+             TableWriter gameWriter = new TableWriter(directory, GAMES, GAME_COLUMNS)) {
+            Map<Integer, GameTrack> live = new HashMap<>();
+            long[] moveCount = new long[1];
+            for (Path segmentPath : GameJournal.listSegments(journalDirectory)) {
+                try {
+                    GameJournal.read(segmentPath, record -> {
+                        try {
+                            addRecord(record, live, moveWriter, gameWriter);
+                        } catch (IOException e) {
+                            throw new UncheckedIOException(e);
+                        }
+                        if (record.getType() == JournalRecord.Type.MOVE) {
+                            moveCount[0]++;
+                        }
+                    });
+                } catch (UncheckedIOException e) {
+                    throw e.getCause();
+                }
+            }
+            for (GameTrack track : live.values()) {
+                writeGame(gameWriter, track);
+            }
+            return moveCount[0];
+        }
+    }
+
+    /**
+     * Adds a journal record to the tables, following the live games.
+     */
+    private static void addRecord(JournalRecord record, Map<Integer, GameTrack> live, TableWriter moveWriter,
+                                  TableWriter gameWriter) throws IOException {
+        switch (record.getType()) {
+            case SNAPSHOT -> {
+                for (GameSnapshot game : record.getGames()) {
+                    live.computeIfAbsent(game.getSessionId(), id -> new GameTrack(id, NONE, NONE)).state = game;
+                }
+            }
+            case CREATED -> {
+                GameSnapshot state = record.getState();
+                GameTrack previous = live.put(record.getSessionId(), new GameTrack(record.getSessionId(),
+                        handKey(state.getHumanCards()), handKey(state.getAICards())));
+                if (previous != null) {
+                    writeGame(gameWriter, previous);
+                }
+                live.get(record.getSessionId()).state = state;
+            }
+            case MOVE -> {
+                GameTrack track = live.computeIfAbsent(record.getSessionId(), id -> new GameTrack(id, NONE, NONE));
+                int claim = claimedCard(record.getActionCode());
+                int bluff = NONE;
+                if (claim != NONE && track.state != null) {
+                    List<Deck.CardType> hand = record.isByAI() ? track.state.getAICards() : track.state.getHumanCards();
+                    bluff = hand.contains(Deck.CardType.values()[claim]) ? 0 : 1;
+                }
+                moveWriter.add(record.getSessionId(), record.getState().getTurn(), record.isByAI() ? 1 : 0,
+                        record.getActionCode().ordinal(), record.getOutcome(), claim, bluff);
+                track.state = record.getState();
+                track.turns++;
+            }
+            case GAME_OVER -> {
+                GameTrack track = live.remove(record.getSessionId());
+                if (track != null) {
+                    track.winner = record.isByAI() ? AI_WON : HUMAN_WON;
+                    writeGame(gameWriter, track);
+                }
+            }
+            case CLOSED -> {
+                GameTrack track = live.remove(record.getSessionId());
+                if (track != null) {
+                    writeGame(gameWriter, track);
+                }
+            }
+        }
+    }
+
+    /**
+     * Adds a game to the games table.
+     */
+    private static void writeGame(TableWriter gameWriter, GameTrack track) throws IOException {
+        gameWriter.add(track.sessionId, track.humanOpening, track.aiOpening, track.winner, track.turns);
+    }
+
+    /**
+     * Returns the hand key of an opening hand of two cards.
+     */
+    private static int handKey(List<Deck.CardType> hand) {
+        return hand.size() == 2 ? Player.packHandKey(hand.get(0), hand.get(1)) : NONE;
+    }
+
+    /**
+     * Returns the ordinal of the card an action claims, or {@link #NONE} if anybody may take the action.
+     */
+    private static int claimedCard(ActionCode actionCode) {
+        return switch (actionCode) {
+            case TAX -> Deck.CardType.DUKE.ordinal();
+            case ASSASSINATE -> Deck.CardType.ASSASSIN.ordinal();
+            case STEAL -> Deck.CardType.CAPTAIN.ordinal();
+            case SWAP -> Deck.CardType.AMBASSADOR.ordinal();
+            default -> NONE;
+        };
+    }
+
+    /**
+     * Builds the ordered column types of a table from name and type pairs.
+     */
+    private static Map<String, Column.Type> columnTypes(Object... namesAndTypes) {
+        Map<String, Column.Type> columnTypes = new LinkedHashMap<>();
+        for (int i = 0; i < namesAndTypes.length; i += 2) {
+            columnTypes.put((String) namesAndTypes[i], (Column.Type) namesAndTypes[i + 1]);
+        }
+        return columnTypes;
+    }
+
+    /**
+     * Prints the bluff success rate per action, the accuracy of challenges and the win rate per opening hand.
+     */
+    private void printReport() {
+        Column action = moves.column(ACTION);
+        Column outcome = moves.column(OUTCOME);
+        Column bluff = moves.column(BLUFF);
+        int actionCount = ActionCode.values().length;
+
+        TableScan bluffs = moves.scan().where(row -> bluff.get(row) == 1);
+        long[] bluffsByAction = bluffs.countBy(action::get, actionCount);
+        long[] caughtByAction = bluffs.where(row -> (outcome.get(row) & JournalRecord.CHALLENGE_SUCCEEDED) != 0)
+                .countBy(action::get, actionCount);
+        System.out.println("Bluffs by action:");
+        for (ActionCode actionCode : ActionCode.values()) {
+            int i = actionCode.ordinal();
+            if (bluffsByAction[i] > 0) {
+                System.out.printf("  %-12s %10d bluffs, %5.1f%% not caught%n", actionCode, bluffsByAction[i],
+                        100.0 * (bluffsByAction[i] - caughtByAction[i]) / bluffsByAction[i]);
+            }
+        }
+
+        TableScan challenges = moves.scan().where(row -> (outcome.get(row) & JournalRecord.CHALLENGED) != 0);
+        long challenged = challenges.count();
+        long succeeded = challenges.where(row -> (outcome.get(row) & JournalRecord.CHALLENGE_SUCCEEDED) != 0).count();
+        TableScan blockChallenges = moves.scan().where(row -> (outcome.get(row) & JournalRecord.BLOCK_CHALLENGED) != 0);
+        long blocksChallenged = blockChallenges.count();
+        long blocksSucceeded = blockChallenges
+                .where(row -> (outcome.get(row) & JournalRecord.BLOCK_CHALLENGE_SUCCEEDED) != 0).count();
+        System.out.printf("Challenges of actions: %d, %.1f%% right%n", challenged, percent(succeeded, challenged));
+        System.out.printf("Challenges of blocks: %d, %.1f%% right%n", blocksChallenged, percent(blocksSucceeded, blocksChallenged));
+
+        Column humanOpening = games.column(HUMAN_OPENING);
+        Column aiOpening = games.column(AI_OPENING);
+        Column winner = games.column(WINNER);
+        TableScan finished = games.scan().where(row -> winner.get(row) != NONE);
+        long[] hands = add(finished.countBy(humanOpening::get, Player.HAND_KEY_COUNT),
+                finished.countBy(aiOpening::get, Player.HAND_KEY_COUNT));
+        long[] wins = add(finished.sumBy(humanOpening::get, Player.HAND_KEY_COUNT, row -> winner.get(row) == HUMAN_WON ? 1 : 0),
+                finished.sumBy(aiOpening::get, Player.HAND_KEY_COUNT, row -> winner.get(row) == AI_WON ? 1 : 0));
+        System.out.println("Win rate by opening hand:");
+        Deck.CardType[] cardTypes = Deck.CardType.values();
+        for (int first = 0; first < cardTypes.length; first++) {
+            for (int second = first; second < cardTypes.length; second++) {
+                int key = Player.packHandKey(cardTypes[first], cardTypes[second]);
+                if (hands[key] > 0) {
+                    System.out.printf("  %-10s %-10s %10d hands, %5.1f%% won%n", cardTypes[first], cardTypes[second],
+                            hands[key], percent(wins[key], hands[key]));
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns a share in percent, 0 for an empty total.
+     */
+    private static double percent(long part, long total) {
+        return total == 0 ? 0 : 100.0 * part / total;
+    }
+
+    /**
+     * Adds two arrays of group totals.
+     */
+    private static long[] add(long[] first, long[] second) {
+        long[] sums = new long[first.length];
+        for (int i = 0; i < sums.length; i++) {
+            sums[i] = first[i] + second[i];
+        }
+        return sums;
+    }
+
+    /**
+     * Builds a store from a journal and prints a report of it, or only prints the report of an existing store.
+     *
+     * @param args {@code build <journal directory> <store directory>} or {@code report <store directory>}.
+     * @throws IOException if the journal cannot be read or the store cannot be written or read.
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length == 3 && args[0].equals("build")) {
+            long startMillis = System.currentTimeMillis();
+            long moveCount = build(Path.of(args[1]), Path.of(args[2]));
+            System.out.println("Stored " + moveCount + " moves in " + (System.currentTimeMillis() - startMillis) + " ms");
+        } else if (args.length != 2 || !args[0].equals("report")) {
+            System.out.println("Usage: GameStore build <journal directory> <store directory> | report <store directory>");
+            return;
+        }
+        GameStore store = new GameStore(Path.of(args[args.length - 1]));
+        long startMillis = System.currentTimeMillis();
+        store.printReport();
+        System.out.println("Scanned " + store.getMoves().getRowCount() + " moves and " + store.getGames().getRowCount()
+                + " games in " + (System.currentTimeMillis() - startMillis) + " ms");
+    }
+
+    /**
+     * A game that is followed while the journal is read.
+     */
+    private static class GameTrack {
+        private final int sessionId;
+        private final int humanOpening;
+        private final int aiOpening;
+        private GameSnapshot state;
+        private int winner = NONE;
+        private int turns;
+
+        private GameTrack(int sessionId, int humanOpening, int aiOpening) {
+            this.sessionId = sessionId;
+            this.humanOpening = humanOpening;
+            this.aiOpening = aiOpening;
+        }
+    }
+
+    /**
+     * Writes the rows of a table, one value per column.
+     */
+    private static class TableWriter implements AutoCloseable {
+        private final ColumnWriter[] writers;
+
+        private TableWriter(Path directory, String table, Map<String, Column.Type> columnTypes) throws IOException {
+            this.writers = new ColumnWriter[columnTypes.size()];
+            int i = 0;
+            for (Map.Entry<String, Column.Type> entry : columnTypes.entrySet()) {
+                writers[i++] = new ColumnWriter(entry.getValue(),
+                        ColumnTable.columnPath(directory, table, entry.getKey(), entry.getValue()));
+            }
+        }
+
+        private void add(int... values) throws IOException {
+            for (int i = 0; i < writers.length; i++) {
+                writers[i].add(values[i]);
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            IOException failure = null;
+            for (ColumnWriter writer : writers) {
+                try {
+                    writer.close();
+                } catch (IOException e) {
+                    failure = failure == null ? e : failure;
+                }
+            }
+            if (failure != null) {
+                throw failure;
+            }
+        }
+    }
+}
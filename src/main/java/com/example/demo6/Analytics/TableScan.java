@@ -0,0 +1,116 @@
+package com.example.demo6.Analytics;
+
+import java.util.function.IntPredicate;
+import java.util.function.IntToLongFunction;
+import java.util.function.IntUnaryOperator;
+import java.util.stream.IntStream;
+
+/**
+ * A parallel scan of the rows of a {@link ColumnTable}, narrowed by filters and aggregated into groups.
+ * Filters, keys and values are functions of the row index that read the columns they need, for example
+ * {@code moves.scan().where(row -> bluff.get(row) == 1).countBy(action::get, ActionCode.values().length)}.
+ *
+ * <p>The rows are split into chunks that are aggregated in parallel on the common fork-join pool, each into
+ * its own array of group totals, and the arrays are added up at the end. Groups are small non-negative integers
+ * such as enum ordinals or hand keys, so a group-by needs no hashing.
+ */
+public class TableScan {
+    private static final int CHUNK_ROWS = 1 << 16;
+    private final int rowCount;
+    private final IntPredicate filter;
+
+    /**
+     * Constructs a scan.
+     *
+     * @param rowCount The number of rows of the table.
+     * @param filter The filter of the rows, or null to scan all rows.
+     */
+    TableScan(int rowCount, IntPredicate filter) {
+        this.rowCount = rowCount;
+        this.filter = filter;
+    }
+
+    /**
+     * Narrows the scan to the rows that also pass a filter.
+     *
+     * @param predicate The filter, given the row index.
+     * @return A new scan with both filters.
+     */
+    public TableScan where(IntPredicate predicate) {
+        return new TableScan(rowCount, filter == null ? predicate : filter.and(predicate));
+    }
+
+    /**
+     * Counts the rows of the scan.
+     *
+     * @return The number of rows that pass the filters.
+     */
+    public long count() {
+        return sumBy(row -> 0, 1, row -> 1)[0];
+    }
+
+    /**
+     * Sums a value over the rows of the scan.
+     *
+     * @param value The value of a row, given the row index.
+     * @return The sum of the values of the rows that pass the filters.
+     */
+    public long sum(IntToLongFunction value) {
+        return sumBy(row -> 0, 1, value)[0];
+    }
+
+    /**
+     * Counts the rows of the scan by group.
+     *
+     * @param key The group of a row, given the row index. Rows outside 0 to keyCount - 1 are left out.
+     * @param keyCount The number of groups.
+     * @return The number of rows of every group.
+     */
+    public long[] countBy(IntUnaryOperator key, int keyCount) {
+        return sumBy(key, keyCount, row -> 1);
+    }
+
+    /**
+     * Sums a value over the rows of the scan by group.
+     *
+     * @param key The group of a row, given the row index. Rows outside 0 to keyCount - 1 are left out.
+     * @param keyCount The number of groups.
+     * @param value The value of a row, given the row index.
+     * @return The sum of the values of every group.
+     */
+    public long[] sumBy(IntUnaryOperator key, int keyCount, IntToLongFunction value) {
+        int chunks = (rowCount + CHUNK_ROWS - 1) / CHUNK_ROWS;
+        return IntStream.range(0, chunks).parallel()
+                .mapToObj(chunk -> sumChunk(chunk, key, keyCount, value))
+                .reduce(new long[keyCount], TableScan::add);
+    }
+
+    /**
+     * Aggregates the rows of one chunk.
+     */
+    private long[] sumChunk(int chunk, IntUnaryOperator key, int keyCount, IntToLongFunction value) {
+        long[] sums = new long[keyCount];
+        int end = (int) Math.min(rowCount, (long) (chunk + 1) * CHUNK_ROWS);
+        for (int row = chunk * CHUNK_ROWS; row < end; row++) {
+            if (filter != null && !filter.test(row)) {
+                continue;
+            }
+            int group = key.applyAsInt(row);
+            if (group >= 0 && group < keyCount) {
+                sums[group] += value.applyAsLong(row);
+            }
+        }
+        return sums;
+    }
+
+    /**
+     * Adds the group totals of two chunks into a new array.
+     */
+    private static long[] add(long[] first, long[] second) {
+        long[] sums = new long[first.length];
+        for (int i = 0; i < sums.length; i++) {
+            sums[i] = first[i] + second[i];
+        }
+        return sums;
+    }
+}
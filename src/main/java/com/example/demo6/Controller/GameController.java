@@ -1,6 +1,11 @@
 package com.example.demo6.Controller;
 
-import com.example.demo6.AI.MCTS;
+import com.example.demo6.AI.SearchBudget;
+import com.example.demo6.AI.SearchEngine;
+import com.example.demo6.AI.SearchEngines;
+import com.example.demo6.AI.SearchExecutor;
+import com.example.demo6.AI.SearchResult;
+import com.example.demo6.Metrics.GameMetrics;
 import com.example.demo6.Model.Actions.*;
 import com.example.demo6.Model.Card;
 import com.example.demo6.Model.Deck;
@@ -10,6 +15,7 @@ import com.example.demo6.View.GameView;
 import javafx.application.Platform;
 
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
 
 import static com.example.demo6.AI.Heuristic.*;
 
@@ -22,9 +28,11 @@ public class GameController {
     private final GameView view;
     private Player currentPlayer;
     private Player aiPlayer;
-    private MCTS mcts;
-    private final String HUMANN_PLAYER_NAME = "Human Player";
-    private final String AI_PLAYER_NAME = "AI Player";
+    private SearchEngine engine;
+    private SearchBudget searchBudget;
+    private CompletableFuture<SearchResult> aiMove;
+    private volatile boolean shutDown;
+    private final GameEventPublisher events;
 
     /**
      * Constructor for GameController.
@@ -34,30 +42,29 @@ public class GameController {
     public GameController(GameView view, Game game) {
         this.game = game;
         this.view = view;
+        this.events = new GameEventPublisher();
+        this.events.subscribe(new GameEventLogger());
         this.view.setController(this);
     }
 
     /**
-     * Initializes the game and updates the view.
+     * Initializes the game and announces its start to the subscribers.
      */
     public void initializeGame() {
         Set<Deck.CardType> allCardTypes = EnumSet.allOf(Deck.CardType.class);
         this.game = new Game(new Deck(allCardTypes, Deck.NUMBER_OF_COPIES));
 
-        Player humanPlayer = new Player(HUMANN_PLAYER_NAME);
-        this.aiPlayer = new Player(AI_PLAYER_NAME);
+        Player humanPlayer = new Player(Game.HUMAN_PLAYER_NAME);
+        this.aiPlayer = new Player(Game.AI_PLAYER_NAME);
         this.game.addPlayer(humanPlayer);
         this.game.addPlayer(aiPlayer);
 
         this.currentPlayer = this.game.getCurrentPlayer();
-        this.mcts = new MCTS(game, 2500, 100);
-
-        Platform.runLater(() -> {
-            view.updatePlayerInfo(this.game.getPlayers());
-            view.updateCurrentPlayer(this.currentPlayer);
-            view.updateAvailableActions(this.game.getAvailableActions(this.currentPlayer));
-            view.createCardStackArea(this.game.getDeck());
-        });
+        this.engine = SearchEngines.fromConfiguration(game);
+        this.searchBudget = SearchEngines.configuredBudget();
+
+        publish(GameEvent.Type.GAME_STARTED, currentPlayer, null, null,
+                "A new game starts, " + currentPlayer.getName() + " moves first.");
     }
 
     /**
@@ -69,6 +76,24 @@ public class GameController {
         return game;
     }
 
+    /**
+     * Returns the player whose turn it is.
+     *
+     * @return the current player
+     */
+    public Player getCurrentPlayer() {
+        return currentPlayer;
+    }
+
+    /**
+     * Returns the stream of the events of the game, which the view and other observers subscribe to.
+     *
+     * @return the event publisher of this controller
+     */
+    public GameEventPublisher getEvents() {
+        return events;
+    }
+
     /**
      * Executes a given action within the game context. This method first validates if the action can be legally performed
      * by the current player. It then handles potential challenges and blocks by opponents, and if unchallenged or
@@ -83,6 +108,8 @@ public class GameController {
             return;
         }
         Player opponent = game.getOpponent(currentPlayer);
+        publish(GameEvent.Type.ACTION_DECLARED, currentPlayer, action.getActionCode(), null,
+                currentPlayer.getName() + " decides to execute the action: " + action.actionCodeToString());
         boolean actionExecuted = getChallengeDecision(action, opponent);
 
         if (action.canBeBlocked && actionExecuted) {
@@ -92,11 +119,14 @@ public class GameController {
         if (actionExecuted) {
             List<Card> cards = getCardsForAction(action);
             game.executeAction(action, cards);
-            mcts.handleAction(action);
+            engine.handleAction(action);
+            publish(GameEvent.Type.ACTION_EXECUTED, currentPlayer, action.getActionCode(), null,
+                    currentPlayer.getName() + " executes the action: " + action.actionCodeToString());
+            if (cards != null && cards.size() == 1) {
+                publishCardLost(opponent, cards.get(0));
+            }
         }
 
-        updateView();
-
         if (game.isGameOver()) {
             endGame();
         } else {
@@ -163,7 +193,8 @@ public class GameController {
             return true;
         }
 
-        view.displayMessage(opponent.getName() + " challenges " + currentPlayer.getName() + "'s action!");
+        publish(GameEvent.Type.CHALLENGED, opponent, action.getActionCode(), null,
+                opponent.getName() + " challenges " + currentPlayer.getName() + "'s action!");
         return handleChallenge(action);
     }
 
@@ -187,7 +218,8 @@ public class GameController {
             return true;
         }
 
-        view.displayMessage(opponent.getName() + " blocks " + currentPlayer.getName() + "'s action!");
+        publish(GameEvent.Type.BLOCKED, opponent, action.getActionCode(), null,
+                opponent.getName() + " blocks " + currentPlayer.getName() + "'s action!");
         boolean challengeBlock = currentPlayer.equals(aiPlayer)
                 ? simulateBlockChallenge(game, action)
                 : view.promptForChallenge("Do you want to challenge this block?");
@@ -196,7 +228,8 @@ public class GameController {
             return false;
         }
 
-        view.displayMessage(currentPlayer.getName() + " challenges the block by " + opponent.getName());
+        publish(GameEvent.Type.BLOCK_CHALLENGED, currentPlayer, action.getActionCode(), null,
+                currentPlayer.getName() + " challenges the block by " + opponent.getName());
         boolean blockSucceed = handleBlockAction(opponent, action, challengeBlock);
         return !blockSucceed;
     }
@@ -239,10 +272,12 @@ public class GameController {
 
         if (challengeSuccess) {
             handleLoseCard(game.getOpponent(action.getPlayer()));
-            view.displayMessage("Challenge failed. " + game.getOpponent(action.getPlayer()).getName() + " loses a card.");
+            publish(GameEvent.Type.CHALLENGE_RESOLVED, game.getOpponent(action.getPlayer()), action.getActionCode(), null,
+                    "Challenge failed. " + game.getOpponent(action.getPlayer()).getName() + " loses a card.");
         } else {
             handleLoseCard(action.getPlayer());
-            view.displayMessage("Challenge successful. " + action.getPlayer().getName() + " loses a card.");
+            publish(GameEvent.Type.CHALLENGE_RESOLVED, action.getPlayer(), action.getActionCode(), null,
+                    "Challenge successful. " + action.getPlayer().getName() + " loses a card.");
         }
 
         return challengeSuccess;
@@ -257,7 +292,7 @@ public class GameController {
     private void endTurn() {
         if (!(game.isGameOver())) {
             currentPlayer = game.switchTurns();
-            updateView();
+            publish(GameEvent.Type.TURN_SWITCHED, currentPlayer, null, null, "It is " + currentPlayer.getName() + "'s turn.");
             if (currentPlayer.equals(aiPlayer)) {
                 executeAIPlayerTurn();
             }
@@ -267,27 +302,43 @@ public class GameController {
     }
 
     /**
-     * Executes the turn for the AI player. Determines the best move using the MCTS algorithm and performs it.
-     * Displays which action the AI decided to execute in the view.
-     * Uses a separate thread to prevent the GUI from freezing during the computation.
+     * Executes the turn for the AI player. Determines the best move using the configured search engine and performs it.
+     * The chosen action is announced to the subscribers when it is executed.
+     * The search runs on the shared {@link SearchExecutor} to prevent the GUI from freezing during the computation,
+     * and its result is ignored if the controller was shut down in the meantime.
      */
     private void executeAIPlayerTurn() {
         view.setControlsDisable(true);
-        Thread aiThread = new Thread(() -> {
-            Action bestAction = mcts.bestMove(game.deepCopy());
-            Platform.runLater(() -> {
-                if (bestAction != null) {
-                    bestAction.setPlayer(aiPlayer);
-                    bestAction.setOpponent(game.getHumanPlayer());
-                    System.out.println("The best action is: " + bestAction.actionCodeToString() +"\n");
-                    view.displayMessage("AI decides to execute the action: " + bestAction.actionCodeToString());
-                    executeAction(bestAction);
-                }
-                view.setControlsDisable(false);
-            });
-        });
-        aiThread.setDaemon(true);
-        aiThread.start();
+        long requestedNanos = System.nanoTime();
+        aiMove = SearchExecutor.getShared().submit(engine, game.deepCopy(), searchBudget);
+        aiMove.whenComplete((result, error) -> GameMetrics.AI_MOVE_LATENCY.recordMicrosSince(requestedNanos));
+        aiMove.whenComplete((result, error) -> Platform.runLater(() -> {
+            if (shutDown) {
+                return;
+            }
+            if (error != null) {
+                System.out.println("The AI search failed: " + error);
+            } else if (result.getAction() != null) {
+                Action bestAction = result.getAction();
+                bestAction.setPlayer(aiPlayer);
+                bestAction.setOpponent(game.getHumanPlayer());
+                System.out.println("The best action is: " + bestAction.actionCodeToString() +"\n");
+                executeAction(bestAction);
+            }
+            view.setControlsDisable(false);
+        }));
+    }
+
+    /**
+     * Shuts the controller down when its game is abandoned. A running AI search is cancelled
+     * and its result, if it still arrives, is no longer applied to the game or the view. The event stream is completed.
+     */
+    public void shutdown() {
+        shutDown = true;
+        events.close();
+        if (aiMove != null) {
+            aiMove.cancel(false);
+        }
     }
     /**
      * Handles the loss of a card for a given player. This method determines which card the player should lose,
@@ -303,29 +354,37 @@ public class GameController {
             cardToLose = view.promptPlayerForCardToGiveUp(player);
         }
         player.returnCard(cardToLose);
-        updateView();
+        publishCardLost(player, cardToLose);
     }
 
     /**
-     * Ends the game and displays the winner. Also, notifies the MCTS algorithm about the game's end.
+     * Ends the game and announces the winner.
      */
     private void endGame() {
         Player winner = game.getActivePlayers().get(0);
-        view.displayWinner(winner);
+        publish(GameEvent.Type.GAME_OVER, winner, null, null, "The game is over. The winner is " + winner.getName() + "!");
     }
 
     /**
-     * Updates the game view with the latest game state information. This method is responsible for synchronizing the
-     * graphical user interface with the current state of the game model. It updates player information, the current player's
-     * state, available actions, and the state of the deck. This method runs its updates on the JavaFX Application Thread to
-     * ensure thread safety with UI components.
+     * Publishes an event of the game to the subscribers, such as the view, without waiting for them.
+     *
+     * @param type The kind of the event.
+     * @param player The player the event is about.
+     * @param actionCode The action the event concerns, or null if it concerns none.
+     * @param cardType The card that was lost, or null for other events.
+     * @param description A sentence describing the event for the player.
+     */
+    private void publish(GameEvent.Type type, Player player, ActionCode actionCode, Deck.CardType cardType, String description) {
+        events.publish(new GameEvent(type, player.getName(), actionCode, cardType, player == aiPlayer, description));
+    }
+
+    /**
+     * Publishes the loss of a card.
+     *
+     * @param player The player who lost the card.
+     * @param card The lost card.
      */
-    private void updateView() {
-        Platform.runLater(() -> {
-            view.updatePlayerInfo(game.getPlayers());
-            view.updateCurrentPlayer(currentPlayer);
-            view.updateAvailableActions(game.getAvailableActions(currentPlayer));
-            view.updateDeckInfo(game.getDeck());
-        });
+    private void publishCardLost(Player player, Card card) {
+        publish(GameEvent.Type.CARD_LOST, player, null, card.getType(), player.getName() + " loses a " + card + ".");
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,130 @@
+package com.example.demo6.Controller;
+
+import com.example.demo6.Model.Actions.ActionCode;
+import com.example.demo6.Model.Deck;
+
+/**
+ * Something that happened in a game, published by the {@link GameController} to every subscriber of its
+ * {@link GameEventPublisher}. Events are immutable and refer to players by name, so subscribers on other threads
+ * never touch the game model.
+ */
+public class GameEvent {
+    /**
+     * The kinds of events a game produces.
+     */
+    public enum Type {
+        GAME_STARTED,
+        ACTION_DECLARED,
+        CHALLENGED,
+        CHALLENGE_RESOLVED,
+        BLOCKED,
+        BLOCK_CHALLENGED,
+        ACTION_EXECUTED,
+        CARD_LOST,
+        TURN_SWITCHED,
+        GAME_OVER
+    }
+
+    private final Type type;
+    private final String playerName;
+    private final ActionCode actionCode;
+    private final Deck.CardType cardType;
+    private final boolean byAI;
+    private final String description;
+    private final long timeMillis;
+
+    /**
+     * Constructs an event.
+     *
+     * @param type The kind of the event.
+     * @param playerName The name of the player the event is about: the actor, the challenger, the blocker,
+     *                   the player who lost a card, the player to move or the winner.
+     * @param actionCode The action the event concerns, or null if it concerns none.
+     * @param cardType The card that was lost, or null for other events.
+     * @param byAI true if the player is the AI player.
+     * @param description A sentence describing the event for the player.
+     */
+    public GameEvent(Type type, String playerName, ActionCode actionCode, Deck.CardType cardType, boolean byAI,
+                     String description) {
+        this.type = type;
+        this.playerName = playerName;
+        this.actionCode = actionCode;
+        this.cardType = cardType;
+        this.byAI = byAI;
+        this.description = description;
+        this.timeMillis = System.currentTimeMillis();
+    }
+
+    /**
+     * Returns the kind of the event.
+     *
+     * @return The type of the event.
+     */
+    public Type getType() {
+        return type;
+    }
+
+    /**
+     * Returns the name of the player the event is about.
+     *
+     * @return The name of the player.
+     */
+    public String getPlayerName() {
+        return playerName;
+    }
+
+    /**
+     * Returns the action the event concerns.
+     *
+     * @return The code of the action, or null if the event concerns no action.
+     */
+    public ActionCode getActionCode() {
+        return actionCode;
+    }
+
+    /**
+     * Returns the card that was lost.
+     *
+     * @return The type of the lost card, or null if no card was lost.
+     */
+    public Deck.CardType getCardType() {
+        return cardType;
+    }
+
+    /**
+     * Checks if the player the event is about is the AI player.
+     *
+     * @return true if the AI player caused or suffered the event, false otherwise.
+     */
+    public boolean isByAI() {
+        return byAI;
+    }
+
+    /**
+     * Returns a sentence describing the event for the player.
+     *
+     * @return The description of the event.
+     */
+    public String getDescription() {
+        return description;
+    }
+
+    /**
+     * Returns the moment the event happened.
+     *
+     * @return The time of the event in milliseconds since the epoch.
+     */
+    public long getTimeMillis() {
+        return timeMillis;
+    }
+
+    /**
+     * Provides a short, human readable form of the event for logs.
+     *
+     * @return The type and the description of the event.
+     */
+    @Override
+    public String toString() {
+        return type + ": " + description;
+    }
+}
@@ -0,0 +1,31 @@
+package com.example.demo6.Controller;
+
+import java.util.concurrent.Flow;
+
+/**
+ * Writes every game event to the console, one event at a time.
+ */
+public class GameEventLogger implements Flow.Subscriber<GameEvent> {
+    private Flow.Subscription subscription;
+
+    @Override
+    public void onSubscribe(Flow.Subscription subscription) {
+        this.subscription = subscription;
+        subscription.request(1);
+    }
+
+    @Override
+    public void onNext(GameEvent event) {
+        System.out.println("[game event] " + event);
+        subscription.request(1);
+    }
+
+    @Override
+    public void onError(Throwable error) {
+        System.out.println("[game event] stream failed: " + error);
+    }
+
+    @Override
+    public void onComplete() {
+    }
+}
@@ -0,0 +1,96 @@
+package com.example.demo6.Controller;
+
+import com.example.demo6.Metrics.Counter;
+import com.example.demo6.Metrics.MetricsRegistry;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.SubmissionPublisher;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Delivers the events of a game to any number of independent subscribers, such as the view, a logger or a journal.
+ * Every subscriber gets its own bounded buffer and receives the events in order on a delivery thread, so the game loop
+ * never waits for a subscriber. An event that does not fit into the buffer of a slow subscriber is dropped for that
+ * subscriber only, and counted; only the first drop is reported.
+ */
+public class GameEventPublisher {
+    public static final int BUFFER_CAPACITY = 256;
+    private static final Executor DELIVERY = Executors.newCachedThreadPool(new DeliveryThreadFactory());
+    private static final Counter PUBLISHED = MetricsRegistry.getShared().counter("game_events_published_total",
+            "Game events published by controllers.");
+    private static final Counter DROPPED = MetricsRegistry.getShared().counter("game_events_dropped_total",
+            "Game events dropped because a subscriber could not keep up.");
+    private final SubmissionPublisher<GameEvent> publisher;
+    private final LongAdder droppedEvents;
+
+    /**
+     * Constructs a publisher without subscribers.
+     */
+    public GameEventPublisher() {
+        this.publisher = new SubmissionPublisher<>(DELIVERY, BUFFER_CAPACITY);
+        this.droppedEvents = new LongAdder();
+    }
+
+    /**
+     * Adds a subscriber. It receives the events published from now on.
+     *
+     * @param subscriber The subscriber to add.
+     */
+    public void subscribe(Flow.Subscriber<GameEvent> subscriber) {
+        publisher.subscribe(subscriber);
+    }
+
+    /**
+     * Publishes an event to all subscribers without blocking.
+     *
+     * @param event The event to publish.
+     */
+    public void publish(GameEvent event) {
+        if (publisher.isClosed()) {
+            return;
+        }
+        PUBLISHED.increment();
+        publisher.offer(event, (subscriber, dropped) -> {
+            if (droppedEvents.sum() == 0) {
+                System.out.println("A subscriber cannot keep up with the game events, dropping: " + dropped);
+            }
+            droppedEvents.increment();
+            DROPPED.increment();
+            return false;
+        });
+    }
+
+    /**
+     * Returns the number of events that were dropped because a subscriber could not keep up.
+     *
+     * @return The number of dropped events.
+     */
+    public long getDroppedEvents() {
+        return droppedEvents.sum();
+    }
+
+    /**
+     * Completes the stream, subscribers receive {@code onComplete} after their pending events.
+     */
+    public void close() {
+        publisher.close();
+    }
+
+    /**
+     * Creates the daemon threads that deliver events to subscribers.
+     */
+    private static class DeliveryThreadFactory implements ThreadFactory {
+        private final AtomicInteger threadNumber = new AtomicInteger(1);
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "game-events-" + threadNumber.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package com.example.demo6;
 
+import com.example.demo6.AI.EndgameTablebase;
 import com.example.demo6.Controller.GameController;
 import com.example.demo6.Model.Game;
 import com.example.demo6.View.GameView;
@@ -7,6 +8,7 @@ import javafx.application.Application;
 
 public class Main {
     public static void main(String[] args) {
+        EndgameTablebase.loadDefaultInBackground();
         Application.launch(GameView.class, args);
     }
 }
@@ -0,0 +1,43 @@
+package com.example.demo6.Metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A monotonically increasing count, such as the number of simulations run.
+ * Backed by a {@link LongAdder}, so search threads can increment it without contending with each other.
+ */
+public class Counter {
+    private final LongAdder count;
+
+    /**
+     * Constructs a counter starting at zero.
+     */
+    Counter() {
+        this.count = new LongAdder();
+    }
+
+    /**
+     * Increments the counter by one.
+     */
+    public void increment() {
+        count.increment();
+    }
+
+    /**
+     * Increments the counter by the given amount.
+     *
+     * @param amount The amount to add, must not be negative.
+     */
+    public void add(long amount) {
+        count.add(amount);
+    }
+
+    /**
+     * Returns the current count.
+     *
+     * @return The sum of all increments.
+     */
+    public long get() {
+        return count.sum();
+    }
+}
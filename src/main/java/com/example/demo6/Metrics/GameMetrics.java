@@ -0,0 +1,20 @@
+package com.example.demo6.Metrics;
+
+/**
+ * The metrics that are updated by more than one layer of the application, such as the latency of AI moves,
+ * which is measured by the desktop controller as well as by the game server.
+ * Metrics that belong to a single class are registered in that class.
+ */
+public final class GameMetrics {
+    private static final int LATENCY_BUCKETS = 27;
+    private static final double MICROS_TO_SECONDS = 1e-6;
+
+    /**
+     * The time from requesting an AI move until its result is available, recorded in microseconds.
+     */
+    public static final LogHistogram AI_MOVE_LATENCY = MetricsRegistry.getShared().histogram("ai_move_latency_seconds",
+            "Time from requesting an AI move until the move is known.", LATENCY_BUCKETS, MICROS_TO_SECONDS);
+
+    private GameMetrics() {
+    }
+}
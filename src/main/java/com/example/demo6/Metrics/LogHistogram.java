@@ -0,0 +1,93 @@
+package com.example.demo6.Metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A histogram with logarithmic buckets: bucket i counts the values up to 2^i, so a handful of buckets covers
+ * everything from microseconds to minutes with a relative error of at most a factor of two.
+ * Recording a value costs one leading-zero count and two {@link LongAdder} increments, and never allocates.
+ * Values are recorded as longs in a base unit, such as microseconds, and exported scaled to a display unit, such as seconds.
+ */
+public class LogHistogram {
+    private final LongAdder[] buckets;
+    private final LongAdder count;
+    private final LongAdder sum;
+    private final double unitScale;
+
+    /**
+     * Constructs an empty histogram.
+     *
+     * @param bucketCount The number of buckets, the last bucket holds the values up to 2^(bucketCount - 1).
+     *                    Larger values are only counted in the total.
+     * @param unitScale The factor that converts a recorded value to the exported unit,
+     *                  for example 1e-6 for values recorded in microseconds and exported in seconds.
+     */
+    LogHistogram(int bucketCount, double unitScale) {
+        this.buckets = new LongAdder[bucketCount];
+        for (int i = 0; i < bucketCount; i++) {
+            buckets[i] = new LongAdder();
+        }
+        this.count = new LongAdder();
+        this.sum = new LongAdder();
+        this.unitScale = unitScale;
+    }
+
+    /**
+     * Records a value.
+     *
+     * @param value The value in the base unit of the histogram, negative values are recorded as 0.
+     */
+    public void record(long value) {
+        long clamped = Math.max(0, value);
+        int bucket = clamped <= 1 ? 0 : 64 - Long.numberOfLeadingZeros(clamped - 1);
+        if (bucket < buckets.length) {
+            buckets[bucket].increment();
+        }
+        count.increment();
+        sum.add(clamped);
+    }
+
+    /**
+     * Records the time elapsed since the given moment, for histograms of durations in microseconds.
+     *
+     * @param startNanos The start of the measured interval, as returned by {@link System#nanoTime()}.
+     */
+    public void recordMicrosSince(long startNanos) {
+        record((System.nanoTime() - startNanos) / 1000);
+    }
+
+    /**
+     * Returns the number of recorded values.
+     *
+     * @return The total count.
+     */
+    public long getCount() {
+        return count.sum();
+    }
+
+    /**
+     * Appends the histogram in the Prometheus text format: cumulative buckets, the sum and the count.
+     *
+     * @param name The name of the metric.
+     * @param output The builder the lines are appended to.
+     */
+    void writeTo(String name, StringBuilder output) {
+        long cumulative = 0;
+        for (int i = 0; i < buckets.length; i++) {
+            cumulative += buckets[i].sum();
+            output.append(name).append("_bucket{le=\"").append(formatBound(i)).append("\"} ")
+                    .append(cumulative).append('\n');
+        }
+        long total = count.sum();
+        output.append(name).append("_bucket{le=\"+Inf\"} ").append(total).append('\n');
+        output.append(name).append("_sum ").append(sum.sum() * unitScale).append('\n');
+        output.append(name).append("_count ").append(total).append('\n');
+    }
+
+    /**
+     * Returns the inclusive upper bound of a bucket in the exported unit.
+     */
+    private String formatBound(int bucket) {
+        return Double.toString((double) (1L << bucket) * unitScale);
+    }
+}
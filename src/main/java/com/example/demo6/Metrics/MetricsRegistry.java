@@ -0,0 +1,166 @@
+package com.example.demo6.Metrics;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.management.ThreadMXBean;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.DoubleSupplier;
+import java.util.function.LongSupplier;
+
+/**
+ * Holds the metrics of the application and renders them in the Prometheus text format.
+ * Counters and histograms are created once, typically into static fields of the class that updates them,
+ * and are cheap enough to update on every simulation. Gauges are read only when the metrics are scraped.
+ * Metrics are registered by name, asking twice for the same name returns the same metric.
+ */
+public class MetricsRegistry {
+    public static final String PREFIX = "demo6_";
+    private static final MetricsRegistry shared = new MetricsRegistry();
+    private final Map<String, Metric> metrics;
+
+    /**
+     * Constructs an empty registry.
+     */
+    public MetricsRegistry() {
+        this.metrics = new ConcurrentSkipListMap<>();
+    }
+
+    /**
+     * Returns the registry of the application, which already holds the JVM metrics.
+     *
+     * @return The shared registry.
+     */
+    public static MetricsRegistry getShared() {
+        return shared;
+    }
+
+    static {
+        shared.registerJvmMetrics();
+    }
+
+    /**
+     * Returns the counter with the given name, creating it if needed.
+     *
+     * @param name The name of the counter without the application prefix, by convention ending in _total.
+     * @param help The description of the counter.
+     * @return The counter.
+     */
+    public Counter counter(String name, String help) {
+        return (Counter) metrics.computeIfAbsent(PREFIX + name, key -> new Metric("counter", help, new Counter())).value;
+    }
+
+    /**
+     * Returns the histogram with the given name, creating it if needed.
+     *
+     * @param name The name of the histogram without the application prefix.
+     * @param help The description of the histogram.
+     * @param bucketCount The number of logarithmic buckets, see {@link LogHistogram}.
+     * @param unitScale The factor that converts a recorded value to the exported unit.
+     * @return The histogram.
+     */
+    public LogHistogram histogram(String name, String help, int bucketCount, double unitScale) {
+        return (LogHistogram) metrics.computeIfAbsent(PREFIX + name,
+                key -> new Metric("histogram", help, new LogHistogram(bucketCount, unitScale))).value;
+    }
+
+    /**
+     * Registers a gauge, a value that is read when the metrics are scraped.
+     * A gauge registered again under the same name replaces the previous one.
+     *
+     * @param name The name of the gauge without the application prefix.
+     * @param help The description of the gauge.
+     * @param value Supplies the current value. It is called from the thread that serves the metrics.
+     */
+    public void gauge(String name, String help, DoubleSupplier value) {
+        metrics.put(PREFIX + name, new Metric("gauge", help, value));
+    }
+
+    /**
+     * Registers a counter whose count is kept elsewhere, such as a statistic of a search component,
+     * and read when the metrics are scraped. A counter registered again under the same name replaces the previous one.
+     *
+     * @param name The name of the counter without the application prefix, by convention ending in _total.
+     * @param help The description of the counter.
+     * @param count Supplies the current count, which must never decrease. It is called from the thread that serves the metrics.
+     */
+    public void counter(String name, String help, LongSupplier count) {
+        metrics.put(PREFIX + name, new Metric("counter", help, count));
+    }
+
+    /**
+     * Renders all metrics in the Prometheus text exposition format.
+     *
+     * @return The metrics, one sample per line.
+     */
+    public String scrape() {
+        StringBuilder output = new StringBuilder();
+        for (Map.Entry<String, Metric> entry : metrics.entrySet()) {
+            String name = entry.getKey();
+            Metric metric = entry.getValue();
+            output.append("# HELP ").append(name).append(' ').append(metric.help).append('\n');
+            output.append("# TYPE ").append(name).append(' ').append(metric.type).append('\n');
+            if (metric.value instanceof Counter counter) {
+                output.append(name).append(' ').append(counter.get()).append('\n');
+            } else if (metric.value instanceof LongSupplier count) {
+                output.append(name).append(' ').append(count.getAsLong()).append('\n');
+            } else if (metric.value instanceof LogHistogram histogram) {
+                histogram.writeTo(name, output);
+            } else {
+                output.append(name).append(' ').append(((DoubleSupplier) metric.value).getAsDouble()).append('\n');
+            }
+        }
+        return output.toString();
+    }
+
+    /**
+     * Registers gauges for the heap, the garbage collectors and the bytes allocated by the running threads.
+     * The allocation rate is the rate of the allocated bytes; it drops when threads end, which a rate over
+     * a short window shows as a short gap.
+     */
+    private void registerJvmMetrics() {
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        gauge("jvm_heap_used_bytes", "Used heap memory.", () -> memory.getHeapMemoryUsage().getUsed());
+        counter("jvm_gc_collections_total", "Garbage collections since the start of the JVM.", () -> {
+            long collections = 0;
+            for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+                collections += Math.max(0, collector.getCollectionCount());
+            }
+            return collections;
+        });
+        counter("jvm_gc_milliseconds_total", "Time spent in garbage collections since the start of the JVM.", () -> {
+            long millis = 0;
+            for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+                millis += Math.max(0, collector.getCollectionTime());
+            }
+            return millis;
+        });
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        if (threads instanceof com.sun.management.ThreadMXBean allocations && allocations.isThreadAllocatedMemorySupported()) {
+            allocations.setThreadAllocatedMemoryEnabled(true);
+            gauge("jvm_allocated_bytes", "Bytes allocated by the live threads.", () -> {
+                long total = 0;
+                for (long allocated : allocations.getThreadAllocatedBytes(threads.getAllThreadIds())) {
+                    total += Math.max(0, allocated);
+                }
+                return total;
+            });
+        }
+    }
+
+    /**
+     * A registered metric with its type and description.
+     */
+    private static class Metric {
+        private final String type;
+        private final String help;
+        private final Object value;
+
+        private Metric(String type, String help, Object value) {
+            this.type = type;
+            this.help = help;
+            this.value = value;
+        }
+    }
+}
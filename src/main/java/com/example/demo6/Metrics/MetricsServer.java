@@ -0,0 +1,90 @@
+package com.example.demo6.Metrics;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Serves the metrics of a registry over HTTP at {@code /metrics}, on the loopback interface only,
+ * so a Prometheus server on the same machine can scrape them.
+ */
+public class MetricsServer {
+    public static final String PORT_PROPERTY = "demo6.metrics.port";
+    private static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+    private final HttpServer server;
+    private final MetricsRegistry registry;
+
+    /**
+     * Constructs and starts a metrics server.
+     *
+     * @param port The port to listen on, 0 for any free port.
+     * @param registry The registry whose metrics are served.
+     * @throws IOException if the socket cannot be opened.
+     */
+    public MetricsServer(int port, MetricsRegistry registry) throws IOException {
+        this.registry = registry;
+        this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        this.server.createContext("/metrics", this::handle);
+        this.server.start();
+    }
+
+    /**
+     * Starts a server for the shared registry if the port is configured with the {@value #PORT_PROPERTY} property.
+     * A server that cannot be started is reported and skipped, metrics are never worth failing the application for.
+     *
+     * @return The started server, or null if none is configured or it could not be started.
+     */
+    public static MetricsServer startFromConfiguration() {
+        Integer port = Integer.getInteger(PORT_PROPERTY);
+        if (port == null) {
+            return null;
+        }
+        try {
+            MetricsServer server = new MetricsServer(port, MetricsRegistry.getShared());
+            System.out.println("Metrics served at http://localhost:" + server.getPort() + "/metrics");
+            return server;
+        } catch (IOException e) {
+            System.out.println("Could not start the metrics server: " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Returns the port the server listens on.
+     *
+     * @return The local port.
+     */
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * Stops the server.
+     */
+    public void stop() {
+        server.stop(0);
+    }
+
+    /**
+     * Answers a scrape with the current metrics.
+     */
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            if (!exchange.getRequestMethod().equals("GET")) {
+                exchange.sendResponseHeaders(405, -1);
+                return;
+            }
+            byte[] body = registry.scrape().getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", CONTENT_TYPE);
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream output = exchange.getResponseBody()) {
+                output.write(body);
+            }
+        }
+    }
+}
@@ -1,6 +1,7 @@
 package com.example.demo6.Model;
 
 import java.util.*;
+import java.util.concurrent.ThreadLocalRandom;
 
 public class Deck {
     public static final int NUMBER_OF_COPIES = 2;
@@ -11,7 +12,7 @@ public class Deck {
         DUKE, ASSASSIN, CAPTAIN, AMBASSADOR, CONTESSA
     }
 
-    private Stack<Card> contents;
+    private final List<Card> contents;
 
     /**
      * Initializes the deck with a specified number of copies of each card type.
@@ -19,7 +20,7 @@ public class Deck {
      * @param copies Number of copies of each card type.
      */
     public Deck(Set<CardType> cardTypes, int copies) {
-        this.contents = new Stack<>();
+        this.contents = new ArrayList<>();
         for (CardType cardType : cardTypes) {
             for (int i = 0; i < copies; i++) {
                 contents.add(new Card(cardType));
@@ -54,6 +55,50 @@ public class Deck {
         return copiedStack;
     }
 
+    /**
+     * Retrieves a card of the deck without removing it.
+     * @param index The position of the card, 0 for the bottom card.
+     * @return The card at the position.
+     */
+    Card cardAt(int index) {
+        return contents.get(index);
+    }
+
+    /**
+     * Puts a card on top of the deck without shuffling, to rebuild a deck in a known order.
+     * @param card The card to put on top.
+     */
+    void pushCard(Card card) {
+        contents.add(card);
+    }
+
+    /**
+     * Removes all cards without shuffling, before a deck is rebuilt with {@link #pushCard(Card)}.
+     */
+    void clear() {
+        contents.clear();
+    }
+
+    /**
+     * Copies the cards of the deck, from the bottom to the top, into an array.
+     * @param target The array, at least as long as the deck.
+     */
+    void copyCards(Card[] target) {
+        contents.toArray(target);
+    }
+
+    /**
+     * Replaces the cards of the deck without shuffling, to restore an earlier order.
+     * @param cards The cards from the bottom to the top.
+     * @param count The number of cards.
+     */
+    void restoreCards(Card[] cards, int count) {
+        contents.clear();
+        for (int i = 0; i < count; i++) {
+            contents.add(cards[i]);
+        }
+    }
+
     /**
      * Retrieves and removes the top card of the deck.
      * @return The top card of the deck.
@@ -63,7 +108,7 @@ public class Deck {
         if (isEmpty()) {
             throw new NoSuchElementException("Deck is empty.");
         }
-        return contents.pop();
+        return contents.remove(contents.size() - 1);
     }
 
     /**
@@ -75,6 +120,20 @@ public class Deck {
         Collections.shuffle(contents);
     }
 
+    /**
+     * Removes a card of a given type from the deck, to draw a card that is known in advance.
+     * @param cardType The type of the card.
+     * @return The removed card, or null if the deck holds no card of the type.
+     */
+    public Card takeCard(CardType cardType) {
+        for (int i = contents.size() - 1; i >= 0; i--) {
+            if (contents.get(i).getType() == cardType) {
+                return contents.remove(i);
+            }
+        }
+        return null;
+    }
+
     /**
      * Draws a specified number of cards from the deck.
      * @param count The number of cards to draw.
@@ -90,7 +149,19 @@ public class Deck {
         return cards;
     }
     /**
-     * Creates a deep copy of this deck.
+     * Overwrites another deck with the cards of this deck in a freshly shuffled order, like {@link #deepCopy()}
+     * but reusing the storage of the target. Cards are compared by type only, so the decks share the card objects.
+     * @param target The deck to overwrite, which must not be this deck.
+     */
+    public void copyInto(Deck target) {
+        target.contents.clear();
+        target.contents.addAll(this.contents);
+        // A thread-local generator, because copies are made by many search threads at once
+        Collections.shuffle(target.contents, ThreadLocalRandom.current());
+    }
+
+    /**
+     * Creates a deep copy of this deck, holding the same cards in a freshly shuffled order.
      * @return a deep copy of the deck.
      * @throws IllegalStateException if the deck contains a null card or if card types are empty.
      */
@@ -100,13 +171,14 @@ public class Deck {
             throw new IllegalStateException("Card types cannot be empty.");
         }
 
-        Deck copiedDeck = new Deck(cardTypes, Deck.NUMBER_OF_COPIES);
-        for (Card card : this.copyContents()) {
+        Deck copiedDeck = new Deck(cardTypes, 0);
+        for (Card card : this.contents) {
             if (card == null) {
                 throw new IllegalStateException("Deck contains a null card.");
             }
-            copiedDeck.returnCard(new Card(card.getType()));
+            copiedDeck.contents.add(new Card(card.getType()));
         }
+        Collections.shuffle(copiedDeck.contents);
         return copiedDeck;
     }
 }
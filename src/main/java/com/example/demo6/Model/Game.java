@@ -3,13 +3,26 @@ package com.example.demo6.Model;
 import com.example.demo6.Model.Actions.*;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumSet;
 import java.util.List;
 import java.util.stream.Collectors;
 
 public class Game  {
+    /**
+     * The name of the human player, the first player of a two-player game.
+     */
+    public static final String HUMAN_PLAYER_NAME = "Human Player";
+    /**
+     * The name of the AI player, the second player of a two-player game.
+     */
+    public static final String AI_PLAYER_NAME = "AI Player";
+    private static final int CANONICAL_MAX_COINS = 0xFFFF;
     private List<Player> playerList;
     private Deck deck;
     private int currentPlayerIndex;
+    private int activePlayerCount;
+    private Player currentPlayer;
 
     /**
      * Initializes a game with a specified deck.
@@ -27,8 +40,10 @@ public class Game  {
      */
     public void addPlayer(Player player) {
         player.setDeck(deck);
+        player.setGame(this);
         playerList.add(player);
         player.pickCards();
+        refreshActivePlayers();
     }
 
     /**
@@ -37,6 +52,15 @@ public class Game  {
      */
     public void setCurrentPlayerIndex(int currentPlayerIndex) {
         this.currentPlayerIndex = currentPlayerIndex;
+        refreshActivePlayers();
+    }
+
+    /**
+     * Retrieves the index of the current player in the turn order.
+     * @return The index of the current player among the active players.
+     */
+    int getCurrentPlayerIndex() {
+        return currentPlayerIndex;
     }
     /**
      * Retrieves all the possible actions for the current player.
@@ -62,7 +86,13 @@ public class Game  {
      * @return The opponent player if available, null if no opponent exists.
      */
     public Player getOpponent(Player player) {
-        return playerList.stream().filter(p -> !p.equals(player)).findFirst().orElse(null);
+        for (int i = 0; i < playerList.size(); i++) {
+            Player opponent = playerList.get(i);
+            if (!opponent.equals(player)) {
+                return opponent;
+            }
+        }
+        return null;
     }
 
     /**
@@ -75,7 +105,9 @@ public class Game  {
 
     /**
      * Retrieves the current player based on the currentPlayerIndex.
+     * The player is kept up to date as players lose and regain cards, so this is a field read.
      * @return The current player.
+     * @throws IndexOutOfBoundsException if the index is not the index of an active player.
      */
     public Player getCurrentPlayer() {
         if (playerList.isEmpty()) {
@@ -85,7 +117,28 @@ public class Game  {
             // or throw an appropriate exception
             return null;
         }
-        return getActivePlayers().get(currentPlayerIndex);
+        if (currentPlayer == null) {
+            throw new IndexOutOfBoundsException("Index " + currentPlayerIndex + " out of bounds for length " + activePlayerCount);
+        }
+        return currentPlayer;
+    }
+
+    /**
+     * Recounts the active players and finds the current player among them.
+     * Called whenever the players, the current player index, or whether a player has cards left change.
+     */
+    void refreshActivePlayers() {
+        activePlayerCount = 0;
+        currentPlayer = null;
+        for (int i = 0; i < playerList.size(); i++) {
+            Player player = playerList.get(i);
+            if (!player.getCards().isEmpty()) {
+                if (activePlayerCount == currentPlayerIndex) {
+                    currentPlayer = player;
+                }
+                activePlayerCount++;
+            }
+        }
     }
 
     /**
@@ -112,12 +165,39 @@ public class Game  {
         this.deck = deck;
     }
 
+    /**
+     * Replaces the deck with every card that is not in a hand, like lost and exchanged cards are returned to the deck.
+     * Used when the hands were set directly, for example when a game is restored from a saved state.
+     * @throws IllegalArgumentException if the hands hold more copies of a card type than the game has.
+     */
+    public void rebuildDeck() {
+        int[] deckCounts = new int[Deck.CardType.values().length];
+        Arrays.fill(deckCounts, Deck.NUMBER_OF_COPIES);
+        for (Player player : playerList) {
+            for (Card card : player.getCards()) {
+                if (--deckCounts[card.getType().ordinal()] < 0) {
+                    throw new IllegalArgumentException("there are only " + Deck.NUMBER_OF_COPIES + " cards of type " + card.getType());
+                }
+            }
+        }
+        Deck rebuiltDeck = new Deck(EnumSet.allOf(Deck.CardType.class), 0);
+        for (Deck.CardType cardType : Deck.CardType.values()) {
+            for (int i = 0; i < deckCounts[cardType.ordinal()]; i++) {
+                rebuiltDeck.returnCard(new Card(cardType));
+            }
+        }
+        this.deck = rebuiltDeck;
+        for (Player player : playerList) {
+            player.setDeck(rebuiltDeck);
+        }
+    }
+
     /**
      * Checks if the game is over (only one active player remains).
      * @return true if the game is over, otherwise false.
      */
     public boolean isGameOver() {
-        return getActivePlayers().size() <= 1;
+        return activePlayerCount <= 1;
     }
 
 
@@ -127,23 +207,26 @@ public class Game  {
      * @return the next player to take their turn.
      */
     public Player switchTurns() {
-        List<Player> activePlayers = getActivePlayers();
-        if (activePlayers.isEmpty()) {
+        if (activePlayerCount == 0) {
             System.out.println("No active players left");
             return null;
         }
-        Player currentPlayer = getCurrentPlayer();
-        Player nextPlayer = activePlayers.stream()
-                .filter(p -> !p.equals(currentPlayer))
-                .findFirst()
-                .orElse(null);
-
-        if (nextPlayer == null) {
-            System.out.println("No opponent found");
-            return null;
+        Player previousPlayer = getCurrentPlayer();
+        int activeIndex = 0;
+        for (int i = 0; i < playerList.size(); i++) {
+            Player nextPlayer = playerList.get(i);
+            if (nextPlayer.getCards().isEmpty()) {
+                continue;
+            }
+            if (!nextPlayer.equals(previousPlayer)) {
+                currentPlayerIndex = activeIndex;
+                currentPlayer = nextPlayer;
+                return nextPlayer;
+            }
+            activeIndex++;
         }
-        currentPlayerIndex = activePlayers.indexOf(nextPlayer);
-        return nextPlayer;
+        System.out.println("No opponent found");
+        return null;
     }
 
 
@@ -153,6 +236,10 @@ public class Game  {
      */
     public void setPlayerList(List<Player> clonedPlayerList) {
         this.playerList = clonedPlayerList;
+        for (Player player : clonedPlayerList) {
+            player.setGame(this);
+        }
+        refreshActivePlayers();
     }
 
     /**
@@ -183,7 +270,7 @@ public class Game  {
         for (Player player : this.playerList) {
             Player copiedPlayer = new Player(player.getName());
             copiedPlayer.setCoins(player.getCoins());
-            copiedPlayer.setCards(player.deepCopyCards());
+            copiedPlayer.copyCardsFrom(player);
             copiedPlayer.setDeck(copiedGame.getDeck());
             copiedPlayerList.add(copiedPlayer);
         }
@@ -191,6 +278,45 @@ public class Game  {
         return copiedGame;
     }
 
+    /**
+     * Overwrites another game with the state of this game, like {@link #deepCopy()} but reusing the players, the
+     * lists and the deck of the target, so a game that is copied into over and over again does not allocate.
+     * Players of the target are reused when their names match and replaced otherwise. The deck of the target holds
+     * the cards of this deck in a freshly shuffled order, as in {@link #deepCopy()}.
+     * @param target The game to overwrite, for example an empty game created once per search thread.
+     */
+    public void copyInto(Game target) {
+        if (target == this) {
+            return;
+        }
+        if (target.deck == null || target.deck == this.deck) {
+            target.deck = new Deck(EnumSet.noneOf(Deck.CardType.class), 0);
+        }
+        this.deck.copyInto(target.deck);
+        target.currentPlayerIndex = this.currentPlayerIndex;
+        List<Player> targetPlayers = target.playerList;
+        while (targetPlayers.size() > this.playerList.size()) {
+            targetPlayers.remove(targetPlayers.size() - 1);
+        }
+        for (int i = 0; i < this.playerList.size(); i++) {
+            Player player = this.playerList.get(i);
+            Player copiedPlayer = i < targetPlayers.size() ? targetPlayers.get(i) : null;
+            if (copiedPlayer == null || !copiedPlayer.getName().equals(player.getName())) {
+                copiedPlayer = new Player(player.getName());
+                if (i < targetPlayers.size()) {
+                    targetPlayers.set(i, copiedPlayer);
+                } else {
+                    targetPlayers.add(copiedPlayer);
+                }
+            }
+            copiedPlayer.setGame(target);
+            copiedPlayer.setCoins(player.getCoins());
+            copiedPlayer.copyCardsFrom(player);
+            copiedPlayer.setDeck(target.deck);
+        }
+        target.refreshActivePlayers();
+    }
+
     /**
      * Executes the specified action on the game.
      *
@@ -218,6 +344,71 @@ public class Game  {
         }
     }
 
+    /**
+     * Applies an action in place like {@link #executeAction(Action, List)}, after recording the state of the game
+     * in an undo log, so that {@link #undo(UndoLog)} can take the action back.
+     *
+     * @param action The action to be executed, whose players are players of this game.
+     * @param cards  The list of cards to be used in the execution of the action.
+     * @param undoLog The log that records the state before the action.
+     */
+    public void makeMove(Action action, List<Card> cards, UndoLog undoLog) {
+        recordUndo(undoLog);
+        executeAction(action, cards);
+    }
+
+    /**
+     * Records the current state of the game in an undo log: the current player index, the coins and hands of all
+     * players and the deck with its order. Everything the game does to itself afterwards, executing actions,
+     * losing and swapping cards or switching turns, is taken back by the matching {@link #undo(UndoLog)}.
+     *
+     * @param undoLog The log to record the state in.
+     */
+    public void recordUndo(UndoLog undoLog) {
+        UndoLog.Entry entry = undoLog.push();
+        entry.currentPlayerIndex = currentPlayerIndex;
+        entry.deck = deck;
+        entry.ensurePlayers(playerList.size());
+        for (int i = 0; i < playerList.size(); i++) {
+            Player player = playerList.get(i);
+            List<Card> cards = player.getCards();
+            entry.coins[i] = player.getCoins();
+            entry.hands[i] = UndoLog.Entry.ensureCapacity(entry.hands[i], cards.size());
+            for (int c = 0; c < cards.size(); c++) {
+                entry.hands[i][c] = cards.get(c);
+            }
+            entry.handSizes[i] = cards.size();
+        }
+        entry.deckCards = UndoLog.Entry.ensureCapacity(entry.deckCards, deck.getSize());
+        deck.copyCards(entry.deckCards);
+        entry.deckSize = deck.getSize();
+    }
+
+    /**
+     * Restores the state recorded by the newest entry of an undo log and removes the entry.
+     * The players of the game must be the ones it had when the state was recorded.
+     *
+     * @param undoLog The log to take the state from.
+     * @throws IllegalStateException if the log is empty.
+     */
+    public void undo(UndoLog undoLog) {
+        UndoLog.Entry entry = undoLog.pop();
+        currentPlayerIndex = entry.currentPlayerIndex;
+        if (deck != entry.deck) {
+            deck = entry.deck;
+            for (Player player : playerList) {
+                player.setDeck(deck);
+            }
+        }
+        deck.restoreCards(entry.deckCards, entry.deckSize);
+        for (int i = 0; i < playerList.size(); i++) {
+            Player player = playerList.get(i);
+            player.setCoins(entry.coins[i]);
+            player.restoreCards(entry.hands[i], entry.handSizes[i]);
+        }
+        refreshActivePlayers();
+    }
+
     /**
      * Retrieves a hash value representing the current state of the game.
      * This hash value is used to compare the current state of the game with previous states,
@@ -241,6 +432,29 @@ public class Game  {
         return hash;
     }
 
+    /**
+     * Retrieves a key that identifies the current state of the game exactly: the coins and hands of both players
+     * and the player to move. Unlike {@link #getStateHash()} it includes the card types of the human player, and the
+     * order of the cards in a hand does not matter. The deck is not part of the key, because it always holds every
+     * card that is not in a hand.
+     *
+     * @return the canonical key of the state, or -1 if the state cannot be packed into a key.
+     */
+    public long getCanonicalStateKey() {
+        Player aiPlayer = getAIPlayer();
+        Player humanPlayer = getHumanPlayer();
+        if (aiPlayer.getHandKey() == Player.NO_HAND_KEY || humanPlayer.getHandKey() == Player.NO_HAND_KEY
+                || aiPlayer.getCoins() < 0 || aiPlayer.getCoins() > CANONICAL_MAX_COINS
+                || humanPlayer.getCoins() < 0 || humanPlayer.getCoins() > CANONICAL_MAX_COINS) {
+            return -1;
+        }
+        long key = aiPlayer.getCoins();
+        key = key * (CANONICAL_MAX_COINS + 1) + humanPlayer.getCoins();
+        key = key * Player.HAND_KEY_COUNT + aiPlayer.getHandKey();
+        key = key * Player.HAND_KEY_COUNT + humanPlayer.getHandKey();
+        return key * 2 + (!isGameOver() && getCurrentPlayer() == aiPlayer ? 1 : 0);
+    }
+
     public static class HashUtils{
         private static final int CARD_PRIME1 = 31;
         private static final int CARD_PRIME2 = 37;
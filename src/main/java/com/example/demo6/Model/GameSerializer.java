@@ -0,0 +1,316 @@
+package com.example.demo6.Model;
+
+import java.nio.BufferOverflowException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.EnumSet;
+import java.util.List;
+
+/**
+ * Writes a {@link Game} into a {@link ByteBuffer} and reads it back, to move game states between sessions and
+ * processes and to store them. The whole state is stored: the players with their names, coins and hands, the deck
+ * in its order, and the index of the current player. The two standard player names are stored as a code instead of
+ * their characters, so writing creates no objects unless a player has another name. {@link #read(ByteBuffer)}
+ * creates the game, its players and their lists, but no cards: cards are compared by type only, so all games read
+ * share one card per type. {@link #read(ByteBuffer, Game)} overwrites a game instead, like
+ * {@link Game#copyInto(Game)}, and creates no objects either once the game has players with the serialized names.
+ * Every hand and the deck are restored in one step each, so the players count their cards only once.
+ * {@link #main(String[])} compares both with {@link Game#deepCopy()} and {@link Game#copyInto(Game)}.
+ *
+ * <p>The data is checked while it is read, a count or an index out of range is reported as an
+ * {@link IllegalArgumentException}.
+ *
+ * <p>Format version 2, in the byte order of the buffer:
+ * <pre>
+ * byte   version
+ * byte   current player index
+ * byte   player count
+ * for every player:
+ *   short  -1 for {@link Game#HUMAN_PLAYER_NAME}, -2 for {@link Game#AI_PLAYER_NAME}, or the length of any other name
+ *          in UTF-8 bytes, followed by those bytes
+ *   int    coins
+ *   byte   card count, followed by the card type ordinal of every card
+ * byte   deck size, followed by the card type ordinal of every card from the bottom of the deck to the top
+ * </pre>
+ */
+public final class GameSerializer {
+    public static final int VERSION = 2;
+    private static final short HUMAN_NAME_CODE = -1;
+    private static final short AI_NAME_CODE = -2;
+    private static final int MAX_COUNT = Byte.MAX_VALUE;
+    private static final int BENCHMARK_COPIES = 1_000_000;
+    private static final int BENCHMARK_ROUNDS = 5;
+    private static final Card[] CARDS = createCards();
+    // The cards of the hand or deck being read, so a hand is restored in one step without creating an array
+    private static final ThreadLocal<Card[]> READ_CARDS = ThreadLocal.withInitial(() -> new Card[MAX_COUNT]);
+
+    private GameSerializer() {
+    }
+
+    /**
+     * Returns the number of bytes {@link #write(Game, ByteBuffer)} writes for a game.
+     *
+     * @param game The game to write.
+     * @return The size of the serialized game.
+     */
+    public static int serializedSize(Game game) {
+        int size = 3;
+        for (Player player : game.getPlayers()) {
+            String name = player.getName();
+            int nameSize = nameCode(name) != 0 ? 0 : name.getBytes(StandardCharsets.UTF_8).length;
+            size += 2 + nameSize + 4 + 1 + player.getCards().size();
+        }
+        return size + 1 + game.getDeck().getSize();
+    }
+
+    /**
+     * Writes a game at the position of a buffer and advances the position past it.
+     *
+     * @param game The game to write.
+     * @param buffer The buffer to write to.
+     * @throws BufferOverflowException if the buffer has less than {@link #serializedSize(Game)} bytes remaining.
+     * @throws IllegalArgumentException if a name, a hand or the deck is too large for the format.
+     */
+    public static void write(Game game, ByteBuffer buffer) {
+        List<Player> players = game.getPlayers();
+        buffer.put((byte) VERSION);
+        buffer.put(checkedByte(game.getCurrentPlayerIndex(), "current player index"));
+        buffer.put(checkedByte(players.size(), "number of players"));
+        for (int i = 0; i < players.size(); i++) {
+            Player player = players.get(i);
+            String name = player.getName();
+            short nameCode = nameCode(name);
+            if (nameCode != 0) {
+                buffer.putShort(nameCode);
+            } else {
+                byte[] nameBytes = name.getBytes(StandardCharsets.UTF_8);
+                if (nameBytes.length > Short.MAX_VALUE) {
+                    throw new IllegalArgumentException("The name of player " + (i + 1) + " is too long to serialize");
+                }
+                buffer.putShort((short) nameBytes.length);
+                buffer.put(nameBytes);
+            }
+            buffer.putInt(player.getCoins());
+            List<Card> cards = player.getCards();
+            buffer.put(checkedByte(cards.size(), "hand size"));
+            for (int c = 0; c < cards.size(); c++) {
+                buffer.put((byte) cards.get(c).getType().ordinal());
+            }
+        }
+        Deck deck = game.getDeck();
+        buffer.put(checkedByte(deck.getSize(), "deck size"));
+        for (int c = 0; c < deck.getSize(); c++) {
+            buffer.put((byte) deck.cardAt(c).getType().ordinal());
+        }
+    }
+
+    /**
+     * Reads a game written by {@link #write(Game, ByteBuffer)} at the position of a buffer and advances the
+     * position past it.
+     *
+     * @param buffer The buffer to read from.
+     * @return A new game in the serialized state.
+     * @throws BufferUnderflowException if the buffer ends before the game.
+     * @throws IllegalArgumentException if the data has another version or a count or an index is out of range.
+     */
+    public static Game read(ByteBuffer buffer) {
+        Game game = new Game(new Deck(EnumSet.noneOf(Deck.CardType.class), 0));
+        read(buffer, game);
+        return game;
+    }
+
+    /**
+     * Reads a game written by {@link #write(Game, ByteBuffer)} into an existing game, reusing its players, their
+     * lists and its deck, and advances the position of the buffer past it. Players of the target are reused when
+     * their names match the serialized names and replaced otherwise. The deck of the target is overwritten, so it
+     * must not be shared with another game. If the data is not a serialized game, the target is left in between.
+     *
+     * @param buffer The buffer to read from.
+     * @param target The game to overwrite, for example an empty game created once per thread.
+     * @throws BufferUnderflowException if the buffer ends before the game.
+     * @throws IllegalArgumentException if the data has another version or a count or an index is out of range.
+     */
+    public static void read(ByteBuffer buffer, Game target) {
+        int version = buffer.get();
+        if (version != VERSION) {
+            throw new IllegalArgumentException("Unsupported game format version " + version);
+        }
+        int currentPlayerIndex = buffer.get();
+        int playerCount = checkedCount(buffer.get(), "player count");
+        // The index counts the players that still have cards, so it is below the number of players, or 0 without any
+        if (currentPlayerIndex < 0 || currentPlayerIndex >= Math.max(1, playerCount)) {
+            throw new IllegalArgumentException("Invalid current player index " + currentPlayerIndex + " for "
+                    + playerCount + " players");
+        }
+        Card[] cards = READ_CARDS.get();
+        Deck deck = target.getDeck();
+        if (deck == null) {
+            deck = new Deck(EnumSet.noneOf(Deck.CardType.class), 0);
+            target.setDeck(deck);
+        }
+        List<Player> players = target.getPlayers();
+        while (players.size() > playerCount) {
+            players.remove(players.size() - 1);
+        }
+        for (int i = 0; i < playerCount; i++) {
+            Player player = i < players.size() ? players.get(i) : null;
+            String name = readName(buffer);
+            if (player == null || !player.getName().equals(name)) {
+                player = new Player(name);
+                if (i < players.size()) {
+                    players.set(i, player);
+                } else {
+                    players.add(player);
+                }
+            }
+            player.setGame(target);
+            player.setDeck(deck);
+            player.setCoins(buffer.getInt());
+            int cardCount = readCards(buffer, cards, "hand size");
+            player.restoreCards(cards, cardCount);
+        }
+        int deckSize = readCards(buffer, cards, "deck size");
+        deck.restoreCards(cards, deckSize);
+        target.setCurrentPlayerIndex(currentPlayerIndex);
+    }
+
+    /**
+     * Returns the code a standard player name is stored as.
+     * @return the code of the name, or 0 if the name is stored with its bytes
+     */
+    private static short nameCode(String name) {
+        if (name.equals(Game.HUMAN_PLAYER_NAME)) {
+            return HUMAN_NAME_CODE;
+        } else if (name.equals(Game.AI_PLAYER_NAME)) {
+            return AI_NAME_CODE;
+        }
+        return 0;
+    }
+
+    /**
+     * Reads a player name, which is a shared constant for the standard names and a new string otherwise.
+     */
+    private static String readName(ByteBuffer buffer) {
+        int nameLength = buffer.getShort();
+        if (nameLength == HUMAN_NAME_CODE) {
+            return Game.HUMAN_PLAYER_NAME;
+        } else if (nameLength == AI_NAME_CODE) {
+            return Game.AI_PLAYER_NAME;
+        } else if (nameLength < 0) {
+            throw new IllegalArgumentException("Invalid name length " + nameLength);
+        } else if (nameLength > buffer.remaining()) {
+            throw new BufferUnderflowException();
+        }
+        byte[] name = new byte[nameLength];
+        buffer.get(name);
+        return new String(name, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Reads a count of cards followed by their type ordinals into an array of the shared cards.
+     * @return the number of cards read
+     */
+    private static int readCards(ByteBuffer buffer, Card[] cards, String description) {
+        int count = checkedCount(buffer.get(), description);
+        if (count > buffer.remaining()) {
+            throw new BufferUnderflowException();
+        }
+        int position = buffer.position();
+        for (int c = 0; c < count; c++) {
+            int ordinal = buffer.get(position + c);
+            if (ordinal < 0 || ordinal >= CARDS.length) {
+                throw new IllegalArgumentException("Unknown card type " + ordinal);
+            }
+            cards[c] = CARDS[ordinal];
+        }
+        buffer.position(position + count);
+        return count;
+    }
+
+    /**
+     * Checks that a count read from the data is not negative.
+     */
+    private static int checkedCount(int count, String description) {
+        if (count < 0) {
+            throw new IllegalArgumentException("Invalid " + description + " " + count);
+        }
+        return count;
+    }
+
+    /**
+     * Checks that a count fits into the byte the format stores it in.
+     */
+    private static byte checkedByte(int value, String description) {
+        if (value < 0 || value > MAX_COUNT) {
+            throw new IllegalArgumentException("The " + description + " " + value + " is too large to serialize");
+        }
+        return (byte) value;
+    }
+
+    /**
+     * Creates the shared card of every type.
+     */
+    private static Card[] createCards() {
+        Deck.CardType[] cardTypes = Deck.CardType.values();
+        Card[] cards = new Card[cardTypes.length];
+        for (int i = 0; i < cardTypes.length; i++) {
+            cards[i] = new Card(cardTypes[i]);
+        }
+        return cards;
+    }
+
+    /**
+     * Measures how long a copy of a game in the middle of a game takes: {@link Game#deepCopy()},
+     * {@link Game#copyInto(Game)}, and a round trip through a buffer that reads a new game or overwrites one.
+     * The argument is the number of copies per round, default 1000000.
+     *
+     * @param args The optional number of copies.
+     */
+    public static void main(String[] args) {
+        int copies = args.length > 0 ? Integer.parseInt(args[0]) : BENCHMARK_COPIES;
+        Game game = new Game(new Deck(EnumSet.allOf(Deck.CardType.class), Deck.NUMBER_OF_COPIES));
+        game.addPlayer(new Player(Game.HUMAN_PLAYER_NAME));
+        game.addPlayer(new Player(Game.AI_PLAYER_NAME));
+        game.getHumanPlayer().setCoins(4);
+        game.getAIPlayer().setCoins(6);
+        game.getAIPlayer().returnCard(game.getAIPlayer().getCards().get(0));
+        Game target = new Game(new Deck(EnumSet.noneOf(Deck.CardType.class), 0));
+        ByteBuffer buffer = ByteBuffer.allocate(serializedSize(game));
+        long checksum = 0;
+        for (int round = 0; round < BENCHMARK_ROUNDS; round++) {
+            long start = System.nanoTime();
+            for (int i = 0; i < copies; i++) {
+                checksum += game.deepCopy().getDeck().getSize();
+            }
+            long deepCopyNanos = System.nanoTime() - start;
+            start = System.nanoTime();
+            for (int i = 0; i < copies; i++) {
+                game.copyInto(target);
+                checksum += target.getDeck().getSize();
+            }
+            long copyIntoNanos = System.nanoTime() - start;
+            start = System.nanoTime();
+            for (int i = 0; i < copies; i++) {
+                buffer.clear();
+                write(game, buffer);
+                buffer.flip();
+                checksum += read(buffer).getDeck().getSize();
+            }
+            long readNanos = System.nanoTime() - start;
+            start = System.nanoTime();
+            for (int i = 0; i < copies; i++) {
+                buffer.clear();
+                write(game, buffer);
+                buffer.flip();
+                read(buffer, target);
+                checksum += target.getDeck().getSize();
+            }
+            long readIntoNanos = System.nanoTime() - start;
+            System.out.println("Per copy: deepCopy " + deepCopyNanos / copies + " ns, copyInto " + copyIntoNanos / copies
+                    + " ns, write and read " + readNanos / copies + " ns, write and read into a game "
+                    + readIntoNanos / copies + " ns");
+        }
+        System.out.println("Checksum " + checksum);
+    }
+}
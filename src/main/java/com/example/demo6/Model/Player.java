@@ -1,16 +1,33 @@
 package com.example.demo6.Model;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 import java.util.Random;
 
 public class Player {
+    /**
+     * The number of distinct hand keys, covering every hand of zero to two cards.
+     */
+    public static final int HAND_KEY_COUNT = (Deck.CardType.values().length + 1) * (Deck.CardType.values().length + 1);
+    /**
+     * The hand key of a hand that cannot be packed because it holds more than two cards.
+     */
+    public static final int NO_HAND_KEY = -1;
+    private static final Deck.CardType[] CARD_TYPES = Deck.CardType.values();
     private final int NUMBER_OF_CARDS = 2;
     public final int NUMBER_OF_COINS = 3;
     private final String name;
     private int coins;
     private List<Card> cards;
+    private final List<Card> cardsView;
     private Deck currentDeck;
+    private int handKey;
+    private int cardTypeMask;
+    private final int[] cardCounts;
+    private Game game;
+    private boolean active;
 
     /**
      * Initializes a player with a name.
@@ -20,6 +37,10 @@ public class Player {
         this.name = name;
         this.coins = NUMBER_OF_COINS;
         this.cards = new ArrayList<>();
+        this.cardsView = Collections.unmodifiableList(this.cards);
+        this.handKey = 0;
+        this.cardTypeMask = 0;
+        this.cardCounts = new int[CARD_TYPES.length];
     }
 
     /**
@@ -39,11 +60,122 @@ public class Player {
     }
 
     /**
-     * Retrieves the list of cards currently held by the player.
-     * @return A list of cards the player currently holds.
+     * Retrieves the cards currently held by the player, in the order they were received.
+     * The hand is kept as a count per card type, which answers every question about card types; the list is a
+     * read-only view of the same hand in order, for showing it and for picking a card, and only changes through
+     * the methods of the player.
+     * @return A read-only list of the cards the player currently holds.
      */
     public List<Card> getCards() {
-        return this.cards;
+        return this.cardsView;
+    }
+
+    /**
+     * Retrieves the packed key of the player's hand.
+     * The key identifies the multiset of card types in the hand regardless of their order,
+     * and is kept up to date whenever the hand changes.
+     * @return a key between 0 and {@link #HAND_KEY_COUNT} - 1, or {@link #NO_HAND_KEY} if the hand holds more than two cards
+     */
+    public int getHandKey() {
+        return this.handKey;
+    }
+
+    /**
+     * Retrieves the set of card types in the player's hand as a bitmask.
+     * Bit {@code 1 << type.ordinal()} is set when the hand holds at least one card of that type.
+     * @return the bitmask of card types in the hand
+     */
+    public int getCardTypeMask() {
+        return this.cardTypeMask;
+    }
+
+    /**
+     * Retrieves the number of cards of a type in the player's hand.
+     * @param cardType the card type
+     * @return the number of cards of the type
+     */
+    public int getCardCount(Deck.CardType cardType) {
+        return this.cardCounts[cardType.ordinal()];
+    }
+
+    /**
+     * Packs a hand of up to two card types into a hand key.
+     * Each slot stores the card type ordinal plus one, with 0 for an empty slot, and the smaller slot comes first.
+     * @param first the first card type, or null if the hand is empty
+     * @param second the second card type, or null if the hand holds at most one card
+     * @return the hand key of the given hand
+     */
+    public static int packHandKey(Deck.CardType first, Deck.CardType second) {
+        int slotCount = Deck.CardType.values().length + 1;
+        int a = first == null ? 0 : first.ordinal() + 1;
+        int b = second == null ? 0 : second.ordinal() + 1;
+        return Math.min(a, b) * slotCount + Math.max(a, b);
+    }
+
+    /**
+     * Sets the game the player plays in, which is told when the player loses its last card or gets cards again.
+     * @param game the game of the player
+     */
+    void setGame(Game game) {
+        this.game = game;
+    }
+
+    /**
+     * Counts a card that was added to the hand.
+     */
+    private void onCardAdded(Card card) {
+        int ordinal = card.getType().ordinal();
+        if (cardCounts[ordinal]++ == 0) {
+            cardTypeMask |= 1 << ordinal;
+        }
+        onHandSizeChanged();
+    }
+
+    /**
+     * Uncounts a card that was removed from the hand.
+     */
+    private void onCardRemoved(Card card) {
+        int ordinal = card.getType().ordinal();
+        if (--cardCounts[ordinal] == 0) {
+            cardTypeMask &= ~(1 << ordinal);
+        }
+        onHandSizeChanged();
+    }
+
+    /**
+     * Recounts the whole hand after it was replaced.
+     */
+    private void onHandReplaced() {
+        cardTypeMask = 0;
+        Arrays.fill(cardCounts, 0);
+        for (int i = 0; i < cards.size(); i++) {
+            int ordinal = cards.get(i).getType().ordinal();
+            cardTypeMask |= 1 << ordinal;
+            cardCounts[ordinal]++;
+        }
+        onHandSizeChanged();
+    }
+
+    /**
+     * Updates the hand key from the counts after the hand has changed,
+     * and lets the game recount its active players if the player ran out of cards or got cards again.
+     */
+    private void onHandSizeChanged() {
+        if (active == cards.isEmpty()) {
+            active = !cards.isEmpty();
+            if (game != null) {
+                game.refreshActivePlayers();
+            }
+        }
+        if (cards.size() > NUMBER_OF_CARDS) {
+            handKey = NO_HAND_KEY;
+        } else if (cards.isEmpty()) {
+            handKey = packHandKey(null, null);
+        } else {
+            int first = Integer.numberOfTrailingZeros(cardTypeMask);
+            int second = cardCounts[first] == 2 ? first : Integer.numberOfTrailingZeros(cardTypeMask & (cardTypeMask - 1));
+            handKey = packHandKey(CARD_TYPES[first], cards.size() < 2 ? null : CARD_TYPES[second]);
+        }
     }
 
     /**
@@ -70,11 +202,55 @@ public class Player {
         if (clonedCards != null) {
             this.cards.clear();
             this.cards.addAll(clonedCards);
+            onHandReplaced();
         } else {
             System.out.println("Error: Input list of cards is null");
         }
     }
 
+    /**
+     * Adds a card to the player's hand without drawing it from the deck, to rebuild a hand.
+     * @param card The card to add.
+     */
+    void addCard(Card card) {
+        this.cards.add(card);
+        onCardAdded(card);
+    }
+
+    /**
+     * Empties the player's hand without touching the deck, before a hand is rebuilt with {@link #addCard(Card)}.
+     */
+    void clearCards() {
+        this.cards.clear();
+        onHandReplaced();
+    }
+
+    /**
+     * Replaces the player's hand without touching the deck, to restore an earlier hand.
+     * @param cards The cards of the hand.
+     * @param count The number of cards.
+     */
+    void restoreCards(Card[] cards, int count) {
+        this.cards.clear();
+        for (int i = 0; i < count; i++) {
+            this.cards.add(cards[i]);
+        }
+        onHandReplaced();
+    }
+
+    /**
+     * Replaces the player's hand with the cards of another player's hand, without touching the deck.
+     * @param other The player whose hand is copied.
+     */
+    void copyCardsFrom(Player other) {
+        this.cards.clear();
+        this.cards.addAll(other.cards);
+        // The counts of the other hand are taken over as they are, without counting the cards again
+        System.arraycopy(other.cardCounts, 0, this.cardCounts, 0, this.cardCounts.length);
+        this.cardTypeMask = other.cardTypeMask;
+        onHandSizeChanged();
+    }
+
     /**
      * Updates the number of coins the player has by a specified amount. Ensures coin count does not go below zero.
      * @param coins The amount to update the coin count by. Can be negative or positive.
@@ -92,6 +268,7 @@ public class Player {
             Card card = this.currentDeck.getCard();
             if (card != null) {
                 this.cards.add(card);
+                onCardAdded(card);
             } else {
                 System.out.println("There are no cards left in the deck");
             }
@@ -103,26 +280,40 @@ public class Player {
      * @param card The card to return to the deck.
      */
     public void returnCard(Card card) {
-        this.cards.remove(card);
+        if (this.cards.remove(card)) {
+            onCardRemoved(card);
+        }
         this.currentDeck.returnCard(card);
     }
 
     /**
      * Swaps selected cards from the player's hand with new cards drawn from the deck,
      * returning any unselected cards to the deck.
+     * As cards are equal by type, a card is unselected only if no selected card has its type: with two cards of
+     * a selected type among the hand and the new cards, both stay out of the deck, even if only one is kept.
      * @param selectedCards The cards to keep.
      * @param newCards New cards drawn from the deck.
      */
     public void swapCards(List<Card> selectedCards, List<Card> newCards) {
-        List<Card> totalCards = new ArrayList<>(this.cards);
-        totalCards.addAll(newCards);
-        List<Card> toReturn = totalCards.stream()
-                .filter(card -> !selectedCards.contains(card))
-                .toList();
-
-        toReturn.forEach(this.currentDeck::returnCard);
+        int selectedMask = 0;
+        for (int i = 0; i < selectedCards.size(); i++) {
+            selectedMask |= 1 << selectedCards.get(i).getType().ordinal();
+        }
+        for (int i = 0; i < this.cards.size(); i++) {
+            Card card = this.cards.get(i);
+            if ((selectedMask & 1 << card.getType().ordinal()) == 0) {
+                this.currentDeck.returnCard(card);
+            }
+        }
+        for (int i = 0; i < newCards.size(); i++) {
+            Card card = newCards.get(i);
+            if ((selectedMask & 1 << card.getType().ordinal()) == 0) {
+                this.currentDeck.returnCard(card);
+            }
+        }
         this.cards.clear();
         this.cards.addAll(selectedCards);
+        onHandReplaced();
     }
 
     /**
@@ -134,6 +325,7 @@ public class Player {
         if (!cards.isEmpty()) {
             int randomIndex = random.nextInt(cards.size());
             Card selectedCard = cards.remove(randomIndex);
+            onCardRemoved(selectedCard);
             currentDeck.returnCard(selectedCard);
         }
     }
@@ -158,6 +350,7 @@ public class Player {
         }
         cards.clear();
         cards.addAll(selectedCards);
+        onHandReplaced();
         allCards.forEach(this.currentDeck::returnCard);
         return selectedCards;
     }
@@ -168,18 +361,15 @@ public class Player {
      * @return true if the player has the card, false otherwise.
      */
     public boolean hasCard(Deck.CardType cardType) {
-        return this.cards.stream().anyMatch(card -> card.getType() == cardType);
+        return this.cardCounts[cardType.ordinal()] > 0;
     }
 
     /**
-     * Creates a deep copy of the player's cards.
-     * @return a deep copy of the card list.
+     * Creates a copy of the player's cards. Cards are compared by type only and never change,
+     * so the copy holds the same card objects.
+     * @return a copy of the card list.
      */
     public List<Card> deepCopyCards() {
-        List<Card> copiedCards = new ArrayList<>();
-        for (Card card : this.getCards()) {
-            copiedCards.add(new Card(card.getType()));
-        }
-        return copiedCards;
+        return new ArrayList<>(this.cards);
     }
 }
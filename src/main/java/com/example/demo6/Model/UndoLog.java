@@ -0,0 +1,116 @@
+package com.example.demo6.Model;
+
+/**
+ * A stack of undo entries for moves applied to a {@link Game} in place, see {@link Game#recordUndo(UndoLog)}
+ * and {@link Game#undo(UndoLog)}. An entry holds everything a move can change: the index of the current player,
+ * the coins and the cards of every player, and the cards of the deck in their order. The entries and their arrays
+ * are kept when they are undone and reused by later moves, so a log that has grown to the depth of a search
+ * records moves without allocating.
+ */
+public class UndoLog {
+    private static final int INITIAL_CAPACITY = 16;
+    private Entry[] entries;
+    private int size;
+
+    /**
+     * Constructs an empty undo log.
+     */
+    public UndoLog() {
+        this.entries = new Entry[INITIAL_CAPACITY];
+    }
+
+    /**
+     * Returns the number of moves that can be undone.
+     *
+     * @return The number of entries.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Checks if there is no move to undo.
+     *
+     * @return true if the log has no entries.
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Forgets all entries without undoing them. Their storage is kept for reuse.
+     */
+    public void clear() {
+        size = 0;
+    }
+
+    /**
+     * Adds an entry, reusing the storage of an earlier one if there is one.
+     *
+     * @return The entry to fill.
+     */
+    Entry push() {
+        if (size == entries.length) {
+            Entry[] grown = new Entry[size * 2];
+            System.arraycopy(entries, 0, grown, 0, size);
+            entries = grown;
+        }
+        Entry entry = entries[size];
+        if (entry == null) {
+            entry = new Entry();
+            entries[size] = entry;
+        }
+        size++;
+        return entry;
+    }
+
+    /**
+     * Removes the newest entry. Its storage stays in the log for reuse.
+     *
+     * @return The newest entry.
+     * @throws IllegalStateException if the log is empty.
+     */
+    Entry pop() {
+        if (size == 0) {
+            throw new IllegalStateException("There is no move to undo.");
+        }
+        return entries[--size];
+    }
+
+    /**
+     * The state of a game before a move.
+     */
+    static class Entry {
+        private static final Card[] NO_CARDS = new Card[0];
+        int currentPlayerIndex;
+        Deck deck;
+        int[] coins = new int[2];
+        Card[][] hands = {NO_CARDS, NO_CARDS};
+        int[] handSizes = new int[2];
+        Card[] deckCards = NO_CARDS;
+        int deckSize;
+
+        /**
+         * Makes room for the given number of players.
+         */
+        void ensurePlayers(int players) {
+            if (coins.length < players) {
+                coins = new int[players];
+                handSizes = new int[players];
+                Card[][] grown = new Card[players][];
+                System.arraycopy(hands, 0, grown, 0, hands.length);
+                for (int i = hands.length; i < players; i++) {
+                    grown[i] = NO_CARDS;
+                }
+                hands = grown;
+            }
+        }
+
+        /**
+         * Returns an array of at least the given length, the given one if it is long enough.
+         */
+        static Card[] ensureCapacity(Card[] cards, int length) {
+            return cards.length >= length ? cards : new Card[Math.max(length, cards.length * 2)];
+        }
+    }
+}
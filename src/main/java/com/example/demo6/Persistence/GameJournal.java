@@ -0,0 +1,390 @@
+package com.example.demo6.Persistence;
+
+import com.example.demo6.Model.Actions.ActionCode;
+import com.example.demo6.Model.Deck;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+/**
+ * An append-only journal of the games of a server, written to memory-mapped segment files in a directory.
+ * Appending a record only copies a few dozen bytes into the mapped segment, the operating system writes them to disk
+ * in the background, so the journal survives a crash of the process without slowing down the moves.
+ *
+ * <p>Every record is framed by its length and a CRC32C checksum of its contents. The length is written last and acts
+ * as the commit marker: a record whose length is still zero was never completed, and a record whose checksum does not
+ * match was torn, so reading stops there. Every segment starts with a snapshot of all live games, and a new snapshot is
+ * written every few thousand moves and whenever a segment is full and the journal moves on to the next one.
+ * A journal opened on a directory never appends to the existing segments, it starts a new one.
+ *
+ * <p>By default every segment is kept, because {@link ReplayEngine}, the analyzer and the game store read the whole
+ * history. Operators can opt in to retention with the {@value #RETAINED_SEGMENTS_PROPERTY} property: once a new
+ * segment and its snapshot are on disk, the oldest segments are deleted so that only that many of the newest remain.
+ * Recovery only needs the newest segment, but the readers of the history then only see the retained games.
+ *
+ * <p>{@link #recover(Path)} rebuilds the live games from the last snapshot of the newest readable segment and the
+ * records after it. A journal is not thread-safe, the game server writes it from its selector thread.
+ */
+public class GameJournal implements AutoCloseable {
+    public static final String DIRECTORY_PROPERTY = "demo6.journal";
+    public static final int DEFAULT_SEGMENT_SIZE = 64 << 20;
+    public static final int DEFAULT_SNAPSHOT_INTERVAL = 4096;
+    public static final String RETAINED_SEGMENTS_PROPERTY = "demo6.journal.segments";
+    public static final int DEFAULT_RETAINED_SEGMENTS = 0;
+    private static final int MAGIC = 0x434A524E;
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 16;
+    private static final int FRAME_HEADER_SIZE = 8;
+    private static final String SEGMENT_PREFIX = "journal-";
+    private static final String SEGMENT_SUFFIX = ".log";
+    private static final int BENCHMARK_RECORDS = 2_000_000;
+    private static final int BENCHMARK_GAMES = 100;
+    private static final int BENCHMARK_ROUNDS = 3;
+    private static final int BENCHMARK_RETAINED_SEGMENTS = 4;
+    private final Path directory;
+    private final Supplier<List<GameSnapshot>> liveGames;
+    private final int segmentSize;
+    private final int snapshotInterval;
+    private final int retainedSegments;
+    private final CRC32C checksum;
+    private FileChannel channel;
+    private MappedByteBuffer segment;
+    private long segmentNumber;
+    private int position;
+    private int movesSinceSnapshot;
+
+    /**
+     * Opens a journal with the default segment size and snapshot interval, keeping the number of segments given by
+     * the {@value #RETAINED_SEGMENTS_PROPERTY} property, or every segment without it.
+     *
+     * @param directory The directory of the segment files, created if needed.
+     * @param liveGames Supplies the states of all live games at the start of their current turns, for the snapshots.
+     * @throws IOException if the first segment cannot be created.
+     */
+    public GameJournal(Path directory, Supplier<List<GameSnapshot>> liveGames) throws IOException {
+        this(directory, liveGames, DEFAULT_SEGMENT_SIZE, DEFAULT_SNAPSHOT_INTERVAL,
+                Integer.getInteger(RETAINED_SEGMENTS_PROPERTY, DEFAULT_RETAINED_SEGMENTS));
+    }
+
+    /**
+     * Opens a journal and writes the snapshot that starts its first segment.
+     *
+     * @param directory The directory of the segment files, created if needed.
+     * @param liveGames Supplies the states of all live games at the start of their current turns, for the snapshots.
+     * @param segmentSize The size of a segment file in bytes.
+     * @param snapshotInterval The number of moves between two snapshots.
+     * @param retainedSegments The number of newest segments to keep, 0 to keep all segments.
+     * @throws IOException if the first segment cannot be created.
+     */
+    public GameJournal(Path directory, Supplier<List<GameSnapshot>> liveGames, int segmentSize, int snapshotInterval,
+                       int retainedSegments) throws IOException {
+        if (retainedSegments < 0) {
+            throw new IllegalArgumentException("Cannot retain " + retainedSegments + " journal segments");
+        }
+        this.directory = directory;
+        this.liveGames = liveGames;
+        this.segmentSize = segmentSize;
+        this.snapshotInterval = snapshotInterval;
+        this.retainedSegments = retainedSegments;
+        this.checksum = new CRC32C();
+        Files.createDirectories(directory);
+        List<Path> segments = listSegments(directory);
+        this.segmentNumber = segments.isEmpty() ? 0 : segmentNumber(segments.get(segments.size() - 1));
+        openNextSegment();
+    }
+
+    /**
+     * Appends a record. A snapshot follows when enough moves were appended since the last one.
+     *
+     * @param record The record to append.
+     * @throws IOException if a new segment cannot be created.
+     */
+    public void append(JournalRecord record) throws IOException {
+        write(record);
+        if (record.getType() == JournalRecord.Type.MOVE && ++movesSinceSnapshot >= snapshotInterval) {
+            writeSnapshot();
+        }
+    }
+
+    /**
+     * Writes the records appended so far to the disk and waits until they are stored.
+     */
+    public void flush() {
+        segment.force();
+    }
+
+    /**
+     * Returns the number of the segment the journal currently writes.
+     *
+     * @return The segment number.
+     */
+    public long getSegmentNumber() {
+        return segmentNumber;
+    }
+
+    /**
+     * Flushes and closes the journal.
+     *
+     * @throws IOException if the segment file cannot be closed.
+     */
+    @Override
+    public void close() throws IOException {
+        flush();
+        channel.close();
+    }
+
+    /**
+     * Returns the segment files of a journal directory, oldest first.
+     *
+     * @param directory The journal directory.
+     * @return The paths of the segment files, empty if the directory does not exist.
+     * @throws IOException if the directory cannot be listed.
+     */
+    public static List<Path> listSegments(Path directory) throws IOException {
+        if (!Files.isDirectory(directory)) {
+            return List.of();
+        }
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(path -> path.getFileName().toString().matches(SEGMENT_PREFIX + "\\d+" + SEGMENT_SUFFIX))
+                    .sorted(Comparator.comparingLong(GameJournal::segmentNumber))
+                    .toList();
+        }
+    }
+
+    /**
+     * Reads the committed records of a segment in order, up to the first incomplete or corrupt record.
+     *
+     * @param segmentPath The segment file.
+     * @param consumer Receives the records.
+     * @return The number of records read.
+     * @throws IOException if the file cannot be read or is not a journal segment.
+     */
+    public static int read(Path segmentPath, Consumer<JournalRecord> consumer) throws IOException {
+        try (FileChannel file = FileChannel.open(segmentPath, StandardOpenOption.READ)) {
+            ByteBuffer buffer = file.map(FileChannel.MapMode.READ_ONLY, 0, file.size());
+            if (buffer.limit() < HEADER_SIZE || buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+                throw new IOException(segmentPath + " is not a journal segment");
+            }
+            CRC32C checksum = new CRC32C();
+            int position = HEADER_SIZE;
+            int count = 0;
+            while (position + FRAME_HEADER_SIZE <= buffer.limit()) {
+                int length = buffer.getInt(position);
+                if (length <= 0 || length > buffer.limit() - position - FRAME_HEADER_SIZE) {
+                    break;
+                }
+                ByteBuffer contents = buffer.slice(position + FRAME_HEADER_SIZE, length);
+                checksum.reset();
+                checksum.update(contents);
+                if ((int) checksum.getValue() != buffer.getInt(position + 4)) {
+                    System.out.println("The journal segment " + segmentPath.getFileName()
+                            + " ends with a torn record at byte " + position);
+                    break;
+                }
+                consumer.accept(JournalRecord.readFrom(contents.rewind()));
+                count++;
+                position += FRAME_HEADER_SIZE + length;
+            }
+            return count;
+        }
+    }
+
+    /**
+     * Rebuilds the live games of a journal: the games of the last snapshot of the newest segment that starts with
+     * a complete snapshot, updated by the records that follow it. Games that ended or were closed are left out.
+     *
+     * @param directory The journal directory.
+     * @return The states of the live games at the start of their current turns, by session identifier.
+     * @throws IOException if a segment cannot be read.
+     */
+    public static Map<Integer, GameSnapshot> recover(Path directory) throws IOException {
+        List<Path> segments = listSegments(directory);
+        for (int i = segments.size() - 1; i >= 0; i--) {
+            Map<Integer, GameSnapshot> games = new TreeMap<>();
+            boolean[] started = new boolean[1];
+            read(segments.get(i), record -> {
+                if (record.getType() == JournalRecord.Type.SNAPSHOT) {
+                    games.clear();
+                    for (GameSnapshot game : record.getGames()) {
+                        games.put(game.getSessionId(), game);
+                    }
+                    started[0] = true;
+                } else if (started[0]) {
+                    switch (record.getType()) {
+                        case CREATED, MOVE -> games.put(record.getSessionId(), record.getState());
+                        case GAME_OVER, CLOSED -> games.remove(record.getSessionId());
+                        default -> {
+                        }
+                    }
+                }
+            });
+            if (started[0]) {
+                games.values().removeIf(GameSnapshot::isGameOver);
+                return games;
+            }
+            System.out.println("The journal segment " + segments.get(i).getFileName() + " has no snapshot, skipping it");
+        }
+        return new TreeMap<>();
+    }
+
+    /**
+     * Finds the highest session identifier in a journal, so that a restarted server does not hand out the
+     * identifiers of journaled games again. Identifiers grow over time, so the segments are read from the newest
+     * and the first segment that mentions any game decides.
+     *
+     * @param directory The journal directory.
+     * @return The highest session identifier, or 0 if the journal holds no games.
+     * @throws IOException if a segment cannot be read.
+     */
+    public static int findHighestSessionId(Path directory) throws IOException {
+        List<Path> segments = listSegments(directory);
+        for (int i = segments.size() - 1; i >= 0; i--) {
+            int[] highest = new int[1];
+            read(segments.get(i), record -> {
+                if (record.getType() == JournalRecord.Type.SNAPSHOT) {
+                    for (GameSnapshot game : record.getGames()) {
+                        highest[0] = Math.max(highest[0], game.getSessionId());
+                    }
+                } else {
+                    highest[0] = Math.max(highest[0], record.getSessionId());
+                }
+            });
+            if (highest[0] > 0) {
+                return highest[0];
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Creates the next segment file, maps it and starts it with a snapshot. Once the snapshot is on disk,
+     * the segments beyond the retained number are deleted.
+     */
+    private void openNextSegment() throws IOException {
+        segmentNumber++;
+        Path path = directory.resolve(SEGMENT_PREFIX + segmentNumber + SEGMENT_SUFFIX);
+        channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        segment = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+        segment.putInt(0, MAGIC);
+        segment.putInt(4, VERSION);
+        segment.putLong(8, segmentNumber);
+        position = HEADER_SIZE;
+        writeSnapshot();
+        segment.force();
+        deleteOldSegments();
+    }
+
+    /**
+     * Deletes the oldest segments until only the retained number of segments is left.
+     */
+    private void deleteOldSegments() throws IOException {
+        if (retainedSegments == 0) {
+            return;
+        }
+        List<Path> segments = listSegments(directory);
+        for (int i = 0; i < segments.size() - retainedSegments; i++) {
+            Files.deleteIfExists(segments.get(i));
+            System.out.println("Deleted the old journal segment " + segments.get(i).getFileName());
+        }
+    }
+
+    /**
+     * Writes a snapshot of all live games.
+     */
+    private void writeSnapshot() throws IOException {
+        write(JournalRecord.snapshot(liveGames.get()));
+        movesSinceSnapshot = 0;
+    }
+
+    /**
+     * Writes a record into the current segment, moving on to a new segment if it does not fit.
+     * The contents and the checksum are written first, the length last.
+     */
+    private void write(JournalRecord record) throws IOException {
+        int length = record.encodedSize();
+        if (position + FRAME_HEADER_SIZE + length > segmentSize) {
+            if (position == HEADER_SIZE || FRAME_HEADER_SIZE + length > segmentSize - HEADER_SIZE) {
+                throw new IllegalStateException("A journal record of " + length + " bytes does not fit into a segment");
+            }
+            segment.force();
+            channel.close();
+            openNextSegment();
+            if (record.getType() == JournalRecord.Type.SNAPSHOT) {
+                return;
+            }
+        }
+        ByteBuffer contents = segment.slice(position + FRAME_HEADER_SIZE, length);
+        record.writeTo(contents);
+        checksum.reset();
+        checksum.update(contents.flip());
+        segment.putInt(position + 4, (int) checksum.getValue());
+        segment.putInt(position, length);
+        position += FRAME_HEADER_SIZE + length;
+    }
+
+    /**
+     * Returns the number in the name of a segment file.
+     */
+    private static long segmentNumber(Path path) {
+        String name = path.getFileName().toString();
+        return Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+    }
+
+    /**
+     * Measures how fast move records are appended, in a temporary directory that is deleted afterwards.
+     * The records are built up front, so the times cover encoding, checksumming and copying into the segment,
+     * including the snapshots of 100 live games, the rollovers and the deletion of all but the newest 4 segments.
+     * The arguments are the number of records per round, default 2000000, and the segment size in megabytes,
+     * default 64.
+     *
+     * @param args The optional number of records and segment size.
+     * @throws IOException if the temporary journal cannot be written.
+     */
+    public static void main(String[] args) throws IOException {
+        int records = args.length > 0 ? Integer.parseInt(args[0]) : BENCHMARK_RECORDS;
+        int segmentSize = args.length > 1 ? Integer.parseInt(args[1]) << 20 : DEFAULT_SEGMENT_SIZE;
+        List<GameSnapshot> liveGames = new ArrayList<>();
+        JournalRecord[] moves = new JournalRecord[BENCHMARK_GAMES];
+        for (int i = 0; i < BENCHMARK_GAMES; i++) {
+            GameSnapshot state = new GameSnapshot(i, 1, true, 2, 3, List.of(Deck.CardType.DUKE, Deck.CardType.CAPTAIN),
+                    List.of(Deck.CardType.ASSASSIN, Deck.CardType.CONTESSA));
+            liveGames.add(state);
+            moves[i] = JournalRecord.move(state, false, ActionCode.TAX, JournalRecord.EXECUTED,
+                    List.of(), List.of(), List.of(), List.of());
+        }
+        Path directory = Files.createTempDirectory("demo6-journal");
+        try (GameJournal journal = new GameJournal(directory, () -> liveGames, segmentSize, DEFAULT_SNAPSHOT_INTERVAL,
+                BENCHMARK_RETAINED_SEGMENTS)) {
+            for (int round = 0; round < BENCHMARK_ROUNDS; round++) {
+                long start = System.nanoTime();
+                for (int i = 0; i < records; i++) {
+                    journal.append(moves[i % moves.length]);
+                }
+                long nanos = System.nanoTime() - start;
+                System.out.println("Appended " + records + " move records in " + nanos / 1_000_000 + " ms, "
+                        + nanos / records + " ns per record");
+            }
+            System.out.println("Wrote " + journal.getSegmentNumber() + " segments, " + listSegments(directory).size()
+                    + " retained");
+        } finally {
+            for (Path segment : listSegments(directory)) {
+                Files.delete(segment);
+            }
+            Files.delete(directory);
+        }
+    }
+}
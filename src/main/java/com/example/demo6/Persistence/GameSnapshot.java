@@ -0,0 +1,293 @@
+package com.example.demo6.Persistence;
+
+import com.example.demo6.Model.Card;
+import com.example.demo6.Model.Deck;
+import com.example.demo6.Model.Game;
+import com.example.demo6.Model.Player;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+
+/**
+ * The state of a journaled game between two turns: the coins and the hands of both players and the side to move.
+ * The deck is not stored, it always holds every card that is not in a hand.
+ */
+public class GameSnapshot {
+    private final int sessionId;
+    private final int turn;
+    private final boolean aiToMove;
+    private final int humanCoins;
+    private final int aiCoins;
+    private final List<Deck.CardType> humanCards;
+    private final List<Deck.CardType> aiCards;
+
+    /**
+     * Constructs a snapshot.
+     *
+     * @param sessionId The identifier of the game.
+     * @param turn The number of turns played so far.
+     * @param aiToMove true if the AI player moves next.
+     * @param humanCoins The coins of the human player.
+     * @param aiCoins The coins of the AI player.
+     * @param humanCards The hand of the human player.
+     * @param aiCards The hand of the AI player.
+     */
+    public GameSnapshot(int sessionId, int turn, boolean aiToMove, int humanCoins, int aiCoins,
+                        List<Deck.CardType> humanCards, List<Deck.CardType> aiCards) {
+        this.sessionId = sessionId;
+        this.turn = turn;
+        this.aiToMove = aiToMove;
+        this.humanCoins = humanCoins;
+        this.aiCoins = aiCoins;
+        this.humanCards = List.copyOf(humanCards);
+        this.aiCards = List.copyOf(aiCards);
+    }
+
+    /**
+     * Takes a snapshot of a game.
+     *
+     * @param sessionId The identifier of the game.
+     * @param turn The number of turns played so far.
+     * @param game The game, whose first player is the human player and second player the AI player.
+     * @param aiToMove true if the AI player moves next.
+     * @return The snapshot of the game.
+     */
+    public static GameSnapshot of(int sessionId, int turn, Game game, boolean aiToMove) {
+        Player human = game.getHumanPlayer();
+        Player ai = game.getAIPlayer();
+        return new GameSnapshot(sessionId, turn, aiToMove, human.getCoins(), ai.getCoins(),
+                cardTypes(human.getCards()), cardTypes(ai.getCards()));
+    }
+
+    /**
+     * Rebuilds the game of this snapshot. The deck holds the cards that are not in a hand, in a random order.
+     *
+     * @param humanName The name of the human player.
+     * @param aiName The name of the AI player.
+     * @return A new game in the state of the snapshot.
+     */
+    public Game toGame(String humanName, String aiName) {
+        Game game = new Game(new Deck(EnumSet.allOf(Deck.CardType.class), Deck.NUMBER_OF_COPIES));
+        Player human = new Player(humanName);
+        Player ai = new Player(aiName);
+        game.addPlayer(human);
+        game.addPlayer(ai);
+        human.setCards(cards(humanCards));
+        ai.setCards(cards(aiCards));
+        human.setCoins(humanCoins);
+        ai.setCoins(aiCoins);
+        game.rebuildDeck();
+        game.setCurrentPlayerIndex(aiToMove ? 1 : 0);
+        return game;
+    }
+
+    /**
+     * Returns the identifier of the game.
+     *
+     * @return The session identifier.
+     */
+    public int getSessionId() {
+        return sessionId;
+    }
+
+    /**
+     * Returns the number of turns played before this snapshot.
+     *
+     * @return The turn number.
+     */
+    public int getTurn() {
+        return turn;
+    }
+
+    /**
+     * Checks if the AI player moves next.
+     *
+     * @return true if the AI player is to move, false if the human player is.
+     */
+    public boolean isAIToMove() {
+        return aiToMove;
+    }
+
+    /**
+     * Returns the coins of the human player.
+     *
+     * @return The number of coins.
+     */
+    public int getHumanCoins() {
+        return humanCoins;
+    }
+
+    /**
+     * Returns the coins of the AI player.
+     *
+     * @return The number of coins.
+     */
+    public int getAICoins() {
+        return aiCoins;
+    }
+
+    /**
+     * Returns the hand of the human player.
+     *
+     * @return The card types in the hand, unmodifiable.
+     */
+    public List<Deck.CardType> getHumanCards() {
+        return humanCards;
+    }
+
+    /**
+     * Returns the hand of the AI player.
+     *
+     * @return The card types in the hand, unmodifiable.
+     */
+    public List<Deck.CardType> getAICards() {
+        return aiCards;
+    }
+
+    /**
+     * Checks if the game of this snapshot is over, that is if a player has no cards left.
+     *
+     * @return true if the game is over, false otherwise.
+     */
+    public boolean isGameOver() {
+        return humanCards.isEmpty() || aiCards.isEmpty();
+    }
+
+    /**
+     * Compares the coins and the hands of this snapshot with a game, ignoring the order of the cards.
+     *
+     * @param game The game to compare with.
+     * @return true if both players have the coins and the cards of this snapshot.
+     */
+    public boolean matches(Game game) {
+        Player human = game.getHumanPlayer();
+        Player ai = game.getAIPlayer();
+        return humanCoins == human.getCoins() && aiCoins == ai.getCoins()
+                && sameCards(humanCards, human) && sameCards(aiCards, ai);
+    }
+
+    /**
+     * Writes the snapshot to a buffer.
+     *
+     * @param buffer The buffer to write to.
+     */
+    void writeTo(ByteBuffer buffer) {
+        buffer.putInt(sessionId);
+        buffer.putInt(turn);
+        buffer.put((byte) (aiToMove ? 1 : 0));
+        buffer.putShort((short) humanCoins);
+        buffer.putShort((short) aiCoins);
+        writeCardTypes(buffer, humanCards);
+        writeCardTypes(buffer, aiCards);
+    }
+
+    /**
+     * Returns the number of bytes {@link #writeTo(ByteBuffer)} writes.
+     *
+     * @return The size of the encoded snapshot.
+     */
+    int encodedSize() {
+        return 4 + 4 + 1 + 2 + 2 + 1 + humanCards.size() + 1 + aiCards.size();
+    }
+
+    /**
+     * Reads a snapshot written by {@link #writeTo(ByteBuffer)}.
+     *
+     * @param buffer The buffer to read from.
+     * @return The snapshot.
+     */
+    static GameSnapshot readFrom(ByteBuffer buffer) {
+        int sessionId = buffer.getInt();
+        int turn = buffer.getInt();
+        boolean aiToMove = buffer.get() != 0;
+        int humanCoins = buffer.getShort();
+        int aiCoins = buffer.getShort();
+        List<Deck.CardType> humanCards = readCardTypes(buffer);
+        List<Deck.CardType> aiCards = readCardTypes(buffer);
+        return new GameSnapshot(sessionId, turn, aiToMove, humanCoins, aiCoins, humanCards, aiCards);
+    }
+
+    /**
+     * Writes a list of card types as a count followed by the ordinals.
+     */
+    static void writeCardTypes(ByteBuffer buffer, List<Deck.CardType> cardTypes) {
+        buffer.put((byte) cardTypes.size());
+        for (Deck.CardType cardType : cardTypes) {
+            buffer.put((byte) cardType.ordinal());
+        }
+    }
+
+    /**
+     * Reads a list of card types written by {@link #writeCardTypes(ByteBuffer, List)}.
+     */
+    static List<Deck.CardType> readCardTypes(ByteBuffer buffer) {
+        Deck.CardType[] types = Deck.CardType.values();
+        int count = buffer.get();
+        List<Deck.CardType> cardTypes = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            cardTypes.add(types[buffer.get()]);
+        }
+        return cardTypes;
+    }
+
+    /**
+     * Returns the types of a list of cards, the form in which the journal stores hands and card changes.
+     *
+     * @param cards The cards.
+     * @return The types of the cards, in the same order.
+     */
+    public static List<Deck.CardType> cardTypes(List<Card> cards) {
+        List<Deck.CardType> cardTypes = new ArrayList<>(cards.size());
+        for (Card card : cards) {
+            cardTypes.add(card.getType());
+        }
+        return cardTypes;
+    }
+
+    /**
+     * Creates new cards of the given types.
+     */
+    private static List<Card> cards(List<Deck.CardType> cardTypes) {
+        List<Card> cards = new ArrayList<>(cardTypes.size());
+        for (Deck.CardType cardType : cardTypes) {
+            cards.add(new Card(cardType));
+        }
+        return cards;
+    }
+
+    /**
+     * Compares a journaled hand with the hand of a player, ignoring the order of the cards.
+     */
+    private static boolean sameCards(List<Deck.CardType> cardTypes, Player player) {
+        if (cardTypes.size() != player.getCards().size()) {
+            return false;
+        }
+        // Hands are small, so the types are counted in the list itself, against the counts the player keeps
+        for (int i = 0; i < cardTypes.size(); i++) {
+            Deck.CardType cardType = cardTypes.get(i);
+            int count = 0;
+            for (int j = 0; j < cardTypes.size(); j++) {
+                if (cardTypes.get(j) == cardType) {
+                    count++;
+                }
+            }
+            if (count != player.getCardCount(cardType)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Provides a short, human readable form of the snapshot.
+     *
+     * @return The turn, the side to move, the coins and the hands.
+     */
+    @Override
+    public String toString() {
+        return "game " + sessionId + " turn " + turn + " " + (aiToMove ? "AI" : "HUMAN") + " to move, human "
+                + humanCoins + ":" + humanCards + ", AI " + aiCoins + ":" + aiCards;
+    }
+}
@@ -0,0 +1,356 @@
+package com.example.demo6.Persistence;
+
+import com.example.demo6.Model.Actions.ActionCode;
+import com.example.demo6.Model.Deck;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * One entry of the {@link GameJournal}. A journal is a sequence of snapshots of all live games, each followed by
+ * the records of what happened since: games that were created, moves that were played, games that ended and
+ * games that were closed. A move record describes the turn, so it can be replayed, and also holds the state of
+ * the game after the turn, so recovery only needs the last record of every game.
+ */
+public class JournalRecord {
+    /**
+     * The kinds of records in a journal.
+     */
+    public enum Type {
+        SNAPSHOT,
+        CREATED,
+        MOVE,
+        GAME_OVER,
+        CLOSED
+    }
+
+    /** The opponent challenged the action. */
+    public static final int CHALLENGED = 1;
+    /** The challenge was right, the actor did not have the card and lost one. */
+    public static final int CHALLENGE_SUCCEEDED = 1 << 1;
+    /** The opponent blocked the action. */
+    public static final int BLOCKED = 1 << 2;
+    /** The actor challenged the block. */
+    public static final int BLOCK_CHALLENGED = 1 << 3;
+    /** The challenge of the block was right, the blocker did not have the card and lost one. */
+    public static final int BLOCK_CHALLENGE_SUCCEEDED = 1 << 4;
+    /** The action was carried out. */
+    public static final int EXECUTED = 1 << 5;
+
+    private final Type type;
+    private final int sessionId;
+    private final List<GameSnapshot> games;
+    private final GameSnapshot state;
+    private final boolean byAI;
+    private final ActionCode actionCode;
+    private final int outcome;
+    private final List<Deck.CardType> humanLostCards;
+    private final List<Deck.CardType> aiLostCards;
+    private final List<Deck.CardType> drawnCards;
+    private final List<Deck.CardType> keptCards;
+
+    /**
+     * Constructs a record, use the factory methods for the individual types.
+     */
+    private JournalRecord(Type type, int sessionId, List<GameSnapshot> games, GameSnapshot state, boolean byAI,
+                          ActionCode actionCode, int outcome, List<Deck.CardType> humanLostCards,
+                          List<Deck.CardType> aiLostCards, List<Deck.CardType> drawnCards, List<Deck.CardType> keptCards) {
+        this.type = type;
+        this.sessionId = sessionId;
+        this.games = games;
+        this.state = state;
+        this.byAI = byAI;
+        this.actionCode = actionCode;
+        this.outcome = outcome;
+        this.humanLostCards = humanLostCards;
+        this.aiLostCards = aiLostCards;
+        this.drawnCards = drawnCards;
+        this.keptCards = keptCards;
+    }
+
+    /**
+     * Creates a snapshot of all live games.
+     *
+     * @param games The states of the live games at the start of their current turns.
+     * @return The record.
+     */
+    public static JournalRecord snapshot(List<GameSnapshot> games) {
+        return new JournalRecord(Type.SNAPSHOT, 0, List.copyOf(games), null, false, null, 0,
+                List.of(), List.of(), List.of(), List.of());
+    }
+
+    /**
+     * Creates the record of a new game.
+     *
+     * @param state The state of the game before the first turn.
+     * @return The record.
+     */
+    public static JournalRecord created(GameSnapshot state) {
+        return new JournalRecord(Type.CREATED, state.getSessionId(), List.of(), state, false, null, 0,
+                List.of(), List.of(), List.of(), List.of());
+    }
+
+    /**
+     * Creates the record of a played turn.
+     *
+     * @param after The state of the game after the turn.
+     * @param byAI true if the AI player played the turn.
+     * @param actionCode The action that was declared.
+     * @param outcome The outcome flags of the turn, such as {@link #CHALLENGED} and {@link #EXECUTED}.
+     * @param humanLostCards The cards the human player lost during the turn.
+     * @param aiLostCards The cards the AI player lost during the turn.
+     * @param drawnCards The cards drawn by a swap.
+     * @param keptCards The cards kept after a swap.
+     * @return The record.
+     */
+    public static JournalRecord move(GameSnapshot after, boolean byAI, ActionCode actionCode, int outcome,
+                                     List<Deck.CardType> humanLostCards, List<Deck.CardType> aiLostCards,
+                                     List<Deck.CardType> drawnCards, List<Deck.CardType> keptCards) {
+        return new JournalRecord(Type.MOVE, after.getSessionId(), List.of(), after, byAI, actionCode, outcome,
+                List.copyOf(humanLostCards), List.copyOf(aiLostCards), List.copyOf(drawnCards), List.copyOf(keptCards));
+    }
+
+    /**
+     * Creates the record of a finished game.
+     *
+     * @param sessionId The identifier of the game.
+     * @param aiWon true if the AI player won.
+     * @return The record.
+     */
+    public static JournalRecord gameOver(int sessionId, boolean aiWon) {
+        return new JournalRecord(Type.GAME_OVER, sessionId, List.of(), null, aiWon, null, 0,
+                List.of(), List.of(), List.of(), List.of());
+    }
+
+    /**
+     * Creates the record of a closed game.
+     *
+     * @param sessionId The identifier of the game.
+     * @return The record.
+     */
+    public static JournalRecord closed(int sessionId) {
+        return new JournalRecord(Type.CLOSED, sessionId, List.of(), null, false, null, 0,
+                List.of(), List.of(), List.of(), List.of());
+    }
+
+    /**
+     * Returns the kind of the record.
+     *
+     * @return The type of the record.
+     */
+    public Type getType() {
+        return type;
+    }
+
+    /**
+     * Returns the identifier of the game the record belongs to.
+     *
+     * @return The session identifier, 0 for snapshots.
+     */
+    public int getSessionId() {
+        return sessionId;
+    }
+
+    /**
+     * Returns the games of a snapshot.
+     *
+     * @return The states of the live games, empty for other records.
+     */
+    public List<GameSnapshot> getGames() {
+        return games;
+    }
+
+    /**
+     * Returns the state of a new game, or the state of the game after a move.
+     *
+     * @return The state, or null for other records.
+     */
+    public GameSnapshot getState() {
+        return state;
+    }
+
+    /**
+     * Checks if the AI player played the move, or won the game for a game over record.
+     *
+     * @return true if the record concerns the AI player.
+     */
+    public boolean isByAI() {
+        return byAI;
+    }
+
+    /**
+     * Returns the action declared in a move.
+     *
+     * @return The action code, or null for other records.
+     */
+    public ActionCode getActionCode() {
+        return actionCode;
+    }
+
+    /**
+     * Returns the outcome flags of a move.
+     *
+     * @return The flags, such as {@link #CHALLENGED} and {@link #EXECUTED}.
+     */
+    public int getOutcome() {
+        return outcome;
+    }
+
+    /**
+     * Checks an outcome flag of a move.
+     *
+     * @param flag The flag to check, such as {@link #BLOCKED}.
+     * @return true if the flag is set.
+     */
+    public boolean hasOutcome(int flag) {
+        return (outcome & flag) != 0;
+    }
+
+    /**
+     * Returns the cards the human player lost during a move.
+     *
+     * @return The lost card types.
+     */
+    public List<Deck.CardType> getHumanLostCards() {
+        return humanLostCards;
+    }
+
+    /**
+     * Returns the cards the AI player lost during a move.
+     *
+     * @return The lost card types.
+     */
+    public List<Deck.CardType> getAILostCards() {
+        return aiLostCards;
+    }
+
+    /**
+     * Returns the cards drawn by a swap.
+     *
+     * @return The drawn card types, empty if the move was no swap.
+     */
+    public List<Deck.CardType> getDrawnCards() {
+        return drawnCards;
+    }
+
+    /**
+     * Returns the cards kept after a swap.
+     *
+     * @return The kept card types, empty if the move was no swap.
+     */
+    public List<Deck.CardType> getKeptCards() {
+        return keptCards;
+    }
+
+    /**
+     * Writes the record to a buffer, starting with its type.
+     *
+     * @param buffer The buffer to write to, it must have room for {@link #encodedSize()} bytes.
+     */
+    void writeTo(ByteBuffer buffer) {
+        buffer.put((byte) type.ordinal());
+        switch (type) {
+            case SNAPSHOT -> {
+                buffer.putInt(games.size());
+                for (GameSnapshot game : games) {
+                    game.writeTo(buffer);
+                }
+            }
+            case CREATED -> state.writeTo(buffer);
+            case MOVE -> {
+                state.writeTo(buffer);
+                buffer.put((byte) (byAI ? 1 : 0));
+                buffer.put((byte) actionCode.ordinal());
+                buffer.put((byte) outcome);
+                GameSnapshot.writeCardTypes(buffer, humanLostCards);
+                GameSnapshot.writeCardTypes(buffer, aiLostCards);
+                GameSnapshot.writeCardTypes(buffer, drawnCards);
+                GameSnapshot.writeCardTypes(buffer, keptCards);
+            }
+            case GAME_OVER -> {
+                buffer.putInt(sessionId);
+                buffer.put((byte) (byAI ? 1 : 0));
+            }
+            case CLOSED -> buffer.putInt(sessionId);
+        }
+    }
+
+    /**
+     * Reads a record written by {@link #writeTo(ByteBuffer)}.
+     *
+     * @param buffer The buffer to read from.
+     * @return The record.
+     * @throws IllegalArgumentException if the type of the record is unknown.
+     */
+    static JournalRecord readFrom(ByteBuffer buffer) {
+        int typeOrdinal = buffer.get();
+        if (typeOrdinal < 0 || typeOrdinal >= Type.values().length) {
+            throw new IllegalArgumentException("unknown journal record type " + typeOrdinal);
+        }
+        return switch (Type.values()[typeOrdinal]) {
+            case SNAPSHOT -> {
+                int count = buffer.getInt();
+                List<GameSnapshot> games = new ArrayList<>(count);
+                for (int i = 0; i < count; i++) {
+                    games.add(GameSnapshot.readFrom(buffer));
+                }
+                yield snapshot(games);
+            }
+            case CREATED -> created(GameSnapshot.readFrom(buffer));
+            case MOVE -> {
+                GameSnapshot after = GameSnapshot.readFrom(buffer);
+                boolean byAI = buffer.get() != 0;
+                ActionCode actionCode = ActionCode.values()[buffer.get()];
+                int outcome = buffer.get();
+                yield move(after, byAI, actionCode, outcome, GameSnapshot.readCardTypes(buffer),
+                        GameSnapshot.readCardTypes(buffer), GameSnapshot.readCardTypes(buffer),
+                        GameSnapshot.readCardTypes(buffer));
+            }
+            case GAME_OVER -> gameOver(buffer.getInt(), buffer.get() != 0);
+            case CLOSED -> closed(buffer.getInt());
+        };
+    }
+
+    /**
+     * Returns the number of bytes {@link #writeTo(ByteBuffer)} writes.
+     *
+     * @return The size of the encoded record.
+     */
+    int encodedSize() {
+        return switch (type) {
+            case SNAPSHOT -> {
+                int size = 1 + 4;
+                for (GameSnapshot game : games) {
+                    size += game.encodedSize();
+                }
+                yield size;
+            }
+            case CREATED -> 1 + state.encodedSize();
+            case MOVE -> 1 + state.encodedSize() + 3 + 4 + humanLostCards.size() + aiLostCards.size()
+                    + drawnCards.size() + keptCards.size();
+            case GAME_OVER -> 1 + 4 + 1;
+            case CLOSED -> 1 + 4;
+        };
+    }
+
+    /**
+     * Provides a short, human readable form of the record.
+     *
+     * @return The type and the contents of the record.
+     */
+    @Override
+    public String toString() {
+        return switch (type) {
+            case SNAPSHOT -> "SNAPSHOT of " + games.size() + " games";
+            case CREATED -> "CREATED " + state;
+            case MOVE -> "MOVE " + (byAI ? "AI " : "HUMAN ") + actionCode + " outcome " + outcome
+                    + (humanLostCards.isEmpty() ? "" : " human lost " + humanLostCards)
+                    + (aiLostCards.isEmpty() ? "" : " AI lost " + aiLostCards)
+                    + (drawnCards.isEmpty() ? "" : " drew " + drawnCards + " kept " + keptCards)
+                    + ", then " + state;
+            case GAME_OVER -> "GAME_OVER game " + sessionId + " won by " + (byAI ? "AI" : "HUMAN");
+            case CLOSED -> "CLOSED game " + sessionId;
+        };
+    }
+}
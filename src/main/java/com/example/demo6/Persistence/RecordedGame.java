@@ -0,0 +1,118 @@
+package com.example.demo6.Persistence;
+
+import com.example.demo6.Model.Actions.ActionCode;
+import com.example.demo6.Model.Game;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A game read back from the server journal: the position before every turn, the final position, and the action
+ * played in every turn.
+ */
+public class RecordedGame {
+    private final int sessionId;
+    private final List<GameSnapshot> positions;
+    private final List<ActionCode> playedActions;
+
+    /**
+     * Constructs a recorded game.
+     *
+     * @param sessionId The identifier of the game.
+     * @param positions The position before every turn, followed by the final position.
+     * @param playedActions The action played in every turn.
+     */
+    public RecordedGame(int sessionId, List<GameSnapshot> positions, List<ActionCode> playedActions) {
+        this.sessionId = sessionId;
+        this.positions = List.copyOf(positions);
+        this.playedActions = List.copyOf(playedActions);
+    }
+
+    /**
+     * Reads a game from the journal. A game that was journaled before the oldest segment starts at the first
+     * snapshot that holds it. Game identifiers start again at 1 when a server starts without live games,
+     * so the game is the last one journaled with the identifier.
+     *
+     * @param directory The journal directory.
+     * @param sessionId The identifier of the game.
+     * @return The game, or null if the journal has no game with the identifier.
+     * @throws IOException if a segment cannot be read.
+     */
+    public static RecordedGame load(Path directory, int sessionId) throws IOException {
+        List<GameSnapshot> positions = new ArrayList<>();
+        List<ActionCode> playedActions = new ArrayList<>();
+        for (Path segmentPath : GameJournal.listSegments(directory)) {
+            GameJournal.read(segmentPath, record -> {
+                switch (record.getType()) {
+                    case SNAPSHOT -> {
+                        if (positions.isEmpty()) {
+                            for (GameSnapshot game : record.getGames()) {
+                                if (game.getSessionId() == sessionId) {
+                                    positions.add(game);
+                                }
+                            }
+                        }
+                    }
+                    case CREATED -> {
+                        if (record.getSessionId() == sessionId) {
+                            positions.clear();
+                            playedActions.clear();
+                            positions.add(record.getState());
+                        }
+                    }
+                    case MOVE -> {
+                        if (record.getSessionId() == sessionId && !positions.isEmpty()) {
+                            positions.add(record.getState());
+                            playedActions.add(record.getActionCode());
+                        }
+                    }
+                    default -> {
+                    }
+                }
+            });
+        }
+        return positions.isEmpty() ? null : new RecordedGame(sessionId, positions, playedActions);
+    }
+
+    /**
+     * Returns the identifier of the game.
+     *
+     * @return The session identifier.
+     */
+    public int getSessionId() {
+        return sessionId;
+    }
+
+    /**
+     * Returns the positions of the game.
+     *
+     * @return The position before every turn followed by the final position, unmodifiable.
+     */
+    public List<GameSnapshot> getPositions() {
+        return positions;
+    }
+
+    /**
+     * Returns the actions played in the game.
+     *
+     * @return The action of every turn, unmodifiable.
+     */
+    public List<ActionCode> getPlayedActions() {
+        return playedActions;
+    }
+
+    /**
+     * Rebuilds every position of the game, with the human player first and the AI player second.
+     *
+     * @return A new game for every position.
+     */
+    public List<Game> toGames() {
+        List<Game> games = new ArrayList<>(positions.size());
+        for (GameSnapshot position : positions) {
+            games.add(position.toGame(Game.HUMAN_PLAYER_NAME, Game.AI_PLAYER_NAME));
+        }
+        return games;
+    }
+}
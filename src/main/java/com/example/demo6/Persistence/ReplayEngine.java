@@ -0,0 +1,340 @@
+package com.example.demo6.Persistence;
+
+import com.example.demo6.Model.Actions.Action;
+import com.example.demo6.Model.Actions.ActionCode;
+import com.example.demo6.Model.Actions.BlockAction;
+import com.example.demo6.Model.Card;
+import com.example.demo6.Model.Deck;
+import com.example.demo6.Model.Game;
+import com.example.demo6.Model.Player;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Replays journaled games through the rules of the game model, {@link Game#executeAction(Action, List)} and the
+ * action classes, and checks that every move reproduces the coins and hands that were journaled after it.
+ * Every journal segment starts with a snapshot of the live games, so segments are replayed independently,
+ * in parallel on a pool of threads. The segments are read into memory first, so the replay measures the speed
+ * of the rules on real move sequences, which makes it a regression benchmark as well as a consistency check.
+ */
+public class ReplayEngine {
+    public static final String THREADS_PROPERTY = "demo6.replay.threads";
+    public static final String REPEAT_PROPERTY = "demo6.replay.repeat";
+    private final int threads;
+
+    /**
+     * Constructs a replay engine.
+     *
+     * @param threads The number of segments replayed at the same time.
+     */
+    public ReplayEngine(int threads) {
+        this.threads = threads;
+    }
+
+    /**
+     * Replays journal segments.
+     *
+     * @param segmentPaths The segment files to replay.
+     * @param repetitions How many times every segment is replayed, more than once for benchmarking.
+     * @return The report of the replay.
+     * @throws IOException if a segment cannot be read.
+     * @throws InterruptedException if the calling thread is interrupted while waiting for the replay.
+     */
+    public ReplayReport replay(List<Path> segmentPaths, int repetitions) throws IOException, InterruptedException {
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<List<JournalRecord>>> reads = new ArrayList<>();
+            for (Path segmentPath : segmentPaths) {
+                reads.add(pool.submit(() -> {
+                    List<JournalRecord> records = new ArrayList<>();
+                    GameJournal.read(segmentPath, records::add);
+                    return records;
+                }));
+            }
+            List<List<JournalRecord>> segments = new ArrayList<>();
+            for (Future<List<JournalRecord>> read : reads) {
+                segments.add(await(read));
+            }
+
+            long startNanos = System.nanoTime();
+            List<Future<ReplayReport>> replays = new ArrayList<>();
+            for (int i = 0; i < repetitions; i++) {
+                for (List<JournalRecord> segment : segments) {
+                    replays.add(pool.submit(() -> replaySegment(segment)));
+                }
+            }
+            ReplayReport report = new ReplayReport();
+            for (Future<ReplayReport> replay : replays) {
+                report.merge(await(replay));
+            }
+            report.setTiming(System.nanoTime() - startNanos, threads);
+            return report;
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * Replays the moves of one segment. Every game is rebuilt once from the snapshot that starts the segment, or
+     * from the record that created it, and is then carried forward by its moves. After a mismatch, the game is
+     * rebuilt from the journaled state and continues from there.
+     *
+     * @param records The records of the segment, in order.
+     * @return The report of the segment.
+     */
+    public static ReplayReport replaySegment(List<JournalRecord> records) {
+        ReplayReport report = new ReplayReport();
+        report.addSegment();
+        Map<Integer, Game> games = new HashMap<>();
+        for (JournalRecord record : records) {
+            switch (record.getType()) {
+                case SNAPSHOT -> {
+                    for (GameSnapshot snapshot : record.getGames()) {
+                        Game game = games.get(snapshot.getSessionId());
+                        if (game == null || !snapshot.matches(game)) {
+                            games.put(snapshot.getSessionId(), toGame(snapshot));
+                        }
+                    }
+                }
+                case CREATED -> games.put(record.getSessionId(), toGame(record.getState()));
+                case MOVE -> {
+                    Game game = games.get(record.getSessionId());
+                    if (game == null) {
+                        report.addSkippedMove();
+                        games.put(record.getSessionId(), toGame(record.getState()));
+                        break;
+                    }
+                    String mismatch = replayMove(game, record);
+                    if (mismatch == null) {
+                        report.addMove();
+                    } else {
+                        report.addMismatch("game " + record.getSessionId() + " turn " + (record.getState().getTurn() - 1)
+                                + " " + record.getActionCode() + ": " + mismatch);
+                        games.put(record.getSessionId(), toGame(record.getState()));
+                    }
+                }
+                case GAME_OVER, CLOSED -> games.remove(record.getSessionId());
+            }
+        }
+        return report;
+    }
+
+    /**
+     * Replays a single move the way the game server plays it: the challenge, the challenge of a block and
+     * the action itself, with the cards the journal says were lost, drawn and kept. The move is played on the
+     * given game, which then passes the turn to the opponent. After a mismatch the game is left in between and
+     * has to be rebuilt from the journaled state.
+     *
+     * @param game The game in the state before the move, which is changed by the move.
+     * @param move The journaled move.
+     * @return null if the move reproduces the journaled state, otherwise a description of the difference.
+     */
+    public static String replayMove(Game game, JournalRecord move) {
+        if (game.isGameOver() || (game.getCurrentPlayer() == game.getAIPlayer()) != move.isByAI()) {
+            return "played by the player who was not to move";
+        }
+        Player actor = move.isByAI() ? game.getAIPlayer() : game.getHumanPlayer();
+        Player opponent = game.getOpponent(actor);
+        Action action = null;
+        for (Action available : game.getAvailableActions(actor)) {
+            if (available.getActionCode() == move.getActionCode()) {
+                action = available;
+            }
+        }
+        if (action == null) {
+            return "the action was not available";
+        }
+        Queue<Deck.CardType> actorLosses = new ArrayDeque<>(move.isByAI() ? move.getAILostCards() : move.getHumanLostCards());
+        Queue<Deck.CardType> opponentLosses = new ArrayDeque<>(move.isByAI() ? move.getHumanLostCards() : move.getAILostCards());
+
+        if (move.hasOutcome(JournalRecord.CHALLENGED)) {
+            boolean actorHadCard = action.challenge();
+            if (actorHadCard == move.hasOutcome(JournalRecord.CHALLENGE_SUCCEEDED)) {
+                return "the challenge was decided differently";
+            }
+            String mismatch = actorHadCard ? loseCard(opponent, opponentLosses) : loseCard(actor, actorLosses);
+            if (mismatch != null) {
+                return mismatch;
+            }
+        }
+        if (move.hasOutcome(JournalRecord.BLOCK_CHALLENGED)) {
+            boolean blockStood = new BlockAction(opponent, actor, action).execute(true, false);
+            if (blockStood == move.hasOutcome(JournalRecord.BLOCK_CHALLENGE_SUCCEEDED)) {
+                return "the challenge of the block was decided differently";
+            }
+            String mismatch = blockStood ? loseCard(actor, actorLosses) : loseCard(opponent, opponentLosses);
+            if (mismatch != null) {
+                return mismatch;
+            }
+        }
+        if (move.hasOutcome(JournalRecord.EXECUTED)) {
+            String mismatch = execute(game, action, opponent, opponentLosses, move);
+            if (mismatch != null) {
+                return mismatch;
+            }
+        }
+        if (!actorLosses.isEmpty() || !opponentLosses.isEmpty()) {
+            return "lost cards were left over: " + actorLosses + " " + opponentLosses;
+        }
+        if (!move.getState().matches(game)) {
+            return "expected " + move.getState() + " but got " + GameSnapshot.of(move.getSessionId(), move.getState().getTurn(),
+                    game, !move.isByAI());
+        }
+        if (!game.isGameOver()) {
+            if (move.getState().isAIToMove() == move.isByAI()) {
+                return "the turn did not pass to the opponent";
+            }
+            game.setCurrentPlayerIndex(move.isByAI() ? 0 : 1);
+        }
+        return null;
+    }
+
+    /**
+     * Carries out the action of a move with the journaled cards.
+     *
+     * @return null if the action could be carried out, otherwise a description of the problem.
+     */
+    private static String execute(Game game, Action action, Player opponent, Queue<Deck.CardType> opponentLosses,
+                                  JournalRecord move) {
+        ActionCode code = action.getActionCode();
+        if (code == ActionCode.SWAP) {
+            if (move.getKeptCards().size() != 2 || move.getDrawnCards().size() != 2) {
+                return "a swap needs two drawn and two kept cards";
+            }
+            List<Card> cards = new ArrayList<>(4);
+            for (Deck.CardType cardType : move.getKeptCards()) {
+                cards.add(new Card(cardType));
+            }
+            for (Deck.CardType cardType : move.getDrawnCards()) {
+                Card drawnCard = game.getDeck().takeCard(cardType);
+                if (drawnCard == null) {
+                    return "drew a " + cardType + " that was not in the deck";
+                }
+                cards.add(drawnCard);
+            }
+            game.executeAction(action, cards);
+            // Player.swapCards keeps every card whose type was kept, so a hand with two cards of a kept type
+            // returns too few cards, only then is the deck rebuilt from the hands
+            if (game.getDeck().getSize() + countHandCards(game) != Deck.NUMBER_OF_COPIES * Deck.CardType.values().length) {
+                game.rebuildDeck();
+            }
+        } else if (code == ActionCode.COUP || code == ActionCode.ASSASSINATE) {
+            Deck.CardType lostType = opponentLosses.poll();
+            Card lostCard = lostType == null ? null : findCard(opponent, lostType);
+            if (lostCard == null) {
+                return "the target did not have the lost card " + lostType;
+            }
+            List<Card> cards = new ArrayList<>(1);
+            cards.add(lostCard);
+            game.executeAction(action, cards);
+        } else {
+            game.executeAction(action, null);
+        }
+        return null;
+    }
+
+    /**
+     * Makes a player lose the next card of its journaled losses. A player without cards loses nothing.
+     *
+     * @return null if the player had the card, otherwise a description of the problem.
+     */
+    private static String loseCard(Player player, Queue<Deck.CardType> losses) {
+        if (player.getCards().isEmpty()) {
+            return null;
+        }
+        Deck.CardType lostType = losses.poll();
+        Card lostCard = lostType == null ? null : findCard(player, lostType);
+        if (lostCard == null) {
+            return player.getName() + " did not have the lost card " + lostType;
+        }
+        player.returnCard(lostCard);
+        return null;
+    }
+
+    /**
+     * Finds a card of the given type in the hand of a player.
+     */
+    private static Card findCard(Player player, Deck.CardType cardType) {
+        for (Card card : player.getCards()) {
+            if (card.getType() == cardType) {
+                return card;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Rebuilds the game of a journaled state.
+     */
+    private static Game toGame(GameSnapshot snapshot) {
+        return snapshot.toGame(Game.HUMAN_PLAYER_NAME, Game.AI_PLAYER_NAME);
+    }
+
+    /**
+     * Counts the cards in the hands of the players of a game.
+     */
+    private static int countHandCards(Game game) {
+        return game.getHumanPlayer().getCards().size() + game.getAIPlayer().getCards().size();
+    }
+
+    /**
+     * Waits for a task of the pool, rethrowing its failure.
+     */
+    private static <T> T await(Future<T> future) throws IOException, InterruptedException {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException ioException) {
+                throw ioException;
+            }
+            throw new IllegalStateException("The replay failed", e.getCause());
+        }
+    }
+
+    /**
+     * Replays journal directories or segment files and prints the report. The number of threads and of repetitions
+     * are set with the {@value #THREADS_PROPERTY} and {@value #REPEAT_PROPERTY} properties.
+     * The exit status is 1 if a move did not reproduce its journaled state.
+     *
+     * @param args The journal directories and segment files to replay.
+     * @throws IOException if a segment cannot be read.
+     * @throws InterruptedException if the replay is interrupted.
+     */
+    public static void main(String[] args) throws IOException, InterruptedException {
+        List<Path> segmentPaths = new ArrayList<>();
+        for (String arg : args) {
+            Path path = Path.of(arg);
+            if (Files.isDirectory(path)) {
+                segmentPaths.addAll(GameJournal.listSegments(path));
+            } else {
+                segmentPaths.add(path);
+            }
+        }
+        if (segmentPaths.isEmpty()) {
+            System.out.println("Usage: ReplayEngine <journal directory or segment file>...");
+            return;
+        }
+        int threads = Integer.getInteger(THREADS_PROPERTY, Runtime.getRuntime().availableProcessors());
+        int repetitions = Integer.getInteger(REPEAT_PROPERTY, 1);
+        ReplayReport report = new ReplayEngine(threads).replay(segmentPaths, repetitions);
+        System.out.println(report);
+        for (String sample : report.getMismatchSamples()) {
+            System.out.println("  " + sample);
+        }
+        if (report.getMismatches() > 0) {
+            System.exit(1);
+        }
+    }
+}
@@ -0,0 +1,152 @@
+package com.example.demo6.Persistence;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The outcome of replaying journal segments with the {@link ReplayEngine}: how many moves were replayed,
+ * how many of them did not reproduce the journaled state, and how fast the rules ran.
+ */
+public class ReplayReport {
+    private static final int MAX_SAMPLES = 20;
+    private long segments;
+    private long moves;
+    private long skippedMoves;
+    private long mismatches;
+    private final List<String> mismatchSamples;
+    private long elapsedNanos;
+    private int threads;
+
+    /**
+     * Constructs an empty report.
+     */
+    public ReplayReport() {
+        this.mismatchSamples = new ArrayList<>();
+    }
+
+    /**
+     * Records a replayed segment.
+     */
+    void addSegment() {
+        segments++;
+    }
+
+    /**
+     * Records a move that reproduced the journaled state.
+     */
+    void addMove() {
+        moves++;
+    }
+
+    /**
+     * Records a move whose state before the move was not in the segment, so it could not be replayed.
+     */
+    void addSkippedMove() {
+        skippedMoves++;
+    }
+
+    /**
+     * Records a move that did not reproduce the journaled state.
+     *
+     * @param description What differed, with the game and the turn.
+     */
+    void addMismatch(String description) {
+        moves++;
+        mismatches++;
+        if (mismatchSamples.size() < MAX_SAMPLES) {
+            mismatchSamples.add(description);
+        }
+    }
+
+    /**
+     * Adds the counts of another report to this one.
+     *
+     * @param other The report to add.
+     */
+    void merge(ReplayReport other) {
+        segments += other.segments;
+        moves += other.moves;
+        skippedMoves += other.skippedMoves;
+        mismatches += other.mismatches;
+        for (String sample : other.mismatchSamples) {
+            if (mismatchSamples.size() < MAX_SAMPLES) {
+                mismatchSamples.add(sample);
+            }
+        }
+    }
+
+    /**
+     * Sets the wall-clock time of the replay and the number of threads it ran on.
+     */
+    void setTiming(long elapsedNanos, int threads) {
+        this.elapsedNanos = elapsedNanos;
+        this.threads = threads;
+    }
+
+    /**
+     * Returns the number of replayed segments, counting repetitions.
+     *
+     * @return The number of segments.
+     */
+    public long getSegments() {
+        return segments;
+    }
+
+    /**
+     * Returns the number of replayed moves, including the mismatches.
+     *
+     * @return The number of moves.
+     */
+    public long getMoves() {
+        return moves;
+    }
+
+    /**
+     * Returns the number of moves that could not be replayed because the state before them was unknown.
+     *
+     * @return The number of skipped moves.
+     */
+    public long getSkippedMoves() {
+        return skippedMoves;
+    }
+
+    /**
+     * Returns the number of moves that did not reproduce the journaled state.
+     *
+     * @return The number of mismatches.
+     */
+    public long getMismatches() {
+        return mismatches;
+    }
+
+    /**
+     * Returns the descriptions of the first mismatches.
+     *
+     * @return Up to 20 descriptions.
+     */
+    public List<String> getMismatchSamples() {
+        return mismatchSamples;
+    }
+
+    /**
+     * Returns the number of moves replayed per second of wall-clock time.
+     *
+     * @return The replay throughput.
+     */
+    public double getMovesPerSecond() {
+        return elapsedNanos == 0 ? 0 : moves * 1e9 / elapsedNanos;
+    }
+
+    /**
+     * Provides a summary of the replay.
+     *
+     * @return The counts, the time and the throughput.
+     */
+    @Override
+    public String toString() {
+        return "Replayed " + moves + " moves of " + segments + " segments in " + elapsedNanos / 1_000_000 + " ms on "
+                + threads + " threads: " + Math.round(getMovesPerSecond()) + " moves/s, "
+                + (moves == 0 ? 0 : elapsedNanos * threads / moves) + " ns per move and thread, "
+                + mismatches + " mismatches, " + skippedMoves + " skipped";
+    }
+}
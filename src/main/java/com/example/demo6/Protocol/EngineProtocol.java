@@ -0,0 +1,524 @@
+package com.example.demo6.Protocol;
+
+import com.example.demo6.AI.CancellationToken;
+import com.example.demo6.AI.EndgameTablebase;
+import com.example.demo6.AI.MCTS;
+import com.example.demo6.AI.Node;
+import com.example.demo6.AI.SearchBudget;
+import com.example.demo6.AI.SearchResult;
+import com.example.demo6.Model.Actions.Action;
+import com.example.demo6.Model.Actions.ActionCode;
+import com.example.demo6.Model.Card;
+import com.example.demo6.Model.Deck;
+import com.example.demo6.Model.Game;
+import com.example.demo6.Model.Player;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.stream.Collectors;
+
+import static com.example.demo6.AI.Heuristic.*;
+
+/**
+ * Runs the MCTS engine as a subprocess that is driven over stdin and stdout, the way chess programs speak UCI.
+ * The protocol only uses the model and the AI, so it starts without loading JavaFX when it is run from the class path:
+ * {@code java -cp target/classes com.example.demo6.Protocol.EngineProtocol}.
+ * The engine always plays the AI player. Its own diagnostic output is moved to stderr, stdout only carries the protocol.
+ *
+ * <p>Commands, one per line:
+ * <ul>
+ *     <li>{@code newgame} deals a new game, the human player moves first.</li>
+ *     <li>{@code position ai=<coins>:<cards> human=<coins>:<cards> turn=<ai|human>} sets up a position,
+ *     cards are comma separated card types or {@code -} for none, for example {@code ai=3:DUKE,CAPTAIN}.</li>
+ *     <li>{@code action <code> [blocked] [lose=<card>] [keep=<cards>]} plays an action for the player to move and
+ *     passes the turn. A blocked action has no effect, {@code lose} names the card the target of a coup or
+ *     assassination gives up, {@code keep} names the cards kept after a swap. Missing choices are made heuristically.</li>
+ *     <li>{@code lose <ai|human> <card>} makes a player give up a card, for example after a lost challenge.</li>
+ *     <li>{@code hand <ai|human> <cards>} replaces the hand of a player, for example after a revealed card was exchanged.</li>
+ *     <li>{@code go sims <n>}, {@code go movetime <ms>} or {@code go infinite} searches the move of the AI player,
+ *     reporting {@code info} lines until it answers {@code bestaction <code> value <value>}. {@code go sims <n>} runs
+ *     exactly n simulations, a plain {@code go} uses the default budget, which is scaled to the position like in the game.</li>
+ *     <li>{@code stop} ends the running search, {@code isready} answers {@code readyok}, {@code d} shows the position
+ *     and {@code quit} exits.</li>
+ * </ul>
+ */
+public class EngineProtocol {
+    private static final int DEFAULT_SIMULATIONS = 2500;
+    private static final int INFINITE_SIMULATIONS = 100_000_000;
+    private static final int MAX_DEPTH = 100;
+    private static final int SIMULATIONS_PER_SLICE = 50;
+    private static final long INFO_INTERVAL_MILLIS = 500;
+    private static final long STOP_POLL_MILLIS = 10;
+    private final PrintStream out;
+    private Game game;
+    private MCTS engine;
+    private Thread searchThread;
+    private CancellationToken searchToken;
+
+    /**
+     * Constructs the protocol handler with a freshly dealt game.
+     *
+     * @param out The stream the protocol answers are written to.
+     */
+    public EngineProtocol(PrintStream out) {
+        this.out = out;
+        newGame();
+    }
+
+    /**
+     * Reads commands until {@code quit} or the end of the input.
+     *
+     * @param in The reader the commands come from.
+     * @throws IOException if the input cannot be read.
+     */
+    public void run(BufferedReader in) throws IOException {
+        String line;
+        while ((line = in.readLine()) != null) {
+            line = line.strip();
+            if (line.isEmpty()) {
+                continue;
+            }
+            if (line.equals("quit")) {
+                break;
+            }
+            try {
+                handleCommand(line);
+            } catch (IllegalArgumentException e) {
+                send("info string error: " + e.getMessage());
+            }
+        }
+        stopSearch();
+    }
+
+    /**
+     * Handles one command line.
+     *
+     * @param line The command with its arguments.
+     */
+    private void handleCommand(String line) {
+        String[] parts = line.split("\\s+");
+        String command = parts[0].toLowerCase(Locale.ROOT);
+        if (command.equals("isready")) {
+            send("readyok");
+            return;
+        }
+        if (command.equals("stop")) {
+            stopSearch();
+            return;
+        }
+        if (isSearching()) {
+            throw new IllegalArgumentException("search in progress, send stop first");
+        }
+        switch (command) {
+            case "newgame" -> newGame();
+            case "position" -> setPosition(parts);
+            case "action" -> playAction(parts);
+            case "lose" -> loseCard(parts);
+            case "hand" -> setHand(parts);
+            case "go" -> startSearch(parts);
+            case "d" -> sendPosition();
+            default -> throw new IllegalArgumentException("unknown command " + parts[0]);
+        }
+    }
+
+    /**
+     * Deals a new game where the human player moves first.
+     */
+    private void newGame() {
+        game = new Game(new Deck(EnumSet.allOf(Deck.CardType.class), Deck.NUMBER_OF_COPIES));
+        game.addPlayer(new Player(Game.HUMAN_PLAYER_NAME));
+        game.addPlayer(new Player(Game.AI_PLAYER_NAME));
+        engine = new MCTS(game, DEFAULT_SIMULATIONS, MAX_DEPTH);
+    }
+
+    /**
+     * Sets up the position described by the arguments of the {@code position} command.
+     */
+    private void setPosition(String[] parts) {
+        List<Player> players = new ArrayList<>();
+        players.add(new Player(Game.HUMAN_PLAYER_NAME));
+        players.add(new Player(Game.AI_PLAYER_NAME));
+        int currentPlayerIndex = 0;
+        for (int i = 1; i < parts.length; i++) {
+            String[] option = splitOption(parts[i]);
+            switch (option[0]) {
+                case "human", "ai" -> {
+                    Player player = players.get(option[0].equals("ai") ? 1 : 0);
+                    String[] coinsAndCards = option[1].split(":", 2);
+                    if (coinsAndCards.length != 2) {
+                        throw new IllegalArgumentException("expected <coins>:<cards> in " + parts[i]);
+                    }
+                    player.setCoins(parseNumber(coinsAndCards[0]));
+                    player.setCards(parseCards(coinsAndCards[1]));
+                }
+                case "turn" -> currentPlayerIndex = parseSide(option[1]).equals("ai") ? 1 : 0;
+                default -> throw new IllegalArgumentException("unknown position field " + option[0]);
+            }
+        }
+        // The position is only taken over once rebuilding the deck has accepted the hands
+        Game position = new Game(new Deck(EnumSet.allOf(Deck.CardType.class), 0));
+        position.setPlayerList(players);
+        position.setCurrentPlayerIndex(currentPlayerIndex);
+        position.rebuildDeck();
+        MCTS positionEngine = new MCTS(position, DEFAULT_SIMULATIONS, MAX_DEPTH);
+        game = position;
+        engine = positionEngine;
+    }
+
+    /**
+     * Plays an action for the player to move and passes the turn.
+     */
+    private void playAction(String[] parts) {
+        if (parts.length < 2) {
+            throw new IllegalArgumentException("expected an action code");
+        }
+        if (game.isGameOver()) {
+            throw new IllegalArgumentException("the game is over");
+        }
+        Player mover = game.getCurrentPlayer();
+        Action action = findAction(game.getAvailableActions(mover), parseActionCode(parts[1]));
+        boolean blocked = false;
+        List<Card> cardsToKeep = null;
+        Card cardToLose = null;
+        Player target = game.getOpponent(mover);
+        for (int i = 2; i < parts.length; i++) {
+            String[] option = parts[i].equals("blocked") ? new String[]{"blocked", ""} : splitOption(parts[i]);
+            switch (option[0]) {
+                case "blocked" -> blocked = true;
+                case "keep" -> cardsToKeep = parseCards(option[1]);
+                case "lose" -> cardToLose = findCard(target, parseCardType(option[1]));
+                default -> throw new IllegalArgumentException("unknown action option " + option[0]);
+            }
+        }
+
+        if (!blocked) {
+            ActionCode code = action.getActionCode();
+            if (code == ActionCode.SWAP && cardsToKeep != null) {
+                checkHand(mover, cardsToKeep);
+                mover.setCards(cardsToKeep);
+                game.rebuildDeck();
+            } else if (code == ActionCode.SWAP) {
+                List<Card> newCards = game.getDeck().drawCards(2);
+                List<Card> cards = new ArrayList<>(selectCardsToKeep(game, mover, newCards));
+                cards.addAll(newCards);
+                game.executeAction(action, cards);
+            } else if ((code == ActionCode.COUP || code == ActionCode.ASSASSINATE) && !target.getCards().isEmpty()) {
+                List<Card> cards = new ArrayList<>();
+                cards.add(cardToLose != null ? cardToLose : selectCardToGiveUp(game, target));
+                game.executeAction(action, cards);
+            } else {
+                game.executeAction(action, null);
+            }
+        }
+        engine.handleAction(action);
+        if (!game.isGameOver()) {
+            game.switchTurns();
+        }
+    }
+
+    /**
+     * Makes a player give up a card.
+     */
+    private void loseCard(String[] parts) {
+        if (parts.length != 3) {
+            throw new IllegalArgumentException("expected lose <ai|human> <card>");
+        }
+        Player player = getPlayer(parts[1]);
+        player.returnCard(findCard(player, parseCardType(parts[2])));
+        game.rebuildDeck();
+    }
+
+    /**
+     * Replaces the hand of a player.
+     */
+    private void setHand(String[] parts) {
+        if (parts.length != 3) {
+            throw new IllegalArgumentException("expected hand <ai|human> <cards>");
+        }
+        Player player = getPlayer(parts[1]);
+        List<Card> hand = parseCards(parts[2]);
+        checkHand(player, hand);
+        player.setCards(hand);
+        game.rebuildDeck();
+    }
+
+    /**
+     * Checks that a player can be given a new hand without holding more copies of a card type than the game has,
+     * before the hand is changed, so that a rejected command leaves the position as it was.
+     * Losing a card never needs the check, because it only takes cards out of a hand.
+     */
+    private void checkHand(Player player, List<Card> hand) {
+        int[] counts = new int[Deck.CardType.values().length];
+        for (Card card : hand) {
+            counts[card.getType().ordinal()]++;
+        }
+        for (Player other : game.getPlayers()) {
+            if (other != player) {
+                for (Card card : other.getCards()) {
+                    counts[card.getType().ordinal()]++;
+                }
+            }
+        }
+        for (Deck.CardType cardType : Deck.CardType.values()) {
+            if (counts[cardType.ordinal()] > Deck.NUMBER_OF_COPIES) {
+                throw new IllegalArgumentException("there are only " + Deck.NUMBER_OF_COPIES + " cards of type " + cardType);
+            }
+        }
+    }
+
+    /**
+     * Starts the search of the AI move on a background thread, so {@code stop} and {@code isready} stay responsive.
+     */
+    private void startSearch(String[] parts) {
+        if (game.isGameOver() || game.getCurrentPlayer() != game.getAIPlayer()) {
+            throw new IllegalArgumentException("the AI player is not to move");
+        }
+        SearchBudget budget;
+        boolean infinite = false;
+        String mode = parts.length > 1 ? parts[1].toLowerCase(Locale.ROOT) : "sims";
+        switch (mode) {
+            case "sims" -> budget = parts.length > 2 ? SearchBudget.simulations(parseNumber(parts[2]))
+                    : SearchBudget.adaptive(DEFAULT_SIMULATIONS, SearchBudget.NO_TIME_LIMIT);
+            case "movetime" -> budget = new SearchBudget(INFINITE_SIMULATIONS, parts.length > 2 ? parseNumber(parts[2]) : 1000);
+            case "infinite" -> {
+                budget = SearchBudget.simulations(INFINITE_SIMULATIONS);
+                infinite = true;
+            }
+            default -> throw new IllegalArgumentException("unknown search mode " + parts[1]);
+        }
+        CancellationToken token = new CancellationToken();
+        boolean waitForStop = infinite;
+        Game position = game.deepCopy();
+        searchToken = token;
+        searchThread = new Thread(() -> search(position, budget, token, waitForStop), "engine-search");
+        searchThread.setDaemon(true);
+        searchThread.start();
+    }
+
+    /**
+     * Searches in slices, reporting the progress between slices, and answers with the best action.
+     * An infinite search only answers once it is stopped, even if the decision settled earlier.
+     */
+    private void search(Game position, SearchBudget budget, CancellationToken token, boolean waitForStop) {
+        long startNanos = System.nanoTime();
+        long nextInfoNanos = startNanos + INFO_INTERVAL_MILLIS * 1_000_000;
+        engine.prepareSearch(position, budget);
+        boolean reported = false;
+        while (!engine.isSearchFinished()) {
+            reported = false;
+            engine.runSimulations(SIMULATIONS_PER_SLICE, token);
+            if (System.nanoTime() - nextInfoNanos >= 0) {
+                sendInfo(startNanos);
+                reported = true;
+                nextInfoNanos += INFO_INTERVAL_MILLIS * 1_000_000;
+            }
+        }
+        while (waitForStop && !token.isCancelled()) {
+            try {
+                Thread.sleep(STOP_POLL_MILLIS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        if (!reported) {
+            sendInfo(startNanos);
+        }
+        SearchResult result = engine.collectResult();
+        send("bestaction " + (result.getAction() == null ? "none" : result.getActionCode())
+                + " value " + String.format(Locale.ROOT, "%.4f", result.getValue()));
+    }
+
+    /**
+     * Reports the progress of the running search.
+     */
+    private void sendInfo(long startNanos) {
+        if (engine.getLastSearchStats() == null) {
+            return;
+        }
+        int simulations = engine.getLastSearchStats().getSimulationsRun();
+        long elapsedMillis = Math.max(1, (System.nanoTime() - startNanos) / 1_000_000);
+        StringBuilder info = new StringBuilder("info sims ").append(simulations)
+                .append(" nps ").append(simulations * 1000L / elapsedMillis)
+                .append(" time ").append(elapsedMillis);
+        List<Node> rankedChildren = engine.getRankedRootChildren();
+        if (!rankedChildren.isEmpty()) {
+            Node best = rankedChildren.get(0);
+            info.append(" best ").append(best.getAction().getActionCode())
+                    .append(" visits ").append(best.getVisitCount());
+            info.append(" value ").append(String.format(Locale.ROOT, "%.4f", MCTS.getValue(best)));
+        }
+        send(info.toString());
+    }
+
+    /**
+     * Stops the running search and waits until it has answered.
+     */
+    private void stopSearch() {
+        if (!isSearching()) {
+            return;
+        }
+        searchToken.cancel();
+        try {
+            searchThread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Checks if a search is running.
+     */
+    private boolean isSearching() {
+        return searchThread != null && searchThread.isAlive();
+    }
+
+    /**
+     * Prints the position in the format of the {@code position} command.
+     */
+    private void sendPosition() {
+        send("position " + describe("human", game.getHumanPlayer()) + " " + describe("ai", game.getAIPlayer())
+                + " turn=" + (!game.isGameOver() && game.getCurrentPlayer() == game.getAIPlayer() ? "ai" : "human")
+                + (game.isGameOver() ? " over" : ""));
+        send("info string deck " + game.getDeck().getSize() + " cards");
+    }
+
+    /**
+     * Describes a player as a field of the {@code position} command.
+     */
+    private static String describe(String side, Player player) {
+        String cards = player.getCards().isEmpty() ? "-" : player.getCards().stream()
+                .map(card -> card.getType().name())
+                .collect(Collectors.joining(","));
+        return side + "=" + player.getCoins() + ":" + cards;
+    }
+
+    /**
+     * Returns the player of a side, {@code ai} or {@code human}.
+     */
+    private Player getPlayer(String side) {
+        return parseSide(side).equals("ai") ? game.getAIPlayer() : game.getHumanPlayer();
+    }
+
+    /**
+     * Finds a card of the given type in the hand of a player.
+     */
+    private static Card findCard(Player player, Deck.CardType type) {
+        for (Card card : player.getCards()) {
+            if (card.getType() == type) {
+                return card;
+            }
+        }
+        throw new IllegalArgumentException(player.getName() + " has no " + type);
+    }
+
+    /**
+     * Finds the action with the given code among the available actions.
+     */
+    private static Action findAction(List<Action> actions, ActionCode code) {
+        for (Action action : actions) {
+            if (action.getActionCode() == code) {
+                return action;
+            }
+        }
+        throw new IllegalArgumentException("illegal action " + code);
+    }
+
+    /**
+     * Splits a {@code name=value} option, the name is lower-cased.
+     */
+    private static String[] splitOption(String option) {
+        String[] keyValue = option.split("=", 2);
+        if (keyValue.length != 2) {
+            throw new IllegalArgumentException("expected <name>=<value> in " + option);
+        }
+        keyValue[0] = keyValue[0].toLowerCase(Locale.ROOT);
+        return keyValue;
+    }
+
+    /**
+     * Parses a side, {@code ai} or {@code human}, case-insensitive.
+     */
+    private static String parseSide(String side) {
+        String normalized = side.toLowerCase(Locale.ROOT);
+        if (!normalized.equals("ai") && !normalized.equals("human")) {
+            throw new IllegalArgumentException("expected ai or human, got " + side);
+        }
+        return normalized;
+    }
+
+    /**
+     * Parses a comma separated list of card types, {@code -} for no cards.
+     */
+    private static List<Card> parseCards(String cards) {
+        List<Card> parsed = new ArrayList<>();
+        if (!cards.equals("-")) {
+            for (String name : cards.split(",")) {
+                parsed.add(new Card(parseCardType(name)));
+            }
+        }
+        return parsed;
+    }
+
+    /**
+     * Parses the name of a card type, case-insensitive.
+     */
+    private static Deck.CardType parseCardType(String name) {
+        try {
+            return Deck.CardType.valueOf(name.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("unknown card " + name);
+        }
+    }
+
+    /**
+     * Parses the name of an action code, case-insensitive.
+     */
+    private static ActionCode parseActionCode(String name) {
+        try {
+            return ActionCode.valueOf(name.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("unknown action " + name);
+        }
+    }
+
+    /**
+     * Parses a decimal number.
+     */
+    private static int parseNumber(String number) {
+        try {
+            return Integer.parseInt(number);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("expected a number, got " + number);
+        }
+    }
+
+    /**
+     * Writes a protocol line. Lines of the search thread and the command thread never interleave.
+     */
+    private synchronized void send(String line) {
+        out.println(line);
+        out.flush();
+    }
+
+    /**
+     * Starts the engine on stdin and stdout.
+     *
+     * @param args Not used.
+     * @throws IOException if stdin cannot be read.
+     */
+    public static void main(String[] args) throws IOException {
+        PrintStream protocolOut = new PrintStream(System.out, true, StandardCharsets.UTF_8);
+        System.setOut(System.err);
+        EndgameTablebase.loadDefaultInBackground();
+        BufferedReader in = new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8));
+        new EngineProtocol(protocolOut).run(in);
+    }
+}
@@ -0,0 +1,572 @@
+package com.example.demo6.Server;
+
+import com.example.demo6.AI.EndgameTablebase;
+import com.example.demo6.AI.SearchBudget;
+import com.example.demo6.Metrics.GameMetrics;
+import com.example.demo6.Metrics.MetricsRegistry;
+import com.example.demo6.Metrics.MetricsServer;
+import com.example.demo6.AI.SearchCoalescer;
+import com.example.demo6.AI.SearchEngine;
+import com.example.demo6.AI.SearchEngines;
+import com.example.demo6.AI.SearchScheduler;
+import com.example.demo6.AI.SearchResult;
+import com.example.demo6.Model.Game;
+import com.example.demo6.Persistence.GameJournal;
+import com.example.demo6.Persistence.GameSnapshot;
+import com.example.demo6.Persistence.JournalRecord;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Hosts many games against the AI in one process, over a plain text protocol on a TCP socket.
+ * A single selector thread serves all connections and owns all sessions, so an idle session costs only its memory.
+ * AI moves are searched by the shared {@link SearchScheduler}, earliest deadline first, and every move has to be
+ * answered within the time limit of the configured budget, or 5 seconds without one. Sessions that reach the same
+ * state share one search through a {@link SearchCoalescer}. Finished searches are handed back to the selector thread
+ * through a queue.
+ *
+ * <p>If a journal directory is configured with the {@value GameJournal#DIRECTORY_PROPERTY} property, every turn is
+ * written to a {@link GameJournal}. After a crash, the server restores the live games from the journal at the start
+ * of their current turns, and clients take them over again with {@code RESUME}.
+ *
+ * <p>Every line the client sends is one command:
+ * <ul>
+ *     <li>{@code NEW} starts a game and answers {@code CREATED <id>}.</li>
+ *     <li>{@code RESUME <id>} takes over a game restored from the journal and answers {@code RESUMED <id>}.</li>
+ *     <li>{@code STATE <id>} sends the state of a game.</li>
+ *     <li>{@code ACTION <id> <code>} plays an action, for example {@code ACTION 1 TAX}.</li>
+ *     <li>{@code RESPOND <id> <answer>} answers a prompt with yes or no, or with card types such as {@code DUKE,CAPTAIN}.</li>
+ *     <li>{@code CLOSE <id>} ends a game, {@code QUIT} closes the connection.</li>
+ * </ul>
+ * The server answers with {@code STATE}, {@code EVENT}, {@code PROMPT}, {@code OVER} and {@code ERROR} lines,
+ * each followed by the id of the session it concerns. Lines are UTF-8 in both directions. A client that stops
+ * reading is disconnected once {@value #MAX_PENDING_WRITE_BYTES} bytes of answers are waiting for it.
+ */
+public class GameServer {
+    public static final int DEFAULT_PORT = 7777;
+    private static final int MAX_LINE_LENGTH = 1024;
+    private static final int READ_BUFFER_SIZE = 4096;
+    private static final int MAX_PENDING_WRITE_BYTES = 256 * 1024;
+    // The longest UTF-8 encoding of a character, the most bytes a read can end in the middle of
+    private static final int MAX_CHARACTER_BYTES = 4;
+    private static final long DEFAULT_MOVE_DEADLINE_MILLIS = 5000;
+    private final Selector selector;
+    private final ServerSocketChannel serverChannel;
+    private final Map<Integer, GameSession> sessions;
+    private final Map<GameSession, Connection> sessionOwners;
+    private final Map<GameSession, CompletableFuture<SearchResult>> runningSearches;
+    private final Queue<Runnable> completedSearches;
+    private final SearchCoalescer coalescer;
+    private final ByteBuffer readBuffer;
+    private final CharBuffer decodedBuffer;
+    private final Queue<Connection> slowConnections;
+    private final SearchBudget searchBudget;
+    private final long moveDeadlineMillis;
+    private GameJournal journal;
+    private int nextSessionId;
+    private volatile int activeSessions;
+    private volatile boolean running;
+
+    /**
+     * Constructs a server listening on the loopback interface, with the journal directory of the
+     * {@value GameJournal#DIRECTORY_PROPERTY} property, if any.
+     *
+     * @param port The port to listen on, 0 for any free port.
+     * @throws IOException if the socket cannot be opened or the journal cannot be read.
+     */
+    public GameServer(int port) throws IOException {
+        this(port, System.getProperty(GameJournal.DIRECTORY_PROPERTY) == null
+                ? null : Path.of(System.getProperty(GameJournal.DIRECTORY_PROPERTY)));
+    }
+
+    /**
+     * Constructs a server listening on the loopback interface. With a journal directory, the live games
+     * of the journal are restored and wait to be resumed, and the new turns are journaled there.
+     *
+     * @param port The port to listen on, 0 for any free port.
+     * @param journalDirectory The directory of the journal, or null to run without one.
+     * @throws IOException if the socket cannot be opened or the journal cannot be read.
+     */
+    public GameServer(int port, Path journalDirectory) throws IOException {
+        this.selector = Selector.open();
+        this.serverChannel = ServerSocketChannel.open();
+        this.serverChannel.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), port));
+        this.serverChannel.configureBlocking(false);
+        this.serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+        this.sessions = new HashMap<>();
+        this.sessionOwners = new HashMap<>();
+        this.runningSearches = new HashMap<>();
+        this.completedSearches = new ConcurrentLinkedQueue<>();
+        this.coalescer = new SearchCoalescer(SearchCoalescer.DEFAULT_TTL_MILLIS);
+        this.readBuffer = ByteBuffer.allocate(READ_BUFFER_SIZE + MAX_CHARACTER_BYTES);
+        this.decodedBuffer = CharBuffer.allocate(READ_BUFFER_SIZE + MAX_CHARACTER_BYTES);
+        this.slowConnections = new ArrayDeque<>();
+        this.searchBudget = SearchEngines.configuredBudget();
+        this.moveDeadlineMillis = searchBudget.hasTimeLimit() ? searchBudget.getTimeLimitMillis() : DEFAULT_MOVE_DEADLINE_MILLIS;
+        this.nextSessionId = 1;
+        MetricsRegistry metrics = MetricsRegistry.getShared();
+        metrics.gauge("server_active_sessions", "Games hosted by the game server.", () -> activeSessions);
+        metrics.counter("coalescer_started_searches_total", "AI searches started by the game server.", coalescer::getStartedSearches);
+        metrics.counter("coalescer_joined_searches_total", "AI searches that joined an identical running search.",
+                coalescer::getJoinedSearches);
+        metrics.counter("coalescer_cache_hits_total", "AI searches answered from a recently finished identical search.",
+                coalescer::getCacheHits);
+        if (journalDirectory != null) {
+            openJournal(journalDirectory);
+        }
+    }
+
+    /**
+     * Returns the port the server listens on.
+     *
+     * @return The local port.
+     * @throws IOException if the port cannot be determined.
+     */
+    public int getPort() throws IOException {
+        return ((InetSocketAddress) serverChannel.getLocalAddress()).getPort();
+    }
+
+    /**
+     * Serves connections on the calling thread until {@link #stop()} is called.
+     *
+     * @throws IOException if the selector fails.
+     */
+    public void run() throws IOException {
+        running = true;
+        System.out.println("Game server listening on port " + getPort());
+        while (running) {
+            selector.select();
+            Runnable completed;
+            while ((completed = completedSearches.poll()) != null) {
+                completed.run();
+            }
+            Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+            while (keys.hasNext()) {
+                SelectionKey key = keys.next();
+                keys.remove();
+                if (!key.isValid()) {
+                    continue;
+                }
+                try {
+                    if (key.isAcceptable()) {
+                        accept();
+                    } else {
+                        Connection connection = (Connection) key.attachment();
+                        if (key.isReadable()) {
+                            read(connection);
+                        }
+                        if (key.isValid() && key.isWritable()) {
+                            connection.flush();
+                        }
+                    }
+                } catch (IOException e) {
+                    if (key.attachment() instanceof Connection connection) {
+                        close(connection);
+                    }
+                }
+            }
+            closeSlowConnections();
+        }
+        // The journal is closed first, so the games that are still running can be resumed after a restart.
+        if (journal != null) {
+            journal.close();
+            journal = null;
+        }
+        for (SelectionKey key : selector.keys()) {
+            if (key.attachment() instanceof Connection connection) {
+                close(connection);
+            }
+        }
+        serverChannel.close();
+        selector.close();
+        System.out.println("Searches started: " + coalescer.getStartedSearches() + ", joined: "
+                + coalescer.getJoinedSearches() + ", answered from cache: " + coalescer.getCacheHits());
+    }
+
+    /**
+     * Stops the server. Can be called from any thread.
+     */
+    public void stop() {
+        running = false;
+        selector.wakeup();
+    }
+
+    /**
+     * Accepts a new client connection.
+     */
+    private void accept() throws IOException {
+        SocketChannel channel = serverChannel.accept();
+        if (channel == null) {
+            return;
+        }
+        channel.configureBlocking(false);
+        SelectionKey key = channel.register(selector, SelectionKey.OP_READ);
+        key.attach(new Connection(channel, key, slowConnections));
+    }
+
+    /**
+     * Closes the connections whose clients stopped reading their answers, see {@link Connection#send(String)}.
+     * They are closed here, between commands, and not in the middle of the command that overflowed them.
+     */
+    private void closeSlowConnections() {
+        Connection connection;
+        while ((connection = slowConnections.poll()) != null) {
+            System.out.println("Closing a connection whose client does not read its answers");
+            close(connection);
+        }
+    }
+
+    /**
+     * Reads the available bytes of a connection, decodes them as UTF-8 and handles every complete line.
+     * The bytes of a character split between two reads are kept by the connection until the next read.
+     */
+    private void read(Connection connection) throws IOException {
+        readBuffer.clear();
+        readBuffer.put(connection.partialCharacter.flip());
+        connection.partialCharacter.clear();
+        readBuffer.limit(readBuffer.position() + READ_BUFFER_SIZE);
+        int read = connection.channel.read(readBuffer);
+        if (read < 0) {
+            close(connection);
+            return;
+        }
+        readBuffer.flip();
+        decodedBuffer.clear();
+        // No UTF-8 byte decodes to more than one char, so the decoded buffer is never too small
+        connection.decoder.decode(readBuffer, decodedBuffer, false);
+        connection.partialCharacter.put(readBuffer);
+        decodedBuffer.flip();
+        while (decodedBuffer.hasRemaining() && connection.key.isValid()) {
+            char character = decodedBuffer.get();
+            if (character == '\n') {
+                String line = connection.pendingLine.toString().strip();
+                connection.pendingLine.setLength(0);
+                if (!line.isEmpty()) {
+                    try {
+                        handleCommand(connection, line);
+                    } catch (RuntimeException e) {
+                        System.out.println("Error while handling \"" + line + "\": " + e);
+                        connection.send("ERROR 0 internal error");
+                    }
+                }
+            } else if (connection.pendingLine.length() >= MAX_LINE_LENGTH) {
+                connection.send("ERROR 0 line too long");
+                close(connection);
+            } else {
+                connection.pendingLine.append(character);
+            }
+        }
+    }
+
+    /**
+     * Handles one command line of a client.
+     */
+    private void handleCommand(Connection connection, String line) {
+        String[] parts = line.split("\\s+", 3);
+        String command = parts[0].toUpperCase();
+        if (command.equals("NEW")) {
+            createSession(connection);
+            return;
+        }
+        if (command.equals("RESUME")) {
+            resumeSession(connection, parts.length > 1 ? parts[1] : "");
+            return;
+        }
+        if (command.equals("QUIT")) {
+            close(connection);
+            return;
+        }
+        GameSession session = parts.length > 1 ? findSession(connection, parts[1]) : null;
+        if (session == null) {
+            connection.send("ERROR 0 unknown session in: " + line);
+            return;
+        }
+        switch (command) {
+            case "STATE" -> session.sendState();
+            case "ACTION" -> session.submitAction(parts.length > 2 ? parts[2] : "");
+            case "RESPOND" -> session.respond(parts.length > 2 ? parts[2] : "");
+            case "CLOSE" -> closeSession(session);
+            default -> connection.send("ERROR " + session.getId() + " unknown command " + parts[0]);
+        }
+    }
+
+    /**
+     * Starts a new game for a connection.
+     */
+    private void createSession(Connection connection) {
+        GameSession session = new GameSession(nextSessionId++, connection::send, this::requestAIMove, this::journal);
+        sessions.put(session.getId(), session);
+        activeSessions = sessions.size();
+        sessionOwners.put(session, connection);
+        connection.sessions.add(session);
+        connection.send("CREATED " + session.getId());
+        session.start();
+    }
+
+    /**
+     * Hands a game restored from the journal over to a connection and continues it.
+     */
+    private void resumeSession(Connection connection, String id) {
+        GameSession session;
+        try {
+            session = sessions.get(Integer.parseInt(id));
+        } catch (NumberFormatException e) {
+            session = null;
+        }
+        if (session == null || sessionOwners.containsKey(session)) {
+            connection.send("ERROR 0 no game to resume with id " + id);
+            return;
+        }
+        sessionOwners.put(session, connection);
+        connection.sessions.add(session);
+        connection.send("RESUMED " + session.getId());
+        session.resume();
+    }
+
+    /**
+     * Finds a session of a connection by its id. Sessions of other connections cannot be addressed.
+     */
+    private GameSession findSession(Connection connection, String id) {
+        try {
+            GameSession session = sessions.get(Integer.parseInt(id));
+            return session != null && sessionOwners.get(session) == connection ? session : null;
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Schedules the search of the AI move of a session, or joins an identical search of another session.
+     * The result is handed back to the selector thread.
+     */
+    private void requestAIMove(GameSession session) {
+        Game state = session.copyGameForSearch();
+        SearchEngine engine = SearchEngines.fromConfiguration(state);
+        long requestedNanos = System.nanoTime();
+        CompletableFuture<SearchResult> search = coalescer.search(engine.getName(), state, searchBudget,
+                () -> SearchScheduler.getShared().submit(engine, state, searchBudget, moveDeadlineMillis));
+        runningSearches.put(session, search);
+        search.whenComplete((result, error) -> {
+            GameMetrics.AI_MOVE_LATENCY.recordMicrosSince(requestedNanos);
+            completedSearches.add(() -> finishSearch(session, search, error == null ? result : null));
+            selector.wakeup();
+        });
+    }
+
+    /**
+     * Applies a finished search on the selector thread, unless its session was closed in the meantime.
+     */
+    private void finishSearch(GameSession session, CompletableFuture<SearchResult> search, SearchResult result) {
+        if (runningSearches.get(session) != search) {
+            return;
+        }
+        runningSearches.remove(session);
+        if (sessions.containsKey(session.getId())) {
+            session.applyAIMove(result);
+        }
+    }
+
+    /**
+     * Ends a game and cancels its search.
+     */
+    private void closeSession(GameSession session) {
+        if (sessions.remove(session.getId()) != null) {
+            journal(JournalRecord.closed(session.getId()));
+        }
+        activeSessions = sessions.size();
+        Connection owner = sessionOwners.remove(session);
+        if (owner != null) {
+            owner.sessions.remove(session);
+        }
+        CompletableFuture<SearchResult> search = runningSearches.remove(session);
+        if (search != null) {
+            search.cancel(false);
+        }
+    }
+
+    /**
+     * Restores the live games of a journal and opens it for the new turns. Restored games have no owner until
+     * a client resumes them. New games get identifiers above every game in the journal, also the finished ones,
+     * so that an identifier names one game of the journal.
+     */
+    private void openJournal(Path directory) throws IOException {
+        nextSessionId = Math.max(nextSessionId, GameJournal.findHighestSessionId(directory) + 1);
+        for (GameSnapshot snapshot : GameJournal.recover(directory).values()) {
+            int id = snapshot.getSessionId();
+            GameSession session = new GameSession(snapshot, line -> sendToOwner(id, line), this::requestAIMove,
+                    this::journal);
+            sessions.put(id, session);
+            nextSessionId = Math.max(nextSessionId, id + 1);
+        }
+        activeSessions = sessions.size();
+        if (!sessions.isEmpty()) {
+            System.out.println("Restored " + sessions.size() + " games from the journal in " + directory);
+        }
+        journal = new GameJournal(directory, this::snapshotLiveGames);
+    }
+
+    /**
+     * Sends a line of a restored session to the connection that resumed it.
+     */
+    private void sendToOwner(int sessionId, String line) {
+        Connection owner = sessionOwners.get(sessions.get(sessionId));
+        if (owner != null) {
+            owner.send(line);
+        }
+    }
+
+    /**
+     * Returns the states of all games that are not over, at the start of their current turns.
+     */
+    private List<GameSnapshot> snapshotLiveGames() {
+        List<GameSnapshot> games = new ArrayList<>(sessions.size());
+        for (GameSession session : sessions.values()) {
+            if (session.getPhase() != GameSession.Phase.GAME_OVER) {
+                games.add(session.getTurnStart());
+            }
+        }
+        return games;
+    }
+
+    /**
+     * Appends a record to the journal, if there is one. The journal is given up after a write error,
+     * so a full disk stops the journaling but not the games.
+     */
+    private void journal(JournalRecord record) {
+        if (journal == null) {
+            return;
+        }
+        try {
+            journal.append(record);
+        } catch (IOException | RuntimeException e) {
+            System.out.println("Journaling stopped after an error: " + e);
+            try {
+                journal.close();
+            } catch (IOException closeError) {
+                System.out.println("Error while closing the journal: " + closeError.getMessage());
+            }
+            journal = null;
+        }
+    }
+
+    /**
+     * Closes a connection together with all of its games.
+     */
+    private void close(Connection connection) {
+        for (GameSession session : connection.sessions.toArray(new GameSession[0])) {
+            closeSession(session);
+        }
+        connection.key.cancel();
+        try {
+            connection.channel.close();
+        } catch (IOException e) {
+            System.out.println("Error while closing a connection: " + e.getMessage());
+        }
+    }
+
+    /**
+     * The state of one client connection: its channel, the line being read and the bytes waiting to be written.
+     */
+    private static class Connection {
+        private final SocketChannel channel;
+        private final SelectionKey key;
+        private final CharsetDecoder decoder;
+        private final ByteBuffer partialCharacter;
+        private final StringBuilder pendingLine;
+        private final Queue<ByteBuffer> pendingWrites;
+        private final Queue<Connection> slowConnections;
+        private final Set<GameSession> sessions;
+        private int pendingWriteBytes;
+        private boolean slow;
+
+        private Connection(SocketChannel channel, SelectionKey key, Queue<Connection> slowConnections) {
+            this.channel = channel;
+            this.key = key;
+            this.decoder = StandardCharsets.UTF_8.newDecoder()
+                    .onMalformedInput(CodingErrorAction.REPLACE)
+                    .onUnmappableCharacter(CodingErrorAction.REPLACE);
+            this.partialCharacter = ByteBuffer.allocate(MAX_CHARACTER_BYTES);
+            this.pendingLine = new StringBuilder();
+            this.pendingWrites = new ArrayDeque<>();
+            this.slowConnections = slowConnections;
+            this.sessions = new LinkedHashSet<>();
+        }
+
+        /**
+         * Queues a line for the client, it is written as soon as the socket is ready. If the client has stopped
+         * reading and too many bytes are waiting, the queued lines are dropped and the connection is handed to
+         * the server to be closed.
+         */
+        private void send(String line) {
+            if (!key.isValid() || slow) {
+                return;
+            }
+            ByteBuffer buffer = ByteBuffer.wrap((line + "\n").getBytes(StandardCharsets.UTF_8));
+            if (pendingWriteBytes + buffer.remaining() > MAX_PENDING_WRITE_BYTES) {
+                slow = true;
+                pendingWrites.clear();
+                pendingWriteBytes = 0;
+                slowConnections.add(this);
+                return;
+            }
+            pendingWrites.add(buffer);
+            pendingWriteBytes += buffer.remaining();
+            key.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+        }
+
+        /**
+         * Writes the queued lines until the socket buffer is full, and asks the selector
+         * for write readiness while anything is left.
+         */
+        private void flush() throws IOException {
+            while (!pendingWrites.isEmpty()) {
+                ByteBuffer buffer = pendingWrites.peek();
+                pendingWriteBytes -= channel.write(buffer);
+                if (buffer.hasRemaining()) {
+                    break;
+                }
+                pendingWrites.poll();
+            }
+            if (key.isValid()) {
+                key.interestOps(pendingWrites.isEmpty() ? SelectionKey.OP_READ : SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+            }
+        }
+    }
+
+    /**
+     * Starts a game server, and a metrics server if its port is configured. The endgame tablebase starts loading
+     * right away, so it is usually ready before the first search.
+     *
+     * @param args The port to listen on, defaults to {@value #DEFAULT_PORT}.
+     * @throws IOException if the server cannot be started.
+     */
+    public static void main(String[] args) throws IOException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_PORT;
+        MetricsServer.startFromConfiguration();
+        EndgameTablebase.loadDefaultInBackground();
+        new GameServer(port).run();
+    }
+}
@@ -0,0 +1,631 @@
+package com.example.demo6.Server;
+
+import com.example.demo6.AI.HeuristicEngine;
+import com.example.demo6.AI.SearchBudget;
+import com.example.demo6.AI.SearchResult;
+import com.example.demo6.Model.Actions.Action;
+import com.example.demo6.Model.Actions.ActionCode;
+import com.example.demo6.Model.Actions.BlockAction;
+import com.example.demo6.Model.Card;
+import com.example.demo6.Model.Deck;
+import com.example.demo6.Model.Game;
+import com.example.demo6.Model.Player;
+import com.example.demo6.Persistence.GameSnapshot;
+import com.example.demo6.Persistence.JournalRecord;
+
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+import static com.example.demo6.AI.Heuristic.*;
+
+/**
+ * A single game between a remote human player and the AI, played over the line protocol of {@link GameServer}.
+ * The session follows the same rules as {@link com.example.demo6.Controller.GameController}, but it never blocks:
+ * whenever the human player has to decide something, the session sends a prompt, stores the rest of the turn
+ * as a continuation and returns. The answer to the prompt resumes the turn where it stopped.
+ * AI moves are requested from the server, which searches them on the shared pool and hands the result back.
+ * Every finished turn is reported to a journal as a {@link JournalRecord}, from which a session can be restored
+ * at the start of the turn that was in progress.
+ * A session is confined to the selector thread of the server and is not thread-safe.
+ */
+public class GameSession {
+    private static final int CARDS_KEPT_AFTER_SWAP = 2;
+
+    /**
+     * The state of the session, which determines the input it accepts next.
+     */
+    public enum Phase {
+        AWAITING_ACTION,
+        AWAITING_CHALLENGE,
+        AWAITING_BLOCK,
+        AWAITING_BLOCK_CHALLENGE,
+        AWAITING_CARD_TO_LOSE,
+        AWAITING_CARDS_TO_KEEP,
+        AI_THINKING,
+        GAME_OVER
+    }
+
+    private final int id;
+    private final Game game;
+    private final Player humanPlayer;
+    private final Player aiPlayer;
+    private final Consumer<String> output;
+    private final Consumer<GameSession> aiMoveRequester;
+    private final Consumer<JournalRecord> journal;
+    private Player currentPlayer;
+    private Phase phase;
+    private Consumer<String> continuation;
+    private int turn;
+    private GameSnapshot turnStart;
+    private TurnLog turnLog;
+
+    /**
+     * Constructs a session with a freshly dealt game, where the human player moves first.
+     *
+     * @param id The identifier of the session, unique within the server.
+     * @param output The sink of the protocol lines sent to the client.
+     * @param aiMoveRequester Called when the AI is to move, the server answers with {@link #applyAIMove(SearchResult)}.
+     */
+    public GameSession(int id, Consumer<String> output, Consumer<GameSession> aiMoveRequester) {
+        this(id, output, aiMoveRequester, record -> {
+        });
+    }
+
+    /**
+     * Constructs a journaled session with a freshly dealt game, where the human player moves first.
+     *
+     * @param id The identifier of the session, unique within the server.
+     * @param output The sink of the protocol lines sent to the client.
+     * @param aiMoveRequester Called when the AI is to move, the server answers with {@link #applyAIMove(SearchResult)}.
+     * @param journal Receives the record of the new game and of every finished turn.
+     */
+    public GameSession(int id, Consumer<String> output, Consumer<GameSession> aiMoveRequester,
+                       Consumer<JournalRecord> journal) {
+        this(id, newGame(), 0, output, aiMoveRequester, journal);
+    }
+
+    /**
+     * Constructs a session that continues a game restored from the journal, at the start of a turn.
+     * The session is continued by {@link #resume()}.
+     *
+     * @param snapshot The state of the game at the start of the turn.
+     * @param output The sink of the protocol lines sent to the client.
+     * @param aiMoveRequester Called when the AI is to move, the server answers with {@link #applyAIMove(SearchResult)}.
+     * @param journal Receives the record of every finished turn.
+     */
+    public GameSession(GameSnapshot snapshot, Consumer<String> output, Consumer<GameSession> aiMoveRequester,
+                       Consumer<JournalRecord> journal) {
+        this(snapshot.getSessionId(), snapshot.toGame(Game.HUMAN_PLAYER_NAME, Game.AI_PLAYER_NAME), snapshot.getTurn(), output,
+                aiMoveRequester, journal);
+    }
+
+    /**
+     * Constructs a session for a game at the start of a turn.
+     */
+    private GameSession(int id, Game game, int turn, Consumer<String> output, Consumer<GameSession> aiMoveRequester,
+                        Consumer<JournalRecord> journal) {
+        this.id = id;
+        this.output = output;
+        this.aiMoveRequester = aiMoveRequester;
+        this.journal = journal;
+        this.game = game;
+        this.humanPlayer = game.getHumanPlayer();
+        this.aiPlayer = game.getAIPlayer();
+        this.currentPlayer = game.getCurrentPlayer();
+        this.turn = turn;
+        this.turnStart = GameSnapshot.of(id, turn, game, currentPlayer == aiPlayer);
+    }
+
+    /**
+     * Deals a new game between the human player and the AI player.
+     */
+    private static Game newGame() {
+        Game game = new Game(new Deck(EnumSet.allOf(Deck.CardType.class), Deck.NUMBER_OF_COPIES));
+        game.addPlayer(new Player(Game.HUMAN_PLAYER_NAME));
+        game.addPlayer(new Player(Game.AI_PLAYER_NAME));
+        return game;
+    }
+
+    /**
+     * Returns the identifier of the session.
+     *
+     * @return The session identifier.
+     */
+    public int getId() {
+        return id;
+    }
+
+    /**
+     * Returns the state of the session.
+     *
+     * @return The current phase.
+     */
+    public Phase getPhase() {
+        return phase;
+    }
+
+    /**
+     * Returns the state of the game at the start of the current turn, the state the session is restored to
+     * after a crash.
+     *
+     * @return The snapshot of the game.
+     */
+    public GameSnapshot getTurnStart() {
+        return turnStart;
+    }
+
+    /**
+     * Creates a copy of the game for the AI search, so the search never touches the live game.
+     *
+     * @return A deep copy of the game, with the AI player to move.
+     */
+    public Game copyGameForSearch() {
+        return game.deepCopy();
+    }
+
+    /**
+     * Starts the game by sending the initial state and prompting the player to move first.
+     */
+    public void start() {
+        journal.accept(JournalRecord.created(turnStart));
+        sendState();
+        beginTurn();
+    }
+
+    /**
+     * Continues a restored game by sending its state and starting the turn that was in progress again.
+     */
+    public void resume() {
+        continuation = null;
+        sendState();
+        beginTurn();
+    }
+
+    /**
+     * Sends the public state of the game to the client.
+     */
+    public void sendState() {
+        send("STATE", "turn=" + (currentPlayer == aiPlayer ? "AI" : "HUMAN")
+                + " human=" + humanPlayer.getCoins() + ":" + cardNames(humanPlayer.getCards())
+                + " ai=" + aiPlayer.getCoins() + ":" + aiPlayer.getCards().size()
+                + " deck=" + game.getDeck().getSize());
+    }
+
+    /**
+     * Plays the action chosen by the human player.
+     *
+     * @param code The name of the action code, case-insensitive.
+     */
+    public void submitAction(String code) {
+        if (phase != Phase.AWAITING_ACTION) {
+            sendError("not expecting an action");
+            return;
+        }
+        ActionCode actionCode = parseActionCode(code);
+        Action action = actionCode == null ? null : findAction(game.getAvailableActions(humanPlayer), actionCode);
+        if (action == null) {
+            sendError("illegal action " + code);
+            promptForAction();
+            return;
+        }
+        playAction(action);
+    }
+
+    /**
+     * Answers the pending prompt and resumes the turn.
+     *
+     * @param answer The answer of the client: yes or no, a card type, or two comma separated card types.
+     */
+    public void respond(String answer) {
+        if (continuation == null) {
+            sendError("no question pending");
+            return;
+        }
+        Consumer<String> resume = continuation;
+        continuation = null;
+        resume.accept(answer);
+    }
+
+    /**
+     * Plays the move found by the AI search. The result is ignored if the session is no longer waiting for it.
+     *
+     * @param result The result of the search, whose action refers to the copied game.
+     */
+    public void applyAIMove(SearchResult result) {
+        if (phase != Phase.AI_THINKING) {
+            return;
+        }
+        List<Action> availableActions = game.getAvailableActions(aiPlayer);
+        Action action = result == null || result.getAction() == null
+                ? null : findAction(availableActions, result.getActionCode());
+        if (action == null) {
+            action = new HeuristicEngine().bestMove(game, SearchBudget.simulations(0)).getAction();
+        }
+        send("EVENT", "AI plays " + action.actionCodeToString());
+        playAction(action);
+    }
+
+    /**
+     * Plays the move of the AI heuristically, when the search could not be run.
+     */
+    public void applyFallbackAIMove() {
+        applyAIMove(null);
+    }
+
+    /**
+     * Starts the turn of the current player: the human player is prompted, the AI move is requested from the server.
+     */
+    private void beginTurn() {
+        if (currentPlayer == aiPlayer) {
+            phase = Phase.AI_THINKING;
+            aiMoveRequester.accept(this);
+        } else {
+            promptForAction();
+        }
+    }
+
+    /**
+     * Prompts the human player to choose one of the available actions.
+     */
+    private void promptForAction() {
+        phase = Phase.AWAITING_ACTION;
+        send("PROMPT", "ACTION " + game.getAvailableActions(humanPlayer).stream()
+                .map(Action::actionCodeToString)
+                .collect(Collectors.joining(",")));
+    }
+
+    /**
+     * Plays an action of the current player, starting with the chance of the opponent to challenge it.
+     */
+    private void playAction(Action action) {
+        turnLog = new TurnLog(currentPlayer == aiPlayer, action.getActionCode());
+        Player opponent = game.getOpponent(currentPlayer);
+        if (!action.canBeChallenged) {
+            afterChallenge(action, true);
+            return;
+        }
+        decide(opponent, Phase.AWAITING_CHALLENGE, "CHALLENGE " + action.actionCodeToString(),
+                () -> simulateChallenge(game, action), challenged -> {
+            if (!challenged) {
+                afterChallenge(action, true);
+                return;
+            }
+            send("EVENT", opponent.getName() + " challenges " + currentPlayer.getName() + "'s action");
+            turnLog.outcome |= JournalRecord.CHALLENGED;
+            if (action.challenge()) {
+                send("EVENT", "Challenge failed. " + opponent.getName() + " loses a card");
+                loseCard(opponent, () -> afterChallenge(action, true));
+            } else {
+                send("EVENT", "Challenge successful. " + currentPlayer.getName() + " loses a card");
+                turnLog.outcome |= JournalRecord.CHALLENGE_SUCCEEDED;
+                loseCard(currentPlayer, () -> afterChallenge(action, false));
+            }
+        });
+    }
+
+    /**
+     * Continues an action after the challenge step, with the chance of the opponent to block it.
+     */
+    private void afterChallenge(Action action, boolean proceed) {
+        if (!proceed || game.isGameOver()) {
+            endTurn();
+            return;
+        }
+        if (!action.canBeBlocked) {
+            carryOut(action);
+            return;
+        }
+        Player opponent = game.getOpponent(currentPlayer);
+        decide(opponent, Phase.AWAITING_BLOCK, "BLOCK " + action.actionCodeToString(),
+                () -> simulateBlock(game, action), blocked -> {
+            if (!blocked) {
+                carryOut(action);
+                return;
+            }
+            send("EVENT", opponent.getName() + " blocks " + currentPlayer.getName() + "'s action");
+            turnLog.outcome |= JournalRecord.BLOCKED;
+            decide(currentPlayer, Phase.AWAITING_BLOCK_CHALLENGE, "CHALLENGE_BLOCK " + action.actionCodeToString(),
+                    () -> simulateBlockChallenge(game, action), challenged -> {
+                if (!challenged) {
+                    endTurn();
+                    return;
+                }
+                send("EVENT", currentPlayer.getName() + " challenges the block by " + opponent.getName());
+                turnLog.outcome |= JournalRecord.BLOCK_CHALLENGED;
+                BlockAction blockAction = new BlockAction(opponent, currentPlayer, action);
+                if (blockAction.execute(true, false)) {
+                    loseCard(currentPlayer, this::endTurn);
+                } else {
+                    turnLog.outcome |= JournalRecord.BLOCK_CHALLENGE_SUCCEEDED;
+                    loseCard(opponent, () -> {
+                        if (game.isGameOver()) {
+                            endTurn();
+                        } else {
+                            carryOut(action);
+                        }
+                    });
+                }
+            });
+        });
+    }
+
+    /**
+     * Carries out an action that was neither stopped by a challenge nor by a block,
+     * asking for the cards it needs first.
+     */
+    private void carryOut(Action action) {
+        if (action.getActionCode() == ActionCode.SWAP) {
+            List<Card> newCards = game.getDeck().drawCards(2);
+            if (currentPlayer == aiPlayer) {
+                executeSwap(action, selectCardsToKeep(game, aiPlayer, newCards), newCards);
+                return;
+            }
+            List<Card> swapOptions = new ArrayList<>(humanPlayer.getCards());
+            swapOptions.addAll(newCards);
+            promptForCardsToKeep(action, swapOptions, newCards);
+        } else if (action.getActionCode() == ActionCode.COUP || action.getActionCode() == ActionCode.ASSASSINATE) {
+            Player target = game.getOpponent(currentPlayer);
+            chooseCardToLose(target, card -> {
+                List<Card> cards = new ArrayList<>();
+                cards.add(card);
+                game.executeAction(action, cards);
+                turnLog.outcome |= JournalRecord.EXECUTED;
+                if (card != null) {
+                    turnLog.recordLoss(target == aiPlayer, card);
+                }
+                endTurn();
+            });
+        } else {
+            game.executeAction(action, null);
+            turnLog.outcome |= JournalRecord.EXECUTED;
+            endTurn();
+        }
+    }
+
+    /**
+     * Prompts the human player to choose the cards to keep after a swap.
+     * Like in the desktop game, the player always keeps two cards.
+     */
+    private void promptForCardsToKeep(Action action, List<Card> swapOptions, List<Card> newCards) {
+        phase = Phase.AWAITING_CARDS_TO_KEEP;
+        send("PROMPT", "KEEP " + cardNames(swapOptions));
+        continuation = answer -> {
+            List<Card> selectedCards = parseCards(answer, swapOptions, CARDS_KEPT_AFTER_SWAP);
+            if (selectedCards == null) {
+                sendError("choose " + CARDS_KEPT_AFTER_SWAP + " of " + cardNames(swapOptions));
+                promptForCardsToKeep(action, swapOptions, newCards);
+                return;
+            }
+            executeSwap(action, selectedCards, newCards);
+        };
+    }
+
+    /**
+     * Completes a swap with the cards the player decided to keep.
+     */
+    private void executeSwap(Action action, List<Card> selectedCards, List<Card> newCards) {
+        List<Card> cards = new ArrayList<>(selectedCards);
+        cards.addAll(newCards);
+        game.executeAction(action, cards);
+        turnLog.outcome |= JournalRecord.EXECUTED;
+        turnLog.drawnCards.addAll(newCards);
+        turnLog.keptCards.addAll(selectedCards);
+        endTurn();
+    }
+
+    /**
+     * Makes a player lose a card, asking the human player which one, then continues the turn.
+     */
+    private void loseCard(Player player, Runnable next) {
+        chooseCardToLose(player, card -> {
+            if (card != null) {
+                player.returnCard(card);
+                turnLog.recordLoss(player == aiPlayer, card);
+            }
+            next.run();
+        });
+    }
+
+    /**
+     * Determines the card a player gives up: the AI decides heuristically, the human player is prompted.
+     * A player without cards gives up nothing.
+     */
+    private void chooseCardToLose(Player player, Consumer<Card> next) {
+        if (player.getCards().isEmpty()) {
+            next.accept(null);
+            return;
+        }
+        if (player == aiPlayer || player.getCards().size() == 1) {
+            next.accept(player == aiPlayer ? selectCardToGiveUp(game, player) : player.getCards().get(0));
+            return;
+        }
+        phase = Phase.AWAITING_CARD_TO_LOSE;
+        send("PROMPT", "LOSE " + cardNames(player.getCards()));
+        continuation = answer -> {
+            List<Card> chosen = parseCards(answer, player.getCards(), 1);
+            if (chosen == null) {
+                sendError("choose one of " + cardNames(player.getCards()));
+                chooseCardToLose(player, next);
+                return;
+            }
+            next.accept(chosen.get(0));
+        };
+    }
+
+    /**
+     * Lets a player make a yes or no decision: the AI decides immediately, the human player is prompted.
+     */
+    private void decide(Player player, Phase question, String prompt, BooleanSupplier aiDecision,
+                        Consumer<Boolean> next) {
+        if (player == aiPlayer) {
+            next.accept(aiDecision.getAsBoolean());
+            return;
+        }
+        phase = question;
+        send("PROMPT", prompt);
+        continuation = answer -> {
+            Boolean decision = parseYesNo(answer);
+            if (decision == null) {
+                sendError("answer yes or no");
+                decide(player, question, prompt, aiDecision, next);
+                return;
+            }
+            next.accept(decision);
+        };
+    }
+
+    /**
+     * Ends the turn of the current player and starts the next one, or ends the game.
+     */
+    private void endTurn() {
+        if (game.isGameOver()) {
+            phase = Phase.GAME_OVER;
+            boolean aiWon = game.getActivePlayers().get(0) == aiPlayer;
+            journalTurn();
+            journal.accept(JournalRecord.gameOver(id, aiWon));
+            sendState();
+            send("OVER", aiWon ? "AI" : "HUMAN");
+            return;
+        }
+        currentPlayer = game.switchTurns();
+        journalTurn();
+        sendState();
+        beginTurn();
+    }
+
+    /**
+     * Records the finished turn in the journal, together with the state the next turn starts from.
+     */
+    private void journalTurn() {
+        turn++;
+        turnStart = GameSnapshot.of(id, turn, game, currentPlayer == aiPlayer);
+        journal.accept(JournalRecord.move(turnStart, turnLog.byAI, turnLog.actionCode, turnLog.outcome,
+                GameSnapshot.cardTypes(turnLog.humanLostCards), GameSnapshot.cardTypes(turnLog.aiLostCards),
+                GameSnapshot.cardTypes(turnLog.drawnCards), GameSnapshot.cardTypes(turnLog.keptCards)));
+        turnLog = null;
+    }
+
+    /**
+     * Picks the cards named in an answer out of the offered cards.
+     *
+     * @return The chosen cards, or null if the answer does not name exactly the required number of offered cards.
+     */
+    private static List<Card> parseCards(String answer, List<Card> offeredCards, int count) {
+        List<Card> remaining = new ArrayList<>(offeredCards);
+        List<Card> chosen = new ArrayList<>();
+        for (String name : answer.split(",")) {
+            Deck.CardType type;
+            try {
+                type = Deck.CardType.valueOf(name.trim().toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                return null;
+            }
+            Card match = null;
+            for (Card card : remaining) {
+                if (card.getType() == type) {
+                    match = card;
+                    break;
+                }
+            }
+            if (match == null) {
+                return null;
+            }
+            remaining.remove(match);
+            chosen.add(match);
+        }
+        return chosen.size() == count ? chosen : null;
+    }
+
+    /**
+     * Parses a yes or no answer.
+     *
+     * @return The decision, or null if the answer is neither.
+     */
+    private static Boolean parseYesNo(String answer) {
+        return switch (answer.trim().toLowerCase(Locale.ROOT)) {
+            case "yes", "y" -> true;
+            case "no", "n" -> false;
+            default -> null;
+        };
+    }
+
+    /**
+     * Parses the name of an action code.
+     *
+     * @return The action code, or null if there is no such action.
+     */
+    private static ActionCode parseActionCode(String code) {
+        try {
+            return ActionCode.valueOf(code.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Finds the action with the given code in a list of actions.
+     */
+    private static Action findAction(List<Action> actions, ActionCode code) {
+        for (Action action : actions) {
+            if (action.getActionCode() == code) {
+                return action;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Joins the types of a list of cards with commas.
+     */
+    private static String cardNames(List<Card> cards) {
+        return cards.stream().map(card -> card.getType().name()).collect(Collectors.joining(","));
+    }
+
+    /**
+     * Sends an error message of this session to the client.
+     */
+    private void sendError(String message) {
+        send("ERROR", message);
+    }
+
+    /**
+     * Sends a protocol line of this session to the client.
+     */
+    private void send(String type, String message) {
+        output.accept(type + " " + id + " " + message);
+    }
+
+    /**
+     * What happened during the turn in progress, collected for its journal record.
+     */
+    private static class TurnLog {
+        private final boolean byAI;
+        private final ActionCode actionCode;
+        private final List<Card> humanLostCards;
+        private final List<Card> aiLostCards;
+        private final List<Card> drawnCards;
+        private final List<Card> keptCards;
+        private int outcome;
+
+        private TurnLog(boolean byAI, ActionCode actionCode) {
+            this.byAI = byAI;
+            this.actionCode = actionCode;
+            this.humanLostCards = new ArrayList<>(2);
+            this.aiLostCards = new ArrayList<>(2);
+            this.drawnCards = new ArrayList<>(2);
+            this.keptCards = new ArrayList<>(2);
+        }
+
+        /**
+         * Records a card that a player lost during the turn.
+         */
+        private void recordLoss(boolean ai, Card card) {
+            (ai ? aiLostCards : humanLostCards).add(card);
+        }
+    }
+}
@@ -1,6 +1,8 @@
 package com.example.demo6.View;
 
+import com.example.demo6.AI.EndgameTablebase;
 import com.example.demo6.Controller.GameController;
+import com.example.demo6.Metrics.MetricsServer;
 import com.example.demo6.Model.Actions.Action;
 import com.example.demo6.Model.Card;
 import com.example.demo6.Model.Deck;
@@ -37,6 +39,8 @@ public class GameView extends Application {
     private Player currentPlayer;
     private GameController controller;
     public static void main(String[] args) {
+        MetricsServer.startFromConfiguration();
+        EndgameTablebase.loadDefaultInBackground();
         launch(args);
     }
 
@@ -81,12 +85,22 @@ public class GameView extends Application {
     }
 
     /**
-     * Sets the controller for the game.
+     * Sets the controller for the game and subscribes the view to the events of its game.
      *
      * @param controller the controller to be set
      */
     public void setController(GameController controller) {
         this.controller = controller;
+        controller.getEvents().subscribe(new GameViewUpdater(this, controller));
+    }
+
+    /**
+     * Returns the controller of the game that is currently shown.
+     *
+     * @return the current controller
+     */
+    GameController getController() {
+        return controller;
     }
 
     /**
@@ -428,7 +442,8 @@ public class GameView extends Application {
         newGameButton = new Button("New Game");
         newGameButton.setFont(new Font("Arial", 16));
         newGameButton.setOnAction(event -> {
-            // Reset the game state and initialize a new game
+            // Stop the AI of the abandoned game, then reset the game state and initialize a new game
+            controller.shutdown();
             controller = new GameController(this, new Game(new Deck(EnumSet.allOf(Deck.CardType.class), Deck.NUMBER_OF_COPIES)));
             Platform.runLater(() -> {
                 controller.initializeGame();
@@ -466,14 +481,14 @@ public class GameView extends Application {
     /**
      * Displays the winner in the alert box.
      *
-     * @param winner the winner of the game
+     * @param winnerName the name of the winner of the game
      */
-    public void displayWinner(Player winner) {
+    public void displayWinner(String winnerName) {
         Platform.runLater(() -> {
             Alert alert = new Alert(Alert.AlertType.INFORMATION);
             alert.setTitle("Game Over");
             alert.setHeaderText(null);
-            alert.setContentText("The game is over. The winner is " + winner.getName() + "!");
+            alert.setContentText("The game is over. The winner is " + winnerName + "!");
 
             alert.showAndWait();
         });
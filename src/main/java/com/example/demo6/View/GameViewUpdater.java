@@ -0,0 +1,111 @@
+package com.example.demo6.View;
+
+import com.example.demo6.Controller.GameController;
+import com.example.demo6.Controller.GameEvent;
+import com.example.demo6.Model.Game;
+import com.example.demo6.Model.Player;
+import javafx.application.Platform;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Keeps the {@link GameView} in sync with the events of a game.
+ * Events that arrive in a burst are handled together in a single update on the JavaFX Application Thread:
+ * the view is refreshed once from the state of the game, and the messages of the events are shown in order.
+ */
+class GameViewUpdater implements Flow.Subscriber<GameEvent> {
+    private final GameView view;
+    private final GameController controller;
+    private final Queue<GameEvent> pendingEvents;
+    private final AtomicBoolean updateScheduled;
+
+    /**
+     * Constructs an updater for the view of a game.
+     *
+     * @param view The view to update.
+     * @param controller The controller whose game is shown, its state is read on the JavaFX Application Thread.
+     */
+    GameViewUpdater(GameView view, GameController controller) {
+        this.view = view;
+        this.controller = controller;
+        this.pendingEvents = new ConcurrentLinkedQueue<>();
+        this.updateScheduled = new AtomicBoolean();
+    }
+
+    @Override
+    public void onSubscribe(Flow.Subscription subscription) {
+        // Events are only queued here, so the updater can always keep up.
+        subscription.request(Long.MAX_VALUE);
+    }
+
+    @Override
+    public void onNext(GameEvent event) {
+        pendingEvents.add(event);
+        if (updateScheduled.compareAndSet(false, true)) {
+            Platform.runLater(this::update);
+        }
+    }
+
+    @Override
+    public void onError(Throwable error) {
+        System.out.println("The game event stream of the view failed: " + error);
+    }
+
+    @Override
+    public void onComplete() {
+    }
+
+    /**
+     * Handles all pending events with a single refresh of the view. Events of a game that was replaced in the
+     * meantime are discarded.
+     */
+    private void update() {
+        updateScheduled.set(false);
+        List<GameEvent> events = new ArrayList<>();
+        GameEvent event;
+        while ((event = pendingEvents.poll()) != null) {
+            events.add(event);
+        }
+        if (events.isEmpty() || view.getController() != controller) {
+            return;
+        }
+        boolean started = events.stream().anyMatch(e -> e.getType() == GameEvent.Type.GAME_STARTED);
+        refresh(started);
+        for (GameEvent e : events) {
+            switch (e.getType()) {
+                case CHALLENGED, CHALLENGE_RESOLVED, BLOCKED, BLOCK_CHALLENGED -> view.displayMessage(e.getDescription());
+                case ACTION_DECLARED -> {
+                    if (e.isByAI()) {
+                        view.displayMessage(e.getDescription());
+                    }
+                }
+                case GAME_OVER -> view.displayWinner(e.getPlayerName());
+                default -> {
+                }
+            }
+        }
+    }
+
+    /**
+     * Shows the current state of the game.
+     *
+     * @param started true if the game has just started and the deck area has to be created.
+     */
+    private void refresh(boolean started) {
+        Game game = controller.getGame();
+        Player currentPlayer = controller.getCurrentPlayer();
+        view.updatePlayerInfo(game.getPlayers());
+        view.updateCurrentPlayer(currentPlayer);
+        view.updateAvailableActions(game.getAvailableActions(currentPlayer));
+        if (started) {
+            view.createCardStackArea(game.getDeck());
+        } else {
+            view.updateDeckInfo(game.getDeck());
+        }
+    }
+}
@@ -1,6 +1,8 @@
 module com.example.demo6 {
     requires javafx.controls;
     requires javafx.fxml;
+    requires jdk.httpserver;
+    requires jdk.management;
 
 
     opens com.example.demo6 to javafx.fxml;
@@ -15,4 +17,14 @@ module com.example.demo6 {
     opens com.example.demo6.View to javafx.fxml;
     exports com.example.demo6.AI;
     opens com.example.demo6.AI to javafx.fxml;
+    exports com.example.demo6.Server;
+    opens com.example.demo6.Server to javafx.fxml;
+    exports com.example.demo6.Protocol;
+    opens com.example.demo6.Protocol to javafx.fxml;
+    exports com.example.demo6.Metrics;
+    opens com.example.demo6.Metrics to javafx.fxml;
+    exports com.example.demo6.Persistence;
+    opens com.example.demo6.Persistence to javafx.fxml;
+    exports com.example.demo6.Analytics;
+    opens com.example.demo6.Analytics to javafx.fxml;
 }
\ No newline at end of file
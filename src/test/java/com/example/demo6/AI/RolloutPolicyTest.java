@@ -0,0 +1,188 @@
+package com.example.demo6.AI;
+
+import com.example.demo6.Model.Actions.Action;
+import com.example.demo6.Model.Actions.ActionCode;
+import com.example.demo6.Model.Actions.AssassinateAction;
+import com.example.demo6.Model.Actions.CoupAction;
+import com.example.demo6.Model.Actions.ForeignAidAction;
+import com.example.demo6.Model.Actions.IncomeAction;
+import com.example.demo6.Model.Actions.StealAction;
+import com.example.demo6.Model.Actions.SwapAction;
+import com.example.demo6.Model.Actions.TaxAction;
+import com.example.demo6.Model.Card;
+import com.example.demo6.Model.Deck;
+import com.example.demo6.Model.Game;
+import com.example.demo6.Model.Player;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+
+import static com.example.demo6.Model.Deck.CardType.*;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Checks the compiled rollout policy of {@link Heuristic} against the rule cascade it was compiled from.
+ * The cascade is kept here in its original form, working on real players and action lists, and both are asked
+ * for a decision in every position of a grid: 0 to 12 coins, every hand of one or two cards, 0 to 2 cards and
+ * a few coin counts for the opponent, and every subset of the actions in the order of
+ * {@link Game#getAvailableActions(Player)}. The random fallback of the cascade is compared as a decision of its own.
+ */
+class RolloutPolicyTest {
+    private static final int MAX_COINS = 12;
+    private static final int[] OPPONENT_COINS = {0, 1, 2, 5};
+    private static final int MAX_OPPONENT_CARDS = 2;
+    private static final int MAX_SAMPLES = 10;
+
+    /**
+     * Applies the original heuristic rule cascade, as it was before it was compiled into a table.
+     *
+     * @param availableActions The actions the player to move can take, in the order of the game.
+     * @param aiPlayer The player to move.
+     * @param humanPlayer The opponent.
+     * @return The ordinal of the chosen action code, {@link Heuristic#NO_DECISION} if the rule that applies finds
+     *         no matching action, or {@link Heuristic#RANDOM_DECISION} for the random fallback.
+     */
+    private static byte applyRuleCascade(List<Action> availableActions, Player aiPlayer, Player humanPlayer) {
+        int aiPlayerCoins = aiPlayer.getCoins();
+        int humanPlayerCoins = humanPlayer.getCoins();
+        int humanPlayerCardCount = humanPlayer.getCards().size();
+
+        // Immediate winning moves: If human player has 1 card, prioritize COUP or ASSASSINATE if possible.
+        if (aiPlayerCoins >= 7) {
+            return decisionOf(availableActions.stream()
+                    .filter(action -> action.getActionCode() == ActionCode.COUP)
+                    .findFirst()
+                    .orElse(null));
+        }
+
+        if (aiPlayerCoins >= 3 && aiPlayer.hasCard(ASSASSIN)) { // Assassinate if possible.
+            return decisionOf(availableActions.stream()
+                    .filter(action -> action.getActionCode() == ActionCode.ASSASSINATE)
+                    .findFirst()
+                    .orElse(null));
+        }
+
+        // Use Duke to collect taxes if available to maximize coin gain safely.
+        if (aiPlayer.hasCard(DUKE)) {
+            return decisionOf(availableActions.stream()
+                    .filter(action -> action.getActionCode() == ActionCode.TAX)
+                    .findFirst()
+                    .orElse(null));
+        }
+
+        // Use Captain to steal if the human player has coins and the AI has the Captain.
+        if (aiPlayer.hasCard(CAPTAIN) && humanPlayerCoins > 0) {
+            return decisionOf(availableActions.stream()
+                    .filter(action -> action.getActionCode() == ActionCode.STEAL)
+                    .findFirst()
+                    .orElse(null));
+        }
+
+        // If the AI has enough coins to coup on the next turn, consider gaining more coins or keeping a low profile.
+        if (aiPlayerCoins >= 5) {
+            if (aiPlayerCoins == 6) {
+                return decisionOf(availableActions.stream()
+                        .filter(action -> action.getActionCode() == ActionCode.FOREIGN_AID || action.getActionCode() == ActionCode.INCOME)
+                        .findFirst()
+                        .orElse(null)); // Foreign Aid or Income to get to 7 coins for a Coup next turn.
+            }
+            // Consider swapping if having excess coins and possibly bad cards.
+        }
+
+        if (humanPlayerCardCount == 1 && aiPlayer.getCoins() > 3) {
+            return decisionOf(availableActions.stream()
+                    .filter(action -> action.getActionCode() == ActionCode.ASSASSINATE)
+                    .findFirst()
+                    .orElse(null));
+        }
+        return Heuristic.RANDOM_DECISION;
+    }
+
+    @Test
+    void compiledPolicyMatchesRuleCascade() {
+        Game game = new Game(new Deck(EnumSet.allOf(Deck.CardType.class), Deck.NUMBER_OF_COPIES));
+        Player aiPlayer = new Player("AI");
+        Player humanPlayer = new Player("Player");
+        game.addPlayer(aiPlayer);
+        game.addPlayer(humanPlayer);
+        game.setCurrentPlayerIndex(0);
+        // The actions in the order of Game.getAvailableActions, a subset of them is offered in each position
+        List<Action> allActions = List.of(new IncomeAction(aiPlayer, humanPlayer),
+                new ForeignAidAction(aiPlayer, humanPlayer), new CoupAction(aiPlayer, humanPlayer),
+                new TaxAction(aiPlayer, humanPlayer), new AssassinateAction(aiPlayer, humanPlayer),
+                new StealAction(aiPlayer, humanPlayer), new SwapAction(aiPlayer, humanPlayer));
+
+        int differences = 0;
+        List<String> samples = new ArrayList<>();
+        for (List<Card> hand : allHands()) {
+            aiPlayer.setCards(hand);
+            for (int opponentCards = 0; opponentCards <= MAX_OPPONENT_CARDS; opponentCards++) {
+                List<Card> opponentHand = new ArrayList<>();
+                for (int i = 0; i < opponentCards; i++) {
+                    opponentHand.add(new Card(CONTESSA));
+                }
+                humanPlayer.setCards(opponentHand);
+                for (int opponentCoins : OPPONENT_COINS) {
+                    humanPlayer.setCoins(opponentCoins);
+                    for (int coins = 0; coins <= MAX_COINS; coins++) {
+                        aiPlayer.setCoins(coins);
+                        for (int subset = 0; subset < 1 << allActions.size(); subset++) {
+                            List<Action> availableActions = new ArrayList<>();
+                            for (int i = 0; i < allActions.size(); i++) {
+                                if ((subset & 1 << i) != 0) {
+                                    availableActions.add(allActions.get(i));
+                                }
+                            }
+                            byte expected = applyRuleCascade(availableActions, aiPlayer, humanPlayer);
+                            byte compiled = Heuristic.lookUpRolloutDecision(availableActions, game);
+                            if (expected != compiled && ++differences <= MAX_SAMPLES) {
+                                samples.add(coins + " coins, hand " + hand + ", opponent " + opponentCards
+                                        + " cards and " + opponentCoins + " coins, actions "
+                                        + availableActions.stream().map(Action::getActionCode).toList()
+                                        + ": " + describe(compiled) + " instead of " + describe(expected));
+                            }
+                        }
+                    }
+                }
+            }
+        }
+        assertEquals(0, differences, () -> "Different decisions, for example " + samples);
+    }
+
+    /**
+     * Returns every hand of one or two cards, ignoring the order of the cards.
+     */
+    private static List<List<Card>> allHands() {
+        Deck.CardType[] cardTypes = Deck.CardType.values();
+        List<List<Card>> hands = new ArrayList<>();
+        for (int first = 0; first < cardTypes.length; first++) {
+            hands.add(List.of(new Card(cardTypes[first])));
+            for (int second = first; second < cardTypes.length; second++) {
+                hands.add(List.of(new Card(cardTypes[first]), new Card(cardTypes[second])));
+            }
+        }
+        return hands;
+    }
+
+    /**
+     * Encodes the action chosen by a rule as a decision of the compiled policy.
+     */
+    private static byte decisionOf(Action action) {
+        return action == null ? Heuristic.NO_DECISION : (byte) action.getActionCode().ordinal();
+    }
+
+    /**
+     * Describes a decision for the report.
+     */
+    private static String describe(byte decision) {
+        if (decision == Heuristic.NO_DECISION) {
+            return "no action";
+        }
+        if (decision == Heuristic.RANDOM_DECISION) {
+            return "the random fallback";
+        }
+        return ActionCode.values()[decision].toString();
+    }
+}
@@ -0,0 +1,127 @@
+package com.example.demo6.Model;
+
+import com.example.demo6.Model.Actions.Action;
+import com.example.demo6.Model.Actions.ActionCode;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+
+/**
+ * Checks that {@link Game#copyInto(Game)} gives the same state as {@link Game#deepCopy()}, in positions taken from
+ * random games and into targets that are reused from one position to the next. Both copies shuffle the deck, so
+ * decks are compared by the number of cards of every type.
+ */
+class GameCopyTest {
+    private static final int GAMES = 500;
+    private static final int MAX_MOVES = 30;
+
+    /**
+     * Creates a new two-player game with dealt hands.
+     */
+    private static Game newGame() {
+        Game game = new Game(new Deck(EnumSet.allOf(Deck.CardType.class), Deck.NUMBER_OF_COPIES));
+        game.addPlayer(new Player(Game.HUMAN_PLAYER_NAME));
+        game.addPlayer(new Player(Game.AI_PLAYER_NAME));
+        return game;
+    }
+
+    /**
+     * Creates an empty game to copy into.
+     */
+    private static Game emptyGame() {
+        return new Game(new Deck(EnumSet.noneOf(Deck.CardType.class), 0));
+    }
+
+    /**
+     * Plays a random legal action that needs no cards, and takes a card from the opponent after a coup or an
+     * assassination.
+     */
+    private static void playRandomMove(Game game, Random random) {
+        Player player = game.getCurrentPlayer();
+        List<Action> actions = new ArrayList<>(game.getAvailableActions(player));
+        actions.removeIf(action -> action.getActionCode() == ActionCode.SWAP);
+        Action action = actions.get(random.nextInt(actions.size()));
+        List<Card> cards = null;
+        if (action.getActionCode() == ActionCode.COUP || action.getActionCode() == ActionCode.ASSASSINATE) {
+            cards = List.of(game.getOpponent(player).getCards().get(0));
+        }
+        game.executeAction(action, cards);
+        if (!game.isGameOver()) {
+            game.switchTurns();
+        }
+    }
+
+    /**
+     * Counts the cards of every type in a deck.
+     */
+    private static int[] countCards(Deck deck) {
+        int[] counts = new int[Deck.CardType.values().length];
+        for (Card card : deck.copyContents()) {
+            counts[card.getType().ordinal()]++;
+        }
+        return counts;
+    }
+
+    /**
+     * Asserts that two copies have the same players, hands, coins, current player and deck contents.
+     */
+    private static void assertSameState(Game expected, Game actual, String position) {
+        assertEquals(expected.getCurrentPlayerIndex(), actual.getCurrentPlayerIndex(), position);
+        assertEquals(expected.isGameOver(), actual.isGameOver(), position);
+        assertEquals(expected.getPlayers().size(), actual.getPlayers().size(), position);
+        for (int i = 0; i < expected.getPlayers().size(); i++) {
+            Player expectedPlayer = expected.getPlayers().get(i);
+            Player actualPlayer = actual.getPlayers().get(i);
+            assertEquals(expectedPlayer.getName(), actualPlayer.getName(), position);
+            assertEquals(expectedPlayer.getCoins(), actualPlayer.getCoins(), position);
+            assertEquals(expectedPlayer.getCards(), actualPlayer.getCards(), position);
+            assertEquals(expectedPlayer.getHandKey(), actualPlayer.getHandKey(), position);
+        }
+        if (!expected.isGameOver()) {
+            assertEquals(expected.getCurrentPlayer().getName(), actual.getCurrentPlayer().getName(), position);
+        }
+        assertEquals(expected.getDeck().getSize(), actual.getDeck().getSize(), position);
+        assertArrayEquals(countCards(expected.getDeck()), countCards(actual.getDeck()), position);
+        assertEquals(expected.getCanonicalStateKey(), actual.getCanonicalStateKey(), position);
+    }
+
+    @Test
+    void copyIntoMatchesDeepCopy() {
+        Random random = new Random(1);
+        Game target = emptyGame();
+        for (int g = 0; g < GAMES; g++) {
+            Game game = newGame();
+            for (int move = 0; !game.isGameOver() && move < MAX_MOVES; move++) {
+                String position = "move " + move + " of game " + g;
+                game.copyInto(target);
+                assertSameState(game.deepCopy(), target, position);
+                assertSameState(game, target, position);
+                playRandomMove(game, random);
+            }
+        }
+    }
+
+    @Test
+    void copyIsIndependentOfTheOriginal() {
+        Game game = newGame();
+        Game target = emptyGame();
+        game.copyInto(target);
+        assertNotSame(game.getDeck(), target.getDeck());
+        int coins = game.getHumanPlayer().getCoins();
+        int deckSize = game.getDeck().getSize();
+        Player copiedHuman = target.getHumanPlayer();
+        copiedHuman.setCoins(11);
+        copiedHuman.returnCard(copiedHuman.getCards().get(0));
+        target.getDeck().getCard();
+        assertEquals(coins, game.getHumanPlayer().getCoins());
+        assertEquals(2, game.getHumanPlayer().getCards().size());
+        assertEquals(deckSize, game.getDeck().getSize());
+    }
+}
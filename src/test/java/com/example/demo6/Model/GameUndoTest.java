@@ -0,0 +1,140 @@
+package com.example.demo6.Model;
+
+import com.example.demo6.Model.Actions.Action;
+import com.example.demo6.Model.Actions.ActionCode;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks that {@link Game#undo(UndoLog)} takes back everything a move did since the matching
+ * {@link Game#recordUndo(UndoLog)}. Random games are played move by move and then undone move by move, and the
+ * state after every undo is compared with the state before the move through {@link GameSerializer}, which covers
+ * the current player, the coins and hands of both players and the deck in its order.
+ */
+class GameUndoTest {
+    private static final int GAMES = 2000;
+    private static final int MAX_MOVES = 30;
+
+    /**
+     * Returns the serialized state of a game.
+     */
+    private static byte[] stateOf(Game game) {
+        ByteBuffer buffer = ByteBuffer.allocate(GameSerializer.serializedSize(game));
+        GameSerializer.write(game, buffer);
+        return buffer.array();
+    }
+
+    /**
+     * Creates a new two-player game with dealt hands.
+     */
+    private static Game newGame() {
+        Game game = new Game(new Deck(EnumSet.allOf(Deck.CardType.class), Deck.NUMBER_OF_COPIES));
+        game.addPlayer(new Player(Game.HUMAN_PLAYER_NAME));
+        game.addPlayer(new Player(Game.AI_PLAYER_NAME));
+        return game;
+    }
+
+    /**
+     * Records the state and plays a random legal action of the player to move, choosing the cards of the action
+     * the way the tree search does, after the record, so the cards drawn for a swap are taken back as well.
+     */
+    private static void playRandomMove(Game game, Random random, UndoLog undoLog) {
+        Player player = game.getCurrentPlayer();
+        Player opponent = game.getOpponent(player);
+        List<Action> actions = game.getAvailableActions(player);
+        Action action = actions.get(random.nextInt(actions.size()));
+        game.recordUndo(undoLog);
+        List<Card> cards = null;
+        if (action.getActionCode() == ActionCode.SWAP) {
+            List<Card> newCards = game.getDeck().drawCards(2);
+            List<Card> swapOptions = new ArrayList<>(player.getCards());
+            swapOptions.addAll(newCards);
+            cards = new ArrayList<>(player.selectRandomCardsToKeep(swapOptions));
+            cards.addAll(newCards);
+        } else if (action.getActionCode() == ActionCode.COUP || action.getActionCode() == ActionCode.ASSASSINATE) {
+            cards = List.of(opponent.getCards().get(0));
+        }
+        game.executeAction(action, cards);
+    }
+
+    /**
+     * Plays a random legal action that needs no cards with {@link Game#makeMove(Action, List, UndoLog)}.
+     */
+    private static void makeRandomMove(Game game, Random random, UndoLog undoLog) {
+        Player player = game.getCurrentPlayer();
+        List<Action> actions = new ArrayList<>(game.getAvailableActions(player));
+        actions.removeIf(action -> action.getActionCode() == ActionCode.SWAP
+                || action.getActionCode() == ActionCode.COUP || action.getActionCode() == ActionCode.ASSASSINATE);
+        game.makeMove(actions.get(random.nextInt(actions.size())), null, undoLog);
+    }
+
+    @Test
+    void undoRestoresTheStateBeforeEveryMove() {
+        Random random = new Random(1);
+        UndoLog undoLog = new UndoLog();
+        for (int g = 0; g < GAMES; g++) {
+            Game game = newGame();
+            List<byte[]> states = new ArrayList<>();
+            while (!game.isGameOver() && states.size() < MAX_MOVES) {
+                states.add(stateOf(game));
+                playRandomMove(game, random, undoLog);
+                if (!game.isGameOver()) {
+                    game.switchTurns();
+                }
+            }
+            for (int i = states.size() - 1; i >= 0; i--) {
+                game.undo(undoLog);
+                assertArrayEquals(states.get(i), stateOf(game), "State after undoing move " + (i + 1) + " of game " + g);
+            }
+            assertTrue(undoLog.isEmpty());
+        }
+    }
+
+    @Test
+    void undoTakesBackMakeMove() {
+        Random random = new Random(3);
+        UndoLog undoLog = new UndoLog();
+        Game game = newGame();
+        List<byte[]> states = new ArrayList<>();
+        for (int i = 0; i < MAX_MOVES; i++) {
+            states.add(stateOf(game));
+            makeRandomMove(game, random, undoLog);
+            game.switchTurns();
+        }
+        for (int i = states.size() - 1; i >= 0; i--) {
+            game.undo(undoLog);
+            assertArrayEquals(states.get(i), stateOf(game), "State after undoing move " + (i + 1));
+        }
+    }
+
+    @Test
+    void undoTakesBackCardsLostOutsideTheMove() {
+        Random random = new Random(2);
+        UndoLog undoLog = new UndoLog();
+        Game game = newGame();
+        byte[] before = stateOf(game);
+        game.recordUndo(undoLog);
+        // A challenge that costs the mover a card happens between the record and the action
+        game.getHumanPlayer().loseRandomInfluence();
+        game.getAIPlayer().returnCard(game.getAIPlayer().getCards().get(0));
+        game.getHumanPlayer().setCoins(random.nextInt(12));
+        game.switchTurns();
+        game.undo(undoLog);
+        assertArrayEquals(before, stateOf(game));
+    }
+
+    @Test
+    void undoWithoutRecordFails() {
+        Game game = newGame();
+        assertThrows(IllegalStateException.class, () -> game.undo(new UndoLog()));
+    }
+}
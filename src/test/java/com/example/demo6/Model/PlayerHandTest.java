@@ -0,0 +1,117 @@
+package com.example.demo6.Model;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Checks that the per-type card counts of a {@link Player}, its card type mask and its hand key, which are updated
+ * incrementally, always match the card list. Random sequences of the operations that change a hand are applied to
+ * both players of a game: returning a card, losing an influence, keeping random cards, swapping, drawing and
+ * copying the game. After every operation the counts are recomputed from the cards and compared.
+ */
+class PlayerHandTest {
+    private static final int GAMES = 2000;
+    private static final int OPERATIONS = 30;
+
+    /**
+     * Asserts that the counts, the mask and the hand key of a player match its card list.
+     */
+    private static void assertCountsMatchCards(Player player, String step) {
+        List<Card> cards = player.getCards();
+        int[] counts = new int[Deck.CardType.values().length];
+        int mask = 0;
+        for (Card card : cards) {
+            counts[card.getType().ordinal()]++;
+            mask |= 1 << card.getType().ordinal();
+        }
+        for (Deck.CardType cardType : Deck.CardType.values()) {
+            assertEquals(counts[cardType.ordinal()], player.getCardCount(cardType), () -> step + ", count of " + cardType);
+            assertEquals(counts[cardType.ordinal()] > 0, player.hasCard(cardType), () -> step + ", has " + cardType);
+        }
+        assertEquals(mask, player.getCardTypeMask(), () -> step + ", type mask of " + cards);
+        int handKey = cards.size() > 2 ? Player.NO_HAND_KEY : Player.packHandKey(
+                cards.isEmpty() ? null : cards.get(0).getType(), cards.size() < 2 ? null : cards.get(1).getType());
+        assertEquals(handKey, player.getHandKey(), () -> step + ", hand key of " + cards);
+    }
+
+    /**
+     * Applies one random operation that changes the hand of a player.
+     */
+    private static void changeHand(Game game, Player player, Random random) {
+        Deck deck = game.getDeck();
+        List<Card> cards = player.getCards();
+        switch (random.nextInt(5)) {
+            case 0 -> {
+                if (!cards.isEmpty()) {
+                    player.returnCard(cards.get(random.nextInt(cards.size())));
+                }
+            }
+            case 1 -> player.loseRandomInfluence();
+            case 2 -> {
+                if (deck.getSize() >= 2) {
+                    player.selectRandomCardsToKeep(deck.drawCards(2));
+                }
+            }
+            case 3 -> {
+                if (deck.getSize() >= 2 && !cards.isEmpty()) {
+                    List<Card> newCards = deck.drawCards(2);
+                    List<Card> options = new ArrayList<>(cards);
+                    options.addAll(newCards);
+                    Collections.shuffle(options, random);
+                    player.swapCards(new ArrayList<>(options.subList(0, 2)), newCards);
+                }
+            }
+            default -> {
+                if (deck.getSize() >= 2 && cards.size() < 3) {
+                    player.pickCards();
+                }
+            }
+        }
+    }
+
+    @Test
+    void countsMatchCardsAfterRandomChanges() {
+        Random random = new Random(3);
+        for (int g = 0; g < GAMES; g++) {
+            Game game = new Game(new Deck(EnumSet.allOf(Deck.CardType.class), Deck.NUMBER_OF_COPIES));
+            Player human = new Player(Game.HUMAN_PLAYER_NAME);
+            Player ai = new Player(Game.AI_PLAYER_NAME);
+            game.addPlayer(human);
+            game.addPlayer(ai);
+            for (int i = 0; i < OPERATIONS; i++) {
+                String step = "operation " + i + " of game " + g;
+                changeHand(game, random.nextBoolean() ? human : ai, random);
+                assertCountsMatchCards(human, step);
+                assertCountsMatchCards(ai, step);
+                int activePlayers = (human.getCards().isEmpty() ? 0 : 1) + (ai.getCards().isEmpty() ? 0 : 1);
+                assertEquals(activePlayers, game.getActivePlayers().size(), step);
+
+                Game copy = game.deepCopy();
+                assertCountsMatchCards(copy.getHumanPlayer(), step + ", deepCopy");
+                assertCountsMatchCards(copy.getAIPlayer(), step + ", deepCopy");
+                Game target = new Game(new Deck(EnumSet.noneOf(Deck.CardType.class), 0));
+                game.copyInto(target);
+                assertCountsMatchCards(target.getHumanPlayer(), step + ", copyInto");
+                assertCountsMatchCards(target.getAIPlayer(), step + ", copyInto");
+            }
+        }
+    }
+
+    @Test
+    void handKeyIgnoresTheOrderOfTheCards() {
+        Player first = new Player(Game.HUMAN_PLAYER_NAME);
+        Player second = new Player(Game.AI_PLAYER_NAME);
+        first.setCards(List.of(new Card(Deck.CardType.DUKE), new Card(Deck.CardType.CONTESSA)));
+        second.setCards(List.of(new Card(Deck.CardType.CONTESSA), new Card(Deck.CardType.DUKE)));
+        assertEquals(first.getHandKey(), second.getHandKey());
+        assertCountsMatchCards(first, "set cards");
+        assertCountsMatchCards(second, "set cards");
+    }
+}
@@ -0,0 +1,128 @@
+package com.example.demo6.AI;
+
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * The vector kernel of {@link LockstepRollouts}: it loads the games of a {@link RolloutBatch} into the lanes of
+ * integer vectors, one vector per field, and plays one turn of all of them with each pass of branch-free vector
+ * operations. The legal actions of every lane are comparisons of its coins, the random choice maps the lane's
+ * xorshift number onto the count of its legal actions, and the effects of the chosen actions are blended together.
+ * Lanes whose game is over are masked out and keep their state until the slowest game of the vector ends.
+ *
+ * <p>This class links against {@code jdk.incubator.vector}. It lives outside the main sources and is only compiled
+ * by the {@code vector} Maven profile, and {@link LockstepRollouts} only loads it after it found the module in the
+ * boot layer.
+ */
+final class VectorRolloutKernel implements RolloutKernel {
+    private static final VectorSpecies<Integer> SPECIES = IntVector.SPECIES_PREFERRED.length() > RolloutBatch.MAX_LANES
+            ? IntVector.SPECIES_512 : IntVector.SPECIES_PREFERRED;
+    private static final IntVector ZERO = IntVector.zero(SPECIES);
+    private static final IntVector ONE = IntVector.broadcast(SPECIES, 1);
+    private static final IntVector TWO = IntVector.broadcast(SPECIES, 2);
+    private static final IntVector FOUR = IntVector.broadcast(SPECIES, 4);
+
+    /**
+     * Creates the kernel, which {@link LockstepRollouts} does by reflection.
+     */
+    VectorRolloutKernel() {
+    }
+
+    /**
+     * Returns the number of games played in the lanes of one vector.
+     * @return the number of lanes, at most {@link RolloutBatch#MAX_LANES}
+     */
+    @Override
+    public int laneCount() {
+        return SPECIES.length();
+    }
+
+    /**
+     * Plays all games of a batch from the states it was filled with, a vector of games at a time.
+     * @param batch the batch to play
+     * @param maxTurns the number of turns after which a game ends without a winner
+     */
+    @Override
+    public void run(RolloutBatch batch, int maxTurns) {
+        batch.reset();
+        // The columns are padded to a multiple of the largest lane count, so the last vector never reads past them
+        for (int offset = 0; offset < batch.size(); offset += SPECIES.length()) {
+            runLanes(batch, offset, maxTurns);
+        }
+    }
+
+    /**
+     * Plays the games of one vector until all of them are over and stores their final states.
+     */
+    private static void runLanes(RolloutBatch batch, int offset, int maxTurns) {
+        IntVector coins0 = IntVector.fromArray(SPECIES, batch.coins0, offset);
+        IntVector coins1 = IntVector.fromArray(SPECIES, batch.coins1, offset);
+        IntVector cards0 = IntVector.fromArray(SPECIES, batch.cards0, offset);
+        IntVector cards1 = IntVector.fromArray(SPECIES, batch.cards1, offset);
+        IntVector current = IntVector.fromArray(SPECIES, batch.currentPlayer, offset);
+        IntVector turns = IntVector.fromArray(SPECIES, batch.turns, offset);
+        IntVector random = IntVector.fromArray(SPECIES, batch.random, offset);
+        while (true) {
+            VectorMask<Integer> active = cards0.compare(VectorOperators.GT, 0)
+                    .and(cards1.compare(VectorOperators.GT, 0))
+                    .and(turns.compare(VectorOperators.LT, maxTurns));
+            if (!active.anyTrue()) {
+                break;
+            }
+            VectorMask<Integer> second = current.compare(VectorOperators.EQ, 1);
+            IntVector coins = coins0.blend(coins1, second);
+            IntVector opponentCoins = coins1.blend(coins0, second);
+
+            // The legal actions, in the order of Game.getAvailableActions: income, foreign aid, coup, tax,
+            // assassinate, steal and swap, where income, foreign aid, tax and swap are always legal
+            VectorMask<Integer> canCoup = coins.compare(VectorOperators.GE, 7);
+            VectorMask<Integer> canAssassinate = coins.compare(VectorOperators.GE, 3);
+            VectorMask<Integer> canSteal = opponentCoins.compare(VectorOperators.GT, 0);
+            IntVector count = FOUR.add(ONE, canCoup).add(ONE, canAssassinate).add(ONE, canSteal);
+            IntVector taxIndex = TWO.add(ONE, canCoup);
+            IntVector stealIndex = taxIndex.add(ONE).add(ONE, canAssassinate);
+            IntVector swapIndex = stealIndex.add(ONE, canSteal);
+
+            IntVector next = random.lanewise(VectorOperators.XOR, random.lanewise(VectorOperators.LSHL, 13));
+            next = next.lanewise(VectorOperators.XOR, next.lanewise(VectorOperators.LSHR, 17));
+            next = next.lanewise(VectorOperators.XOR, next.lanewise(VectorOperators.LSHL, 5));
+            random = random.blend(next, active);
+            IntVector index = next.lanewise(VectorOperators.LSHR, 16).mul(count).lanewise(VectorOperators.LSHR, 16);
+
+            VectorMask<Integer> income = index.compare(VectorOperators.EQ, 0);
+            VectorMask<Integer> foreignAid = index.compare(VectorOperators.EQ, 1);
+            VectorMask<Integer> coup = index.compare(VectorOperators.GE, 2).and(index.compare(VectorOperators.LT, taxIndex));
+            VectorMask<Integer> tax = index.compare(VectorOperators.EQ, taxIndex);
+            VectorMask<Integer> assassinate = index.compare(VectorOperators.GT, taxIndex)
+                    .and(index.compare(VectorOperators.LT, stealIndex));
+            VectorMask<Integer> steal = index.compare(VectorOperators.GE, stealIndex)
+                    .and(index.compare(VectorOperators.LT, swapIndex));
+
+            IntVector stolenCoins = opponentCoins.min(2);
+            IntVector gain = ZERO.blend(1, income).blend(2, foreignAid).blend(3, tax)
+                    .blend(stolenCoins, steal).blend(-3, assassinate).blend(-7, coup);
+            coins = coins.add(gain);
+            opponentCoins = opponentCoins.sub(stolenCoins, steal);
+            coins0 = coins0.blend(coins.blend(opponentCoins, second), active);
+            coins1 = coins1.blend(opponentCoins.blend(coins, second), active);
+
+            VectorMask<Integer> hit = coup.or(assassinate).and(active);
+            cards0 = cards0.sub(ONE, hit.and(second));
+            cards1 = cards1.sub(ONE, hit.andNot(second));
+            turns = turns.add(ONE, active);
+            // The turn only passes when the game goes on, a finished game stays with the player who won it
+            VectorMask<Integer> goesOn = active.and(cards0.compare(VectorOperators.GT, 0))
+                    .and(cards1.compare(VectorOperators.GT, 0));
+            current = current.lanewise(VectorOperators.XOR, 1, goesOn);
+        }
+        coins0.intoArray(batch.coins0, offset);
+        coins1.intoArray(batch.coins1, offset);
+        cards0.intoArray(batch.cards0, offset);
+        cards1.intoArray(batch.cards1, offset);
+        current.intoArray(batch.currentPlayer, offset);
+        turns.intoArray(batch.turns, offset);
+        random.intoArray(batch.random, offset);
+    }
+}